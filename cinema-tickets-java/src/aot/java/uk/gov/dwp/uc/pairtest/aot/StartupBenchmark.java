@@ -0,0 +1,218 @@
+package uk.gov.dwp.uc.pairtest.aot;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+
+/**
+ * Measures how long a new node takes to serve traffic: each run launches a fresh JVM on the packaged
+ * jar with {@link StartupProbe} and times it from launch to its first successful {@code purchaseTickets},
+ * alongside the resident set size at that point. Each mode is one way of starting the same jar:
+ * <ul>
+ * <li>{@code jit}: package scan and configuration parsing at startup, as before</li>
+ * <li>{@code cds}: the same, with a class data sharing archive from a training run</li>
+ * <li>{@code aot}: the bean definitions generated at build time ({@code -Dspring.aot.enabled=true})</li>
+ * <li>{@code aot-cds}: both</li>
+ * </ul>
+ * Archives are recreated from a training run of their mode every time, since one only matches the
+ * jar it was dumped with. Results are printed and written to {@code summary.json}.
+ *
+ * <p>Arguments are {@code name=value} pairs, see {@link #DEFAULTS}; {@code jar} is set by the build.
+ */
+public final class StartupBenchmark {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("runs", "5");
+        DEFAULTS.put("modes", "jit,cds,aot,aot-cds");
+        DEFAULTS.put("jar", "");
+        DEFAULTS.put("report.dir", "target/startup");
+    }
+
+    private StartupBenchmark() {
+    }
+
+    private enum Mode {
+        JIT(false, false), CDS(false, true), AOT(true, false), AOT_CDS(true, true);
+
+        final boolean aot;
+        final boolean cds;
+
+        Mode(boolean aot, boolean cds) {
+            this.aot = aot;
+            this.cds = cds;
+        }
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+
+        static Mode of(String label) {
+            return valueOf(label.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    // One cold start.
+    private record Sample(double millis, long residentKb) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0 || !DEFAULTS.containsKey(arg.substring(0, separator))) {
+                throw new IllegalArgumentException("Expected name=value with a name from " + DEFAULTS.keySet()
+                        + " but got " + arg);
+            }
+            settings.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        Path jar = Path.of(settings.get("jar"));
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalArgumentException("No application jar at " + jar + "; build it with mvn -Paot package");
+        }
+        int runs = Integer.parseInt(settings.get("runs"));
+        Path directory = Path.of(settings.get("report.dir"));
+        Files.createDirectories(directory);
+
+        // Class data sharing only archives classes loaded from jars, so the probe runs on the packaged
+        // application rather than the build output directory.
+        StringJoiner classpath = new StringJoiner(File.pathSeparator).add(jar.toString());
+        Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+                .filter(entry -> entry.endsWith(".jar"))
+                .forEach(classpath::add);
+        String java = ProcessHandle.current().info().command().orElse("java");
+
+        Map<Mode, List<Sample>> results = new LinkedHashMap<>();
+        for (String label : settings.get("modes").split(",")) {
+            Mode mode = Mode.of(label);
+            List<String> options = new ArrayList<>();
+            if (mode.aot) {
+                options.add("-Dspring.aot.enabled=true");
+            }
+            if (mode.cds) {
+                Path archive = directory.resolve(mode.label() + ".jsa").toAbsolutePath();
+                Files.deleteIfExists(archive);
+                List<String> training = new ArrayList<>(options);
+                training.add("-XX:ArchiveClassesAtExit=" + archive);
+                launch(java, training, classpath.toString(), directory.resolve(mode.label() + "-training"));
+                if (!Files.isRegularFile(archive)) {
+                    throw new IllegalStateException("The training run did not write " + archive);
+                }
+                options.add("-XX:SharedArchiveFile=" + archive);
+            }
+
+            // The first start also warms the file system cache for the jars, so it is not counted.
+            launch(java, options, classpath.toString(), directory.resolve(mode.label() + "-warmup"));
+            List<Sample> samples = new ArrayList<>();
+            for (int run = 1; run <= runs; run++) {
+                samples.add(launch(java, options, classpath.toString(), directory.resolve(mode.label() + "-" + run)));
+            }
+            results.put(mode, samples);
+            StringJoiner millis = new StringJoiner(" ");
+            samples.forEach(sample -> millis.add(String.format(Locale.ROOT, "%.1f", sample.millis())));
+            System.out.printf(Locale.ROOT, "%-8s %s ms%n", mode.label(), millis);
+        }
+
+        report(results, settings, directory.resolve("summary.json"));
+    }
+
+    private static Sample launch(String java, List<String> options, String classpath, Path runDirectory)
+            throws IOException, InterruptedException {
+        deleteRecursively(runDirectory);
+        Files.createDirectories(runDirectory);
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.addAll(options);
+        command.addAll(List.of("-cp", classpath, StartupProbe.class.getName(),
+                "OUTBOX_FILE=" + runDirectory.resolve("reservation-outbox.log"),
+                "JOURNAL_DIR=" + runDirectory.resolve("journal")));
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        long elapsed = -1;
+        long residentKb = -1;
+        Deque<String> lastLines = new ArrayDeque<>();
+        try (BufferedReader output = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            for (String line = output.readLine(); line != null; line = output.readLine()) {
+                if (elapsed < 0 && line.startsWith(StartupProbe.FIRST_PURCHASE)) {
+                    elapsed = System.nanoTime() - start;
+                    residentKb = Long.parseLong(line.substring(line.indexOf("rssKb=") + "rssKb=".length()));
+                }
+                lastLines.addLast(line);
+                if (lastLines.size() > 20) {
+                    lastLines.removeFirst();
+                }
+            }
+        }
+        int exitCode = process.waitFor();
+        if (exitCode != 0 || elapsed < 0) {
+            throw new IllegalStateException("Startup probe " + command + " failed with exit code " + exitCode
+                    + ":\n" + String.join("\n", lastLines));
+        }
+        return new Sample(elapsed / 1_000_000.0, residentKb);
+    }
+
+    private static void report(Map<Mode, List<Sample>> results, Map<String, String> settings, Path summary)
+            throws IOException {
+        double baseline = results.containsKey(Mode.JIT) ? median(results.get(Mode.JIT), Sample::millis) : Double.NaN;
+        System.out.printf(Locale.ROOT, "%n%-8s %12s %10s %10s %10s %10s%n", "mode", "median ms", "min ms", "max ms",
+                "rss MB", "vs jit");
+        StringJoiner modes = new StringJoiner(",\n    ", "{\n    ", "\n  }");
+        for (Map.Entry<Mode, List<Sample>> entry : results.entrySet()) {
+            List<Sample> samples = entry.getValue();
+            double median = median(samples, Sample::millis);
+            double min = samples.stream().mapToDouble(Sample::millis).min().orElse(Double.NaN);
+            double max = samples.stream().mapToDouble(Sample::millis).max().orElse(Double.NaN);
+            double residentMb = median(samples, sample -> sample.residentKb() / 1024.0);
+            System.out.printf(Locale.ROOT, "%-8s %12.1f %10.1f %10.1f %10.1f %9.2fx%n", entry.getKey().label(), median,
+                    min, max, residentMb, baseline / median);
+            modes.add(String.format(Locale.ROOT,
+                    "\"%s\": {\"timeToFirstPurchaseMs\": {\"median\": %.1f, \"min\": %.1f, \"max\": %.1f}, "
+                            + "\"residentMb\": %.1f}",
+                    entry.getKey().label(), median, min, max, residentMb));
+        }
+        StringJoiner settingsJson = new StringJoiner(", ", "{", "}");
+        settings.forEach((name, value) -> settingsJson.add("\"" + name + "\": \"" + value.replace("\\", "\\\\") + "\""));
+        Files.writeString(summary, "{\n  \"java\": \"" + Runtime.version() + "\",\n  \"settings\": " + settingsJson
+                + ",\n  \"modes\": " + modes + "\n}\n");
+        System.out.println("\nWritten to " + summary);
+    }
+
+    private static double median(List<Sample> samples, ToDoubleFunction<Sample> value) {
+        double[] values = samples.stream().mapToDouble(value).sorted().toArray();
+        if (values.length == 0) {
+            return Double.NaN;
+        }
+        int middle = values.length / 2;
+        return values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package uk.gov.dwp.uc.pairtest.aot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.context.support.GenericApplicationContext;
+
+import uk.gov.dwp.uc.pairtest.CinemaTicketsApplication;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.services.TicketService;
+
+/**
+ * One cold start for {@link StartupBenchmark}: starts the application, makes a purchase, prints
+ * {@value #FIRST_PURCHASE} with the resident set size at that point, and exits. Arguments are passed
+ * on to the application as property overrides.
+ */
+public final class StartupProbe {
+
+    static final String FIRST_PURCHASE = "first-purchase";
+
+    private StartupProbe() {
+    }
+
+    public static void main(String[] args) {
+        Map<String, Object> properties = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            properties.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        GenericApplicationContext context = CinemaTicketsApplication.run(properties);
+        context.getBean(TicketService.class).purchaseTickets(1L, new TicketTypeRequest(Type.ADULT, 2),
+                new TicketTypeRequest(Type.CHILD, 1));
+        System.out.println(FIRST_PURCHASE + " rssKb=" + residentKb());
+        System.out.flush();
+        context.close();
+        System.exit(0);
+    }
+
+    // VmRSS from /proc, or -1 where there is none.
+    private static long residentKb() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.substring("VmRSS:".length()).replace("kB", "").trim());
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Not Linux.
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,103 @@
+package uk.gov.dwp.uc.pairtest.aot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.springframework.context.aot.ContextAotProcessor;
+import org.springframework.context.support.GenericApplicationContext;
+
+import uk.gov.dwp.uc.pairtest.CinemaTicketsApplication;
+
+/**
+ * Runs Spring's ahead-of-time processing over the application context. The generated bean
+ * definitions are compiled, and they are copied into the build output with the generated resources
+ * (including the GraalVM reachability metadata) so they end up in the jar.
+ *
+ * <p>Arguments are the build output directory, the group ID and the artifact ID, followed by any
+ * upper-case {@code NAME=value} property overrides the conditional beans should be decided with.
+ */
+public final class TicketingAotProcessor extends ContextAotProcessor {
+
+    private final Map<String, Object> properties;
+
+    private TicketingAotProcessor(Settings settings, Map<String, Object> properties) {
+        super(CinemaTicketsApplication.class, settings);
+        this.properties = properties;
+    }
+
+    @Override
+    protected GenericApplicationContext prepareApplicationContext(Class<?> application) {
+        return CinemaTicketsApplication.prepare(properties);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            throw new IllegalArgumentException("Expected the output directory, group ID and artifact ID");
+        }
+        Path outputDirectory = Path.of(args[0]);
+        Map<String, Object> properties = new HashMap<>();
+        for (int i = 3; i < args.length; i++) {
+            int separator = args[i].indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected NAME=value but got " + args[i]);
+            }
+            properties.put(args[i].substring(0, separator), args[i].substring(separator + 1));
+        }
+
+        // Generated into a directory of its own, since processing clears its output directories first.
+        Path generated = outputDirectory.resolveSibling("spring-aot").resolve("main");
+        Settings settings = Settings.builder()
+                .sourceOutput(generated.resolve("sources"))
+                .resourceOutput(generated.resolve("resources"))
+                .classOutput(generated.resolve("classes"))
+                .groupId(args[1])
+                .artifactId(args[2])
+                .build();
+        new TicketingAotProcessor(settings, properties).process();
+
+        compile(settings.getSourceOutput(), outputDirectory);
+        copy(settings.getResourceOutput(), outputDirectory);
+        copy(settings.getClassOutput(), outputDirectory);
+    }
+
+    private static void compile(Path sources, Path outputDirectory) throws IOException {
+        List<String> arguments = new ArrayList<>(List.of("--release", "21", "-proc:none",
+                "-cp", System.getProperty("java.class.path"), "-d", outputDirectory.toString()));
+        try (Stream<Path> files = Files.walk(sources)) {
+            files.filter(file -> file.toString().endsWith(".java")).map(Path::toString).forEach(arguments::add);
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler.run(null, null, null, arguments.toArray(String[]::new)) != 0) {
+            throw new IllegalStateException("Compiling the generated sources in " + sources + " failed");
+        }
+    }
+
+    private static void copy(Path from, Path to) throws IOException {
+        if (!Files.isDirectory(from)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(from)) {
+            files.filter(Files::isRegularFile).forEach(file -> {
+                Path target = to.resolve(from.relativize(file).toString().replace(File.separatorChar, '/'));
+                try {
+                    Files.createDirectories(target.getParent());
+                    Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package uk.gov.dwp.uc.pairtest.benchmark;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.config.TicketConfig;
+import uk.gov.dwp.uc.pairtest.config.TicketConfigSource;
+import uk.gov.dwp.uc.pairtest.services.BookTicketAndReserveSeat;
+import uk.gov.dwp.uc.pairtest.services.TicketProcessor;
+import uk.gov.dwp.uc.pairtest.services.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.utils.TicketAndAccountsValidations;
+
+/**
+ * Builds the purchase beans the way Spring would, with the values from application.properties and
+ * no-op gateways, so benchmarks do not need an application context.
+ */
+final class BenchmarkFixtures {
+
+    static final int MIN_TICKET = 1;
+    static final int MAX_TICKET = 25;
+    static final int CHILD_TICKET_PRICE = 15;
+    static final int ADULT_TICKET_PRICE = 25;
+
+    private BenchmarkFixtures() {
+    }
+
+    static TicketConfigSource ticketConfigSource() {
+        return new TicketConfigSource(
+                new TicketConfig(1, ADULT_TICKET_PRICE, CHILD_TICKET_PRICE, MIN_TICKET, MAX_TICKET), null);
+    }
+
+    static TicketProcessor ticketProcessor() {
+        return new TicketProcessor(ticketConfigSource());
+    }
+
+    static TicketAndAccountsValidations validations() {
+        return new TicketAndAccountsValidations(ticketConfigSource());
+    }
+
+    static TicketServiceImpl ticketService(TicketPaymentService payments, SeatReservationService seats) {
+        return new TicketServiceImpl(ticketProcessor(), new BookTicketAndReserveSeat(payments, seats),
+                validations());
+    }
+
+    static TicketServiceImpl ticketService() {
+        return ticketService((accountId, amount) -> { }, (accountId, count) -> { });
+    }
+}
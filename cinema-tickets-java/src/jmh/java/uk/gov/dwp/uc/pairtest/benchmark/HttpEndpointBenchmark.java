@@ -0,0 +1,178 @@
+package uk.gov.dwp.uc.pairtest.benchmark;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import uk.gov.dwp.uc.pairtest.domain.TicketSummary;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.http.TicketHttpServer;
+import uk.gov.dwp.uc.pairtest.http.TicketJsonCodec;
+
+/**
+ * Local throughput of the HTTP API with no-op gateways, next to the cost of the JSON codec alone.
+ * Each benchmark thread is one keep-alive connection sending a request and reading the response,
+ * over a bare socket so the client adds next to nothing; run with {@code -t N} for N concurrent
+ * connections. The gap between the codec and the round trips is the server and loopback overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpEndpointBenchmark {
+
+    @Param({ "SINGLE_TYPE", "ALL_TYPES", "MAX_SIZE" })
+    public RequestMix mix;
+
+    private ExecutorService purchaseExecutor;
+    private TicketHttpServer server;
+    private byte[] quote;
+    private byte[] purchase;
+    private ByteBuf order;
+    private TicketSummary summary;
+
+    @State(Scope.Thread)
+    public static class Connection {
+        private Socket socket;
+        private OutputStream out;
+        private InputStream in;
+        private final byte[] buffer = new byte[4096];
+
+        @Setup
+        public void open(HttpEndpointBenchmark benchmark) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), benchmark.server.getPort());
+            socket.setTcpNoDelay(true);
+            out = socket.getOutputStream();
+            in = socket.getInputStream();
+        }
+
+        @TearDown
+        public void close() throws IOException {
+            socket.close();
+        }
+
+        int exchange(byte[] request) throws IOException {
+            out.write(request);
+            out.flush();
+            // Responses always carry a Content-Length, so read the headers, then exactly that many bytes.
+            int read = 0;
+            int headerEnd = -1;
+            int contentLength = 0;
+            while (headerEnd < 0 || read < headerEnd + contentLength) {
+                int n = in.read(buffer, read, buffer.length - read);
+                if (n < 0) {
+                    throw new EOFException("Connection closed by the server");
+                }
+                read += n;
+                if (headerEnd < 0 && (headerEnd = indexOfBlankLine(read)) >= 0) {
+                    contentLength = contentLength(headerEnd);
+                }
+            }
+            int status = (buffer[9] - '0') * 100 + (buffer[10] - '0') * 10 + (buffer[11] - '0');
+            if (status != 200) {
+                throw new IllegalStateException("Unexpected status " + status);
+            }
+            return status;
+        }
+
+        private int indexOfBlankLine(int length) {
+            for (int i = 3; i < length; i++) {
+                if (buffer[i] == '\n' && buffer[i - 1] == '\r' && buffer[i - 2] == '\n' && buffer[i - 3] == '\r') {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+
+        private int contentLength(int headerEnd) {
+            String headers = new String(buffer, 0, headerEnd, StandardCharsets.US_ASCII).toLowerCase();
+            int start = headers.indexOf("content-length:") + "content-length:".length();
+            return Integer.parseInt(headers.substring(start, headers.indexOf('\r', start)).trim());
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        purchaseExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        server = new TicketHttpServer(BenchmarkFixtures.ticketService(), purchaseExecutor, 0);
+        server.start();
+
+        String body = orderJson(mix.requests());
+        quote = post("/quotes", body);
+        purchase = post("/purchases", body);
+        order = PooledByteBufAllocator.DEFAULT.directBuffer().writeBytes(body.getBytes(StandardCharsets.UTF_8));
+        summary = BenchmarkFixtures.ticketProcessor().processTickets(mix.requests());
+    }
+
+    @TearDown
+    public void tearDown() {
+        order.release();
+        server.close();
+        purchaseExecutor.close();
+    }
+
+    @Benchmark
+    public int quoteOverHttp(Connection connection) throws IOException {
+        return connection.exchange(quote);
+    }
+
+    @Benchmark
+    public int purchaseOverHttp(Connection connection) throws IOException {
+        return connection.exchange(purchase);
+    }
+
+    @Benchmark
+    public TicketJsonCodec.Order decodeOrder() {
+        return TicketJsonCodec.decodeOrder(order);
+    }
+
+    @Benchmark
+    public int encodeSummary() {
+        ByteBuf out = PooledByteBufAllocator.DEFAULT.directBuffer(160);
+        try {
+            TicketJsonCodec.encodeSummary(summary, out);
+            return out.readableBytes();
+        } finally {
+            out.release();
+        }
+    }
+
+    private static byte[] post(String path, String body) {
+        byte[] json = body.getBytes(StandardCharsets.UTF_8);
+        return ("POST " + path + " HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                + "Content-Length: " + json.length + "\r\n\r\n" + body).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String orderJson(TicketTypeRequest[] requests) {
+        StringJoiner tickets = new StringJoiner(",", "[", "]");
+        for (TicketTypeRequest request : requests) {
+            tickets.add("{\"type\":\"" + request.getTicketType() + "\",\"count\":" + request.getNoOfTickets() + "}");
+        }
+        return "{\"accountId\":12345,\"tickets\":" + tickets + "}";
+    }
+}
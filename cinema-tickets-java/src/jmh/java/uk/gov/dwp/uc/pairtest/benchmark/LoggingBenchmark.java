@@ -0,0 +1,61 @@
+package uk.gov.dwp.uc.pairtest.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketSummary;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.services.TicketServiceImpl;
+
+/**
+ * Allocation of the purchase path with the old eager INFO lines added back, against the current
+ * rate-limited logging. Compare {@code gc.alloc.rate.norm} between the two.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dbench.log.level=INFO")
+public class LoggingBenchmark {
+
+    private static final Long ACCOUNT_ID = 12345L;
+
+    Logger logger = LoggerFactory.getLogger(LoggingBenchmark.class);
+
+    private TicketTypeRequest[] requests;
+    private TicketSummary summary;
+    private TicketServiceImpl ticketService;
+
+    @Setup
+    public void setUp() {
+        requests = RequestMix.ALL_TYPES.requests();
+        summary = BenchmarkFixtures.ticketProcessor().processTickets(requests);
+        ticketService = BenchmarkFixtures.ticketService();
+    }
+
+    @Benchmark
+    public void eagerInfoLogging() {
+        logger.info("Validating account ID: " + ACCOUNT_ID);
+        logger.info("Processing ticket requests...");
+        logger.info("Validating ticket purchase: " + summary);
+        ticketService.purchaseTickets(ACCOUNT_ID, requests);
+    }
+
+    @Benchmark
+    public void rateLimitedLogging() {
+        ticketService.purchaseTickets(ACCOUNT_ID, requests);
+    }
+}
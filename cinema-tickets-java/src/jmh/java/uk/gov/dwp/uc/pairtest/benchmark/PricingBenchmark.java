@@ -0,0 +1,57 @@
+package uk.gov.dwp.uc.pairtest.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketSummary;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.services.TicketProcessor;
+
+/**
+ * Price-table pricing against the previous switch-based pricing. Logging is switched off
+ * ({@code -Dbench.log.level=OFF} is applied to the fork) so only the pricing loop is compared.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dbench.log.level=OFF")
+public class PricingBenchmark {
+
+    @Param({ "SINGLE_TYPE", "ALL_TYPES", "MAX_SIZE" })
+    public RequestMix mix;
+
+    private TicketTypeRequest[] requests;
+    private TicketProcessor ticketProcessor;
+    private SwitchPricingBaseline baseline;
+
+    @Setup
+    public void setUp() {
+        requests = mix.requests();
+        ticketProcessor = BenchmarkFixtures.ticketProcessor();
+        baseline = new SwitchPricingBaseline(BenchmarkFixtures.ADULT_TICKET_PRICE,
+                BenchmarkFixtures.CHILD_TICKET_PRICE);
+    }
+
+    @Benchmark
+    public TicketSummary priceTable() {
+        return ticketProcessor.processTickets(requests);
+    }
+
+    @Benchmark
+    public TicketSummary switchBaseline() {
+        return baseline.processTickets(requests);
+    }
+}
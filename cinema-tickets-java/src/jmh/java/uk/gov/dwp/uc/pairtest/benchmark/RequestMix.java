@@ -0,0 +1,27 @@
+package uk.gov.dwp.uc.pairtest.benchmark;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+
+/**
+ * Order shapes worth comparing: the cheapest path, every branch of the pricing switch, and the
+ * largest order the validations accept.
+ */
+public enum RequestMix {
+    SINGLE_TYPE(new TicketTypeRequest(Type.ADULT, 2)),
+    ALL_TYPES(new TicketTypeRequest(Type.ADULT, 2), new TicketTypeRequest(Type.CHILD, 2),
+            new TicketTypeRequest(Type.INFANT, 1)),
+    MAX_SIZE(new TicketTypeRequest(Type.ADULT, 10), new TicketTypeRequest(Type.CHILD, 5),
+            new TicketTypeRequest(Type.INFANT, 5), new TicketTypeRequest(Type.ADULT, 3),
+            new TicketTypeRequest(Type.CHILD, 2));
+
+    private final TicketTypeRequest[] requests;
+
+    RequestMix(TicketTypeRequest... requests) {
+        this.requests = requests;
+    }
+
+    public TicketTypeRequest[] requests() {
+        return requests;
+    }
+}
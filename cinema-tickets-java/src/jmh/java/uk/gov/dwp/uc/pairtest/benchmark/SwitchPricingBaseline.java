@@ -0,0 +1,58 @@
+package uk.gov.dwp.uc.pairtest.benchmark;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketSummary;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+
+/**
+ * The switch-per-entry pricing TicketProcessor used before the price table, kept as a baseline.
+ */
+final class SwitchPricingBaseline {
+    Logger logger = LoggerFactory.getLogger(SwitchPricingBaseline.class);
+
+    private final int adultTicketPrice;
+    private final int childTicketPrice;
+
+    SwitchPricingBaseline(int adultTicketPrice, int childTicketPrice) {
+        this.adultTicketPrice = adultTicketPrice;
+        this.childTicketPrice = childTicketPrice;
+    }
+
+    TicketSummary processTickets(TicketTypeRequest... ticketTypeRequests) {
+
+        logger.info("Processing ticket requests...");
+
+        logger.debug("Child Ticket Price: {}", childTicketPrice);
+        logger.debug("Adult Ticket Price: {}", adultTicketPrice);
+        var totalTickets = 0;
+        var totalSeats = 0;
+        var totalPrice = 0;
+        var infantTickets = 0;
+        var adultTickets = 0;
+        var childTickets = 0;
+
+        for (TicketTypeRequest request : ticketTypeRequests) {
+            int numberOfTickets = request.getNoOfTickets();
+            totalTickets += numberOfTickets;
+
+            switch (request.getTicketType()) {
+                case ADULT:
+                    totalPrice += numberOfTickets * adultTicketPrice;
+                    totalSeats += numberOfTickets;
+                    adultTickets += numberOfTickets;
+                    break;
+                case CHILD:
+                    totalPrice += numberOfTickets * childTicketPrice;
+                    totalSeats += numberOfTickets;
+                    childTickets += numberOfTickets;
+                    break;
+                case INFANT:
+                    infantTickets += numberOfTickets;
+                    break;
+            }
+        }
+        return new TicketSummary(totalTickets, totalSeats, totalPrice, adultTickets, childTickets, infantTickets);
+    }
+}
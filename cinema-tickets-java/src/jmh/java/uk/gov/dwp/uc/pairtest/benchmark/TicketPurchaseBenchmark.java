@@ -0,0 +1,83 @@
+package uk.gov.dwp.uc.pairtest.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketSummary;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.services.TicketProcessor;
+import uk.gov.dwp.uc.pairtest.services.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.utils.TicketAndAccountsValidations;
+
+/**
+ * Hot path of a purchase: pricing, validation, and the whole purchaseTickets call with no-op gateways,
+ * next to a memoised quote of the same order.
+ * Throughput and sampled latency (with percentiles) are reported together; run with {@code -t N} for
+ * thread scaling and {@code -prof gc} for the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TicketPurchaseBenchmark {
+
+    @Param({ "SINGLE_TYPE", "ALL_TYPES", "MAX_SIZE" })
+    public RequestMix mix;
+
+    private TicketTypeRequest[] requests;
+    private TicketProcessor ticketProcessor;
+    private TicketAndAccountsValidations validations;
+    private TicketServiceImpl ticketService;
+    private TicketSummary summary;
+
+    @Setup
+    public void setUp() {
+        requests = mix.requests();
+        ticketProcessor = BenchmarkFixtures.ticketProcessor();
+        validations = BenchmarkFixtures.validations();
+        ticketService = BenchmarkFixtures.ticketService();
+        summary = ticketProcessor.processTickets(requests);
+    }
+
+    @Benchmark
+    public TicketSummary processTickets() {
+        return ticketProcessor.processTickets(requests);
+    }
+
+    @Benchmark
+    public TicketSummary quote() {
+        return ticketService.quote(requests);
+    }
+
+    @Benchmark
+    public void validateTicketRequests(Blackhole blackhole) {
+        validations.validateAccountId(12345L);
+        validations.validateTicketRequests(requests);
+        blackhole.consume(requests);
+    }
+
+    @Benchmark
+    public void validateTicketPurchase(Blackhole blackhole) {
+        validations.validateTicketPurchase(summary);
+        blackhole.consume(summary);
+    }
+
+    @Benchmark
+    public void purchaseTickets() {
+        ticketService.purchaseTickets(12345L, requests);
+    }
+}
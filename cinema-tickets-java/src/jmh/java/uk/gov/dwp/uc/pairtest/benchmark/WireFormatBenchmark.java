@@ -0,0 +1,130 @@
+package uk.gov.dwp.uc.pairtest.benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import uk.gov.dwp.uc.pairtest.codec.TicketBinaryCodec;
+import uk.gov.dwp.uc.pairtest.domain.TicketSummary;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.http.TicketJsonCodec;
+
+/**
+ * The binary wire format against the JSON codec for the same orders and summaries, each reading
+ * from and writing into a reused direct buffer. The decode benchmarks return something derived from
+ * every field so neither side can skip work.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    private static final long ACCOUNT_ID = 12345L;
+
+    @Param({ "SINGLE_TYPE", "ALL_TYPES", "MAX_SIZE" })
+    public RequestMix mix;
+
+    private TicketTypeRequest[] requests;
+    private TicketSummary summary;
+    private ByteBuf jsonOrder;
+    private ByteBuf jsonOut;
+    private ByteBuffer binaryOrder;
+    private ByteBuffer binarySummary;
+    private ByteBuffer binaryOut;
+    private final TicketBinaryCodec.OrderView orderView = new TicketBinaryCodec.OrderView();
+    private final TicketBinaryCodec.SummaryView summaryView = new TicketBinaryCodec.SummaryView();
+
+    @Setup
+    public void setUp() {
+        requests = mix.requests();
+        summary = BenchmarkFixtures.ticketProcessor().processTickets(requests);
+
+        StringJoiner tickets = new StringJoiner(",", "[", "]");
+        for (TicketTypeRequest request : requests) {
+            tickets.add("{\"type\":\"" + request.getTicketType() + "\",\"count\":" + request.getNoOfTickets() + "}");
+        }
+        byte[] json = ("{\"accountId\":" + ACCOUNT_ID + ",\"tickets\":" + tickets + "}")
+                .getBytes(StandardCharsets.UTF_8);
+        jsonOrder = PooledByteBufAllocator.DEFAULT.directBuffer(json.length).writeBytes(json);
+        jsonOut = PooledByteBufAllocator.DEFAULT.directBuffer(160);
+
+        binaryOrder = ByteBuffer.allocateDirect(TicketBinaryCodec.maxOrderLength(requests.length));
+        TicketBinaryCodec.encodeOrder(ACCOUNT_ID, requests, binaryOrder);
+        binaryOrder.flip();
+        binarySummary = ByteBuffer.allocateDirect(TicketBinaryCodec.SUMMARY_LENGTH);
+        TicketBinaryCodec.encodeSummary(summary, binarySummary);
+        binarySummary.flip();
+        binaryOut = ByteBuffer.allocateDirect(
+                Math.max(TicketBinaryCodec.maxOrderLength(requests.length), TicketBinaryCodec.SUMMARY_LENGTH));
+    }
+
+    @TearDown
+    public void tearDown() {
+        jsonOrder.release();
+        jsonOut.release();
+    }
+
+    @Benchmark
+    public int decodeOrderJson() {
+        TicketJsonCodec.Order order = TicketJsonCodec.decodeOrder(jsonOrder);
+        int sum = (int) order.getAccountId().longValue();
+        for (TicketTypeRequest request : order.getTicketTypeRequests()) {
+            sum += request.getTicketType().ordinal() + request.getNoOfTickets();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int decodeOrderBinary() {
+        TicketBinaryCodec.OrderView order = orderView.wrap(binaryOrder.position(0));
+        int sum = (int) order.accountId();
+        for (int i = 0; i < order.requestCount(); i++) {
+            sum += order.type(i).ordinal() + order.count(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int encodeOrderBinary() {
+        TicketBinaryCodec.encodeOrder(ACCOUNT_ID, requests, binaryOut.clear());
+        return binaryOut.position();
+    }
+
+    @Benchmark
+    public int encodeSummaryJson() {
+        TicketJsonCodec.encodeSummary(summary, jsonOut.clear());
+        return jsonOut.readableBytes();
+    }
+
+    @Benchmark
+    public int encodeSummaryBinary() {
+        TicketBinaryCodec.encodeSummary(summary, binaryOut.clear());
+        return binaryOut.position();
+    }
+
+    @Benchmark
+    public int decodeSummaryBinary() {
+        TicketBinaryCodec.SummaryView view = summaryView.wrap(binarySummary.position(0));
+        return view.getTotalTickets() + view.getTotalSeats() + view.getTotalPrice() + view.getAdultTickets()
+                + view.getChildTickets() + view.getInfantTickets();
+    }
+}
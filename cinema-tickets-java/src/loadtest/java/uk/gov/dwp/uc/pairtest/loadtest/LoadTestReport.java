@@ -0,0 +1,129 @@
+package uk.gov.dwp.uc.pairtest.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+
+/**
+ * Writes a run to its own directory so runs from different builds can be compared side by side:
+ * <ul>
+ * <li>{@code summary.json}: settings, throughput, outcomes and the headline percentiles</li>
+ * <li>{@code response-time.hgrm} and {@code service-time.hgrm}: full percentile distributions,
+ * which HdrHistogram's plotter can overlay</li>
+ * <li>{@code intervals.hlog}: a histogram per second, tagged {@code response} and {@code service},
+ * for HistogramLogAnalyzer</li>
+ * </ul>
+ * Latencies are recorded in nanoseconds and reported in milliseconds.
+ */
+final class LoadTestReport implements OpenModelLoadGenerator.IntervalListener, AutoCloseable {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9, 99.99 };
+
+    private final Path directory;
+    private final Map<String, String> settings;
+    private final PrintStream intervalLog;
+    private final HistogramLogWriter intervalWriter;
+    private final Histogram responseTimes = new Histogram(3);
+    private final Histogram serviceTimes = new Histogram(3);
+
+    LoadTestReport(Path directory, Map<String, String> settings) {
+        this.directory = directory;
+        this.settings = settings;
+        try {
+            Files.createDirectories(directory);
+            this.intervalLog = new PrintStream(directory.resolve("intervals.hlog").toFile(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create load test report in " + directory, e);
+        }
+        long now = System.currentTimeMillis();
+        this.intervalWriter = new HistogramLogWriter(intervalLog);
+        intervalWriter.outputComment("[cinema-tickets load test " + settings + "]");
+        intervalWriter.outputStartTime(now);
+        intervalWriter.setBaseTime(now);
+        intervalWriter.outputLegend();
+    }
+
+    @Override
+    public void interval(Histogram responseTimes, Histogram serviceTimes) {
+        responseTimes.setTag("response");
+        serviceTimes.setTag("service");
+        intervalWriter.outputIntervalHistogram(responseTimes);
+        intervalWriter.outputIntervalHistogram(serviceTimes);
+        this.responseTimes.add(responseTimes);
+        this.serviceTimes.add(serviceTimes);
+    }
+
+    /**
+     * Writes the summary and distributions for the whole measured period and prints the summary.
+     */
+    void finish(LoadTestResult result, Duration duration) throws IOException {
+        writeDistribution("response-time.hgrm", responseTimes);
+        writeDistribution("service-time.hgrm", serviceTimes);
+
+        String summary = summaryJson(result, duration);
+        Files.writeString(directory.resolve("summary.json"), summary, StandardCharsets.UTF_8);
+        System.out.println(summary);
+        System.out.println("Report written to " + directory.toAbsolutePath());
+    }
+
+    @Override
+    public void close() {
+        intervalLog.close();
+    }
+
+    private void writeDistribution(String file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(directory.resolve(file).toFile(), StandardCharsets.UTF_8)) {
+            histogram.outputPercentileDistribution(out, NANOS_PER_MILLI);
+        }
+    }
+
+    private String summaryJson(LoadTestResult result, Duration duration) {
+        StringJoiner settingsJson = new StringJoiner(", ", "{", "}");
+        settings.forEach((key, value) -> settingsJson.add(quote(key) + ": " + quote(value)));
+        StringJoiner outcomesJson = new StringJoiner(", ", "{", "}");
+        result.getOutcomes().forEach((outcome, count) -> outcomesJson.add(quote(outcome) + ": " + count));
+
+        return "{\n"
+                + "  \"startedAt\": " + quote(Instant.ofEpochMilli(intervalWriter.getBaseTime()).toString()) + ",\n"
+                + "  \"settings\": " + settingsJson + ",\n"
+                + "  \"sent\": " + result.getSent() + ",\n"
+                + "  \"completed\": " + responseTimes.getTotalCount() + ",\n"
+                + "  \"succeededPerSecond\": " + format(result.getSucceeded() / (double) duration.toSeconds()) + ",\n"
+                + "  \"outcomes\": " + outcomesJson + ",\n"
+                + "  \"maxSendLagMs\": " + format(result.getMaxSendLagNanos() / NANOS_PER_MILLI) + ",\n"
+                + "  \"responseTimeMs\": " + percentilesJson(responseTimes) + ",\n"
+                + "  \"serviceTimeMs\": " + percentilesJson(serviceTimes) + "\n"
+                + "}\n";
+    }
+
+    private static String percentilesJson(Histogram histogram) {
+        StringJoiner json = new StringJoiner(", ", "{", "}");
+        json.add("\"mean\": " + format(histogram.getMean() / NANOS_PER_MILLI));
+        for (double percentile : PERCENTILES) {
+            json.add(quote("p" + format(percentile).replaceAll("\\.?0+$", "")) + ": "
+                    + format(histogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI));
+        }
+        json.add("\"max\": " + format(histogram.getMaxValue() / NANOS_PER_MILLI));
+        return json.toString();
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+}
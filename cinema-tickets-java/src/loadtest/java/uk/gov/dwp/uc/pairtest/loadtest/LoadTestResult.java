@@ -0,0 +1,47 @@
+package uk.gov.dwp.uc.pairtest.loadtest;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Immutable Object: what the generator sent during the measured period and how each request ended.
+ */
+final class LoadTestResult {
+
+    static final String SUCCESS = "success";
+
+    private final long sent;
+    private final long maxSendLagNanos;
+    private final Map<String, Long> outcomes = new TreeMap<>();
+
+    LoadTestResult(long sent, long maxSendLagNanos, Map<String, LongAdder> outcomes) {
+        this.sent = sent;
+        this.maxSendLagNanos = maxSendLagNanos;
+        outcomes.forEach((outcome, count) -> this.outcomes.put(outcome, count.sum()));
+    }
+
+    public long getSent() {
+        return sent;
+    }
+
+    /**
+     * How late the generator itself was sending; if this is not small next to the response times,
+     * the generator was saturated and the run says more about it than about the service.
+     */
+    public long getMaxSendLagNanos() {
+        return maxSendLagNanos;
+    }
+
+    /**
+     * Completed requests by outcome: {@value #SUCCESS} or the simple name of the exception thrown.
+     */
+    public Map<String, Long> getOutcomes() {
+        return Collections.unmodifiableMap(outcomes);
+    }
+
+    public long getSucceeded() {
+        return outcomes.getOrDefault(SUCCESS, 0L);
+    }
+}
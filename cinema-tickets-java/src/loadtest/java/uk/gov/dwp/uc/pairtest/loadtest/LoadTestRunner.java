@@ -0,0 +1,101 @@
+package uk.gov.dwp.uc.pairtest.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.services.TicketService;
+
+/**
+ * Drives {@link TicketService} in a full application context, with the third-party gateways replaced
+ * by simulated ones, and writes a {@link LoadTestReport}.
+ *
+ * <p>Arguments are {@code name=value} pairs. Lower-case names configure the run (see
+ * {@link #DEFAULTS}); upper-case names override application properties, for example
+ * {@code PAYMENT_MAX_CONCURRENT_CALLS=256}. Raise {@code rate} across runs until the response time
+ * percentiles turn upwards to find where a build saturates.
+ */
+public final class LoadTestRunner {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("rate", "500");
+        DEFAULTS.put("warmup", "10");
+        DEFAULTS.put("duration", "60");
+        DEFAULTS.put("accounts", "1000000");
+        DEFAULTS.put("payment.median.ms", "20");
+        DEFAULTS.put("payment.p99.ms", "200");
+        DEFAULTS.put("payment.failure.rate", "0.001");
+        DEFAULTS.put("seat.median.ms", "10");
+        DEFAULTS.put("seat.p99.ms", "100");
+        DEFAULTS.put("seat.failure.rate", "0.001");
+        DEFAULTS.put("report.dir", "target/loadtest");
+        DEFAULTS.put("label", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+    }
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = new LinkedHashMap<>(DEFAULTS);
+        Map<String, Object> applicationProperties = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected name=value but got " + arg);
+            }
+            String name = arg.substring(0, separator);
+            String value = arg.substring(separator + 1);
+            if (DEFAULTS.containsKey(name)) {
+                settings.put(name, value);
+            } else if (name.equals(name.toUpperCase())) {
+                applicationProperties.put(name, value);
+                settings.put(name, value);
+            } else {
+                throw new IllegalArgumentException("Unknown load test setting " + name + ", expected one of "
+                        + DEFAULTS.keySet());
+            }
+        }
+
+        SimulatedLatency paymentLatency = new SimulatedLatency("Payment gateway",
+                Double.parseDouble(settings.get("payment.median.ms")), Double.parseDouble(settings.get("payment.p99.ms")),
+                Double.parseDouble(settings.get("payment.failure.rate")));
+        SimulatedLatency seatLatency = new SimulatedLatency("Seat booking",
+                Double.parseDouble(settings.get("seat.median.ms")), Double.parseDouble(settings.get("seat.p99.ms")),
+                Double.parseDouble(settings.get("seat.failure.rate")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(settings.get("warmup")));
+        Duration duration = Duration.ofSeconds(Long.parseLong(settings.get("duration")));
+
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.getEnvironment().getPropertySources()
+                    .addFirst(new MapPropertySource("loadTestArguments", applicationProperties));
+            // Registered before the configuration is parsed, so these win over the ExecutorConfig beans
+            // of the same name and run behind the same resilience and inventory wrappers.
+            context.registerBean("paymentGateway", TicketPaymentService.class,
+                    () -> new SimulatedTicketPaymentService(paymentLatency));
+            context.registerBean("seatBookingGateway", SeatReservationService.class,
+                    () -> new SimulatedSeatReservationService(seatLatency));
+            context.scan("uk.gov.dwp.uc.pairtest");
+            context.refresh();
+
+            OpenModelLoadGenerator generator = new OpenModelLoadGenerator(context.getBean(TicketService.class),
+                    Long.parseLong(settings.get("accounts")));
+            try (LoadTestReport report = new LoadTestReport(
+                    Path.of(settings.get("report.dir"), settings.get("label")), settings)) {
+                LoadTestResult result = generator.run(Double.parseDouble(settings.get("rate")), warmup, duration,
+                        report);
+                report.finish(result, duration);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package uk.gov.dwp.uc.pairtest.loadtest;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import uk.gov.dwp.uc.pairtest.services.TicketService;
+
+/**
+ * Sends purchases at a constant arrival rate, whether or not earlier ones have finished, as real
+ * customers do.
+ *
+ * <p>Each request has an intended start on a fixed schedule. Its response time is measured from
+ * that intended start, not from when it was actually sent, so time spent queued behind a stalled
+ * system counts against it: this is what corrects the coordinated omission a closed-loop load
+ * generator suffers from. The time from the actual send is kept separately as service time, and the
+ * difference between the two shows how much of the latency was queueing.
+ */
+final class OpenModelLoadGenerator {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final TicketService ticketService;
+    private final long accounts;
+    private final Recorder responseTimes = new Recorder(3);
+    private final Recorder serviceTimes = new Recorder(3);
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+    OpenModelLoadGenerator(TicketService ticketService, long accounts) {
+        this.ticketService = ticketService;
+        this.accounts = accounts;
+    }
+
+    /**
+     * Runs the warmup, then the measured period, and waits for every request sent to complete.
+     * Each measured second is handed to {@code intervals} as it ends.
+     */
+    LoadTestResult run(double ratePerSecond, Duration warmup, Duration duration, IntervalListener intervals) {
+        double intervalNanos = SECOND / ratePerSecond;
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        long nextInterval = measureFrom + SECOND;
+        long sent = 0;
+        long maxSendLag = 0;
+        Histogram responseInterval = null;
+        Histogram serviceInterval = null;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0;; i++) {
+                long intended = start + (long) (i * intervalNanos);
+                if (intended >= end) {
+                    break;
+                }
+                long now;
+                while ((now = System.nanoTime()) < intended) {
+                    LockSupport.parkNanos(intended - now);
+                }
+                // Warmup requests run like any other but are not recorded, even if they finish late.
+                boolean measured = intended >= measureFrom;
+                if (measured) {
+                    sent++;
+                    maxSendLag = Math.max(maxSendLag, now - intended);
+                }
+                executor.execute(() -> purchase(intended, measured));
+
+                if (now >= nextInterval) {
+                    responseInterval = responseTimes.getIntervalHistogram(responseInterval);
+                    serviceInterval = serviceTimes.getIntervalHistogram(serviceInterval);
+                    intervals.interval(responseInterval, serviceInterval);
+                    nextInterval += SECOND;
+                }
+            }
+        }
+        // Requests still in flight at the end have completed by now; they go in the last interval.
+        responseInterval = responseTimes.getIntervalHistogram(responseInterval);
+        serviceInterval = serviceTimes.getIntervalHistogram(serviceInterval);
+        intervals.interval(responseInterval, serviceInterval);
+        return new LoadTestResult(sent, maxSendLag, outcomes);
+    }
+
+    private void purchase(long intended, boolean measured) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long accountId = random.nextLong(1, accounts + 1);
+        long sentAt = System.nanoTime();
+        String outcome = LoadTestResult.SUCCESS;
+        try {
+            ticketService.purchaseTickets(accountId, TicketMix.nextOrder(random));
+        } catch (RuntimeException e) {
+            outcome = e.getClass().getSimpleName();
+        }
+        long completedAt = System.nanoTime();
+        if (measured) {
+            responseTimes.recordValue(completedAt - intended);
+            serviceTimes.recordValue(completedAt - sentAt);
+            outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+        }
+    }
+
+    interface IntervalListener {
+        void interval(Histogram responseTimes, Histogram serviceTimes);
+    }
+}
@@ -0,0 +1,49 @@
+package uk.gov.dwp.uc.pairtest.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Log-normal response times fitted to a median and a 99th percentile, plus a failure rate, which
+ * is close to what a remote gateway looks like under normal load: most calls near the median and a
+ * long right tail.
+ */
+final class SimulatedLatency {
+
+    // The 99th percentile of the standard normal distribution.
+    private static final double Z_99 = 2.326;
+
+    private final String service;
+    private final double mu;
+    private final double sigma;
+    private final double failureRate;
+
+    SimulatedLatency(String service, double medianMillis, double p99Millis, double failureRate) {
+        if (medianMillis <= 0 || p99Millis < medianMillis) {
+            throw new IllegalArgumentException(service + " needs a positive median no larger than its p99.");
+        }
+        this.service = service;
+        this.mu = Math.log(medianMillis * 1_000_000);
+        this.sigma = Math.log(p99Millis / medianMillis) / Z_99;
+        this.failureRate = failureRate;
+    }
+
+    /**
+     * Blocks for one sampled response time, then fails the call at the configured rate.
+     */
+    void call() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long deadline = System.nanoTime() + (long) Math.exp(mu + sigma * random.nextGaussian());
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(service + " call interrupted");
+            }
+        }
+        if (random.nextDouble() < failureRate) {
+            throw new IllegalStateException(service + " unavailable");
+        }
+    }
+}
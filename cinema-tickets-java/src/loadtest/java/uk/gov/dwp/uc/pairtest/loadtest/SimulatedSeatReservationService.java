@@ -0,0 +1,21 @@
+package uk.gov.dwp.uc.pairtest.loadtest;
+
+import thirdparty.seatbooking.SeatReservationServiceImpl;
+
+/**
+ * The seat booking client with a simulated network round trip in front of it.
+ */
+class SimulatedSeatReservationService extends SeatReservationServiceImpl {
+
+    private final SimulatedLatency latency;
+
+    SimulatedSeatReservationService(SimulatedLatency latency) {
+        this.latency = latency;
+    }
+
+    @Override
+    public void reserveSeat(long accountId, int totalSeatsToAllocate) {
+        latency.call();
+        super.reserveSeat(accountId, totalSeatsToAllocate);
+    }
+}
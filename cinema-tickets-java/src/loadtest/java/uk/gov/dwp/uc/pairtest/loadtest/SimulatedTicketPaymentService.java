@@ -0,0 +1,21 @@
+package uk.gov.dwp.uc.pairtest.loadtest;
+
+import thirdparty.paymentgateway.TicketPaymentServiceImpl;
+
+/**
+ * The payment gateway client with a simulated network round trip in front of it.
+ */
+class SimulatedTicketPaymentService extends TicketPaymentServiceImpl {
+
+    private final SimulatedLatency latency;
+
+    SimulatedTicketPaymentService(SimulatedLatency latency) {
+        this.latency = latency;
+    }
+
+    @Override
+    public void makePayment(long accountId, int totalAmountToPay) {
+        latency.call();
+        super.makePayment(accountId, totalAmountToPay);
+    }
+}
@@ -0,0 +1,79 @@
+package uk.gov.dwp.uc.pairtest.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+
+/**
+ * The orders a box office sees, by share of traffic: mostly one or two adults, then families, the
+ * odd group booking, and a few orders the validations must turn away.
+ */
+enum TicketMix {
+    ADULTS(40) {
+        @Override
+        TicketTypeRequest[] next(ThreadLocalRandom random) {
+            return new TicketTypeRequest[] { new TicketTypeRequest(Type.ADULT, random.nextInt(1, 3)) };
+        }
+    },
+    FAMILY(30) {
+        @Override
+        TicketTypeRequest[] next(ThreadLocalRandom random) {
+            return new TicketTypeRequest[] { new TicketTypeRequest(Type.ADULT, 2),
+                    new TicketTypeRequest(Type.CHILD, random.nextInt(1, 4)) };
+        }
+    },
+    FAMILY_WITH_INFANT(15) {
+        @Override
+        TicketTypeRequest[] next(ThreadLocalRandom random) {
+            return new TicketTypeRequest[] { new TicketTypeRequest(Type.ADULT, 2),
+                    new TicketTypeRequest(Type.CHILD, random.nextInt(1, 3)), new TicketTypeRequest(Type.INFANT, 1) };
+        }
+    },
+    SINGLE_PARENT(10) {
+        @Override
+        TicketTypeRequest[] next(ThreadLocalRandom random) {
+            return new TicketTypeRequest[] { new TicketTypeRequest(Type.ADULT, 1),
+                    new TicketTypeRequest(Type.CHILD, random.nextInt(1, 3)) };
+        }
+    },
+    GROUP(4) {
+        @Override
+        TicketTypeRequest[] next(ThreadLocalRandom random) {
+            return new TicketTypeRequest[] { new TicketTypeRequest(Type.ADULT, random.nextInt(5, 16)),
+                    new TicketTypeRequest(Type.CHILD, random.nextInt(1, 10)) };
+        }
+    },
+    CHILD_WITHOUT_ADULT(1) {
+        @Override
+        TicketTypeRequest[] next(ThreadLocalRandom random) {
+            return new TicketTypeRequest[] { new TicketTypeRequest(Type.CHILD, random.nextInt(1, 3)) };
+        }
+    };
+
+    private static final TicketMix[] BY_PERCENT = new TicketMix[100];
+
+    static {
+        int percent = 0;
+        for (TicketMix mix : values()) {
+            for (int i = 0; i < mix.percent; i++) {
+                BY_PERCENT[percent++] = mix;
+            }
+        }
+        if (percent != BY_PERCENT.length) {
+            throw new ExceptionInInitializerError("Ticket mix shares must add up to 100.");
+        }
+    }
+
+    private final int percent;
+
+    TicketMix(int percent) {
+        this.percent = percent;
+    }
+
+    abstract TicketTypeRequest[] next(ThreadLocalRandom random);
+
+    static TicketTypeRequest[] nextOrder(ThreadLocalRandom random) {
+        return BY_PERCENT[random.nextInt(BY_PERCENT.length)].next(random);
+    }
+}
@@ -0,0 +1,76 @@
+package uk.gov.dwp.uc.pairtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.aot.AotDetector;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.aot.AotApplicationContextInitializer;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+/**
+ * Starts the ticketing application context. A build with the {@code aot} profile generates the bean
+ * definitions ahead of time; run with {@code -Dspring.aot.enabled=true}, those are registered directly
+ * instead of scanning the packages and parsing the configuration classes at startup.
+ *
+ * <p>Arguments are upper-case {@code NAME=value} pairs that override application properties, as for
+ * the load test. Beans guarded by a property condition, such as the HTTP server, are decided when the
+ * ahead-of-time build runs, so those properties must be set then.
+ */
+public final class CinemaTicketsApplication {
+
+    public static final String BASE_PACKAGE = "uk.gov.dwp.uc.pairtest";
+
+    private CinemaTicketsApplication() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, Object> properties = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected NAME=value but got " + arg);
+            }
+            properties.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        GenericApplicationContext context = run(properties);
+        context.registerShutdownHook();
+        // The context's own threads are daemons, so the main thread keeps the node up until it is stopped.
+        Thread.currentThread().join();
+    }
+
+    /**
+     * A refreshed context, built from the generated bean definitions when ahead-of-time mode is on.
+     */
+    public static GenericApplicationContext run(Map<String, Object> properties) {
+        GenericApplicationContext context;
+        if (AotDetector.useGeneratedArtifacts()) {
+            context = new GenericApplicationContext();
+            addProperties(context, properties);
+            AotApplicationContextInitializer.forInitializerClasses(
+                    CinemaTicketsApplication.class.getName() + "__ApplicationContextInitializer").initialize(context);
+        } else {
+            context = prepare(properties);
+        }
+        context.refresh();
+        return context;
+    }
+
+    /**
+     * A scanning context that has not been refreshed yet; ahead-of-time processing starts from this one.
+     */
+    public static GenericApplicationContext prepare(Map<String, Object> properties) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        addProperties(context, properties);
+        context.scan(BASE_PACKAGE);
+        return context;
+    }
+
+    private static void addProperties(GenericApplicationContext context, Map<String, Object> properties) {
+        if (!properties.isEmpty()) {
+            context.getEnvironment().getPropertySources()
+                    .addFirst(new MapPropertySource("commandLineArguments", properties));
+        }
+    }
+}
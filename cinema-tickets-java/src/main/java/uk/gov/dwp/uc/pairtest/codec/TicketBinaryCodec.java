@@ -0,0 +1,381 @@
+package uk.gov.dwp.uc.pairtest.codec;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketSummary;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+
+/**
+ * Compact binary counterpart of the HTTP API's JSON codec, for callers that exchange orders in bulk.
+ * Messages are read from and written into {@link ByteBuffer}s in place, starting at the buffer's
+ * position and leaving it just past the message, so many messages can share one buffer. Decoding goes
+ * into a reusable {@link OrderView} or {@link SummaryView} rather than new objects.
+ *
+ * <p>Every message starts with its format version. Multi-byte integers are big-endian whatever the
+ * buffer's byte order. Varints are unsigned LEB128, at most 5 bytes for an int and 10 for a long;
+ * a longer one, or a last byte with bits set beyond the value's width, is rejected.
+ * <pre>
+ * order, version 1:
+ *   byte    version
+ *   byte    flags, bit 0 set when an account ID follows
+ *   varint  account ID, zigzag encoded
+ *   varint  number of ticket requests, at most {@value #MAX_TICKET_REQUESTS}
+ *   then per request:
+ *     byte    ticket type ordinal, 0xFF for none
+ *     varint  number of tickets, as an unsigned int
+ *
+ * summary, version 1, {@value #SUMMARY_LENGTH} bytes:
+ *   byte    version
+ *   int     total tickets, total seats, total price, adult, child and infant tickets
+ * </pre>
+ * Malformed input is rejected with {@link InvalidPurchaseException}; what the order asks for is left
+ * to the usual validation, so a negative ticket count or a missing type still round-trips.
+ */
+public final class TicketBinaryCodec {
+
+    public static final byte VERSION = 1;
+    public static final int SUMMARY_LENGTH = 25;
+    // The same limit as the JSON codec's.
+    public static final int MAX_TICKET_REQUESTS = 64;
+
+    static final int HAS_ACCOUNT_ID = 1;
+    static final int NO_TYPE = 0xFF;
+
+    private static final TicketTypeRequest.Type[] TYPES = TicketTypeRequest.Type.values();
+
+    // Rejections are preallocated and stackless, as for the request validation.
+    private static final InvalidPurchaseException UNSUPPORTED_VERSION =
+            InvalidPurchaseException.stackless("Malformed order: unsupported format version");
+    private static final InvalidPurchaseException TRUNCATED =
+            InvalidPurchaseException.stackless("Malformed order: truncated message");
+    private static final InvalidPurchaseException VARINT_TOO_LONG =
+            InvalidPurchaseException.stackless("Malformed order: varint too long");
+    private static final InvalidPurchaseException TOO_MANY_REQUESTS =
+            InvalidPurchaseException.stackless("Malformed order: too many ticket requests");
+    private static final InvalidPurchaseException UNKNOWN_TYPE =
+            InvalidPurchaseException.stackless("Malformed order: unknown ticket type");
+    private static final InvalidPurchaseException UNKNOWN_FLAGS =
+            InvalidPurchaseException.stackless("Malformed order: unknown flags");
+    private static final InvalidPurchaseException SUMMARY_UNSUPPORTED_VERSION =
+            InvalidPurchaseException.stackless("Malformed summary: unsupported format version");
+    private static final InvalidPurchaseException SUMMARY_TRUNCATED =
+            InvalidPurchaseException.stackless("Malformed summary: truncated message");
+
+    private TicketBinaryCodec() {
+    }
+
+    /**
+     * The most bytes an order with {@code requests} ticket requests can take.
+     */
+    public static int maxOrderLength(int requests) {
+        return 2 + 10 + 5 + requests * 6;
+    }
+
+    /**
+     * Writes an order at the position of {@code out}; a null {@code accountId} is written as absent.
+     *
+     * @throws BufferOverflowException if {@code out} has no room for it, with the position unchanged
+     * @throws IllegalArgumentException if there are more requests than an order may hold
+     */
+    public static void encodeOrder(Long accountId, TicketTypeRequest[] ticketTypeRequests, ByteBuffer out) {
+        if (ticketTypeRequests.length > MAX_TICKET_REQUESTS) {
+            throw new IllegalArgumentException("An order holds at most " + MAX_TICKET_REQUESTS
+                    + " ticket requests.");
+        }
+        int start = out.position();
+        try {
+            out.put(VERSION);
+            if (accountId == null) {
+                out.put((byte) 0);
+            } else {
+                out.put((byte) HAS_ACCOUNT_ID);
+                writeVarLong(out, (accountId << 1) ^ (accountId >> 63));
+            }
+            writeVarInt(out, ticketTypeRequests.length);
+            for (TicketTypeRequest request : ticketTypeRequests) {
+                out.put((byte) (request.getTicketType() == null ? NO_TYPE : request.getTicketType().ordinal()));
+                writeVarInt(out, request.getNoOfTickets());
+            }
+        } catch (RuntimeException e) {
+            out.position(start);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes {@code summary} at the position of {@code out}.
+     *
+     * @throws BufferOverflowException if {@code out} has fewer than {@value #SUMMARY_LENGTH} bytes left
+     */
+    public static void encodeSummary(TicketSummary summary, ByteBuffer out) {
+        if (out.remaining() < SUMMARY_LENGTH) {
+            throw new BufferOverflowException();
+        }
+        int position = out.position();
+        out.put(position, VERSION);
+        putInt(out, position + 1, summary.getTotalTickets());
+        putInt(out, position + 5, summary.getTotalSeats());
+        putInt(out, position + 9, summary.getTotalPrice());
+        putInt(out, position + 13, summary.getAdultTickets());
+        putInt(out, position + 17, summary.getChildTickets());
+        putInt(out, position + 21, summary.getInfantTickets());
+        out.position(position + SUMMARY_LENGTH);
+    }
+
+    /**
+     * Reusable view of one encoded order. {@link #wrap} reads the whole order once, keeping only the
+     * ticket types and counts in arrays sized for the largest order, so wrapping allocates nothing.
+     * Not thread-safe; keep one per thread.
+     */
+    public static final class OrderView {
+        private final byte[] types = new byte[MAX_TICKET_REQUESTS];
+        private final int[] counts = new int[MAX_TICKET_REQUESTS];
+        private boolean hasAccountId;
+        private long accountId;
+        private int requestCount;
+        private int encodedLength;
+        // End of the varint last read, kept in a field so a read can return its value without allocating.
+        private int nextPosition;
+
+        /**
+         * Reads the order at the position of {@code in} and moves the position past it. On failure
+         * the position is unchanged and the view is left empty.
+         *
+         * @throws InvalidPurchaseException if the bytes are not a complete order in a known version
+         */
+        public OrderView wrap(ByteBuffer in) {
+            final int start = in.position();
+            final int limit = in.limit();
+            requestCount = 0;
+            hasAccountId = false;
+            accountId = 0;
+            encodedLength = 0;
+            try {
+                int position = start;
+                if (limit - position < 2) {
+                    throw TRUNCATED;
+                }
+                if (in.get(position++) != VERSION) {
+                    throw UNSUPPORTED_VERSION;
+                }
+                int flags = in.get(position++) & 0xFF;
+                if ((flags & ~HAS_ACCOUNT_ID) != 0) {
+                    throw UNKNOWN_FLAGS;
+                }
+                if (flags == HAS_ACCOUNT_ID) {
+                    long zigzag = readVarLong(in, position, limit);
+                    position = nextPosition;
+                    accountId = (zigzag >>> 1) ^ -(zigzag & 1);
+                    hasAccountId = true;
+                }
+                int requests = readVarInt(in, position, limit);
+                position = nextPosition;
+                if (requests < 0 || requests > MAX_TICKET_REQUESTS) {
+                    throw TOO_MANY_REQUESTS;
+                }
+                for (int i = 0; i < requests; i++) {
+                    if (position >= limit) {
+                        throw TRUNCATED;
+                    }
+                    int type = in.get(position++) & 0xFF;
+                    if (type != NO_TYPE && type >= TYPES.length) {
+                        throw UNKNOWN_TYPE;
+                    }
+                    types[i] = (byte) type;
+                    counts[i] = readVarInt(in, position, limit);
+                    position = nextPosition;
+                }
+                requestCount = requests;
+                encodedLength = position - start;
+                in.position(position);
+                return this;
+            } catch (InvalidPurchaseException e) {
+                requestCount = 0;
+                hasAccountId = false;
+                accountId = 0;
+                throw e;
+            }
+        }
+
+        private int readVarInt(ByteBuffer in, int position, int limit) {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                if (position >= limit) {
+                    throw TRUNCATED;
+                }
+                byte b = in.get(position++);
+                // The fifth byte only has room for the top 4 bits.
+                if (shift == 28 && (b & 0xF0) != 0) {
+                    throw VARINT_TOO_LONG;
+                }
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    nextPosition = position;
+                    return value;
+                }
+            }
+            throw VARINT_TOO_LONG;
+        }
+
+        private long readVarLong(ByteBuffer in, int position, int limit) {
+            long value = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                if (position >= limit) {
+                    throw TRUNCATED;
+                }
+                byte b = in.get(position++);
+                // The tenth byte only has room for the top bit.
+                if (shift == 63 && (b & 0xFE) != 0) {
+                    throw VARINT_TOO_LONG;
+                }
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    nextPosition = position;
+                    return value;
+                }
+            }
+            throw VARINT_TOO_LONG;
+        }
+
+        /**
+         * The account ID, or null when the order has none.
+         */
+        public Long getAccountId() {
+            return hasAccountId ? accountId : null;
+        }
+
+        public boolean hasAccountId() {
+            return hasAccountId;
+        }
+
+        /**
+         * The account ID without boxing; 0 when the order has none.
+         */
+        public long accountId() {
+            return accountId;
+        }
+
+        public int requestCount() {
+            return requestCount;
+        }
+
+        /**
+         * The type of request {@code index}, or null when it was sent without one.
+         */
+        public TicketTypeRequest.Type type(int index) {
+            checkIndex(index);
+            int type = types[index] & 0xFF;
+            return type == NO_TYPE ? null : TYPES[type];
+        }
+
+        public int count(int index) {
+            checkIndex(index);
+            return counts[index];
+        }
+
+        public int encodedLength() {
+            return encodedLength;
+        }
+
+        /**
+         * The requests as objects, for the ticket service.
+         */
+        public TicketTypeRequest[] toTicketTypeRequests() {
+            TicketTypeRequest[] requests = new TicketTypeRequest[requestCount];
+            for (int i = 0; i < requestCount; i++) {
+                requests[i] = new TicketTypeRequest(type(i), counts[i]);
+            }
+            return requests;
+        }
+
+        private void checkIndex(int index) {
+            if (index < 0 || index >= requestCount) {
+                throw new IndexOutOfBoundsException("Request " + index + " of " + requestCount);
+            }
+        }
+    }
+
+    /**
+     * Reusable view of one encoded summary. The fields are read from the buffer on each call, so the
+     * view is only valid while those bytes are left unchanged. Not thread-safe.
+     */
+    public static final class SummaryView {
+        private ByteBuffer buffer;
+        private int offset;
+
+        /**
+         * Points the view at the summary at the position of {@code in} and moves the position past it.
+         *
+         * @throws InvalidPurchaseException if there is no complete summary in a known version
+         */
+        public SummaryView wrap(ByteBuffer in) {
+            if (in.remaining() < SUMMARY_LENGTH) {
+                throw SUMMARY_TRUNCATED;
+            }
+            if (in.get(in.position()) != VERSION) {
+                throw SUMMARY_UNSUPPORTED_VERSION;
+            }
+            buffer = in;
+            offset = in.position();
+            in.position(offset + SUMMARY_LENGTH);
+            return this;
+        }
+
+        public int getTotalTickets() {
+            return getInt(buffer, offset + 1);
+        }
+
+        public int getTotalSeats() {
+            return getInt(buffer, offset + 5);
+        }
+
+        public int getTotalPrice() {
+            return getInt(buffer, offset + 9);
+        }
+
+        public int getAdultTickets() {
+            return getInt(buffer, offset + 13);
+        }
+
+        public int getChildTickets() {
+            return getInt(buffer, offset + 17);
+        }
+
+        public int getInfantTickets() {
+            return getInt(buffer, offset + 21);
+        }
+
+        public TicketSummary toTicketSummary() {
+            return new TicketSummary(getTotalTickets(), getTotalSeats(), getTotalPrice(), getAdultTickets(),
+                    getChildTickets(), getInfantTickets());
+        }
+    }
+
+    private static void writeVarInt(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static void writeVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static void putInt(ByteBuffer out, int index, int value) {
+        out.putInt(index, out.order() == ByteOrder.BIG_ENDIAN ? value : Integer.reverseBytes(value));
+    }
+
+    private static int getInt(ByteBuffer in, int index) {
+        int value = in.getInt(index);
+        return in.order() == ByteOrder.BIG_ENDIAN ? value : Integer.reverseBytes(value);
+    }
+}
@@ -1,30 +1,334 @@
 
 package uk.gov.dwp.uc.pairtest.config;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
 import thirdparty.paymentgateway.TicketPaymentService;
 import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.exception.OutcomeUnknownException;
+import uk.gov.dwp.uc.pairtest.http.TicketHttpServer;
+import uk.gov.dwp.uc.pairtest.inventory.InventorySeatReservationService;
+import uk.gov.dwp.uc.pairtest.inventory.SeatHolds;
+import uk.gov.dwp.uc.pairtest.inventory.SeatInventory;
+import uk.gov.dwp.uc.pairtest.journal.PurchaseJournal;
+import uk.gov.dwp.uc.pairtest.ledger.LedgerSnapshotter;
+import uk.gov.dwp.uc.pairtest.ledger.PurchaseLedger;
+import uk.gov.dwp.uc.pairtest.resilience.AdaptiveConcurrencyLimit;
+import uk.gov.dwp.uc.pairtest.resilience.AdaptiveTimeout;
+import uk.gov.dwp.uc.pairtest.resilience.CircuitBreaker;
+import uk.gov.dwp.uc.pairtest.resilience.ResilientCaller;
+import uk.gov.dwp.uc.pairtest.resilience.ResilientSeatReservationService;
+import uk.gov.dwp.uc.pairtest.resilience.ResilientTicketPaymentService;
+import uk.gov.dwp.uc.pairtest.saga.CompensationOutbox;
+import uk.gov.dwp.uc.pairtest.saga.CompensationWorker;
+import uk.gov.dwp.uc.pairtest.saga.LoggingRefundService;
+import uk.gov.dwp.uc.pairtest.saga.RefundService;
+import uk.gov.dwp.uc.pairtest.services.BookTicketAndReserveSeat;
+import uk.gov.dwp.uc.pairtest.services.CoalescingTicketPaymentService;
+import uk.gov.dwp.uc.pairtest.services.PurchaseAdmission;
+import uk.gov.dwp.uc.pairtest.services.ShardedTicketService;
 import uk.gov.dwp.uc.pairtest.services.TicketProcessor;
+import uk.gov.dwp.uc.pairtest.services.TicketService;
+import uk.gov.dwp.uc.pairtest.utils.AccountRateLimiter;
+import uk.gov.dwp.uc.pairtest.utils.ExpiringLruCache;
 
-@Configuration
+/**
+ * No bean method calls another, so the class is used as is rather than through a generated subclass.
+ */
+@Configuration(proxyBeanMethods = false)
 public class ExecutorConfig {
 
+    /**
+     * The third-party clients as their own beans, so a harness can register stand-ins under these
+     * names and still run them behind the resilience and inventory wrappers below.
+     */
     @Bean
-    public TicketPaymentService ticketPaymentService() {
+    public TicketPaymentService paymentGateway() {
         return new thirdparty.paymentgateway.TicketPaymentServiceImpl();
     }
 
     @Bean
-    public SeatReservationService seatReservationService() {
+    public SeatReservationService seatBookingGateway() {
         return new thirdparty.seatbooking.SeatReservationServiceImpl();
     }
 
     @Bean
-    public TicketProcessor ticketProcessor() {
-        return new TicketProcessor();
+    @Primary
+    public TicketPaymentService ticketPaymentService(
+            @Qualifier("paymentGateway") TicketPaymentService paymentGateway,
+            @Qualifier("purchaseExecutor") ExecutorService purchaseExecutor,
+            @Value("${PAYMENT_MAX_CONCURRENT_CALLS:64}") int maxConcurrentCalls,
+            @Value("${CIRCUIT_FAILURE_THRESHOLD:5}") int failureThreshold,
+            @Value("${CIRCUIT_OPEN_MS:5000}") long openMillis,
+            @Value("${THIRD_PARTY_TIMEOUT_MIN_MS:50}") long minTimeoutMillis,
+            @Value("${THIRD_PARTY_TIMEOUT_MAX_MS:2000}") long maxTimeoutMillis,
+            @Value("${PAYMENT_COALESCE_BATCH_SIZE:0}") int coalesceBatchSize,
+            @Value("${PAYMENT_COALESCE_DELAY_MICROS:2000}") long coalesceDelayMicros,
+            @Value("${PAYMENT_COALESCE_QUEUE_CAPACITY:4096}") int coalesceQueueCapacity,
+            MeterRegistry meterRegistry) {
+        TicketPaymentService ticketPaymentService = new ResilientTicketPaymentService(paymentGateway,
+                resilientCaller("Payment service", maxConcurrentCalls, failureThreshold, openMillis,
+                        minTimeoutMillis, maxTimeoutMillis, purchaseExecutor));
+        // Off by default: the gateway has no batch call, so a batch only adds its delay to every payment.
+        if (coalesceBatchSize <= 1) {
+            return ticketPaymentService;
+        }
+        // Closed by Spring's inferred destroy method. A payment waits for its batch to be sent, then for
+        // the slowest call the gateway's timeout allows, with as much again to spare.
+        Duration maxDelay = Duration.ofNanos(coalesceDelayMicros * 1000);
+        return new CoalescingTicketPaymentService(ticketPaymentService, coalesceBatchSize, maxDelay,
+                maxDelay.plusMillis(2 * maxTimeoutMillis), coalesceQueueCapacity, purchaseExecutor,
+                meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public InventorySeatReservationService seatReservationService(
+            @Qualifier("seatBookingGateway") SeatReservationService seatBookingGateway,
+            SeatInventory seatInventory,
+            @Qualifier("purchaseExecutor") ExecutorService purchaseExecutor,
+            @Value("${DEFAULT_SCREENING_ID:1}") long defaultScreeningId,
+            @Value("${SCREENING_IDS:}") String screeningIds,
+            @Value("${SCREEN_ROWS:20}") int rows,
+            @Value("${SCREEN_SEATS_PER_ROW:30}") int seatsPerRow,
+            @Value("${RESERVATION_MAX_CONCURRENT_CALLS:64}") int maxConcurrentCalls,
+            @Value("${CIRCUIT_FAILURE_THRESHOLD:5}") int failureThreshold,
+            @Value("${CIRCUIT_OPEN_MS:5000}") long openMillis,
+            @Value("${THIRD_PARTY_TIMEOUT_MIN_MS:50}") long minTimeoutMillis,
+            @Value("${THIRD_PARTY_TIMEOUT_MAX_MS:2000}") long maxTimeoutMillis) {
+        seatInventory.addScreening(defaultScreeningId, rows, seatsPerRow);
+        for (String screeningId : screeningIds.split(",")) {
+            if (!screeningId.isBlank()) {
+                seatInventory.addScreening(Long.parseLong(screeningId.trim()), rows, seatsPerRow);
+            }
+        }
+        SeatReservationService seatReservationService = new ResilientSeatReservationService(seatBookingGateway,
+                resilientCaller("Seat reservation service", maxConcurrentCalls, failureThreshold, openMillis,
+                        minTimeoutMillis, maxTimeoutMillis, purchaseExecutor));
+        return new InventorySeatReservationService(seatReservationService, seatInventory, defaultScreeningId);
+    }
+
+    /**
+     * Seat holds between quote and payment, released when not bought within {@code SEAT_HOLD_TTL_MS}.
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public SeatHolds seatHolds(
+            SeatInventory seatInventory,
+            @Value("${SEAT_HOLD_TTL_MS:600000}") long ttlMillis,
+            @Value("${SEAT_HOLD_TICK_MS:100}") long tickMillis) {
+        return new SeatHolds(seatInventory, Duration.ofMillis(ttlMillis), Duration.ofMillis(tickMillis));
+    }
+
+    /**
+     * Per-account purchase quota; rejections are published as {@code ticket.purchase.rate.limited}.
+     */
+    @Bean
+    public AccountRateLimiter accountRateLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${ACCOUNT_PURCHASES_PER_SECOND:5}") double permitsPerSecond,
+            @Value("${ACCOUNT_PURCHASE_BURST:10}") int burst,
+            @Value("${RATE_LIMIT_MAX_ACCOUNTS:100000}") int maxAccounts) {
+        AccountRateLimiter limiter = new AccountRateLimiter(permitsPerSecond, burst, maxAccounts, 64);
+        FunctionCounter.builder("ticket.purchase.rate.limited", limiter, AccountRateLimiter::getRejectedCount)
+                .register(meterRegistry);
+        return limiter;
+    }
+
+    /**
+     * Admission control for purchases, on unless {@code ADMISSION_CONTROL_ENABLED} is false. The limit and
+     * purchases in flight are published as {@code ticket.admission.limit} and {@code ticket.admission.in.flight},
+     * rejections as {@code ticket.admission.rejected} tagged by priority.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "ADMISSION_CONTROL_ENABLED", havingValue = "true", matchIfMissing = true)
+    public PurchaseAdmission purchaseAdmission(
+            MeterRegistry meterRegistry,
+            @Value("${ADMISSION_INITIAL_LIMIT:64}") int initialLimit,
+            @Value("${ADMISSION_MIN_LIMIT:8}") int minLimit,
+            @Value("${ADMISSION_MAX_LIMIT:1024}") int maxLimit,
+            @Value("${ADMISSION_PRIORITY_RESERVE_PERCENT:20}") int priorityReservePercent,
+            @Value("${ADMISSION_SMALL_ORDER_TICKETS:2}") int smallOrderTickets,
+            @Value("${ADMISSION_RECENT_ACCOUNTS:65536}") int recentAccounts) {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit,
+                priorityReservePercent / 100.0);
+        Gauge.builder("ticket.admission.limit", limit, AdaptiveConcurrencyLimit::getLimit).register(meterRegistry);
+        Gauge.builder("ticket.admission.in.flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                .register(meterRegistry);
+        FunctionCounter.builder("ticket.admission.rejected", limit, AdaptiveConcurrencyLimit::getRejectedCount)
+                .tag("priority", "false")
+                .register(meterRegistry);
+        FunctionCounter.builder("ticket.admission.rejected", limit, AdaptiveConcurrencyLimit::getPriorityRejectedCount)
+                .tag("priority", "true")
+                .register(meterRegistry);
+        return new PurchaseAdmission(limit, smallOrderTickets, recentAccounts);
+    }
+
+    @Bean
+    public PurchaseLedger purchaseLedger(
+            @Value("${MAX_TICKETS_PER_SCREENING:50}") int maxTicketsPerScreening) {
+        return new PurchaseLedger(maxTicketsPerScreening, 64);
+    }
+
+    /**
+     * Snapshots the purchase ledger when {@code LEDGER_SNAPSHOT_FILE} is set; without it caps reset on restart.
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty("LEDGER_SNAPSHOT_FILE")
+    public LedgerSnapshotter ledgerSnapshotter(
+            PurchaseLedger purchaseLedger,
+            @Value("${LEDGER_SNAPSHOT_FILE}") String file,
+            @Value("${LEDGER_SNAPSHOT_INTERVAL_MS:5000}") long intervalMillis) {
+        return new LedgerSnapshotter(purchaseLedger, Path.of(file), Duration.ofMillis(intervalMillis));
+    }
+
+    /**
+     * Prices and ticket limits as one reloadable snapshot. With {@code TICKET_CONFIG_FILE} set, edits to
+     * that file are picked up at runtime; the version in force is published as {@code ticket.config.version}.
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public TicketConfigSource ticketConfigSource(
+            MeterRegistry meterRegistry,
+            @Value("${ADULT_TICKET_PRICE}") int adultTicketPrice,
+            @Value("${CHILD_TICKET_PRICE}") int childTicketPrice,
+            @Value("${MIN_TICKET}") int minTicket,
+            @Value("${MAX_TICKET}") int maxTicket,
+            @Value("${TICKET_CONFIG_FILE:}") String file) {
+        TicketConfigSource source = new TicketConfigSource(
+                new TicketConfig(1, adultTicketPrice, childTicketPrice, minTicket, maxTicket),
+                file.isBlank() ? null : Path.of(file));
+        Gauge.builder("ticket.config.version", source, s -> s.get().getVersion()).register(meterRegistry);
+        return source;
+    }
+
+    // The outbox and journal hold paid orders that still need seats or a refund, so they have no default
+    // location: one under the temp directory could be wiped by a reboot.
+    @Bean(destroyMethod = "close")
+    public CompensationOutbox compensationOutbox(@Value("${OUTBOX_FILE}") String file) {
+        return new CompensationOutbox(Path.of(file));
+    }
+
+    @Bean(destroyMethod = "close")
+    public PurchaseJournal purchaseJournal(
+            @Value("${JOURNAL_DIR}") String directory,
+            @Value("${JOURNAL_SEGMENT_BYTES:67108864}") int segmentBytes,
+            @Value("${JOURNAL_FSYNC_POLICY:PERIODIC}") PurchaseJournal.FsyncPolicy fsyncPolicy,
+            @Value("${JOURNAL_FSYNC_INTERVAL_MS:10}") long fsyncIntervalMillis) {
+        return new PurchaseJournal(Path.of(directory), segmentBytes, fsyncPolicy,
+                Duration.ofMillis(fsyncIntervalMillis));
+    }
+
+    @Bean
+    public RefundService refundService() {
+        return new LoggingRefundService();
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public CompensationWorker compensationWorker(
+            CompensationOutbox compensationOutbox,
+            SeatReservationService seatReservationService,
+            RefundService refundService,
+            PurchaseLedger purchaseLedger,
+            PurchaseJournal purchaseJournal,
+            @Qualifier("purchaseExecutor") ExecutorService purchaseExecutor,
+            @Value("${OUTBOX_BATCH_SIZE:256}") int batchSize,
+            @Value("${OUTBOX_MAX_ATTEMPTS:5}") int maxAttempts,
+            @Value("${OUTBOX_DRAIN_INTERVAL_MS:1000}") long intervalMillis) {
+        return new CompensationWorker(compensationOutbox, seatReservationService, refundService, purchaseLedger,
+                purchaseJournal, purchaseExecutor, batchSize, maxAttempts, Duration.ofMillis(intervalMillis));
+    }
+
+    /**
+     * Per-screening seat claim loops, with payment and reservation on the purchase executor, when
+     * {@code SCREENING_SHARDS} is set. Off by default: the seat map already claims seats without locks,
+     * so purchases book on their own thread unless a deployment wants claims queued per screening.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty("SCREENING_SHARDS")
+    public ShardedTicketService shardedTicketService(
+            BookTicketAndReserveSeat bookTicketAndReserveSeat,
+            @Qualifier("purchaseExecutor") ExecutorService purchaseExecutor,
+            MeterRegistry meterRegistry,
+            @Value("${SCREENING_SHARDS}") int shards,
+            @Value("${SCREENING_SHARD_QUEUE_CAPACITY:1024}") int queueCapacity,
+            @Value("${SCREENING_SHARD_TIMEOUT_MS:5000}") long timeoutMillis) {
+        return new ShardedTicketService(bookTicketAndReserveSeat, purchaseExecutor, shards, queueCapacity,
+                Duration.ofMillis(timeoutMillis), meterRegistry);
+    }
+
+    /**
+     * The HTTP API, served when {@code HTTP_PORT} is set.
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty("HTTP_PORT")
+    public TicketHttpServer ticketHttpServer(
+            TicketService ticketService,
+            @Qualifier("purchaseExecutor") ExecutorService purchaseExecutor,
+            @Value("${HTTP_PORT}") int port) {
+        return new TicketHttpServer(ticketService, purchaseExecutor, port);
+    }
+
+    @Bean
+    public TicketProcessor ticketProcessor(TicketConfigSource ticketConfigSource) {
+        return new TicketProcessor(ticketConfigSource);
+    }
+
+    /**
+     * One virtual thread per booking: a slow gateway parks a cheap virtual thread instead of a
+     * request thread.
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService purchaseExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Default in-memory registry; deployments replace it with their exporter's registry.
+     */
+    @Bean
+    public MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
+    @Bean
+    public ExpiringLruCache<String, PurchaseResult> purchaseOutcomeCache(
+            MeterRegistry meterRegistry,
+            @Value("${IDEMPOTENCY_CACHE_SIZE:10000}") int maximumSize,
+            @Value("${IDEMPOTENCY_TTL_SECONDS:600}") long ttlSeconds) {
+        // A retry of a purchase whose payment outcome is unknown gets the same answer, not a second charge.
+        ExpiringLruCache<String, PurchaseResult> cache = new ExpiringLruCache<>(maximumSize,
+                Duration.ofSeconds(ttlSeconds), 16, OutcomeUnknownException::isOutcomeUnknown);
+        FunctionCounter.builder("ticket.idempotency.cache", cache, ExpiringLruCache::getHitCount)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("ticket.idempotency.cache", cache, ExpiringLruCache::getMissCount)
+                .tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("ticket.idempotency.cache", cache, ExpiringLruCache::getEvictionCount)
+                .tag("result", "eviction").register(meterRegistry);
+        return cache;
+    }
+
+    // Payment and reservation each get their own bulkhead, so one degraded service cannot use up
+    // the capacity of the other.
+    private static ResilientCaller resilientCaller(String service, int maxConcurrentCalls, int failureThreshold,
+            long openMillis, long minTimeoutMillis, long maxTimeoutMillis, ExecutorService executor) {
+        return new ResilientCaller(service, maxConcurrentCalls,
+                new CircuitBreaker(failureThreshold, Duration.ofMillis(openMillis)),
+                new AdaptiveTimeout(Duration.ofMillis(minTimeoutMillis), Duration.ofMillis(maxTimeoutMillis)),
+                executor);
     }
 
-   
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package uk.gov.dwp.uc.pairtest.config;
+
+import uk.gov.dwp.uc.pairtest.services.PriceTable;
+
+/**
+ * Immutable Object: one validated version of the ticket prices and per-order ticket limits, with the
+ * standard {@link PriceTable} built from them. A reload replaces the whole snapshot, so a reader that
+ * holds one sees prices and limits that belong together.
+ */
+public final class TicketConfig {
+
+    private final long version;
+    private final int adultTicketPrice;
+    private final int childTicketPrice;
+    private final int minTicket;
+    private final int maxTicket;
+    private final PriceTable priceTable;
+
+    /**
+     * @throws IllegalArgumentException if a price is negative or the limits are not
+     *         {@code 0 <= minTicket <= maxTicket}
+     */
+    public TicketConfig(long version, int adultTicketPrice, int childTicketPrice, int minTicket, int maxTicket) {
+        if (adultTicketPrice < 0 || childTicketPrice < 0) {
+            throw new IllegalArgumentException("Ticket prices cannot be negative.");
+        }
+        if (minTicket < 0 || minTicket > maxTicket) {
+            throw new IllegalArgumentException(
+                    "MIN_TICKET must be between 0 and MAX_TICKET, was " + minTicket + " and " + maxTicket + ".");
+        }
+        this.version = version;
+        this.adultTicketPrice = adultTicketPrice;
+        this.childTicketPrice = childTicketPrice;
+        this.minTicket = minTicket;
+        this.maxTicket = maxTicket;
+        this.priceTable = PriceTable.standard(adultTicketPrice, childTicketPrice);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getAdultTicketPrice() {
+        return adultTicketPrice;
+    }
+
+    public int getChildTicketPrice() {
+        return childTicketPrice;
+    }
+
+    public int getMinTicket() {
+        return minTicket;
+    }
+
+    public int getMaxTicket() {
+        return maxTicket;
+    }
+
+    public PriceTable getPriceTable() {
+        return priceTable;
+    }
+
+    /**
+     * True when both hold the same prices and limits, whatever their versions.
+     */
+    public boolean sameValuesAs(TicketConfig other) {
+        return adultTicketPrice == other.adultTicketPrice && childTicketPrice == other.childTicketPrice
+                && minTicket == other.minTicket && maxTicket == other.maxTicket;
+    }
+
+    @Override
+    public String toString() {
+        return "TicketConfig{version=" + version + ", adultTicketPrice=" + adultTicketPrice + ", childTicketPrice="
+                + childTicketPrice + ", minTicket=" + minTicket + ", maxTicket=" + maxTicket + "}";
+    }
+}
@@ -0,0 +1,187 @@
+package uk.gov.dwp.uc.pairtest.config;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The current {@link TicketConfig}, behind a single volatile reference so readers never lock.
+ * Starts from the application properties; with a {@code file}, the snapshot is reloaded whenever
+ * the file is created or modified, as seen by an NIO {@link WatchService} on its directory.
+ *
+ * <p>The file holds any of {@code ADULT_TICKET_PRICE}, {@code CHILD_TICKET_PRICE},
+ * {@code MIN_TICKET} and {@code MAX_TICKET}; missing keys keep their current value. A reload
+ * that does not parse or validate is rejected as a whole and the current snapshot stays in place.
+ * Each applied reload gets the next version.
+ */
+public class TicketConfigSource implements AutoCloseable {
+    Logger logger = LoggerFactory.getLogger(TicketConfigSource.class);
+
+    static final String ADULT_TICKET_PRICE = "ADULT_TICKET_PRICE";
+    static final String CHILD_TICKET_PRICE = "CHILD_TICKET_PRICE";
+    static final String MIN_TICKET = "MIN_TICKET";
+    static final String MAX_TICKET = "MAX_TICKET";
+
+    private final Path file;
+    private volatile TicketConfig current;
+    private WatchService watchService;
+    private Thread watcher;
+
+    /**
+     * @param file the file to watch, or null to keep the initial configuration
+     */
+    public TicketConfigSource(TicketConfig initial, Path file) {
+        this.current = initial;
+        this.file = file;
+    }
+
+    public TicketConfig get() {
+        return current;
+    }
+
+    /**
+     * Immutable Object: the outcome of one reload and the version in force afterwards.
+     */
+    public static final class ReloadResult {
+
+        public enum Status {
+            APPLIED, UNCHANGED, REJECTED
+        }
+
+        private final Status status;
+        private final long version;
+        private final String message;
+
+        ReloadResult(Status status, long version, String message) {
+            this.status = status;
+            this.version = version;
+            this.message = message;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return status + " (version " + version + "): " + message;
+        }
+    }
+
+    /**
+     * Reads the file and swaps in a new snapshot if its values differ from the current ones.
+     */
+    public synchronized ReloadResult reload() {
+        TicketConfig before = current;
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException | IllegalArgumentException e) {
+            return rejected(before, "cannot read " + file + ": " + e.getMessage());
+        }
+
+        TicketConfig next;
+        try {
+            next = new TicketConfig(before.getVersion() + 1,
+                    intValue(properties, ADULT_TICKET_PRICE, before.getAdultTicketPrice()),
+                    intValue(properties, CHILD_TICKET_PRICE, before.getChildTicketPrice()),
+                    intValue(properties, MIN_TICKET, before.getMinTicket()),
+                    intValue(properties, MAX_TICKET, before.getMaxTicket()));
+        } catch (IllegalArgumentException e) {
+            return rejected(before, e.getMessage());
+        }
+        if (next.sameValuesAs(before)) {
+            return new ReloadResult(ReloadResult.Status.UNCHANGED, before.getVersion(), "no changes in " + file);
+        }
+        current = next;
+        logger.info("Ticket configuration reloaded from {}: {}", file, next);
+        return new ReloadResult(ReloadResult.Status.APPLIED, next.getVersion(), next.toString());
+    }
+
+    /**
+     * Loads the file if it already exists and starts watching it. Does nothing without a file.
+     */
+    public synchronized void start() throws IOException {
+        if (file == null || watcher != null) {
+            return;
+        }
+        if (Files.exists(file)) {
+            reload();
+        }
+        Path directory = file.toAbsolutePath().getParent();
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        WatchService service = watchService;
+        watcher = Thread.ofPlatform().name("ticket-config-watcher").daemon().start(() -> watch(service));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (watcher == null) {
+            return;
+        }
+        watchService.close();
+        watcher = null;
+        watchService = null;
+    }
+
+    private void watch(WatchService service) {
+        Path name = file.getFileName();
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    // An overflow may have hidden an event for the file, so it counts as a change.
+                    changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context());
+                }
+                key.reset();
+                if (changed) {
+                    ReloadResult result = reload();
+                    if (result.getStatus() == ReloadResult.Status.REJECTED) {
+                        logger.warn("Ticket configuration reload rejected: {}", result.getMessage());
+                    }
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Closed by close().
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ReloadResult rejected(TicketConfig current, String reason) {
+        return new ReloadResult(ReloadResult.Status.REJECTED, current.getVersion(), reason);
+    }
+
+    private static int intValue(Properties properties, String key, int current) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return current;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " is not a whole number: " + value);
+        }
+    }
+}
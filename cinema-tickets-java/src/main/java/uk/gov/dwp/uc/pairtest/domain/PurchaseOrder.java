@@ -0,0 +1,22 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+/**
+ * Immutable Object: one account's order inside a batch purchase.
+ */
+public class PurchaseOrder {
+    private final Long accountId;
+    private final TicketTypeRequest[] ticketTypeRequests;
+
+    public PurchaseOrder(Long accountId, TicketTypeRequest... ticketTypeRequests) {
+        this.accountId = accountId;
+        this.ticketTypeRequests = ticketTypeRequests;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public TicketTypeRequest[] getTicketTypeRequests() {
+        return ticketTypeRequests;
+    }
+}
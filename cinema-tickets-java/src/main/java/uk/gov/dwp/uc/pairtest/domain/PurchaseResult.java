@@ -0,0 +1,74 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+/**
+ * Immutable Object: the outcome of a single order in a batch purchase.
+ * {@code summary} is null when the order was rejected before pricing completed.
+ */
+public class PurchaseResult {
+
+    /**
+     * {@code PENDING} orders were paid for but their seats are still waiting in the compensation
+     * outbox, which books them later or refunds the payment.
+     */
+    public enum Status {
+        SUCCEEDED, PENDING, FAILED
+    }
+
+    private final PurchaseOrder order;
+    private final TicketSummary summary;
+    private final Status status;
+    private final String failureReason;
+
+    public PurchaseResult(PurchaseOrder order, TicketSummary summary, String failureReason) {
+        this(order, summary, failureReason == null ? Status.SUCCEEDED : Status.FAILED, failureReason);
+    }
+
+    private PurchaseResult(PurchaseOrder order, TicketSummary summary, Status status, String failureReason) {
+        this.order = order;
+        this.summary = summary;
+        this.status = status;
+        this.failureReason = failureReason;
+    }
+
+    public static PurchaseResult succeeded(PurchaseOrder order, TicketSummary summary) {
+        return new PurchaseResult(order, summary, Status.SUCCEEDED, null);
+    }
+
+    /**
+     * A paid order whose seats could not be reserved yet, for {@code reason}.
+     */
+    public static PurchaseResult pending(PurchaseOrder order, TicketSummary summary, String reason) {
+        return new PurchaseResult(order, summary, Status.PENDING, reason);
+    }
+
+    public static PurchaseResult failed(PurchaseOrder order, TicketSummary summary, String failureReason) {
+        return new PurchaseResult(order, summary, Status.FAILED, failureReason);
+    }
+
+    public PurchaseOrder getOrder() {
+        return order;
+    }
+
+    public TicketSummary getSummary() {
+        return summary;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Why the order failed, or why its seats are pending; null once it succeeded.
+     */
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    public boolean isSuccessful() {
+        return status == Status.SUCCEEDED;
+    }
+
+    public boolean isPending() {
+        return status == Status.PENDING;
+    }
+}
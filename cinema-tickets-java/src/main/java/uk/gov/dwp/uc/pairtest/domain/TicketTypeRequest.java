@@ -24,7 +24,24 @@ public class TicketTypeRequest {
         return type;
     }
 
+    /**
+     * Every ticket type with the seats one ticket of it takes. Prices are configured per type in the
+     * price table, so a new type only needs a constant here and its prices.
+     */
     public enum Type {
-        ADULT, CHILD, INFANT
+        ADULT(1),
+        CHILD(1),
+        // Infants sit on an adult's lap.
+        INFANT(0);
+
+        private final int seatsPerTicket;
+
+        Type(int seatsPerTicket) {
+            this.seatsPerTicket = seatsPerTicket;
+        }
+
+        public int getSeatsPerTicket() {
+            return seatsPerTicket;
+        }
     }
 }
\ No newline at end of file
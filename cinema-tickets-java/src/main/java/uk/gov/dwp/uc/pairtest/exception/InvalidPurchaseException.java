@@ -6,4 +6,16 @@ public class InvalidPurchaseException extends RuntimeException {
         super(string);
     }
 
+    private InvalidPurchaseException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
+
+    /**
+     * An exception without a stack trace or suppressed exceptions, cheap enough to preallocate once
+     * and throw for every rejected request.
+     */
+    public static InvalidPurchaseException stackless(String message) {
+        return new InvalidPurchaseException(message, false);
+    }
+
 }
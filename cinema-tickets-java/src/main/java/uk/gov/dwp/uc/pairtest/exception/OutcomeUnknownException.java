@@ -0,0 +1,34 @@
+package uk.gov.dwp.uc.pairtest.exception;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A third-party call that started but did not answer in time. It was left running rather than
+ * interrupted, so it may still take effect: the operation must not be retried blindly, and
+ * {@link #getOutcome()} completes, normally or with the call's failure, once the call returns.
+ */
+public class OutcomeUnknownException extends ServiceUnavailableException {
+
+    private final transient CompletableFuture<Void> outcome;
+
+    public OutcomeUnknownException(String service, CompletableFuture<Void> outcome) {
+        super(service, Reason.TIMEOUT, service + " did not answer in time, the outcome is unknown");
+        this.outcome = outcome;
+    }
+
+    public CompletableFuture<Void> getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * True when {@code failure}, or any of its causes, is an {@link OutcomeUnknownException}.
+     */
+    public static boolean isOutcomeUnknown(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OutcomeUnknownException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,11 @@
+package uk.gov.dwp.uc.pairtest.exception;
+
+/**
+ * Thrown when a purchase is turned away because the service is at its concurrency limit. Carries
+ * no stack trace, so a single instance can be thrown for every rejected request.
+ */
+public class PurchaseOverloadedException extends RuntimeException {
+    public PurchaseOverloadedException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,11 @@
+package uk.gov.dwp.uc.pairtest.exception;
+
+/**
+ * Thrown when an account has used up its purchase quota. Carries no stack trace, so a single
+ * instance can be thrown for every rejected request.
+ */
+public class PurchaseRateLimitedException extends RuntimeException {
+    public PurchaseRateLimitedException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,7 @@
+package uk.gov.dwp.uc.pairtest.exception;
+
+public class SeatReservationFailedException extends RuntimeException {
+    public SeatReservationFailedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
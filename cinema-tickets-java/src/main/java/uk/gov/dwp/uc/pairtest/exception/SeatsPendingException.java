@@ -0,0 +1,22 @@
+package uk.gov.dwp.uc.pairtest.exception;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketSummary;
+
+/**
+ * Thrown when an order was paid for but its seats could not be reserved yet. The reservation is in
+ * the compensation outbox, which books the seats later or refunds the payment, so the purchase is
+ * neither a success nor a failure yet and must not be paid for again.
+ */
+public class SeatsPendingException extends RuntimeException {
+
+    private final TicketSummary summary;
+
+    public SeatsPendingException(TicketSummary summary) {
+        super("Payment taken; the seats will be reserved shortly, or the payment refunded.");
+        this.summary = summary;
+    }
+
+    public TicketSummary getSummary() {
+        return summary;
+    }
+}
@@ -0,0 +1,7 @@
+package uk.gov.dwp.uc.pairtest.exception;
+
+public class SeatsUnavailableException extends RuntimeException {
+    public SeatsUnavailableException(String message) {
+        super(message);
+    }
+}
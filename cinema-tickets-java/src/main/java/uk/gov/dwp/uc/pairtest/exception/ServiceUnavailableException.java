@@ -0,0 +1,26 @@
+package uk.gov.dwp.uc.pairtest.exception;
+
+/**
+ * A third-party call that was not attempted, or abandoned, to protect the service.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+
+    public enum Reason {
+        CIRCUIT_OPEN, BULKHEAD_FULL, TIMEOUT, QUEUE_FULL
+    }
+
+    private final Reason reason;
+
+    public ServiceUnavailableException(String service, Reason reason) {
+        this(service, reason, service + " unavailable: " + reason);
+    }
+
+    protected ServiceUnavailableException(String service, Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,209 @@
+package uk.gov.dwp.uc.pairtest.http;
+
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketSummary;
+import uk.gov.dwp.uc.pairtest.exception.InvalidCustomerUserTypeException;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.PaymentFailedException;
+import uk.gov.dwp.uc.pairtest.exception.PurchaseOverloadedException;
+import uk.gov.dwp.uc.pairtest.exception.PurchaseRateLimitedException;
+import uk.gov.dwp.uc.pairtest.exception.SeatReservationFailedException;
+import uk.gov.dwp.uc.pairtest.exception.SeatsPendingException;
+import uk.gov.dwp.uc.pairtest.exception.SeatsUnavailableException;
+import uk.gov.dwp.uc.pairtest.exception.ServiceUnavailableException;
+import uk.gov.dwp.uc.pairtest.exception.TicketCountException;
+import uk.gov.dwp.uc.pairtest.services.TicketService;
+
+/**
+ * JSON over HTTP on Reactor Netty:
+ * <ul>
+ * <li>{@code POST /purchases} buys an order, at most once per {@code Idempotency-Key} header when one
+ * is sent, and returns its summary; with {@code 202 Accepted} when it was paid for but its seats are
+ * still pending</li>
+ * <li>{@code POST /quotes} validates and prices an order without buying it, see
+ * {@link TicketService#quote}</li>
+ * </ul>
+ * Bodies are decoded from and encoded into pooled Netty buffers by {@link TicketJsonCodec}. Quotes
+ * are a table lookup and answered on the event loop; purchases block on the gateways, so they run on the
+ * purchase executor's virtual threads and the event loop is never held up.
+ *
+ * <p>A 503 is only sent for a purchase that never reached a gateway, so it can be retried as is. A
+ * gateway call that timed out may still take effect, so it gets a 504 saying its outcome is unknown.
+ */
+public class TicketHttpServer implements AutoCloseable {
+    Logger logger = LoggerFactory.getLogger(TicketHttpServer.class);
+
+    static final int MAX_BODY_BYTES = 16 * 1024;
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final String OUTCOME_UNKNOWN_MESSAGE = "The purchase did not complete in time and its outcome is "
+            + "unknown. Do not retry it; check whether the account was charged first.";
+
+    private final TicketService ticketService;
+    private final Scheduler purchaseScheduler;
+    private final int port;
+    private DisposableServer server;
+
+    public TicketHttpServer(TicketService ticketService, ExecutorService purchaseExecutor, int port) {
+        this.ticketService = ticketService;
+        this.purchaseScheduler = Schedulers.fromExecutorService(purchaseExecutor, "purchase");
+        this.port = port;
+    }
+
+    public synchronized void start() {
+        if (server != null) {
+            return;
+        }
+        server = HttpServer.create()
+                .port(port)
+                .route(routes -> routes
+                        .post("/purchases", this::purchase)
+                        .post("/quotes", this::quote))
+                .bindNow();
+        logger.info("Ticket HTTP API listening on port {}", server.port());
+    }
+
+    /**
+     * The bound port, which differs from the configured one when that was 0.
+     */
+    public synchronized int getPort() {
+        if (server == null) {
+            throw new IllegalStateException("The server has not been started.");
+        }
+        return server.port();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.disposeNow();
+            server = null;
+        }
+    }
+
+    private Publisher<Void> purchase(HttpServerRequest request, HttpServerResponse response) {
+        String idempotencyKey = request.requestHeaders().get(IDEMPOTENCY_KEY);
+        return handle(request, response, order -> Mono
+                .fromCallable(() -> ticketService.purchaseTickets(idempotencyKey, order.getAccountId(),
+                        order.getTicketTypeRequests()))
+                .subscribeOn(purchaseScheduler));
+    }
+
+    private Publisher<Void> quote(HttpServerRequest request, HttpServerResponse response) {
+        return handle(request, response,
+                order -> Mono.fromCallable(() -> ticketService.quote(order.getTicketTypeRequests())));
+    }
+
+    private Mono<Void> handle(HttpServerRequest request, HttpServerResponse response,
+            Function<TicketJsonCodec.Order, Mono<TicketSummary>> operation) {
+        String contentLength = request.requestHeaders().get(HttpHeaderNames.CONTENT_LENGTH);
+        if (contentLength == null) {
+            return sendError(response, HttpResponseStatus.LENGTH_REQUIRED, "A Content-Length header is required.");
+        }
+        long length;
+        try {
+            length = Long.parseLong(contentLength);
+        } catch (NumberFormatException e) {
+            return sendError(response, HttpResponseStatus.BAD_REQUEST, "Invalid Content-Length header.");
+        }
+        if (length > MAX_BODY_BYTES) {
+            return sendError(response, HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE,
+                    "Orders are limited to " + MAX_BODY_BYTES + " bytes.");
+        }
+        // The aggregated body is released once decoded, so the codec reads it in place.
+        return request.receive().aggregate()
+                .map(TicketJsonCodec::decodeOrder)
+                .switchIfEmpty(Mono.error(() -> new InvalidPurchaseException("Malformed order: empty body.")))
+                .flatMap(operation)
+                .flatMap(summary -> sendSummary(response, HttpResponseStatus.OK, summary))
+                .onErrorResume(e -> {
+                    if (e instanceof SeatsPendingException pending) {
+                        return sendSummary(response, HttpResponseStatus.ACCEPTED, pending.getSummary());
+                    }
+                    HttpResponseStatus status = statusOf(e);
+                    if (status == HttpResponseStatus.INTERNAL_SERVER_ERROR) {
+                        logger.error("Unexpected failure handling {}", request.uri(), e);
+                    }
+                    return sendError(response, status, status == HttpResponseStatus.GATEWAY_TIMEOUT
+                            ? OUTCOME_UNKNOWN_MESSAGE : String.valueOf(e.getMessage()));
+                });
+    }
+
+    private static Mono<Void> sendSummary(HttpServerResponse response, HttpResponseStatus status,
+            TicketSummary summary) {
+        ByteBuf body = response.alloc().buffer(160);
+        TicketJsonCodec.encodeSummary(summary, body);
+        return send(response, status, body);
+    }
+
+    private Mono<Void> sendError(HttpServerResponse response, HttpResponseStatus status, String message) {
+        ByteBuf body = response.alloc().buffer(64 + message.length());
+        TicketJsonCodec.encodeError(message, body);
+        return send(response, status, body);
+    }
+
+    private static Mono<Void> send(HttpServerResponse response, HttpResponseStatus status, ByteBuf body) {
+        return response.status(status)
+                .header(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON)
+                .header(HttpHeaderNames.CONTENT_LENGTH, Integer.toString(body.readableBytes()))
+                .sendObject(body)
+                .then();
+    }
+
+    static HttpResponseStatus statusOf(Throwable e) {
+        ServiceUnavailableException unavailable = unavailableCause(e);
+        if (unavailable != null) {
+            // Shed calls never reached the gateway, whichever stage they failed in; timed out ones may have.
+            return switch (unavailable.getReason()) {
+                case CIRCUIT_OPEN, BULKHEAD_FULL, QUEUE_FULL -> HttpResponseStatus.SERVICE_UNAVAILABLE;
+                case TIMEOUT -> HttpResponseStatus.GATEWAY_TIMEOUT;
+            };
+        }
+        if (e instanceof PurchaseOverloadedException) {
+            return HttpResponseStatus.SERVICE_UNAVAILABLE;
+        }
+        if (e instanceof InvalidPurchaseException || e instanceof TicketCountException
+                || e instanceof InvalidCustomerUserTypeException) {
+            return HttpResponseStatus.BAD_REQUEST;
+        }
+        if (e instanceof PurchaseRateLimitedException) {
+            return HttpResponseStatus.TOO_MANY_REQUESTS;
+        }
+        if (e instanceof SeatsUnavailableException) {
+            return HttpResponseStatus.CONFLICT;
+        }
+        if (e instanceof PaymentFailedException) {
+            return HttpResponseStatus.PAYMENT_REQUIRED;
+        }
+        if (e instanceof SeatReservationFailedException) {
+            return HttpResponseStatus.BAD_GATEWAY;
+        }
+        return HttpResponseStatus.INTERNAL_SERVER_ERROR;
+    }
+
+    private static ServiceUnavailableException unavailableCause(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ServiceUnavailableException unavailable) {
+                return unavailable;
+            }
+        }
+        return null;
+    }
+}
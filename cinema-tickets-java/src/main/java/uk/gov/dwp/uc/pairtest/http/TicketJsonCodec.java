@@ -0,0 +1,388 @@
+package uk.gov.dwp.uc.pairtest.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import io.netty.buffer.ByteBuf;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketSummary;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+
+/**
+ * Reads orders and writes summaries as JSON straight from and into Netty buffers. Field names and
+ * ticket types are matched byte by byte against preencoded constants, so decoding an order allocates
+ * only the requests themselves, and encoding a summary writes digits without building strings.
+ *
+ * <p>An order looks like
+ * {@code {"accountId": 1, "tickets": [{"type": "ADULT", "count": 2}, {"type": "INFANT", "count": 1}]}};
+ * unknown fields are skipped. A summary is written with the {@link TicketSummary} getter names.
+ */
+public final class TicketJsonCodec {
+
+    /** More entries than this cannot be a valid order, so they are not read. */
+    static final int MAX_TICKET_REQUESTS = 64;
+
+    private static final byte[] ACCOUNT_ID = ascii("accountId");
+    private static final byte[] TICKETS = ascii("tickets");
+    private static final byte[] TYPE = ascii("type");
+    private static final byte[] COUNT = ascii("count");
+    private static final TicketTypeRequest.Type[] TYPES = TicketTypeRequest.Type.values();
+    private static final byte[][] TYPE_NAMES = new byte[TYPES.length][];
+
+    private static final byte[] TOTAL_TICKETS = ascii("{\"totalTickets\":");
+    private static final byte[] TOTAL_SEATS = ascii(",\"totalSeats\":");
+    private static final byte[] TOTAL_PRICE = ascii(",\"totalPrice\":");
+    private static final byte[] ADULT_TICKETS = ascii(",\"adultTickets\":");
+    private static final byte[] CHILD_TICKETS = ascii(",\"childTickets\":");
+    private static final byte[] INFANT_TICKETS = ascii(",\"infantTickets\":");
+    private static final byte[] ERROR = ascii("{\"error\":\"");
+    private static final byte[] HEX = ascii("0123456789abcdef");
+
+    static {
+        for (TicketTypeRequest.Type type : TYPES) {
+            TYPE_NAMES[type.ordinal()] = ascii(type.name());
+        }
+    }
+
+    private TicketJsonCodec() {
+    }
+
+    /**
+     * A decoded order. {@code accountId} is null when the body has none, which the account
+     * validation then rejects.
+     */
+    public static final class Order {
+        private final Long accountId;
+        private final TicketTypeRequest[] ticketTypeRequests;
+
+        Order(Long accountId, TicketTypeRequest[] ticketTypeRequests) {
+            this.accountId = accountId;
+            this.ticketTypeRequests = ticketTypeRequests;
+        }
+
+        public Long getAccountId() {
+            return accountId;
+        }
+
+        public TicketTypeRequest[] getTicketTypeRequests() {
+            return ticketTypeRequests;
+        }
+    }
+
+    /**
+     * Reads one order from the readable bytes of {@code body}.
+     *
+     * @throws InvalidPurchaseException if the body is not a JSON object in the expected shape
+     */
+    public static Order decodeOrder(ByteBuf body) {
+        Reader reader = new Reader(body);
+        Long accountId = null;
+        TicketTypeRequest[] requests = null;
+
+        reader.expect('{');
+        if (!reader.consume('}')) {
+            do {
+                int keyStart = reader.stringStart();
+                int keyEnd = reader.stringEnd();
+                reader.expect(':');
+                if (reader.matches(keyStart, keyEnd, ACCOUNT_ID)) {
+                    accountId = reader.readLong();
+                } else if (reader.matches(keyStart, keyEnd, TICKETS)) {
+                    requests = readTicketRequests(reader);
+                } else {
+                    reader.skipValue();
+                }
+            } while (reader.consume(','));
+            reader.expect('}');
+        }
+        reader.expectEnd();
+        return new Order(accountId, requests == null ? new TicketTypeRequest[0] : requests);
+    }
+
+    /**
+     * Writes {@code summary} as a JSON object into {@code out}.
+     */
+    public static void encodeSummary(TicketSummary summary, ByteBuf out) {
+        out.writeBytes(TOTAL_TICKETS);
+        writeInt(out, summary.getTotalTickets());
+        out.writeBytes(TOTAL_SEATS);
+        writeInt(out, summary.getTotalSeats());
+        out.writeBytes(TOTAL_PRICE);
+        writeInt(out, summary.getTotalPrice());
+        out.writeBytes(ADULT_TICKETS);
+        writeInt(out, summary.getAdultTickets());
+        out.writeBytes(CHILD_TICKETS);
+        writeInt(out, summary.getChildTickets());
+        out.writeBytes(INFANT_TICKETS);
+        writeInt(out, summary.getInfantTickets());
+        out.writeByte('}');
+    }
+
+    /**
+     * Writes {@code {"error": message}} into {@code out}.
+     */
+    public static void encodeError(String message, ByteBuf out) {
+        out.writeBytes(ERROR);
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.writeByte('\\').writeByte(c);
+            } else if (c >= 0x20 && c < 0x80) {
+                out.writeByte(c);
+            } else {
+                out.writeByte('\\').writeByte('u');
+                for (int shift = 12; shift >= 0; shift -= 4) {
+                    out.writeByte(HEX[(c >> shift) & 0xF]);
+                }
+            }
+        }
+        out.writeByte('"').writeByte('}');
+    }
+
+    private static TicketTypeRequest[] readTicketRequests(Reader reader) {
+        TicketTypeRequest[] requests = new TicketTypeRequest[4];
+        int count = 0;
+        reader.expect('[');
+        if (reader.consume(']')) {
+            return new TicketTypeRequest[0];
+        }
+        do {
+            if (count == MAX_TICKET_REQUESTS) {
+                throw reader.malformed("too many ticket requests");
+            }
+            if (count == requests.length) {
+                requests = Arrays.copyOf(requests, count * 2);
+            }
+            requests[count++] = readTicketRequest(reader);
+        } while (reader.consume(','));
+        reader.expect(']');
+        return count == requests.length ? requests : Arrays.copyOf(requests, count);
+    }
+
+    private static TicketTypeRequest readTicketRequest(Reader reader) {
+        TicketTypeRequest.Type type = null;
+        long count = 0;
+        reader.expect('{');
+        if (!reader.consume('}')) {
+            do {
+                int keyStart = reader.stringStart();
+                int keyEnd = reader.stringEnd();
+                reader.expect(':');
+                if (reader.matches(keyStart, keyEnd, TYPE)) {
+                    type = reader.consumeNull() ? null : readType(reader);
+                } else if (reader.matches(keyStart, keyEnd, COUNT)) {
+                    count = reader.readLong();
+                } else {
+                    reader.skipValue();
+                }
+            } while (reader.consume(','));
+            reader.expect('}');
+        }
+        if (count > Integer.MAX_VALUE || count < Integer.MIN_VALUE) {
+            throw reader.malformed("ticket count out of range");
+        }
+        // A missing type is left null for the ticket request validation to reject.
+        return new TicketTypeRequest(type, (int) count);
+    }
+
+    private static TicketTypeRequest.Type readType(Reader reader) {
+        int start = reader.stringStart();
+        int end = reader.stringEnd();
+        for (TicketTypeRequest.Type type : TYPES) {
+            if (reader.matches(start, end, TYPE_NAMES[type.ordinal()])) {
+                return type;
+            }
+        }
+        throw reader.malformed("unknown ticket type");
+    }
+
+    private static void writeInt(ByteBuf out, int value) {
+        if (value < 0) {
+            if (value == Integer.MIN_VALUE) {
+                out.writeCharSequence(Integer.toString(value), StandardCharsets.US_ASCII);
+                return;
+            }
+            out.writeByte('-');
+            value = -value;
+        }
+        int divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            out.writeByte('0' + value / divisor % 10);
+            divisor /= 10;
+        }
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Cursor over the readable bytes of a buffer; never moves the buffer's own reader index.
+    private static final class Reader {
+        private final ByteBuf buffer;
+        private final int end;
+        private int position;
+
+        Reader(ByteBuf buffer) {
+            this.buffer = buffer;
+            this.position = buffer.readerIndex();
+            this.end = buffer.writerIndex();
+        }
+
+        void expect(char c) {
+            if (!consume(c)) {
+                throw malformed("expected '" + c + "'");
+            }
+        }
+
+        boolean consume(char c) {
+            skipWhitespace();
+            if (position < end && buffer.getByte(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        void expectEnd() {
+            skipWhitespace();
+            if (position != end) {
+                throw malformed("unexpected content after the order");
+            }
+        }
+
+        boolean consumeNull() {
+            skipWhitespace();
+            if (position + 4 <= end && buffer.getByte(position) == 'n' && buffer.getByte(position + 1) == 'u'
+                    && buffer.getByte(position + 2) == 'l' && buffer.getByte(position + 3) == 'l') {
+                position += 4;
+                return true;
+            }
+            return false;
+        }
+
+        // Returns the index just after the opening quote of a string.
+        int stringStart() {
+            expect('"');
+            return position;
+        }
+
+        // Moves past the closing quote and returns its index.
+        int stringEnd() {
+            while (position < end) {
+                byte b = buffer.getByte(position++);
+                if (b == '"') {
+                    return position - 1;
+                }
+                if (b == '\\') {
+                    position++;
+                }
+            }
+            throw malformed("unterminated string");
+        }
+
+        boolean matches(int start, int stop, byte[] expected) {
+            if (stop - start != expected.length) {
+                return false;
+            }
+            for (int i = 0; i < expected.length; i++) {
+                if (buffer.getByte(start + i) != expected[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long readLong() {
+            skipWhitespace();
+            boolean negative = position < end && buffer.getByte(position) == '-';
+            if (negative) {
+                position++;
+            }
+            int start = position;
+            long value = 0;
+            while (position < end) {
+                byte b = buffer.getByte(position);
+                if (b < '0' || b > '9') {
+                    break;
+                }
+                if (value > (Long.MAX_VALUE - (b - '0')) / 10) {
+                    throw malformed("number out of range");
+                }
+                value = value * 10 + (b - '0');
+                position++;
+            }
+            if (position == start) {
+                throw malformed("expected a number");
+            }
+            if (position < end) {
+                byte b = buffer.getByte(position);
+                if (b == '.' || b == 'e' || b == 'E') {
+                    throw malformed("expected a whole number");
+                }
+            }
+            return negative ? -value : value;
+        }
+
+        void skipValue() {
+            skipWhitespace();
+            if (position >= end) {
+                throw malformed("expected a value");
+            }
+            byte b = buffer.getByte(position);
+            if (b == '"') {
+                position++;
+                stringEnd();
+            } else if (b == '{' || b == '[') {
+                skipContainer();
+            } else {
+                // Numbers, true, false and null: everything up to the next delimiter.
+                int start = position;
+                while (position < end) {
+                    byte c = buffer.getByte(position);
+                    if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                        break;
+                    }
+                    position++;
+                }
+                if (position == start) {
+                    throw malformed("expected a value");
+                }
+            }
+        }
+
+        // Depth counting is enough to skip a nested value; its contents are never interpreted.
+        private void skipContainer() {
+            int depth = 0;
+            while (position < end) {
+                byte b = buffer.getByte(position++);
+                if (b == '"') {
+                    stringEnd();
+                } else if (b == '{' || b == '[') {
+                    depth++;
+                } else if ((b == '}' || b == ']') && --depth == 0) {
+                    return;
+                }
+            }
+            throw malformed("unterminated value");
+        }
+
+        private void skipWhitespace() {
+            while (position < end) {
+                byte b = buffer.getByte(position);
+                if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                    return;
+                }
+                position++;
+            }
+        }
+
+        InvalidPurchaseException malformed(String reason) {
+            return new InvalidPurchaseException("Malformed order: " + reason + " at offset "
+                    + (position - buffer.readerIndex()) + ".");
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package uk.gov.dwp.uc.pairtest.inventory;
+
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.exception.SeatsUnavailableException;
+
+/**
+ * Decorator that claims seats in the local {@link SeatInventory} before passing the reservation on to
+ * the third-party service. Calls through the {@link SeatReservationService} interface book the
+ * default screening.
+ */
+public class InventorySeatReservationService implements SeatReservationService, SeatAvailability {
+
+    private final SeatReservationService seatReservationService;
+    private final SeatInventory seatInventory;
+    private final long defaultScreeningId;
+
+    public InventorySeatReservationService(SeatReservationService seatReservationService,
+            SeatInventory seatInventory, long defaultScreeningId) {
+        this.seatReservationService = seatReservationService;
+        this.seatInventory = seatInventory;
+        this.defaultScreeningId = defaultScreeningId;
+    }
+
+    @Override
+    public void reserveSeat(long accountId, int totalSeatsToAllocate) {
+        reserveSeats(defaultScreeningId, accountId, totalSeatsToAllocate);
+    }
+
+    @Override
+    public boolean canAllocate(int totalSeatsToAllocate) {
+        return canAllocate(defaultScreeningId, totalSeatsToAllocate);
+    }
+
+    public boolean canAllocate(long screeningId, int totalSeatsToAllocate) {
+        return seatInventory.getAvailableSeats(screeningId) >= totalSeatsToAllocate;
+    }
+
+    public boolean hasScreening(long screeningId) {
+        return seatInventory.hasScreening(screeningId);
+    }
+
+    /**
+     * Claims and reserves seats for one screening and returns the seat numbers. The claim is rolled
+     * back if the third-party reservation fails.
+     */
+    public int[] reserveSeats(long screeningId, long accountId, int totalSeatsToAllocate) {
+        int[] seats = claimSeats(screeningId, totalSeatsToAllocate);
+        if (seats == null) {
+            throw new SeatsUnavailableException("Only " + seatInventory.getAvailableSeats(screeningId)
+                    + " seats are left for this screening.");
+        }
+        reserveClaimedSeats(screeningId, accountId, seats);
+        return seats;
+    }
+
+    /**
+     * Claims seats in the inventory only, without the third-party service; the seat numbers, or null
+     * if there are not enough left.
+     */
+    public int[] claimSeats(long screeningId, int totalSeatsToAllocate) {
+        return seatInventory.getScreening(screeningId).claim(totalSeatsToAllocate);
+    }
+
+    /**
+     * Reserves seats already claimed in the inventory, such as a bought hold, with the third-party
+     * service. The claim is released if the reservation fails.
+     */
+    public void reserveClaimedSeats(long screeningId, long accountId, int[] seats) {
+        try {
+            seatReservationService.reserveSeat(accountId, seats.length);
+        } catch (RuntimeException e) {
+            releaseSeats(screeningId, seats);
+            throw e;
+        }
+    }
+
+    public void releaseSeats(long screeningId, int[] seats) {
+        seatInventory.getScreening(screeningId).release(seats);
+    }
+}
@@ -0,0 +1,148 @@
+package uk.gov.dwp.uc.pairtest.inventory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free seat state for one screening: one 64-bit word per row, a set bit is a taken seat.
+ * Seats are numbered {@code row * seatsPerRow + seatInRow}.
+ */
+public class ScreeningSeatMap {
+
+    private final int rows;
+    private final int seatsPerRow;
+    private final long rowMask;
+    private final AtomicLongArray taken;
+    private final AtomicInteger available;
+    private final int[] rowPreference;
+
+    public ScreeningSeatMap(int rows, int seatsPerRow) {
+        if (rows <= 0 || seatsPerRow <= 0 || seatsPerRow > Long.SIZE) {
+            throw new IllegalArgumentException(
+                    "A screening needs at least one row and between 1 and 64 seats per row.");
+        }
+        this.rows = rows;
+        this.seatsPerRow = seatsPerRow;
+        this.rowMask = seatsPerRow == Long.SIZE ? -1L : (1L << seatsPerRow) - 1;
+        this.taken = new AtomicLongArray(rows);
+        this.available = new AtomicInteger(rows * seatsPerRow);
+        this.rowPreference = centreOutRows(rows);
+    }
+
+    public int getCapacity() {
+        return rows * seatsPerRow;
+    }
+
+    public int getAvailableSeats() {
+        return available.get();
+    }
+
+    public boolean isTaken(int seat) {
+        return (taken.get(seat / seatsPerRow) & (1L << (seat % seatsPerRow))) != 0;
+    }
+
+    /**
+     * Claims {@code count} seats, side by side in the most central row that has room, otherwise the
+     * best available seats anywhere. Returns the claimed seat numbers, or null when the screening
+     * does not have {@code count} free seats.
+     */
+    public int[] claim(int count) {
+        if (count <= 0) {
+            return new int[0];
+        }
+        if (!reserveCapacity(count)) {
+            return null;
+        }
+        int[] seats = count <= seatsPerRow ? claimAdjacent(count) : null;
+        return seats != null ? seats : claimBestAvailable(count);
+    }
+
+    /**
+     * Returns previously claimed seats to the pool.
+     */
+    public void release(int[] seats) {
+        for (int seat : seats) {
+            int row = seat / seatsPerRow;
+            long bit = 1L << (seat % seatsPerRow);
+            long word;
+            do {
+                word = taken.get(row);
+                if ((word & bit) == 0) {
+                    throw new IllegalStateException("Seat " + seat + " is not taken.");
+                }
+            } while (!taken.compareAndSet(row, word, word & ~bit));
+        }
+        available.addAndGet(seats.length);
+    }
+
+    // Capacity is reserved up front, so a sold-out screening is rejected without scanning the rows
+    // and a caller that got capacity is guaranteed to find enough free bits.
+    private boolean reserveCapacity(int count) {
+        int current;
+        do {
+            current = available.get();
+            if (current < count) {
+                return false;
+            }
+        } while (!available.compareAndSet(current, current - count));
+        return true;
+    }
+
+    private int[] claimAdjacent(int count) {
+        long block = count == Long.SIZE ? -1L : (1L << count) - 1;
+        for (int row : rowPreference) {
+            while (true) {
+                long word = taken.get(row);
+                long free = ~word & rowMask;
+                long starts = free;
+                for (int i = 1; i < count && starts != 0; i++) {
+                    starts &= free >>> i;
+                }
+                if (starts == 0) {
+                    break;
+                }
+                int start = Long.numberOfTrailingZeros(starts);
+                if (taken.compareAndSet(row, word, word | (block << start))) {
+                    int[] seats = new int[count];
+                    for (int i = 0; i < count; i++) {
+                        seats[i] = row * seatsPerRow + start + i;
+                    }
+                    return seats;
+                }
+            }
+        }
+        return null;
+    }
+
+    private int[] claimBestAvailable(int count) {
+        int[] seats = new int[count];
+        int claimed = 0;
+        while (claimed < count) {
+            for (int r = 0; r < rowPreference.length && claimed < count; r++) {
+                int row = rowPreference[r];
+                while (claimed < count) {
+                    long word = taken.get(row);
+                    long free = ~word & rowMask;
+                    if (free == 0) {
+                        break;
+                    }
+                    long bit = Long.lowestOneBit(free);
+                    if (taken.compareAndSet(row, word, word | bit)) {
+                        seats[claimed++] = row * seatsPerRow + Long.numberOfTrailingZeros(bit);
+                    }
+                }
+            }
+        }
+        return seats;
+    }
+
+    private static int[] centreOutRows(int rows) {
+        int[] order = new int[rows];
+        int centre = rows / 2;
+        for (int i = 0; i < rows; i++) {
+            int offset = (i + 1) / 2;
+            order[i] = i % 2 == 0 ? centre + offset : centre - offset;
+        }
+        return order;
+    }
+}
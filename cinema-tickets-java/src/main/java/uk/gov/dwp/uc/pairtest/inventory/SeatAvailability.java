@@ -0,0 +1,11 @@
+package uk.gov.dwp.uc.pairtest.inventory;
+
+/**
+ * Implemented by seat reservation services that can tell, before payment is taken, whether a
+ * reservation could currently succeed.
+ */
+public interface SeatAvailability {
+
+    boolean canAllocate(int totalSeatsToAllocate);
+
+}
@@ -0,0 +1,56 @@
+package uk.gov.dwp.uc.pairtest.inventory;
+
+/**
+ * Immutable Object: seats claimed for an account on one screening, pending payment. The hold is
+ * released automatically at {@code expiresAtNanos}, measured on the {@link SeatHolds} clock.
+ */
+public class SeatHold {
+    private final long id;
+    private final long screeningId;
+    private final long accountId;
+    private final int[] seats;
+    private final long expiresAtNanos;
+
+    public SeatHold(long id, long screeningId, long accountId, int[] seats, long expiresAtNanos) {
+        this.id = id;
+        this.screeningId = screeningId;
+        this.accountId = accountId;
+        this.seats = seats.clone();
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getScreeningId() {
+        return screeningId;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public int[] getSeats() {
+        return seats.clone();
+    }
+
+    public int getSeatCount() {
+        return seats.length;
+    }
+
+    public long getExpiresAtNanos() {
+        return expiresAtNanos;
+    }
+
+    // Shared with SeatHolds, which never modifies it, to avoid a copy on every release.
+    int[] seats() {
+        return seats;
+    }
+
+    @Override
+    public String toString() {
+        return "SeatHold{id=" + id + ", screeningId=" + screeningId + ", accountId=" + accountId + ", seats="
+                + seats.length + "}";
+    }
+}
@@ -0,0 +1,226 @@
+package uk.gov.dwp.uc.pairtest.inventory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.SeatsUnavailableException;
+import uk.gov.dwp.uc.pairtest.utils.HierarchicalTimingWheel;
+import uk.gov.dwp.uc.pairtest.utils.HierarchicalTimingWheel.Timeout;
+
+/**
+ * Temporary seat holds between a quote and payment. Holding claims the seats in the
+ * {@link SeatInventory} straight away, so nobody else can buy them. A hold is only turned into a
+ * booking by a purchase, which {@link #take}s its seats and pays for them before reserving them; a
+ * hold that is neither bought nor released in time goes back to the pool.
+ *
+ * <p>Expiry runs off one {@link HierarchicalTimingWheel} advanced every {@code tick} by a single
+ * thread, rather than a scheduled task per hold, so placing or expiring a hold is O(1) however many
+ * are outstanding. A hold expires at most one tick late, and is never bought after its deadline.
+ */
+public class SeatHolds implements AutoCloseable {
+    Logger logger = LoggerFactory.getLogger(SeatHolds.class);
+
+    private final SeatInventory seatInventory;
+    private final Duration defaultTtl;
+    private final Duration tick;
+    private final LongSupplier nanoClock;
+
+    private final Object lock = new Object();
+    private final HierarchicalTimingWheel<SeatHold> wheel;
+    private final Map<Long, Timeout<SeatHold>> holdsById = new HashMap<>();
+    private final Map<Long, Set<SeatHold>> holdsByScreening = new HashMap<>();
+    private long nextHoldId = 1;
+    private long expiredCount;
+    private ScheduledExecutorService scheduler;
+
+    public SeatHolds(SeatInventory seatInventory, Duration defaultTtl, Duration tick) {
+        this(seatInventory, defaultTtl, tick, System::nanoTime);
+    }
+
+    public SeatHolds(SeatInventory seatInventory, Duration defaultTtl, Duration tick, LongSupplier nanoClock) {
+        this.seatInventory = seatInventory;
+        this.defaultTtl = defaultTtl;
+        this.tick = tick;
+        this.nanoClock = nanoClock;
+        this.wheel = new HierarchicalTimingWheel<>(tick.toNanos(), nanoClock.getAsLong());
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "seat-hold-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::expireHoldsSafely, tick.toNanos(), tick.toNanos(),
+                TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public SeatHold hold(long screeningId, long accountId, int seatCount) {
+        return hold(screeningId, accountId, seatCount, defaultTtl);
+    }
+
+    /**
+     * Claims {@code seatCount} seats for {@code ttl}.
+     *
+     * @throws SeatsUnavailableException if the screening does not have that many free seats
+     */
+    public SeatHold hold(long screeningId, long accountId, int seatCount, Duration ttl) {
+        if (seatCount <= 0) {
+            throw new IllegalArgumentException("A hold needs at least one seat.");
+        }
+        ScreeningSeatMap screening = seatInventory.getScreening(screeningId);
+        int[] seats = screening.claim(seatCount);
+        if (seats == null) {
+            throw new SeatsUnavailableException(
+                    "Only " + screening.getAvailableSeats() + " seats are left for this screening.");
+        }
+        synchronized (lock) {
+            SeatHold hold = new SeatHold(nextHoldId++, screeningId, accountId, seats,
+                    nanoClock.getAsLong() + ttl.toNanos());
+            holdsById.put(hold.getId(), wheel.schedule(hold, hold.getExpiresAtNanos()));
+            holdsByScreening.computeIfAbsent(screeningId, id -> new LinkedHashSet<>()).add(hold);
+            return hold;
+        }
+    }
+
+    /**
+     * Ends a hold for the purchase of its seats and returns it. The seats stay claimed in the inventory,
+     * and are now the purchase's to reserve once paid for, or to release.
+     *
+     * @throws SeatsUnavailableException if the account has no such hold, or it has expired
+     * @throws InvalidPurchaseException if the hold is not for {@code seatCount} seats; the hold is kept
+     */
+    public SeatHold take(long holdId, long accountId, int seatCount) {
+        synchronized (lock) {
+            Timeout<SeatHold> timeout = holdsById.get(holdId);
+            if (timeout == null || timeout.getValue().getAccountId() != accountId) {
+                throw new SeatsUnavailableException("Seat hold " + holdId + " has expired or does not exist.");
+            }
+            SeatHold hold = timeout.getValue();
+            // The wheel may not have ticked past the deadline yet.
+            if (hold.getExpiresAtNanos() - nanoClock.getAsLong() <= 0) {
+                remove(timeout);
+                expire(hold);
+                throw new SeatsUnavailableException("Seat hold " + holdId + " has expired or does not exist.");
+            }
+            if (hold.getSeatCount() != seatCount) {
+                throw new InvalidPurchaseException("Seat hold " + holdId + " is for " + hold.getSeatCount()
+                        + " seats, but the order needs " + seatCount + ".");
+            }
+            remove(timeout);
+            return hold;
+        }
+    }
+
+    /**
+     * Returns a hold's seats to the pool. Returns false if it was already bought, released or expired.
+     */
+    public boolean release(long holdId) {
+        synchronized (lock) {
+            Timeout<SeatHold> timeout = holdsById.get(holdId);
+            if (timeout == null) {
+                return false;
+            }
+            remove(timeout);
+            seatInventory.getScreening(timeout.getValue().getScreeningId()).release(timeout.getValue().seats());
+            return true;
+        }
+    }
+
+    /**
+     * Releases every hold whose deadline has passed and returns how many there were. Called every
+     * tick once started.
+     */
+    public int expireHolds() {
+        synchronized (lock) {
+            return wheel.advanceTo(nanoClock.getAsLong(), hold -> {
+                holdsById.remove(hold.getId());
+                removeFromScreening(hold);
+                expire(hold);
+            });
+        }
+    }
+
+    /**
+     * The outstanding holds for one screening, oldest first.
+     */
+    public List<SeatHold> getHolds(long screeningId) {
+        synchronized (lock) {
+            Set<SeatHold> holds = holdsByScreening.get(screeningId);
+            return holds == null ? List.of() : List.copyOf(holds);
+        }
+    }
+
+    public int getHeldSeats(long screeningId) {
+        synchronized (lock) {
+            int seats = 0;
+            for (SeatHold hold : holdsByScreening.getOrDefault(screeningId, Set.of())) {
+                seats += hold.getSeatCount();
+            }
+            return seats;
+        }
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return holdsById.size();
+        }
+    }
+
+    public long getExpiredCount() {
+        synchronized (lock) {
+            return expiredCount;
+        }
+    }
+
+    private void remove(Timeout<SeatHold> timeout) {
+        wheel.cancel(timeout);
+        holdsById.remove(timeout.getValue().getId());
+        removeFromScreening(timeout.getValue());
+    }
+
+    private void removeFromScreening(SeatHold hold) {
+        Set<SeatHold> holds = holdsByScreening.get(hold.getScreeningId());
+        holds.remove(hold);
+        if (holds.isEmpty()) {
+            holdsByScreening.remove(hold.getScreeningId());
+        }
+    }
+
+    private void expire(SeatHold hold) {
+        seatInventory.getScreening(hold.getScreeningId()).release(hold.seats());
+        expiredCount++;
+        logger.debug("Seat hold expired: {}", hold);
+    }
+
+    private void expireHoldsSafely() {
+        try {
+            expireHolds();
+        } catch (RuntimeException e) {
+            logger.error("Failed to expire seat holds", e);
+        }
+    }
+}
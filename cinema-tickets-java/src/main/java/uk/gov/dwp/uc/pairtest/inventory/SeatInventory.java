@@ -0,0 +1,38 @@
+package uk.gov.dwp.uc.pairtest.inventory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process seat state for every screening we sell.
+ */
+@Component
+public class SeatInventory {
+
+    private final ConcurrentMap<Long, ScreeningSeatMap> screenings = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a screening; an already registered screening keeps its current seat state.
+     */
+    public ScreeningSeatMap addScreening(long screeningId, int rows, int seatsPerRow) {
+        return screenings.computeIfAbsent(screeningId, id -> new ScreeningSeatMap(rows, seatsPerRow));
+    }
+
+    public boolean hasScreening(long screeningId) {
+        return screenings.containsKey(screeningId);
+    }
+
+    public ScreeningSeatMap getScreening(long screeningId) {
+        ScreeningSeatMap screening = screenings.get(screeningId);
+        if (screening == null) {
+            throw new IllegalArgumentException("Unknown screening: " + screeningId);
+        }
+        return screening;
+    }
+
+    public int getAvailableSeats(long screeningId) {
+        return getScreening(screeningId).getAvailableSeats();
+    }
+}
@@ -0,0 +1,85 @@
+package uk.gov.dwp.uc.pairtest.journal;
+
+/**
+ * Immutable Object: one purchase as recorded in the {@link PurchaseJournal}. A purchase journals a
+ * {@code PAYMENT_STARTED} intent before the card is charged, and its outcome afterwards with the
+ * intent's sequence number, so an intent with no outcome marks a payment interrupted by a crash.
+ */
+public class JournalEntry {
+
+    public static final long NO_INTENT = -1;
+
+    // Journaled by ordinal: new outcomes go at the end.
+    public enum Outcome {
+        SUCCEEDED, PAYMENT_FAILED, RESERVATION_FAILED, RESERVATION_DEFERRED, PAYMENT_STARTED, REFUNDED
+    }
+
+    private final long sequence;
+    private final long timestampMillis;
+    private final long accountId;
+    private final int adultTickets;
+    private final int childTickets;
+    private final int infantTickets;
+    private final int totalPrice;
+    private final Outcome outcome;
+    private final long intentSequence;
+
+    public JournalEntry(long sequence, long timestampMillis, long accountId, int adultTickets, int childTickets,
+            int infantTickets, int totalPrice, Outcome outcome) {
+        this(sequence, timestampMillis, accountId, adultTickets, childTickets, infantTickets, totalPrice, outcome,
+                NO_INTENT);
+    }
+
+    public JournalEntry(long sequence, long timestampMillis, long accountId, int adultTickets, int childTickets,
+            int infantTickets, int totalPrice, Outcome outcome, long intentSequence) {
+        this.sequence = sequence;
+        this.timestampMillis = timestampMillis;
+        this.accountId = accountId;
+        this.adultTickets = adultTickets;
+        this.childTickets = childTickets;
+        this.infantTickets = infantTickets;
+        this.totalPrice = totalPrice;
+        this.outcome = outcome;
+        this.intentSequence = intentSequence;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public int getAdultTickets() {
+        return adultTickets;
+    }
+
+    public int getChildTickets() {
+        return childTickets;
+    }
+
+    public int getInfantTickets() {
+        return infantTickets;
+    }
+
+    public int getTotalPrice() {
+        return totalPrice;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * The sequence number of the {@code PAYMENT_STARTED} entry this outcome resolves, or
+     * {@link #NO_INTENT}.
+     */
+    public long getIntentSequence() {
+        return intentSequence;
+    }
+}
@@ -0,0 +1,110 @@
+package uk.gov.dwp.uc.pairtest.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+
+import uk.gov.dwp.uc.pairtest.journal.JournalEntry.Outcome;
+
+/**
+ * Fixed-size binary record shared by the journal writer and reader. A record is only valid when its
+ * CRC32C matches and it carries the sequence number of its slot, so zero-filled and torn slots read
+ * as the end of the journal. A slot left empty below later records by a crash is filled with a
+ * hole record on recovery, which readers step over.
+ *
+ * <pre>
+ *  0 int  crc32c of bytes 4..55
+ *  4 long sequence
+ * 12 long timestamp (epoch millis)
+ * 20 long accountId
+ * 28 int  adult tickets
+ * 32 int  child tickets
+ * 36 int  infant tickets
+ * 40 int  total price
+ * 44 byte outcome, or {@value #HOLE} for a hole
+ * 48 long sequence of the PAYMENT_STARTED record this one resolves, or -1
+ * </pre>
+ */
+final class JournalFormat {
+
+    static final int RECORD_SIZE = 56;
+    static final String SEGMENT_SUFFIX = ".journal";
+    static final byte HOLE = Byte.MAX_VALUE;
+
+    /**
+     * Returned by {@link #decode} for a hole record.
+     */
+    static final JournalEntry SKIPPED = new JournalEntry(-1, 0, 0, 0, 0, 0, 0, null);
+
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    private JournalFormat() {
+    }
+
+    static Path segmentFile(Path directory, long segmentIndex) {
+        return directory.resolve(String.format("%020d%s", segmentIndex, SEGMENT_SUFFIX));
+    }
+
+    static int recordsPerSegment(int segmentBytes) {
+        int records = segmentBytes / RECORD_SIZE;
+        if (records < 1) {
+            throw new IllegalArgumentException("Journal segments must hold at least one record.");
+        }
+        return records;
+    }
+
+    static byte[] encode(long sequence, long timestampMillis, long accountId, int adultTickets, int childTickets,
+            int infantTickets, int totalPrice, Outcome outcome, long intentSequence) {
+        return encode(sequence, timestampMillis, accountId, adultTickets, childTickets, infantTickets, totalPrice,
+                (byte) outcome.ordinal(), intentSequence);
+    }
+
+    static byte[] encodeHole(long sequence) {
+        return encode(sequence, 0, 0, 0, 0, 0, 0, HOLE, JournalEntry.NO_INTENT);
+    }
+
+    private static byte[] encode(long sequence, long timestampMillis, long accountId, int adultTickets,
+            int childTickets, int infantTickets, int totalPrice, byte outcome, long intentSequence) {
+        byte[] record = new byte[RECORD_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.putLong(4, sequence)
+                .putLong(12, timestampMillis)
+                .putLong(20, accountId)
+                .putInt(28, adultTickets)
+                .putInt(32, childTickets)
+                .putInt(36, infantTickets)
+                .putInt(40, totalPrice)
+                .put(44, outcome)
+                .putLong(48, intentSequence);
+        buffer.putInt(0, checksum(record));
+        return record;
+    }
+
+    /**
+     * Returns the record at {@code offset}, {@link #SKIPPED} for a hole, or null when the slot does not
+     * hold a complete record for {@code expectedSequence}.
+     */
+    static JournalEntry decode(ByteBuffer segment, int offset, long expectedSequence) {
+        byte[] record = new byte[RECORD_SIZE];
+        segment.get(offset, record);
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        if (buffer.getLong(4) != expectedSequence || buffer.getInt(0) != checksum(record)) {
+            return null;
+        }
+        int outcome = buffer.get(44);
+        if (outcome == HOLE) {
+            return SKIPPED;
+        }
+        if (outcome < 0 || outcome >= OUTCOMES.length) {
+            return null;
+        }
+        return new JournalEntry(expectedSequence, buffer.getLong(12), buffer.getLong(20), buffer.getInt(28),
+                buffer.getInt(32), buffer.getInt(36), buffer.getInt(40), OUTCOMES[outcome], buffer.getLong(48));
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32C crc = new CRC32C();
+        crc.update(record, 4, RECORD_SIZE - 4);
+        return (int) crc.getValue();
+    }
+}
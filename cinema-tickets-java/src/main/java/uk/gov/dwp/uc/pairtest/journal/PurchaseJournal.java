@@ -0,0 +1,328 @@
+package uk.gov.dwp.uc.pairtest.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.dwp.uc.pairtest.journal.JournalEntry.Outcome;
+
+/**
+ * Append-only journal of purchases written through memory-mapped segment files.
+ *
+ * <p>Appenders claim a slot with a single atomic increment and copy a fixed-size record into the
+ * mapping, so there is no lock on the write path. A flusher thread forces dirty segments to disk:
+ * every {@code fsyncInterval} with {@link FsyncPolicy#PERIODIC}, or as soon as an appender is
+ * waiting with {@link FsyncPolicy#GROUP_COMMIT}, where everyone who appended during a force shares
+ * the next one.
+ */
+public class PurchaseJournal implements AutoCloseable {
+    Logger logger = LoggerFactory.getLogger(PurchaseJournal.class);
+
+    public enum FsyncPolicy {
+        /** Appends return immediately; at most {@code fsyncInterval} of entries can be lost in a crash. */
+        PERIODIC,
+        /** Appends return once their entry has been forced to disk. */
+        GROUP_COMMIT
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int recordsPerSegment;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final AtomicLong nextSequence;
+    private final Map<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private volatile Segment current;
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Condition flushRequested = flushLock.newCondition();
+    private final Condition flushed = flushLock.newCondition();
+    private long startedFlushes;
+    private long completedFlushes;
+    private int waitingAppenders;
+    private volatile boolean closed;
+    private final Thread flusher;
+
+    public PurchaseJournal(Path directory, int segmentBytes, FsyncPolicy fsyncPolicy, Duration fsyncInterval) {
+        this.directory = directory;
+        this.recordsPerSegment = JournalFormat.recordsPerSegment(segmentBytes);
+        this.segmentBytes = recordsPerSegment * JournalFormat.RECORD_SIZE;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+        try {
+            Files.createDirectories(directory);
+            this.nextSequence = new AtomicLong(recover());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open journal " + directory, e);
+        }
+        long resumeAt = nextSequence.get();
+        segment(resumeAt / recordsPerSegment).written.set((int) (resumeAt % recordsPerSegment));
+        this.flusher = Thread.ofPlatform().name("purchase-journal-flusher").daemon().start(this::flushLoop);
+    }
+
+    /**
+     * Appends a purchase and returns its sequence number.
+     */
+    public long append(long accountId, int adultTickets, int childTickets, int infantTickets, int totalPrice,
+            Outcome outcome) {
+        return append(accountId, adultTickets, childTickets, infantTickets, totalPrice, outcome,
+                JournalEntry.NO_INTENT);
+    }
+
+    /**
+     * Appends the outcome of a purchase whose {@code PAYMENT_STARTED} intent was journaled as
+     * {@code intentSequence}, and returns its sequence number.
+     */
+    public long append(long accountId, int adultTickets, int childTickets, int infantTickets, int totalPrice,
+            Outcome outcome, long intentSequence) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed.");
+        }
+        long sequence = nextSequence.getAndIncrement();
+        Segment segment = current;
+        long segmentIndex = sequence / recordsPerSegment;
+        if (segment.index != segmentIndex) {
+            segment = segment(segmentIndex);
+        }
+
+        byte[] record = JournalFormat.encode(sequence, System.currentTimeMillis(), accountId, adultTickets,
+                childTickets, infantTickets, totalPrice, outcome, intentSequence);
+        segment.buffer.put((int) (sequence % recordsPerSegment) * JournalFormat.RECORD_SIZE, record);
+        segment.written.incrementAndGet();
+
+        if (fsyncPolicy == FsyncPolicy.GROUP_COMMIT) {
+            awaitFlush();
+        }
+        return sequence;
+    }
+
+    public long getNextSequence() {
+        return nextSequence.get();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flushLock.lock();
+        try {
+            flushRequested.signalAll();
+        } finally {
+            flushLock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Segment segment : segments.values()) {
+            segment.buffer.force();
+            segment.close();
+        }
+        segments.clear();
+    }
+
+    // The force that completes this wait started after the record was written, so it covers it.
+    private void awaitFlush() {
+        flushLock.lock();
+        try {
+            long target = startedFlushes + 1;
+            waitingAppenders++;
+            flushRequested.signal();
+            try {
+                while (completedFlushes < target && !closed) {
+                    flushed.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                waitingAppenders--;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (!closed) {
+            long flush;
+            flushLock.lock();
+            try {
+                if (waitingAppenders == 0) {
+                    flushRequested.awaitNanos(fsyncIntervalNanos);
+                }
+                flush = ++startedFlushes;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                flushLock.unlock();
+            }
+
+            try {
+                forceAndRetireSegments();
+            } catch (RuntimeException e) {
+                logger.error("Failed to flush purchase journal {}", directory, e);
+            }
+
+            flushLock.lock();
+            try {
+                completedFlushes = flush;
+                flushed.signalAll();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    private void forceAndRetireSegments() {
+        long currentIndex = current.index;
+        Iterator<Segment> iterator = segments.values().iterator();
+        while (iterator.hasNext()) {
+            Segment segment = iterator.next();
+            // Check before forcing: a full segment gets no more writes, so this force is its last.
+            boolean full = segment.written.get() == recordsPerSegment;
+            segment.buffer.force();
+            if (full && segment.index < currentIndex) {
+                iterator.remove();
+                segment.close();
+            }
+        }
+    }
+
+    private synchronized Segment segment(long index) {
+        Segment segment = segments.get(index);
+        if (segment == null) {
+            try {
+                segment = new Segment(index, JournalFormat.segmentFile(directory, index), segmentBytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot map journal segment " + index, e);
+            }
+            segments.put(index, segment);
+        }
+        if (current == null || index > current.index) {
+            current = segment;
+        }
+        return segment;
+    }
+
+    /**
+     * Resumes after the last complete record of the two newest segments. Appends claim slots in order
+     * but may finish out of order, so a crash can leave empty or torn slots below that record; those
+     * are filled with hole records, which readers skip instead of stopping at.
+     */
+    private long recover() throws IOException {
+        long lastIndex = -1;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(JournalFormat.SEGMENT_SUFFIX)) {
+                    lastIndex = Math.max(lastIndex,
+                            Long.parseLong(name.substring(0, name.length() - JournalFormat.SEGMENT_SUFFIX.length())));
+                }
+            }
+        }
+        if (lastIndex < 0) {
+            return 0;
+        }
+
+        long firstIndex = Math.max(0, lastIndex - 1);
+        long resumeAt = lastIndex * recordsPerSegment;
+        for (long index = firstIndex; index <= lastIndex; index++) {
+            resumeAt = Math.max(resumeAt, scan(index));
+        }
+        int holes = 0;
+        for (long index = firstIndex; index <= lastIndex; index++) {
+            holes += fillHoles(index, resumeAt);
+        }
+        if (holes > 0) {
+            logger.warn("Skipping {} purchase journal slots left incomplete by a crash in {}", holes, directory);
+        }
+        return resumeAt;
+    }
+
+    // Returns the sequence after the last complete record of the segment, or its first sequence.
+    private long scan(long index) throws IOException {
+        Path file = JournalFormat.segmentFile(directory, index);
+        long first = index * recordsPerSegment;
+        if (!Files.exists(file)) {
+            return first;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    Math.min(channel.size(), segmentBytes));
+            long end = first;
+            int slots = buffer.capacity() / JournalFormat.RECORD_SIZE;
+            for (int slot = 0; slot < slots; slot++) {
+                if (JournalFormat.decode(buffer, slot * JournalFormat.RECORD_SIZE, first + slot) != null) {
+                    end = first + slot + 1;
+                }
+            }
+            return end;
+        }
+    }
+
+    private int fillHoles(long index, long resumeAt) throws IOException {
+        Path file = JournalFormat.segmentFile(directory, index);
+        long first = index * recordsPerSegment;
+        if (resumeAt <= first || !Files.exists(file)) {
+            return 0;
+        }
+        int holes = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            int slots = (int) Math.min(recordsPerSegment, resumeAt - first);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    (long) slots * JournalFormat.RECORD_SIZE);
+            for (int slot = 0; slot < slots; slot++) {
+                int offset = slot * JournalFormat.RECORD_SIZE;
+                if (JournalFormat.decode(buffer, offset, first + slot) == null) {
+                    buffer.put(offset, JournalFormat.encodeHole(first + slot));
+                    holes++;
+                }
+            }
+            if (holes > 0) {
+                buffer.force();
+            }
+        }
+        return holes;
+    }
+
+    private static final class Segment {
+        final long index;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final AtomicInteger written = new AtomicInteger();
+
+        Segment(long index, Path file, int segmentBytes) throws IOException {
+            this.index = index;
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
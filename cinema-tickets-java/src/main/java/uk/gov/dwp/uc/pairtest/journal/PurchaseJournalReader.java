@@ -0,0 +1,196 @@
+package uk.gov.dwp.uc.pairtest.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.dwp.uc.pairtest.journal.JournalEntry.Outcome;
+
+/**
+ * Reads a {@link PurchaseJournal} from the first entry onwards. {@link #replay} reads everything
+ * written so far; calling {@link #poll} repeatedly tails the journal while it is being written, and
+ * {@link #unresolvedIntents} finds the payments a crash interrupted. Not thread-safe: use one reader
+ * per consumer.
+ *
+ * <p>Appenders claim slots in order but may finish out of order, so an empty slot below a committed
+ * one is usually an append still in flight. One that stays empty for {@code holeGrace} while a later
+ * slot is committed was abandoned by an appender that failed, and is skipped like the holes recovery
+ * fills, rather than stalling the reader until the writer restarts.
+ */
+public class PurchaseJournalReader implements AutoCloseable {
+    Logger logger = LoggerFactory.getLogger(PurchaseJournalReader.class);
+
+    private static final Duration DEFAULT_HOLE_GRACE = Duration.ofSeconds(1);
+    // How far past an empty slot to look for a committed one.
+    private static final int HOLE_LOOKAHEAD = 64;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int recordsPerSegment;
+    private final long holeGraceNanos;
+    private final LongSupplier nanoClock;
+    private long nextSequence;
+    private long mappedIndex = -1;
+    private MappedByteBuffer mapped;
+    private long holeSequence = -1;
+    private long holeSeenAt;
+
+    public PurchaseJournalReader(Path directory, int segmentBytes) {
+        this(directory, segmentBytes, DEFAULT_HOLE_GRACE, System::nanoTime);
+    }
+
+    public PurchaseJournalReader(Path directory, int segmentBytes, Duration holeGrace, LongSupplier nanoClock) {
+        this.directory = directory;
+        this.recordsPerSegment = JournalFormat.recordsPerSegment(segmentBytes);
+        this.segmentBytes = recordsPerSegment * JournalFormat.RECORD_SIZE;
+        this.holeGraceNanos = holeGrace.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Hands every entry written so far to {@code consumer} and returns how many there were.
+     */
+    public long replay(Consumer<JournalEntry> consumer) {
+        long read = 0;
+        int polled;
+        while ((polled = poll(consumer, Integer.MAX_VALUE)) > 0) {
+            read += polled;
+        }
+        return read;
+    }
+
+    /**
+     * Hands up to {@code max} entries after the last one read to {@code consumer}. Returns 0 when the
+     * reader has caught up with the writer.
+     */
+    public int poll(Consumer<JournalEntry> consumer, int max) {
+        int read = 0;
+        while (read < max) {
+            long segmentIndex = nextSequence / recordsPerSegment;
+            if (segmentIndex != mappedIndex && !map(segmentIndex)) {
+                return read;
+            }
+            int slot = (int) (nextSequence % recordsPerSegment);
+            JournalEntry entry = JournalFormat.decode(mapped, slot * JournalFormat.RECORD_SIZE, nextSequence);
+            if (entry == null) {
+                if (!abandoned(nextSequence)) {
+                    return read;
+                }
+                logger.warn("Skipping purchase journal slot {} left incomplete by a failed append in {}",
+                        nextSequence, directory);
+                entry = JournalFormat.SKIPPED;
+            }
+            nextSequence++;
+            if (entry != JournalFormat.SKIPPED) {
+                consumer.accept(entry);
+                read++;
+            }
+        }
+        return read;
+    }
+
+    /**
+     * Replays the rest of the journal and returns its {@code PAYMENT_STARTED} entries that no later
+     * entry resolves, oldest first: payments whose outcome was lost in a crash, which must be checked
+     * with the gateway.
+     */
+    public List<JournalEntry> unresolvedIntents() {
+        Map<Long, JournalEntry> intents = new LinkedHashMap<>();
+        replay(entry -> {
+            if (entry.getOutcome() == Outcome.PAYMENT_STARTED) {
+                intents.put(entry.getSequence(), entry);
+            } else if (entry.getIntentSequence() != JournalEntry.NO_INTENT) {
+                intents.remove(entry.getIntentSequence());
+            }
+        });
+        return new ArrayList<>(intents.values());
+    }
+
+    public long getNextSequence() {
+        return nextSequence;
+    }
+
+    @Override
+    public void close() {
+        mapped = null;
+        mappedIndex = -1;
+    }
+
+    // True once the empty slot has outlived the grace period with a committed slot after it.
+    private boolean abandoned(long sequence) {
+        if (!committedAfter(sequence)) {
+            holeSequence = -1;
+            return false;
+        }
+        long now = nanoClock.getAsLong();
+        if (holeSequence != sequence) {
+            holeSequence = sequence;
+            holeSeenAt = now;
+        }
+        return now - holeSeenAt >= holeGraceNanos;
+    }
+
+    private boolean committedAfter(long sequence) {
+        for (long later = sequence + 1; later <= sequence + HOLE_LOOKAHEAD; later++) {
+            long segmentIndex = later / recordsPerSegment;
+            int offset = (int) (later % recordsPerSegment) * JournalFormat.RECORD_SIZE;
+            if (segmentIndex == mappedIndex) {
+                if (JournalFormat.decode(mapped, offset, later) != null) {
+                    return true;
+                }
+                continue;
+            }
+            // Past the mapped segment, only the first slot of the next one is checked.
+            return committedInSegment(segmentIndex, offset, later);
+        }
+        return false;
+    }
+
+    private boolean committedInSegment(long segmentIndex, int offset, long sequence) {
+        Path file = JournalFormat.segmentFile(directory, segmentIndex);
+        if (!Files.exists(file)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < segmentBytes) {
+                return false;
+            }
+            return JournalFormat.decode(channel.map(FileChannel.MapMode.READ_ONLY, offset, JournalFormat.RECORD_SIZE),
+                    0, sequence) != null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map journal segment " + segmentIndex, e);
+        }
+    }
+
+    private boolean map(long segmentIndex) {
+        Path file = JournalFormat.segmentFile(directory, segmentIndex);
+        if (!Files.exists(file)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The writer grows a new segment to full size when it maps it; until then it is not ready.
+            if (channel.size() < segmentBytes) {
+                return false;
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, segmentBytes);
+            mappedIndex = segmentIndex;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map journal segment " + segmentIndex, e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package uk.gov.dwp.uc.pairtest.ledger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Restores a {@link PurchaseLedger} from its snapshot file on start and writes a fresh snapshot every
+ * {@code interval} and on close, so purchase caps survive a restart. Purchases made after the last
+ * snapshot are not counted again after a crash.
+ */
+public class LedgerSnapshotter implements AutoCloseable {
+    Logger logger = LoggerFactory.getLogger(LedgerSnapshotter.class);
+
+    private final PurchaseLedger ledger;
+    private final Path file;
+    private final Duration interval;
+    private ScheduledExecutorService scheduler;
+
+    public LedgerSnapshotter(PurchaseLedger ledger, Path file, Duration interval) {
+        this.ledger = ledger;
+        this.file = file;
+        this.interval = interval;
+    }
+
+    public synchronized void start() throws IOException {
+        if (scheduler != null) {
+            return;
+        }
+        if (Files.exists(file)) {
+            ledger.readSnapshot(file);
+            logger.info("Restored {} purchase ledger entries from {}", ledger.size(), file);
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ledger-snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::snapshotSafely, interval.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            // Let a running snapshot finish so the two never write the same temporary file.
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+        snapshotSafely();
+    }
+
+    private void snapshotSafely() {
+        try {
+            ledger.writeSnapshot(file);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to snapshot the purchase ledger to {}", file, e);
+        }
+    }
+}
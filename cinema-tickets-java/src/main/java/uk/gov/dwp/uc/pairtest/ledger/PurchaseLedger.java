@@ -0,0 +1,247 @@
+package uk.gov.dwp.uc.pairtest.ledger;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Tickets bought per account and screening, so {@code maxTicketsPerScreening} holds across orders and
+ * not just within one. Counts live in primitive open-addressing tables spread over independently
+ * locked shards; {@link #tryRecord} checks and adds under the shard lock, so concurrent orders from
+ * one account cannot both squeeze under the cap.
+ */
+public class PurchaseLedger {
+
+    private static final int SNAPSHOT_MAGIC = 0x4C454447;
+
+    private final int maxTicketsPerScreening;
+    private final Shard[] shards;
+    private final int shardShift;
+
+    public PurchaseLedger(int maxTicketsPerScreening, int shardCount) {
+        if (Integer.bitCount(shardCount) != 1) {
+            throw new IllegalArgumentException("The shard count must be a power of two.");
+        }
+        this.maxTicketsPerScreening = maxTicketsPerScreening;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+        this.shardShift = 64 - Integer.numberOfTrailingZeros(shardCount);
+    }
+
+    public int getMaxTicketsPerScreening() {
+        return maxTicketsPerScreening;
+    }
+
+    /**
+     * Adds {@code tickets} to what the account has bought for the screening, unless that would take it
+     * over the cap. Returns whether the tickets were recorded.
+     */
+    public boolean tryRecord(long accountId, long screeningId, int tickets) {
+        long hash = hash(accountId, screeningId);
+        Shard shard = shard(hash);
+        synchronized (shard) {
+            // Checked before the entry is created, so a rejected order leaves nothing behind.
+            int slot = shard.find(accountId, screeningId, (int) hash);
+            if (tickets > maxTicketsPerScreening - shard.tickets[slot]) {
+                return false;
+            }
+            slot = shard.slotFor(accountId, screeningId, (int) hash);
+            shard.tickets[slot] += tickets;
+            return true;
+        }
+    }
+
+    /**
+     * Takes back tickets recorded for a purchase that did not go through. An entry released down to
+     * nothing is removed, so the tables only hold accounts that still have tickets.
+     */
+    public void release(long accountId, long screeningId, int tickets) {
+        long hash = hash(accountId, screeningId);
+        Shard shard = shard(hash);
+        synchronized (shard) {
+            int slot = shard.find(accountId, screeningId, (int) hash);
+            if (shard.accountIds[slot] == 0) {
+                return;
+            }
+            if (tickets >= shard.tickets[slot]) {
+                shard.remove(slot);
+            } else {
+                shard.tickets[slot] -= tickets;
+            }
+        }
+    }
+
+    public int ticketsBought(long accountId, long screeningId) {
+        long hash = hash(accountId, screeningId);
+        Shard shard = shard(hash);
+        synchronized (shard) {
+            int slot = shard.find(accountId, screeningId, (int) hash);
+            return shard.accountIds[slot] == accountId && shard.screeningIds[slot] == screeningId
+                    ? shard.tickets[slot] : 0;
+        }
+    }
+
+    /**
+     * Writes every count to {@code file}, replacing it atomically. Each shard is copied under its own
+     * lock, so the snapshot is consistent per account and screening.
+     */
+    public void writeSnapshot(Path file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(SNAPSHOT_MAGIC);
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                out.writeInt(shard.size);
+                for (int i = 0; i < shard.accountIds.length; i++) {
+                    if (shard.accountIds[i] != 0) {
+                        out.writeLong(shard.accountIds[i]);
+                        out.writeLong(shard.screeningIds[i]);
+                        out.writeInt(shard.tickets[i]);
+                    }
+                }
+            }
+        }
+        out.writeInt(-1);
+
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temporary, bytes.toByteArray());
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Adds the counts of a snapshot written by {@link #writeSnapshot} to this ledger.
+     */
+    public void readSnapshot(Path file) throws IOException {
+        try (InputStream stream = Files.newInputStream(file);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a purchase ledger snapshot: " + file);
+            }
+            int entries;
+            while ((entries = in.readInt()) >= 0) {
+                for (int i = 0; i < entries; i++) {
+                    long accountId = in.readLong();
+                    long screeningId = in.readLong();
+                    int tickets = in.readInt();
+                    long hash = hash(accountId, screeningId);
+                    Shard shard = shard(hash);
+                    synchronized (shard) {
+                        int slot = shard.slotFor(accountId, screeningId, (int) hash);
+                        shard.tickets[slot] += tickets;
+                    }
+                }
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                size += shard.size;
+            }
+        }
+        return size;
+    }
+
+    private Shard shard(long hash) {
+        return shards[shardShift == 64 ? 0 : (int) (hash >>> shardShift)];
+    }
+
+    private static long hash(long accountId, long screeningId) {
+        return (accountId * 0x9E3779B97F4A7C15L) ^ (screeningId * 0xC2B2AE3D27D4EB4FL);
+    }
+
+    // Account IDs are always positive, so 0 marks an empty slot.
+    private static final class Shard {
+        long[] accountIds = new long[16];
+        long[] screeningIds = new long[16];
+        int[] tickets = new int[16];
+        int size;
+
+        int find(long accountId, long screeningId, int hash) {
+            int mask = accountIds.length - 1;
+            int slot = hash & mask;
+            while (accountIds[slot] != 0
+                    && (accountIds[slot] != accountId || screeningIds[slot] != screeningId)) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        int slotFor(long accountId, long screeningId, int hash) {
+            int slot = find(accountId, screeningId, hash);
+            if (accountIds[slot] == 0) {
+                // Kept at most half full so probe sequences stay short.
+                if ((size + 1) * 2 > accountIds.length) {
+                    grow();
+                    slot = find(accountId, screeningId, hash);
+                }
+                accountIds[slot] = accountId;
+                screeningIds[slot] = screeningId;
+                size++;
+            }
+            return slot;
+        }
+
+        // Empties the slot and shifts later entries of the probe run back, so no lookup stops early.
+        void remove(int slot) {
+            int mask = accountIds.length - 1;
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (accountIds[next] != 0) {
+                int home = (int) hash(accountIds[next], screeningIds[next]) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    accountIds[hole] = accountIds[next];
+                    screeningIds[hole] = screeningIds[next];
+                    tickets[hole] = tickets[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            accountIds[hole] = 0;
+            screeningIds[hole] = 0;
+            tickets[hole] = 0;
+            size--;
+        }
+
+        // Reinserts every entry with tickets into tables twice the size.
+        void grow() {
+            long[] oldAccountIds = accountIds;
+            long[] oldScreeningIds = screeningIds;
+            int[] oldTickets = tickets;
+            int capacity = oldAccountIds.length * 2;
+            accountIds = new long[capacity];
+            screeningIds = new long[capacity];
+            tickets = new int[capacity];
+            size = 0;
+            for (int i = 0; i < oldAccountIds.length; i++) {
+                if (oldAccountIds[i] == 0 || oldTickets[i] == 0) {
+                    continue;
+                }
+                int slot = find(oldAccountIds[i], oldScreeningIds[i], (int) hash(oldAccountIds[i], oldScreeningIds[i]));
+                accountIds[slot] = oldAccountIds[i];
+                screeningIds[slot] = oldScreeningIds[i];
+                tickets[slot] = oldTickets[i];
+                size++;
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limit on concurrent calls that follows measured latency, the way a gradient limiter does. A long-term
+ * average of latency stands for the latency without queueing and a short-term one for the latency now;
+ * their ratio, allowed {@value #TOLERANCE} times of slack and clamped to {@code [0.5, 1]}, scales the
+ * limit down as queueing sets in, while a headroom of the square root of the limit lets it grow back.
+ * Calls that fail from overload cut the limit by a tenth. Samples taken while less than half the limit
+ * is in use say nothing about it and are ignored.
+ *
+ * <p>The top {@code reservedFraction} of the limit only admits priority calls, so those are still let
+ * in for a while after the rest start being turned away.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final int LONG_WINDOW = 100;
+    private static final int SHORT_WINDOW = 8;
+    private static final double BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double reservedFraction;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder priorityRejections = new LongAdder();
+    private volatile int limit;
+    private double estimatedLimit;
+    private double longLatencyNanos;
+    private double shortLatencyNanos;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double reservedFraction) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit
+                || reservedFraction < 0 || reservedFraction >= 1) {
+            throw new IllegalArgumentException("Concurrency limits need 1 <= minimum <= initial <= maximum "
+                    + "and a reserved fraction in [0, 1).");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.reservedFraction = reservedFraction;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Admits a call if there is room for it. Every admitted call must end with exactly one of
+     * {@link #onSuccess}, {@link #onDropped} or {@link #onIgnored}.
+     */
+    public boolean tryAcquire(boolean priority) {
+        final int current = limit;
+        final int ceiling = priority ? current : Math.max(1, current - (int) (current * reservedFraction));
+        for (;;) {
+            int count = inFlight.get();
+            if (count >= ceiling) {
+                (priority ? priorityRejections : rejections).increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * A call that completed in {@code latencyNanos}.
+     */
+    public void onSuccess(long latencyNanos) {
+        int count = inFlight.getAndDecrement();
+        sample(Math.max(1, latencyNanos), count);
+    }
+
+    /**
+     * A call that failed because something downstream is overloaded.
+     */
+    public synchronized void onDropped() {
+        inFlight.decrementAndGet();
+        estimatedLimit = Math.max(minLimit, estimatedLimit * BACKOFF);
+        limit = (int) estimatedLimit;
+    }
+
+    /**
+     * A call whose latency says nothing about load, such as one rejected by validation.
+     */
+    public void onIgnored() {
+        inFlight.decrementAndGet();
+    }
+
+    private synchronized void sample(long latencyNanos, int inFlightWithThisCall) {
+        if (longLatencyNanos == 0) {
+            longLatencyNanos = latencyNanos;
+            shortLatencyNanos = latencyNanos;
+        } else {
+            longLatencyNanos += (latencyNanos - longLatencyNanos) / LONG_WINDOW;
+            shortLatencyNanos += (latencyNanos - shortLatencyNanos) / SHORT_WINDOW;
+        }
+        // Once latency has come down, let the baseline follow quickly rather than over the long window.
+        if (longLatencyNanos > 2 * shortLatencyNanos) {
+            longLatencyNanos *= 0.95;
+        }
+        if (inFlightWithThisCall < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longLatencyNanos / shortLatencyNanos));
+        double next = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit,
+                estimatedLimit * (1 - SMOOTHING) + next * SMOOTHING));
+        limit = (int) estimatedLimit;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejectedCount() {
+        return rejections.sum();
+    }
+
+    public long getPriorityRejectedCount() {
+        return priorityRejections.sum();
+    }
+}
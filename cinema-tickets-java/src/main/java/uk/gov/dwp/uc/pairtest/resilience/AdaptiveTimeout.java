@@ -0,0 +1,38 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+import java.time.Duration;
+
+/**
+ * Timeout derived from observed latency the way TCP derives its retransmission timeout:
+ * smoothed latency plus four times its mean deviation, clamped to {@code [minimum, maximum]}.
+ * Starts at the maximum until latency has been observed.
+ */
+public class AdaptiveTimeout {
+
+    private final long minimumNanos;
+    private final long maximumNanos;
+    private long smoothedNanos;
+    private long deviationNanos;
+    private volatile long timeoutNanos;
+
+    public AdaptiveTimeout(Duration minimum, Duration maximum) {
+        this.minimumNanos = minimum.toNanos();
+        this.maximumNanos = maximum.toNanos();
+        this.timeoutNanos = maximumNanos;
+    }
+
+    public long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
+    public synchronized void record(long latencyNanos) {
+        if (smoothedNanos == 0) {
+            smoothedNanos = latencyNanos;
+            deviationNanos = latencyNanos / 2;
+        } else {
+            deviationNanos += (Math.abs(latencyNanos - smoothedNanos) - deviationNanos) / 4;
+            smoothedNanos += (latencyNanos - smoothedNanos) / 8;
+        }
+        timeoutNanos = Math.max(minimumNanos, Math.min(maximumNanos, smoothedNanos + 4 * deviationNanos));
+    }
+}
@@ -0,0 +1,144 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import uk.gov.dwp.uc.pairtest.exception.OutcomeUnknownException;
+import uk.gov.dwp.uc.pairtest.exception.ServiceUnavailableException;
+import uk.gov.dwp.uc.pairtest.exception.ServiceUnavailableException.Reason;
+
+/**
+ * Runs calls to one third-party service behind a bulkhead, a circuit breaker and an adaptive
+ * timeout. Calls that cannot be made fail straight away with a {@link ServiceUnavailableException},
+ * so a degraded service sheds load instead of holding request threads.
+ *
+ * <p>A call that has started is never interrupted: it may already have taken effect, a card charged
+ * say, so on timeout it is left running and the caller gets an {@link OutcomeUnknownException} to
+ * settle it by. Only transport failures and timeouts count against the circuit breaker. Any other
+ * exception is the service answering, a declined card for one customer say, and is rethrown as is.
+ */
+public class ResilientCaller {
+
+    private final String service;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final AdaptiveTimeout timeout;
+    private final ExecutorService executor;
+
+    public ResilientCaller(String service, int maxConcurrentCalls, CircuitBreaker circuitBreaker,
+            AdaptiveTimeout timeout, ExecutorService executor) {
+        this.service = service;
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.circuitBreaker = circuitBreaker;
+        this.timeout = timeout;
+        this.executor = executor;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public AdaptiveTimeout getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @throws ServiceUnavailableException if the call was not made, or timed out before it started
+     * @throws OutcomeUnknownException if the call started and did not answer in time
+     */
+    public void call(Runnable call) {
+        if (!bulkhead.tryAcquire()) {
+            throw new ServiceUnavailableException(service, Reason.BULKHEAD_FULL);
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.release();
+            throw new ServiceUnavailableException(service, Reason.CIRCUIT_OPEN);
+        }
+
+        // The permit is held until the call itself returns, so abandoned calls still count against the
+        // bulkhead. Whichever of the call and a timeout claims it first decides whether the call runs.
+        final AtomicBoolean claimed = new AtomicBoolean();
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        final long start = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    call.run();
+                    result.complete(null);
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                } finally {
+                    bulkhead.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            bulkhead.release();
+            circuitBreaker.onFailure();
+            throw e;
+        }
+
+        final long timeoutNanos = timeout.getTimeoutNanos();
+        try {
+            result.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timeout.record(timeoutNanos);
+            circuitBreaker.onFailure();
+            throw abandon(claimed, result);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (isTransportFailure(cause)) {
+                circuitBreaker.onFailure();
+            } else {
+                // The service answered, so the call says it is up, however it turned out.
+                timeout.record(System.nanoTime() - start);
+                circuitBreaker.onSuccess();
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            circuitBreaker.onFailure();
+            throw abandon(claimed, result);
+        }
+
+        timeout.record(System.nanoTime() - start);
+        circuitBreaker.onSuccess();
+    }
+
+    private ServiceUnavailableException abandon(AtomicBoolean claimed, CompletableFuture<Void> result) {
+        if (claimed.compareAndSet(false, true)) {
+            // Never started and now never will.
+            bulkhead.release();
+            return new ServiceUnavailableException(service, Reason.TIMEOUT);
+        }
+        return new OutcomeUnknownException(service, result.copy());
+    }
+
+    /**
+     * Failures that say the service could not be reached or did not answer, rather than that it
+     * answered with an error.
+     */
+    static boolean isTransportFailure(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException || cause instanceof TimeoutException
+                    || cause instanceof ServiceUnavailableException) {
+                return true;
+            }
+        }
+        return !(failure instanceof RuntimeException);
+    }
+}
@@ -0,0 +1,19 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+import thirdparty.seatbooking.SeatReservationService;
+
+public class ResilientSeatReservationService implements SeatReservationService {
+
+    private final SeatReservationService seatReservationService;
+    private final ResilientCaller caller;
+
+    public ResilientSeatReservationService(SeatReservationService seatReservationService, ResilientCaller caller) {
+        this.seatReservationService = seatReservationService;
+        this.caller = caller;
+    }
+
+    @Override
+    public void reserveSeat(long accountId, int totalSeatsToAllocate) {
+        caller.call(() -> seatReservationService.reserveSeat(accountId, totalSeatsToAllocate));
+    }
+}
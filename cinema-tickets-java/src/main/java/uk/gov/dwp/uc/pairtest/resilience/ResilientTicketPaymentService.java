@@ -0,0 +1,19 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+
+public class ResilientTicketPaymentService implements TicketPaymentService {
+
+    private final TicketPaymentService ticketPaymentService;
+    private final ResilientCaller caller;
+
+    public ResilientTicketPaymentService(TicketPaymentService ticketPaymentService, ResilientCaller caller) {
+        this.ticketPaymentService = ticketPaymentService;
+        this.caller = caller;
+    }
+
+    @Override
+    public void makePayment(long accountId, int totalAmountToPay) {
+        caller.call(() -> ticketPaymentService.makePayment(accountId, totalAmountToPay));
+    }
+}
@@ -0,0 +1,227 @@
+package uk.gov.dwp.uc.pairtest.saga;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketSummary;
+
+/**
+ * Durable local outbox of paid purchases that still need their seats. Every change is appended to a
+ * line-based log and forced to disk before the call returns, so a pending reservation survives a
+ * crash. The log is replayed on start-up and rewritten with only the pending entries once enough
+ * completed entries have piled up.
+ *
+ * <pre>
+ * P &lt;id&gt; &lt;account&gt; &lt;screening&gt; &lt;adult&gt; &lt;child&gt; &lt;infant&gt; &lt;paid&gt; &lt;intent&gt;
+ *                                             payment taken, seats pending
+ * A &lt;id&gt; &lt;attempts&gt;                         failed retry count
+ * D &lt;id&gt; &lt;outcome&gt;                          seats reserved or payment refunded
+ * </pre>
+ */
+public class CompensationOutbox implements AutoCloseable {
+    Logger logger = LoggerFactory.getLogger(CompensationOutbox.class);
+
+    public enum Outcome {
+        RESERVED, REFUNDED
+    }
+
+    private static final int COMPACT_AFTER_COMPLETED = 1024;
+
+    private final Path file;
+    private final Map<Long, PendingReservation> pending = new LinkedHashMap<>();
+    private FileChannel channel;
+    private long nextId = 1;
+    private int completedSinceCompaction;
+
+    public CompensationOutbox(Path file) {
+        this.file = file;
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            if (Files.exists(file)) {
+                replay();
+            }
+            channel = openForAppend(file);
+            terminateTornLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open outbox " + file, e);
+        }
+    }
+
+    /**
+     * Records that the order's price was taken from the account and its seats for the screening still have
+     * to be reserved. {@code intentSequence} is the order's journaled {@code PAYMENT_STARTED} entry.
+     */
+    public synchronized PendingReservation record(long accountId, long screeningId, TicketSummary summary,
+            long intentSequence) {
+        PendingReservation reservation = new PendingReservation(nextId++, accountId, screeningId,
+                summary.getAdultTickets(), summary.getChildTickets(), summary.getInfantTickets(),
+                summary.getTotalPrice(), intentSequence, 0);
+        append(pendingLine(reservation));
+        pending.put(reservation.getId(), reservation);
+        return reservation;
+    }
+
+    /**
+     * Returns up to {@code max} pending reservations, oldest first. They stay pending until completed.
+     */
+    public synchronized List<PendingReservation> pending(int max) {
+        List<PendingReservation> batch = new ArrayList<>(Math.min(max, pending.size()));
+        for (PendingReservation reservation : pending.values()) {
+            if (batch.size() == max) {
+                break;
+            }
+            batch.add(reservation);
+        }
+        return batch;
+    }
+
+    public synchronized PendingReservation recordFailedAttempt(PendingReservation reservation) {
+        PendingReservation current = pending.get(reservation.getId());
+        if (current == null) {
+            return reservation;
+        }
+        PendingReservation retried = current.withAttempts(current.getAttempts() + 1);
+        append("A " + retried.getId() + " " + retried.getAttempts() + "\n");
+        pending.put(retried.getId(), retried);
+        return retried;
+    }
+
+    public synchronized void complete(PendingReservation reservation, Outcome outcome) {
+        if (pending.remove(reservation.getId()) == null) {
+            return;
+        }
+        append("D " + reservation.getId() + " " + outcome + "\n");
+        if (++completedSinceCompaction >= COMPACT_AFTER_COMPLETED) {
+            compact();
+        }
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close outbox {}", file, e);
+        }
+    }
+
+    private void append(String line) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.US_ASCII));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write outbox " + file, e);
+        }
+    }
+
+    // Without this the first new entry would be glued onto a line left half written by a crash.
+    private void terminateTornLine() throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return;
+        }
+        ByteBuffer last = ByteBuffer.allocate(1);
+        try (FileChannel reader = FileChannel.open(file, StandardOpenOption.READ)) {
+            reader.read(last, size - 1);
+        }
+        if (last.get(0) != '\n') {
+            append("\n");
+        }
+    }
+
+    private void replay() throws IOException {
+        for (String line : Files.readAllLines(file, StandardCharsets.US_ASCII)) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split(" ");
+            try {
+                long id = Long.parseLong(fields[1]);
+                nextId = Math.max(nextId, id + 1);
+                switch (fields[0]) {
+                    case "P" -> pending.put(id, new PendingReservation(id, Long.parseLong(fields[2]),
+                            Long.parseLong(fields[3]), Integer.parseInt(fields[4]), Integer.parseInt(fields[5]),
+                            Integer.parseInt(fields[6]), Integer.parseInt(fields[7]), Long.parseLong(fields[8]), 0));
+                    case "A" -> pending.computeIfPresent(id,
+                            (key, reservation) -> reservation.withAttempts(Integer.parseInt(fields[2])));
+                    case "D" -> pending.remove(id);
+                    default -> logger.warn("Skipping unknown outbox entry: {}", line);
+                }
+            } catch (RuntimeException e) {
+                // A crash can leave the last line half written; the entry it described was never acknowledged.
+                logger.warn("Skipping unreadable outbox entry: {}", line);
+            }
+        }
+    }
+
+    private void compact() {
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        try {
+            StringBuilder lines = new StringBuilder();
+            for (PendingReservation reservation : pending.values()) {
+                lines.append(pendingLine(reservation));
+                if (reservation.getAttempts() > 0) {
+                    lines.append("A ").append(reservation.getId()).append(' ').append(reservation.getAttempts())
+                            .append('\n');
+                }
+            }
+            try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.US_ASCII));
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                out.force(true);
+            }
+            channel.close();
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            completedSinceCompaction = 0;
+        } catch (IOException e) {
+            // The full log is still valid, so keep appending to it and try again later.
+            logger.warn("Failed to compact outbox {}", file, e);
+        }
+        if (!channel.isOpen()) {
+            try {
+                channel = openForAppend(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot reopen outbox " + file, e);
+            }
+        }
+    }
+
+    private static String pendingLine(PendingReservation reservation) {
+        return "P " + reservation.getId() + " " + reservation.getAccountId() + " " + reservation.getScreeningId()
+                + " " + reservation.getAdultTickets() + " " + reservation.getChildTickets() + " "
+                + reservation.getInfantTickets() + " " + reservation.getAmountPaid() + " "
+                + reservation.getIntentSequence() + "\n";
+    }
+
+    private static FileChannel openForAppend(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+}
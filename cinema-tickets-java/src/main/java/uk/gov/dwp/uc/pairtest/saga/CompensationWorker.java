@@ -0,0 +1,163 @@
+package uk.gov.dwp.uc.pairtest.saga;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.journal.JournalEntry;
+import uk.gov.dwp.uc.pairtest.journal.PurchaseJournal;
+import uk.gov.dwp.uc.pairtest.ledger.PurchaseLedger;
+import uk.gov.dwp.uc.pairtest.saga.CompensationOutbox.Outcome;
+import uk.gov.dwp.uc.pairtest.services.BatchSeatReservationService;
+
+/**
+ * Background worker that drains the {@link CompensationOutbox} in batches: it retries the seat
+ * reservation of each pending purchase and refunds the payment once {@code maxAttempts} retries
+ * have failed. A refunded purchase gives its tickets back to the account's cap in the
+ * {@link PurchaseLedger} and is journaled as {@code REFUNDED}; one whose seats were reserved is
+ * journaled as {@code SUCCEEDED}.
+ */
+public class CompensationWorker implements AutoCloseable {
+    Logger logger = LoggerFactory.getLogger(CompensationWorker.class);
+
+    private final CompensationOutbox outbox;
+    private final BatchSeatReservationService seatReservationService;
+    private final RefundService refundService;
+    private final PurchaseLedger purchaseLedger;
+    private final PurchaseJournal purchaseJournal;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration interval;
+    private ScheduledExecutorService scheduler;
+
+    public CompensationWorker(CompensationOutbox outbox, SeatReservationService seatReservationService,
+            RefundService refundService, int batchSize, int maxAttempts, Duration interval) {
+        this(outbox, seatReservationService, refundService, null, null, Runnable::run, batchSize, maxAttempts,
+                interval);
+    }
+
+    /**
+     * Retries for different accounts are made concurrently on {@code executor}.
+     */
+    public CompensationWorker(CompensationOutbox outbox, SeatReservationService seatReservationService,
+            RefundService refundService, PurchaseLedger purchaseLedger, PurchaseJournal purchaseJournal,
+            Executor executor, int batchSize, int maxAttempts, Duration interval) {
+        this.outbox = outbox;
+        this.purchaseLedger = purchaseLedger;
+        this.purchaseJournal = purchaseJournal;
+        this.seatReservationService = new BatchSeatReservationService(seatReservationService, executor);
+        this.refundService = refundService;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.interval = interval;
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "compensation-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::drainSafely, interval.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Works through pending reservations, one batch at a time, until the outbox is empty or a batch
+     * leaves something pending; that is retried on the next run. Returns the number of reservations completed.
+     */
+    public int drain() {
+        long[] accountIds = new long[batchSize];
+        int[] seats = new int[batchSize];
+        int completed = 0;
+        while (true) {
+            List<PendingReservation> batch = outbox.pending(batchSize);
+            int completedInBatch = 0;
+
+            // Retries share round-trips per account, like the batch purchase path.
+            int count = 0;
+            for (PendingReservation reservation : batch) {
+                if (reservation.getAttempts() < maxAttempts) {
+                    accountIds[count] = reservation.getAccountId();
+                    seats[count] = reservation.getSeats();
+                    count++;
+                }
+            }
+            String[] failures = seatReservationService.reserveSeats(accountIds, seats, count);
+
+            int j = 0;
+            for (PendingReservation reservation : batch) {
+                if (reservation.getAttempts() >= maxAttempts) {
+                    completedInBatch += refund(reservation) ? 1 : 0;
+                } else if (failures[j++] == null) {
+                    journal(reservation, JournalEntry.Outcome.SUCCEEDED);
+                    outbox.complete(reservation, Outcome.RESERVED);
+                    completedInBatch++;
+                } else {
+                    PendingReservation retried = outbox.recordFailedAttempt(reservation);
+                    logger.debug("Seat reservation retry {} of {} failed for account {}: {}",
+                            retried.getAttempts(), maxAttempts, retried.getAccountId(), failures[j - 1]);
+                    if (retried.getAttempts() >= maxAttempts) {
+                        completedInBatch += refund(retried) ? 1 : 0;
+                    }
+                }
+            }
+
+            completed += completedInBatch;
+            if (batch.size() < batchSize || completedInBatch < batch.size()) {
+                return completed;
+            }
+        }
+    }
+
+    private boolean refund(PendingReservation reservation) {
+        try {
+            refundService.refund(reservation.getAccountId(), reservation.getAmountPaid());
+        } catch (Exception e) {
+            logger.warn("Refund failed for account {}, will retry", reservation.getAccountId(), e);
+            return false;
+        }
+        // Settled before the outbox forgets the purchase, so a crash in between repeats rather than loses them.
+        if (purchaseLedger != null) {
+            purchaseLedger.release(reservation.getAccountId(), reservation.getScreeningId(),
+                    reservation.getTotalTickets());
+        }
+        journal(reservation, JournalEntry.Outcome.REFUNDED);
+        outbox.complete(reservation, Outcome.REFUNDED);
+        return true;
+    }
+
+    private void journal(PendingReservation reservation, JournalEntry.Outcome outcome) {
+        if (purchaseJournal != null) {
+            purchaseJournal.append(reservation.getAccountId(), reservation.getAdultTickets(),
+                    reservation.getChildTickets(), reservation.getInfantTickets(), reservation.getAmountPaid(),
+                    outcome, reservation.getIntentSequence());
+        }
+    }
+
+    private void drainSafely() {
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            logger.error("Compensation worker failed to drain the outbox", e);
+        }
+    }
+}
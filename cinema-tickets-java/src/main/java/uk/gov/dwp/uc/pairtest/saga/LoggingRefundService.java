@@ -0,0 +1,20 @@
+package uk.gov.dwp.uc.pairtest.saga;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The payment gateway has no refund operation, so refunds are handed to finance as a structured
+ * WARN event that carries everything needed to pay the customer back.
+ */
+public class LoggingRefundService implements RefundService {
+    Logger logger = LoggerFactory.getLogger(LoggingRefundService.class);
+
+    @Override
+    public void refund(long accountId, int amountToRefund) {
+        logger.atWarn()
+                .addKeyValue("accountId", accountId)
+                .addKeyValue("amount", amountToRefund)
+                .log("Refund required");
+    }
+}
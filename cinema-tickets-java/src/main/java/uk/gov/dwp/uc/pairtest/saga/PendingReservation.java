@@ -0,0 +1,81 @@
+package uk.gov.dwp.uc.pairtest.saga;
+
+/**
+ * Immutable Object: a purchase whose payment was taken but whose seats are not reserved yet. It keeps
+ * the order's tickets and the sequence number of its journaled {@code PAYMENT_STARTED} intent, so a
+ * refund can give the tickets back to the account's cap and journal the purchase's final outcome.
+ */
+public class PendingReservation {
+    private final long id;
+    private final long accountId;
+    private final long screeningId;
+    private final int adultTickets;
+    private final int childTickets;
+    private final int infantTickets;
+    private final int amountPaid;
+    private final long intentSequence;
+    private final int attempts;
+
+    public PendingReservation(long id, long accountId, long screeningId, int adultTickets, int childTickets,
+            int infantTickets, int amountPaid, long intentSequence, int attempts) {
+        this.id = id;
+        this.accountId = accountId;
+        this.screeningId = screeningId;
+        this.adultTickets = adultTickets;
+        this.childTickets = childTickets;
+        this.infantTickets = infantTickets;
+        this.amountPaid = amountPaid;
+        this.intentSequence = intentSequence;
+        this.attempts = attempts;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public long getScreeningId() {
+        return screeningId;
+    }
+
+    public int getAdultTickets() {
+        return adultTickets;
+    }
+
+    public int getChildTickets() {
+        return childTickets;
+    }
+
+    public int getInfantTickets() {
+        return infantTickets;
+    }
+
+    public int getTotalTickets() {
+        return adultTickets + childTickets + infantTickets;
+    }
+
+    // Infants sit on an adult's lap.
+    public int getSeats() {
+        return adultTickets + childTickets;
+    }
+
+    public int getAmountPaid() {
+        return amountPaid;
+    }
+
+    public long getIntentSequence() {
+        return intentSequence;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    PendingReservation withAttempts(int attempts) {
+        return new PendingReservation(id, accountId, screeningId, adultTickets, childTickets, infantTickets,
+                amountPaid, intentSequence, attempts);
+    }
+}
@@ -0,0 +1,10 @@
+package uk.gov.dwp.uc.pairtest.saga;
+
+/**
+ * Gives back a payment whose seats could not be reserved.
+ */
+public interface RefundService {
+
+    void refund(long accountId, int amountToRefund);
+
+}
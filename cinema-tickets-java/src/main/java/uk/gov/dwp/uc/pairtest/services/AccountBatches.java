@@ -0,0 +1,114 @@
+package uk.gov.dwp.uc.pairtest.services;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Collapses a batch of per-order third-party calls into one call per distinct account, and makes the
+ * calls for different accounts concurrently.
+ */
+final class AccountBatches {
+
+    /**
+     * Makes the per-account calls one after another on the caller, for a batch service built without
+     * an executor. It owns no threads, so there is nothing to shut down.
+     */
+    static final Executor CALLER_RUNS = Runnable::run;
+
+    interface AccountCall {
+        void call(long accountId, int value);
+    }
+
+    private AccountBatches() {
+    }
+
+    /**
+     * Sums {@code values} per account, makes one {@code call} per account and maps the outcome back
+     * onto every entry of that account. Returns the failure message per entry, or null where it succeeded.
+     */
+    static String[] callPerAccount(long[] accountIds, int[] values, int count, AccountCall call,
+            Executor executor, String failurePrefix) {
+        RuntimeException[] failures = callPerAccount(accountIds, values, count, call, executor);
+        String[] outcomes = new String[count];
+        for (int i = 0; i < count; i++) {
+            if (failures[i] != null) {
+                outcomes[i] = failurePrefix + failures[i].getMessage();
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * As above, but returns the exception each entry failed with, or null where it succeeded. The calls for
+     * different accounts are independent, so all but the last are made on {@code executor} while the caller
+     * makes the last one, and the batch takes about as long as its slowest call rather than the sum of them.
+     * An entry that would take its account's total past an int fails on its own and is left out of the call.
+     */
+    static RuntimeException[] callPerAccount(long[] accountIds, int[] values, int count, AccountCall call,
+            Executor executor) {
+        RuntimeException[] outcomes = new RuntimeException[count];
+        Map<Long, Integer> totals = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            Integer total = totals.get(accountIds[i]);
+            if (total == null) {
+                totals.put(accountIds[i], values[i]);
+                continue;
+            }
+            try {
+                totals.put(accountIds[i], Math.addExact(total, values[i]));
+            } catch (ArithmeticException e) {
+                outcomes[i] = new IllegalArgumentException(
+                        "The account's orders in this batch add up to more than one call can carry.");
+            }
+        }
+
+        long[] accounts = new long[totals.size()];
+        int[] amounts = new int[accounts.length];
+        int distinct = 0;
+        for (Map.Entry<Long, Integer> total : totals.entrySet()) {
+            accounts[distinct] = total.getKey();
+            amounts[distinct] = total.getValue();
+            distinct++;
+        }
+
+        RuntimeException[] accountFailures = new RuntimeException[distinct];
+        CompletableFuture<?>[] calls = new CompletableFuture<?>[Math.max(0, distinct - 1)];
+        for (int a = 0; a < calls.length; a++) {
+            final int account = a;
+            calls[a] = CompletableFuture.runAsync(
+                    () -> accountFailures[account] = callOne(call, accounts[account], amounts[account]), executor);
+        }
+        if (distinct > 0) {
+            accountFailures[distinct - 1] = callOne(call, accounts[distinct - 1], amounts[distinct - 1]);
+        }
+        // Every call is waited for: none can be abandoned once it may have reached the third party.
+        CompletableFuture.allOf(calls).join();
+
+        Map<Long, RuntimeException> failures = new HashMap<>();
+        for (int a = 0; a < distinct; a++) {
+            if (accountFailures[a] != null) {
+                failures.put(accounts[a], accountFailures[a]);
+            }
+        }
+        if (!failures.isEmpty()) {
+            for (int i = 0; i < count; i++) {
+                if (outcomes[i] == null) {
+                    outcomes[i] = failures.get(accountIds[i]);
+                }
+            }
+        }
+        return outcomes;
+    }
+
+    private static RuntimeException callOne(AccountCall call, long accountId, int value) {
+        try {
+            call.call(accountId, value);
+            return null;
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+}
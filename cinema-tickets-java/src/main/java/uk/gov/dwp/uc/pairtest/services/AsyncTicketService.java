@@ -0,0 +1,25 @@
+package uk.gov.dwp.uc.pairtest.services;
+
+import java.util.concurrent.CompletableFuture;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketSummary;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+
+public interface AsyncTicketService {
+
+    /**
+     * Non-blocking variant of {@link TicketService#purchaseTickets}. Validation failures complete the
+     * returned future exceptionally with the same exceptions the blocking call throws.
+     */
+    CompletableFuture<TicketSummary> purchaseTicketsAsync(Long accountId, TicketTypeRequest... ticketTypeRequests);
+
+    /**
+     * Non-blocking variant of {@link TicketService#purchaseTickets(String, Long, TicketTypeRequest...)}:
+     * a retry with the same {@code idempotencyKey} is not paid for again. An order that was paid for but
+     * whose seats are not reserved yet completes with a
+     * {@link uk.gov.dwp.uc.pairtest.exception.SeatsPendingException}.
+     */
+    CompletableFuture<TicketSummary> purchaseTicketsAsync(String idempotencyKey, Long accountId,
+            TicketTypeRequest... ticketTypeRequests);
+
+}
@@ -0,0 +1,114 @@
+package uk.gov.dwp.uc.pairtest.services;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketSummary;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.SeatsPendingException;
+
+@Service
+public class AsyncTicketServiceImpl implements AsyncTicketService {
+
+    Logger logger = LoggerFactory.getLogger(AsyncTicketServiceImpl.class);
+
+    private final TicketService ticketService;
+    private final ExecutorService purchaseExecutor;
+    private final Semaphore bookingPermits;
+    private final long bookingTimeoutMillis;
+
+    public AsyncTicketServiceImpl(
+            TicketService ticketService,
+            @Qualifier("purchaseExecutor") ExecutorService purchaseExecutor,
+            @Value("${ASYNC_MAX_CONCURRENT_BOOKINGS:512}") int maxConcurrentBookings,
+            @Value("${ASYNC_BOOKING_TIMEOUT_MS:2000}") long bookingTimeoutMillis) {
+
+        this.ticketService = ticketService;
+        this.purchaseExecutor = purchaseExecutor;
+        this.bookingPermits = new Semaphore(maxConcurrentBookings);
+        this.bookingTimeoutMillis = bookingTimeoutMillis;
+    }
+
+    @Override
+    public CompletableFuture<TicketSummary> purchaseTicketsAsync(Long accountId,
+            TicketTypeRequest... ticketTypeRequests) {
+
+        return purchaseTicketsAsync(null, accountId, ticketTypeRequests);
+    }
+
+    /**
+     * Runs the blocking purchase on the purchase executor, at most {@code ASYNC_MAX_CONCURRENT_BOOKINGS}
+     * at a time, so idempotency, admission control, rate limiting, stage metrics and the correlation ID
+     * all apply as they do to a blocking call. The returned future fails with a {@link TimeoutException}
+     * when the purchase, including the wait for a permit, takes longer than {@code ASYNC_BOOKING_TIMEOUT_MS}.
+     * Only that view times out: a purchase that has started may already have charged the card, so it is
+     * never interrupted and runs to its journaled outcome. A purchase the caller has given up on before
+     * it starts is dropped instead.
+     */
+    @Override
+    public CompletableFuture<TicketSummary> purchaseTicketsAsync(String idempotencyKey, Long accountId,
+            TicketTypeRequest... ticketTypeRequests) {
+
+        // Copied so the caller can reuse its array while the purchase is queued.
+        final TicketTypeRequest[] requests = ticketTypeRequests == null ? null : ticketTypeRequests.clone();
+        final String correlationId = MDC.get(TicketServiceImpl.CORRELATION_ID);
+        final CompletableFuture<TicketSummary> result = new CompletableFuture<>();
+        // Timing out or cancelling the copy handed to the caller leaves the purchase itself alone.
+        final CompletableFuture<TicketSummary> view =
+                result.copy().orTimeout(bookingTimeoutMillis, TimeUnit.MILLISECONDS);
+        purchaseExecutor.execute(() -> purchase(idempotencyKey, accountId, requests, correlationId, result, view));
+        return view;
+    }
+
+    private void purchase(String idempotencyKey, Long accountId, TicketTypeRequest[] ticketTypeRequests,
+            String correlationId, CompletableFuture<TicketSummary> result, CompletableFuture<TicketSummary> view) {
+        try {
+            if (!bookingPermits.tryAcquire(bookingTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                result.completeExceptionally(new TimeoutException("No booking capacity available."));
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+            return;
+        }
+        if (view.isDone()) {
+            bookingPermits.release();
+            result.cancel(false);
+            logger.debug("Booking for account {} dropped before it started: {}", accountId, view.state());
+            return;
+        }
+
+        // Keeps the caller's correlation ID; without one the purchase tags its log lines with its own.
+        if (correlationId != null) {
+            MDC.put(TicketServiceImpl.CORRELATION_ID, correlationId);
+        }
+        try {
+            result.complete(ticketService.purchaseTickets(idempotencyKey, accountId, ticketTypeRequests));
+        } catch (SeatsPendingException e) {
+            logger.info("Booking for account {} is paid for and its seats are pending", accountId);
+            result.completeExceptionally(e);
+        } catch (InvalidPurchaseException e) {
+            result.completeExceptionally(e);
+        } catch (RuntimeException e) {
+            logger.warn("Booking failed for account {}: {}", accountId, e.getMessage());
+            result.completeExceptionally(e);
+        } finally {
+            if (correlationId != null) {
+                MDC.remove(TicketServiceImpl.CORRELATION_ID);
+            }
+            bookingPermits.release();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package uk.gov.dwp.uc.pairtest.services;
+
+import java.util.concurrent.Executor;
+
+import thirdparty.seatbooking.SeatReservationService;
+
+/**
+ * Decorator that lets a batch of orders share reservation round-trips: seats for the same account
+ * are reserved in a single {@code reserveSeat} call, and different accounts are reserved concurrently
+ * on {@code executor}, or one after another when none is given.
+ */
+public class BatchSeatReservationService implements SeatReservationService {
+
+    private final SeatReservationService seatReservationService;
+    private final Executor executor;
+
+    public BatchSeatReservationService(SeatReservationService seatReservationService) {
+        this(seatReservationService, AccountBatches.CALLER_RUNS);
+    }
+
+    public BatchSeatReservationService(SeatReservationService seatReservationService, Executor executor) {
+        this.seatReservationService = seatReservationService;
+        this.executor = executor;
+    }
+
+    @Override
+    public void reserveSeat(long accountId, int totalSeatsToAllocate) {
+        seatReservationService.reserveSeat(accountId, totalSeatsToAllocate);
+    }
+
+    /**
+     * Returns the failure message for each of the first {@code count} entries, or null where the seats
+     * were reserved. A failed call fails every entry of that account.
+     */
+    public String[] reserveSeats(long[] accountIds, int[] seats, int count) {
+        return AccountBatches.callPerAccount(accountIds, seats, count, seatReservationService::reserveSeat,
+                executor, "Seat reservation failed: ");
+    }
+}
@@ -0,0 +1,39 @@
+package uk.gov.dwp.uc.pairtest.services;
+
+import java.util.concurrent.Executor;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+
+/**
+ * Decorator that lets a batch of orders share gateway round-trips: orders for the same account
+ * are charged in a single {@code makePayment} call, and different accounts are charged concurrently
+ * on {@code executor}, or one after another when none is given.
+ */
+public class BatchTicketPaymentService implements TicketPaymentService {
+
+    private final TicketPaymentService ticketPaymentService;
+    private final Executor executor;
+
+    public BatchTicketPaymentService(TicketPaymentService ticketPaymentService) {
+        this(ticketPaymentService, AccountBatches.CALLER_RUNS);
+    }
+
+    public BatchTicketPaymentService(TicketPaymentService ticketPaymentService, Executor executor) {
+        this.ticketPaymentService = ticketPaymentService;
+        this.executor = executor;
+    }
+
+    @Override
+    public void makePayment(long accountId, int totalAmountToPay) {
+        ticketPaymentService.makePayment(accountId, totalAmountToPay);
+    }
+
+    /**
+     * Returns the exception each of the first {@code count} entries failed with, or null where the payment
+     * was taken. A failed call fails every entry of that account.
+     */
+    public RuntimeException[] makePayments(long[] accountIds, int[] amounts, int count) {
+        return AccountBatches.callPerAccount(accountIds, amounts, count, ticketPaymentService::makePayment,
+                executor);
+    }
+}
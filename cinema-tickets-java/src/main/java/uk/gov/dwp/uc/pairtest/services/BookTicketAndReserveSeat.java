@@ -1,43 +1,440 @@
 package uk.gov.dwp.uc.pairtest.services;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import thirdparty.paymentgateway.TicketPaymentService;
 import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
 import uk.gov.dwp.uc.pairtest.domain.TicketSummary;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.OutcomeUnknownException;
+import uk.gov.dwp.uc.pairtest.exception.PaymentFailedException;
+import uk.gov.dwp.uc.pairtest.exception.SeatReservationFailedException;
+import uk.gov.dwp.uc.pairtest.exception.SeatsPendingException;
+import uk.gov.dwp.uc.pairtest.exception.SeatsUnavailableException;
+import uk.gov.dwp.uc.pairtest.inventory.InventorySeatReservationService;
+import uk.gov.dwp.uc.pairtest.inventory.SeatAvailability;
+import uk.gov.dwp.uc.pairtest.journal.JournalEntry;
+import uk.gov.dwp.uc.pairtest.journal.JournalEntry.Outcome;
+import uk.gov.dwp.uc.pairtest.journal.PurchaseJournal;
+import uk.gov.dwp.uc.pairtest.ledger.PurchaseLedger;
+import uk.gov.dwp.uc.pairtest.saga.CompensationOutbox;
+import uk.gov.dwp.uc.pairtest.saga.PendingReservation;
+import uk.gov.dwp.uc.pairtest.utils.PurchaseMetrics;
+import uk.gov.dwp.uc.pairtest.utils.PurchaseMetrics.Stage;
 
 @Service
 public class BookTicketAndReserveSeat {
     Logger logger = LoggerFactory.getLogger(BookTicketAndReserveSeat.class);
 
+    private static final String SEATS_UNAVAILABLE_MESSAGE = "Not enough seats left for this screening.";
+
     private final TicketPaymentService ticketPaymentService;
     private final SeatReservationService seatReservationService;
+    private final BatchTicketPaymentService batchTicketPaymentService;
+    private final BatchSeatReservationService batchSeatReservationService;
+    private final PurchaseMetrics purchaseMetrics;
+    private final CompensationOutbox compensationOutbox;
+    private final PurchaseJournal purchaseJournal;
+
+    @Value("${PURCHASE_BATCH_SIZE:256}")
+    private int batchSize;
+    @Value("${DEFAULT_SCREENING_ID:1}")
+    private long screeningId;
+
+    private PurchaseLedger purchaseLedger;
 
     public BookTicketAndReserveSeat(
             TicketPaymentService ticketPaymentService,
             SeatReservationService seatReservationService) {
 
+        this(ticketPaymentService, seatReservationService, PurchaseMetrics.disabled());
+    }
+
+    public BookTicketAndReserveSeat(
+            TicketPaymentService ticketPaymentService,
+            SeatReservationService seatReservationService,
+            PurchaseMetrics purchaseMetrics) {
+
+        this(ticketPaymentService, seatReservationService, purchaseMetrics, null, null);
+    }
+
+    public BookTicketAndReserveSeat(
+            TicketPaymentService ticketPaymentService,
+            SeatReservationService seatReservationService,
+            PurchaseMetrics purchaseMetrics,
+            CompensationOutbox compensationOutbox,
+            PurchaseJournal purchaseJournal) {
+
+        this(ticketPaymentService, seatReservationService, purchaseMetrics, compensationOutbox, purchaseJournal,
+                AccountBatches.CALLER_RUNS);
+    }
+
+    /**
+     * With a {@code compensationOutbox}, a reservation that fails after the payment was taken is recorded
+     * for the background worker to retry or refund, and the purchase is left pending. Without one it fails.
+     * With a {@code purchaseJournal}, a {@code PAYMENT_STARTED} intent is journaled before each payment and
+     * resolved by the purchase's outcome, so a payment interrupted by a crash can be found and checked.
+     * The calls of a batch for different accounts are made concurrently on {@code batchExecutor}.
+     */
+    @Autowired
+    public BookTicketAndReserveSeat(
+            TicketPaymentService ticketPaymentService,
+            SeatReservationService seatReservationService,
+            PurchaseMetrics purchaseMetrics,
+            CompensationOutbox compensationOutbox,
+            PurchaseJournal purchaseJournal,
+            @Qualifier("purchaseExecutor") Executor batchExecutor) {
+
+        this.purchaseMetrics = purchaseMetrics;
+        this.compensationOutbox = compensationOutbox;
+        this.purchaseJournal = purchaseJournal;
         this.ticketPaymentService = ticketPaymentService;
         this.seatReservationService = seatReservationService;
+        this.batchTicketPaymentService = new BatchTicketPaymentService(ticketPaymentService, batchExecutor);
+        this.batchSeatReservationService = new BatchSeatReservationService(seatReservationService, batchExecutor);
+    }
+
+    /**
+     * With a ledger, tickets count towards {@code MAX_TICKETS_PER_SCREENING} for the account across
+     * all its orders; tickets of a purchase that fails are taken back off.
+     */
+    @Autowired(required = false)
+    public void setPurchaseLedger(PurchaseLedger purchaseLedger) {
+        this.purchaseLedger = purchaseLedger;
     }
 
     public void makePaymentAndReserveSeats(Long accountId, TicketSummary summary) {
+        makePaymentAndReserveSeats(screeningId, accountId, summary);
+    }
+
+    /**
+     * Books an order for one screening. Seats are claimed from that screening's inventory when the
+     * seat reservation service keeps one, and the tickets count towards the account's cap for that
+     * screening. The compensation outbox only books the default screening, so a reservation that
+     * fails for any other screening fails the purchase rather than being deferred.
+     *
+     * @throws SeatsPendingException if the order was paid for but its seats were deferred to the outbox
+     */
+    public void makePaymentAndReserveSeats(long screeningId, Long accountId, TicketSummary summary) {
+
+        if (seatReservationService instanceof InventorySeatReservationService inventory
+                && !inventory.hasScreening(screeningId)) {
+            throw new InvalidPurchaseException("Unknown screening: " + screeningId);
+        }
+        // Reject a sold-out screening before the card is charged.
+        if (!canAllocate(screeningId, summary.getTotalSeats())) {
+            throw new SeatsUnavailableException(SEATS_UNAVAILABLE_MESSAGE);
+        }
+        if (!recordTickets(accountId, screeningId, summary)) {
+            throw new InvalidPurchaseException(purchaseCapMessage());
+        }
+
+        payAndReserveSeats(screeningId, accountId, summary, null);
+    }
+
+    /**
+     * Claims seats for an order in the screening's inventory and counts its tickets towards the
+     * account's cap, without calling either third-party service, so a screening's single booking
+     * thread can run it. The order must then be finished with {@link #makePaymentAndReserveClaimedSeats}
+     * or {@link #releaseClaimedSeats}.
+     *
+     * @return the claimed seat numbers, or null when the seat reservation service keeps no inventory
+     */
+    public int[] claimSeats(long screeningId, Long accountId, TicketSummary summary) {
+        final InventorySeatReservationService inventory =
+                seatReservationService instanceof InventorySeatReservationService i ? i : null;
+        if (inventory != null && !inventory.hasScreening(screeningId)) {
+            throw new InvalidPurchaseException("Unknown screening: " + screeningId);
+        }
+        if (inventory == null && !canAllocate(screeningId, summary.getTotalSeats())) {
+            throw new SeatsUnavailableException(SEATS_UNAVAILABLE_MESSAGE);
+        }
+        if (!recordTickets(accountId, screeningId, summary)) {
+            throw new InvalidPurchaseException(purchaseCapMessage());
+        }
+        if (inventory == null) {
+            return null;
+        }
+        int[] seats = inventory.claimSeats(screeningId, summary.getTotalSeats());
+        if (seats == null) {
+            releaseTickets(accountId, screeningId, summary);
+            throw new SeatsUnavailableException(SEATS_UNAVAILABLE_MESSAGE);
+        }
+        return seats;
+    }
+
+    /**
+     * Pays for an order whose seats were claimed by {@link #claimSeats} and reserves those seats, failing
+     * and deferring exactly as {@link #makePaymentAndReserveSeats(long, Long, TicketSummary)} does. The
+     * claim is released if the order fails.
+     *
+     * @throws SeatsPendingException if the order was paid for but its seats were deferred to the outbox
+     */
+    public void makePaymentAndReserveClaimedSeats(long screeningId, Long accountId, TicketSummary summary,
+            int[] seats) {
+        payAndReserveSeats(screeningId, accountId, summary, seats);
+    }
 
+    /**
+     * Pays for an order whose seats are already claimed outside the booking, such as a bought seat hold,
+     * and reserves them. The tickets count towards the account's cap for the screening, and the seats go
+     * back to the pool if the order fails.
+     *
+     * @throws SeatsPendingException if the order was paid for but its seats were deferred to the outbox
+     */
+    public void makePaymentAndReserveHeldSeats(long screeningId, Long accountId, TicketSummary summary,
+            int[] seats) {
+        if (!recordTickets(accountId, screeningId, summary)) {
+            releaseClaim(screeningId, seats);
+            throw new InvalidPurchaseException(purchaseCapMessage());
+        }
+        payAndReserveSeats(screeningId, accountId, summary, seats);
+    }
+
+    /**
+     * Gives back the seats and tickets of a claimed order that will not be paid for.
+     */
+    public void releaseClaimedSeats(long screeningId, Long accountId, TicketSummary summary, int[] seats) {
+        releaseTickets(accountId, screeningId, summary);
+        releaseClaim(screeningId, seats);
+    }
+
+    // Claimed seats are null when they are to be claimed on reservation.
+    private void payAndReserveSeats(long screeningId, long accountId, TicketSummary summary, int[] claimed) {
+        long intent = journal(accountId, summary, Outcome.PAYMENT_STARTED, JournalEntry.NO_INTENT);
+        long start = System.nanoTime();
         try {
             ticketPaymentService.makePayment(accountId, summary.getTotalPrice());
+            start = purchaseMetrics.success(Stage.MAKE_PAYMENT, start);
+        } catch (OutcomeUnknownException e) {
+            // The card may yet be charged: keep the tickets and settle once the gateway answers.
+            purchaseMetrics.failure(Stage.MAKE_PAYMENT, start, e);
+            settleWhenKnown(screeningId, accountId, summary, claimed, intent, e.getOutcome());
+            throw e;
         } catch (Exception e) {
-            throw new RuntimeException("Payment failed: " + e.getMessage());
+            purchaseMetrics.failure(Stage.MAKE_PAYMENT, start, e);
+            releaseClaimedSeats(screeningId, accountId, summary, claimed);
+            journal(accountId, summary, Outcome.PAYMENT_FAILED, intent);
+            throw new PaymentFailedException("Payment failed: " + e.getMessage(), e);
+        }
+
+        if (!reserveSeats(screeningId, accountId, summary, claimed, intent, start)) {
+            throw new SeatsPendingException(summary);
         }
+    }
 
+    /**
+     * Reserves the seats of a paid order, deferring them to the compensation outbox when the
+     * reservation fails and the outbox can book the screening. A failed reservation releases any
+     * claimed seats, so the outbox claims them afresh.
+     *
+     * @return false if the seats were deferred
+     */
+    private boolean reserveSeats(long screeningId, long accountId, TicketSummary summary, int[] claimed,
+            long intent, long start) {
+        int seats = summary.getAdultTickets() + summary.getChildTickets();
         try {
-            seatReservationService.reserveSeat(accountId, summary.getAdultTickets() + summary.getChildTickets());
+            if (seatReservationService instanceof InventorySeatReservationService inventory) {
+                if (claimed != null) {
+                    inventory.reserveClaimedSeats(screeningId, accountId, claimed);
+                } else {
+                    inventory.reserveSeats(screeningId, accountId, seats);
+                }
+            } else {
+                seatReservationService.reserveSeat(accountId, seats);
+            }
+            purchaseMetrics.success(Stage.RESERVE_SEAT, start);
         } catch (Exception e) {
-            throw new RuntimeException("Seat reservation failed: " + e.getMessage());
+            purchaseMetrics.failure(Stage.RESERVE_SEAT, start, e);
+            if (compensationOutbox == null || screeningId != this.screeningId) {
+                releaseTickets(accountId, screeningId, summary);
+                journal(accountId, summary, Outcome.RESERVATION_FAILED, intent);
+                throw new SeatReservationFailedException("Seat reservation failed: " + e.getMessage(), e);
+            }
+            deferReservation(accountId, screeningId, summary, intent, e.getMessage());
+            journal(accountId, summary, Outcome.RESERVATION_DEFERRED, intent);
+            return false;
+        }
+        journal(accountId, summary, Outcome.SUCCEEDED, intent);
+        return true;
+    }
+
+    /**
+     * Finishes a purchase whose payment timed out once the abandoned gateway call returns: seats are
+     * reserved for a payment that went through, and the tickets and any claimed seats of one that failed
+     * are released. Either way the outcome is journaled. A call that itself timed out further down,
+     * such as a coalesced payment whose gateway call was left running, is still unknown and is waited
+     * out in turn.
+     */
+    private void settleWhenKnown(long screeningId, long accountId, TicketSummary summary, int[] claimed,
+            long intent, CompletableFuture<Void> payment) {
+        payment.whenComplete((paid, outcome) -> {
+            final Throwable failure = outcome instanceof CompletionException wrapped && wrapped.getCause() != null
+                    ? wrapped.getCause() : outcome;
+            if (failure instanceof OutcomeUnknownException unknown) {
+                settleWhenKnown(screeningId, accountId, summary, claimed, intent, unknown.getOutcome());
+                return;
+            }
+            if (failure != null) {
+                logger.atWarn()
+                        .addKeyValue("accountId", accountId)
+                        .log("Timed out payment failed: {}", failure.getMessage());
+                releaseClaimedSeats(screeningId, accountId, summary, claimed);
+                journal(accountId, summary, Outcome.PAYMENT_FAILED, intent);
+                return;
+            }
+            logger.atWarn()
+                    .addKeyValue("accountId", accountId)
+                    .log("Timed out payment went through, reserving its seats");
+            try {
+                reserveSeats(screeningId, accountId, summary, claimed, intent, System.nanoTime());
+            } catch (RuntimeException e) {
+                logger.atError()
+                        .addKeyValue("accountId", accountId)
+                        .log("Paid order left without seats: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Pays for and reserves seats for every order whose {@code results} slot is still empty, filling
+     * in a result for each. Orders are sent in chunks of {@code PURCHASE_BATCH_SIZE}: all payments of a
+     * chunk first, then the reservations for the orders that were paid. As on the single path, an order
+     * is only charged if the seats of the chunk's orders so far, its own included, are still available,
+     * and one whose seats are deferred to the compensation outbox is left pending.
+     */
+    public void makePaymentsAndReserveSeats(List<PurchaseOrder> orders, TicketSummary[] summaries,
+            PurchaseResult[] results) {
+
+        int chunkSize = batchSize > 0 ? batchSize : orders.size();
+        long[] accountIds = new long[Math.min(chunkSize, orders.size())];
+        int[] values = new int[accountIds.length];
+        int[] indexes = new int[accountIds.length];
+        long[] intents = new long[accountIds.length];
+
+        for (int from = 0; from < orders.size(); from += chunkSize) {
+            int to = Math.min(from + chunkSize, orders.size());
+
+            int count = 0;
+            int chunkSeats = 0;
+            for (int i = from; i < to; i++) {
+                if (results[i] != null) {
+                    continue;
+                }
+                if (!canAllocate(screeningId, chunkSeats + summaries[i].getTotalSeats())) {
+                    results[i] = PurchaseResult.failed(orders.get(i), summaries[i], SEATS_UNAVAILABLE_MESSAGE);
+                } else if (!recordTickets(orders.get(i).getAccountId(), screeningId, summaries[i])) {
+                    results[i] = PurchaseResult.failed(orders.get(i), summaries[i], purchaseCapMessage());
+                } else {
+                    chunkSeats += summaries[i].getTotalSeats();
+                    indexes[count] = i;
+                    accountIds[count] = orders.get(i).getAccountId();
+                    values[count] = summaries[i].getTotalPrice();
+                    intents[count] = journal(accountIds[count], summaries[i], Outcome.PAYMENT_STARTED,
+                            JournalEntry.NO_INTENT);
+                    count++;
+                }
+            }
+            RuntimeException[] paymentFailures = batchTicketPaymentService.makePayments(accountIds, values, count);
+
+            int paid = 0;
+            for (int j = 0; j < count; j++) {
+                int i = indexes[j];
+                if (paymentFailures[j] instanceof OutcomeUnknownException unknown) {
+                    results[i] = PurchaseResult.failed(orders.get(i), summaries[i], unknown.getMessage());
+                    settleWhenKnown(screeningId, accountIds[j], summaries[i], null, intents[j],
+                            unknown.getOutcome());
+                } else if (paymentFailures[j] != null) {
+                    results[i] = PurchaseResult.failed(orders.get(i), summaries[i],
+                            "Payment failed: " + paymentFailures[j].getMessage());
+                    releaseTickets(accountIds[j], screeningId, summaries[i]);
+                    journal(accountIds[j], summaries[i], Outcome.PAYMENT_FAILED, intents[j]);
+                } else {
+                    indexes[paid] = i;
+                    accountIds[paid] = accountIds[j];
+                    intents[paid] = intents[j];
+                    values[paid] = summaries[i].getAdultTickets() + summaries[i].getChildTickets();
+                    paid++;
+                }
+            }
+            String[] reservationFailures = batchSeatReservationService.reserveSeats(accountIds, values, paid);
+
+            for (int j = 0; j < paid; j++) {
+                int i = indexes[j];
+                if (reservationFailures[j] == null) {
+                    results[i] = PurchaseResult.succeeded(orders.get(i), summaries[i]);
+                    journal(accountIds[j], summaries[i], Outcome.SUCCEEDED, intents[j]);
+                } else if (compensationOutbox != null) {
+                    deferReservation(accountIds[j], screeningId, summaries[i], intents[j], reservationFailures[j]);
+                    results[i] = PurchaseResult.pending(orders.get(i), summaries[i], reservationFailures[j]);
+                    journal(accountIds[j], summaries[i], Outcome.RESERVATION_DEFERRED, intents[j]);
+                } else {
+                    results[i] = PurchaseResult.failed(orders.get(i), summaries[i], reservationFailures[j]);
+                    releaseTickets(accountIds[j], screeningId, summaries[i]);
+                    journal(accountIds[j], summaries[i], Outcome.RESERVATION_FAILED, intents[j]);
+                }
+            }
+        }
+    }
+
+    private boolean canAllocate(long screeningId, int seats) {
+        if (seatReservationService instanceof InventorySeatReservationService inventory) {
+            return inventory.canAllocate(screeningId, seats);
+        }
+        return !(seatReservationService instanceof SeatAvailability seatAvailability)
+                || seatAvailability.canAllocate(seats);
+    }
+
+    private boolean recordTickets(long accountId, long screeningId, TicketSummary summary) {
+        return purchaseLedger == null
+                || purchaseLedger.tryRecord(accountId, screeningId, summary.getTotalTickets());
+    }
+
+    private void releaseTickets(long accountId, long screeningId, TicketSummary summary) {
+        if (purchaseLedger != null) {
+            purchaseLedger.release(accountId, screeningId, summary.getTotalTickets());
         }
+    }
+
+    private void releaseClaim(long screeningId, int[] seats) {
+        if (seats != null && seatReservationService instanceof InventorySeatReservationService inventory) {
+            inventory.releaseSeats(screeningId, seats);
+        }
+    }
+
+    private String purchaseCapMessage() {
+        return "Only a maximum of " + purchaseLedger.getMaxTicketsPerScreening()
+                + " tickets can be purchased per account for a screening.";
+    }
+
+    // Returns the entry's sequence number, or NO_INTENT without a journal.
+    private long journal(long accountId, TicketSummary summary, Outcome outcome, long intent) {
+        if (purchaseJournal == null) {
+            return JournalEntry.NO_INTENT;
+        }
+        return purchaseJournal.append(accountId, summary.getAdultTickets(), summary.getChildTickets(),
+                summary.getInfantTickets(), summary.getTotalPrice(), outcome, intent);
+    }
 
+    private void deferReservation(long accountId, long screeningId, TicketSummary summary, long intent,
+            String reason) {
+        PendingReservation pending = compensationOutbox.record(accountId, screeningId, summary, intent);
+        logger.atWarn()
+                .addKeyValue("accountId", accountId)
+                .addKeyValue("outboxId", pending.getId())
+                .log("Seat reservation deferred after payment: {}", reason);
     }
 
 }
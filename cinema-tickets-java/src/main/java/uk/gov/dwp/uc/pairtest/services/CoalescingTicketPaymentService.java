@@ -0,0 +1,298 @@
+package uk.gov.dwp.uc.pairtest.services;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import thirdparty.paymentgateway.TicketPaymentService;
+import uk.gov.dwp.uc.pairtest.exception.OutcomeUnknownException;
+import uk.gov.dwp.uc.pairtest.exception.ServiceUnavailableException;
+import uk.gov.dwp.uc.pairtest.exception.ServiceUnavailableException.Reason;
+import uk.gov.dwp.uc.pairtest.utils.MpscArrayQueue;
+
+/**
+ * Decorator that gathers concurrent payments into micro-batches. Callers enqueue onto a bounded
+ * {@link MpscArrayQueue}; one flusher thread takes up to {@code maxBatchSize} of them, waiting at most
+ * {@code maxDelay} after the oldest arrived, and hands each batch to {@code batchExecutor}. The gateway
+ * has no batch call, so every order in a batch is still its own charge, made concurrently with the
+ * others on {@code batchExecutor}, and every caller gets back its own order's outcome; orders from one
+ * account are never summed into a single charge. As the charges block, {@code batchExecutor} should not
+ * be a small bounded pool; the purchase executor's virtual threads suit it.
+ *
+ * <p>A full queue is rejected straight away with {@link ServiceUnavailableException}, which callers
+ * treat as retryable. {@link #makePayment} waits at most {@code maxWait}; a payment still queued by
+ * then is withdrawn, while one already sent fails with {@link OutcomeUnknownException}. Published
+ * metrics:
+ * <ul>
+ * <li>{@code ticket.payment.batch.size}: orders per flushed batch</li>
+ * <li>{@code ticket.payment.queue.delay}: time from enqueue to the batch being dispatched</li>
+ * <li>{@code ticket.payment.queue.rejected} and {@code ticket.payment.queue.size}</li>
+ * </ul>
+ */
+public class CoalescingTicketPaymentService implements TicketPaymentService, AutoCloseable {
+    Logger logger = LoggerFactory.getLogger(CoalescingTicketPaymentService.class);
+
+    static final String SERVICE = "Payment queue";
+
+    private final TicketPaymentService ticketPaymentService;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final long maxWaitNanos;
+    private final Executor batchExecutor;
+    private final MpscArrayQueue<Payment> queue;
+    private final DistributionSummary batchSizes;
+    private final Timer queueDelay;
+    private final Counter rejected;
+
+    private volatile Thread flusher;
+    private volatile boolean flusherWaiting;
+    private volatile boolean closed;
+    // Callers between checking closed and offering their payment, which close() waits out.
+    private final AtomicInteger submitting = new AtomicInteger();
+
+    public CoalescingTicketPaymentService(TicketPaymentService ticketPaymentService, int maxBatchSize,
+            Duration maxDelay, Duration maxWait, int queueCapacity, Executor batchExecutor,
+            MeterRegistry meterRegistry) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("The batch size must be positive.");
+        }
+        this.ticketPaymentService = ticketPaymentService;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.maxWaitNanos = maxWait.toNanos();
+        this.batchExecutor = batchExecutor;
+        this.queue = new MpscArrayQueue<>(queueCapacity);
+        this.batchSizes = DistributionSummary.builder("ticket.payment.batch.size")
+                .publishPercentileHistogram().register(meterRegistry);
+        this.queueDelay = Timer.builder("ticket.payment.queue.delay")
+                .publishPercentileHistogram().register(meterRegistry);
+        this.rejected = Counter.builder("ticket.payment.queue.rejected").register(meterRegistry);
+        Gauge.builder("ticket.payment.queue.size", queue, MpscArrayQueue::size).register(meterRegistry);
+    }
+
+    // One queued order; completed with null once paid, or with the failure of its account's call.
+    // Claimed by whichever comes first of its batch being dispatched and its caller giving up.
+    private static final class Payment extends CompletableFuture<Void> {
+        final long accountId;
+        final int amount;
+        final long enqueuedNanos;
+        final AtomicBoolean claimed = new AtomicBoolean();
+
+        Payment(long accountId, int amount, long enqueuedNanos) {
+            this.accountId = accountId;
+            this.amount = amount;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    /**
+     * Starts the flusher thread; the first payment starts it otherwise.
+     */
+    public synchronized void start() {
+        if (flusher != null) {
+            return;
+        }
+        closed = false;
+        flusher = Thread.ofPlatform().name("payment-coalescer").daemon().start(this::flushLoop);
+    }
+
+    /**
+     * Stops taking payments; those already queued are still flushed, unless the flusher does not
+     * finish within ten seconds.
+     */
+    @Override
+    public synchronized void close() {
+        Thread thread = flusher;
+        if (thread == null) {
+            return;
+        }
+        closed = true;
+        // Once no caller is mid-offer, every payment that got in is queued and the flusher drains it.
+        while (submitting.get() != 0) {
+            Thread.onSpinWait();
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flusher = null;
+        if (thread.isAlive()) {
+            logger.warn("Payment coalescer did not drain its queue within ten seconds");
+            return;
+        }
+        // Payments that raced with closing are failed rather than left waiting; the queue has
+        // no other consumer now.
+        for (Payment payment = queue.poll(); payment != null; payment = queue.poll()) {
+            payment.completeExceptionally(new ServiceUnavailableException(SERVICE, Reason.QUEUE_FULL));
+        }
+    }
+
+    /**
+     * Blocks until the batch holding this payment has been charged, and rethrows its failure as is.
+     *
+     * @throws ServiceUnavailableException if the payment was still queued after {@code maxWait}
+     * @throws OutcomeUnknownException if it was sent but not answered within {@code maxWait}
+     */
+    @Override
+    public void makePayment(long accountId, int totalAmountToPay) {
+        Payment payment = enqueue(accountId, totalAmountToPay);
+        try {
+            payment.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (payment.claimed.compareAndSet(false, true)) {
+                throw new ServiceUnavailableException(SERVICE, Reason.TIMEOUT);
+            }
+            throw new OutcomeUnknownException(SERVICE, payment.copy());
+        }
+    }
+
+    /**
+     * Queues a payment and returns a future completed with its outcome, or already failed with
+     * {@link ServiceUnavailableException} when the queue is full or closed.
+     */
+    public CompletableFuture<Void> submitPayment(long accountId, int totalAmountToPay) {
+        return enqueue(accountId, totalAmountToPay);
+    }
+
+    private Payment enqueue(long accountId, int totalAmountToPay) {
+        if (flusher == null && !closed) {
+            start();
+        }
+        Payment payment = new Payment(accountId, totalAmountToPay, System.nanoTime());
+        submitting.incrementAndGet();
+        boolean queued;
+        try {
+            queued = !closed && queue.offer(payment);
+        } finally {
+            submitting.decrementAndGet();
+        }
+        if (!queued) {
+            rejected.increment();
+            payment.completeExceptionally(new ServiceUnavailableException(SERVICE, Reason.QUEUE_FULL));
+            return payment;
+        }
+        Thread thread = flusher;
+        if (flusherWaiting && thread != null) {
+            LockSupport.unpark(thread);
+        }
+        return payment;
+    }
+
+    private void flushLoop() {
+        Payment[] batch = new Payment[maxBatchSize];
+        while (true) {
+            Payment first = queue.poll();
+            if (first == null) {
+                if (closed) {
+                    return;
+                }
+                await(Long.MAX_VALUE);
+                continue;
+            }
+            batch[0] = first;
+            int count = 1;
+            // The deadline runs from the oldest order, so none waits longer than maxDelay to be sent.
+            long deadline = first.enqueuedNanos + maxDelayNanos;
+            while (count < maxBatchSize) {
+                Payment next = queue.poll();
+                if (next != null) {
+                    batch[count++] = next;
+                    continue;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || closed) {
+                    break;
+                }
+                await(remaining);
+            }
+            dispatch(batch, count);
+        }
+    }
+
+    private void await(long nanos) {
+        flusherWaiting = true;
+        // Checked again after publishing the flag, so a payment offered in between is not missed.
+        if (queue.isEmpty() && !closed) {
+            LockSupport.parkNanos(this, nanos);
+        } else {
+            // A producer has claimed a slot but not filled it yet; let it run.
+            Thread.yield();
+        }
+        flusherWaiting = false;
+    }
+
+    private void dispatch(Payment[] batch, int size) {
+        final Payment[] claimed = new Payment[size];
+        final long now = System.nanoTime();
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            Payment payment = batch[i];
+            batch[i] = null;
+            // A payment whose caller has given up is left out, so it is never charged.
+            if (payment.claimed.compareAndSet(false, true)) {
+                claimed[count++] = payment;
+                queueDelay.record(now - payment.enqueuedNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        final Payment[] payments = count == size ? claimed : Arrays.copyOf(claimed, count);
+        batchSizes.record(count);
+        try {
+            batchExecutor.execute(() -> charge(payments));
+        } catch (RuntimeException e) {
+            logger.error("Could not dispatch a batch of {} payments", count, e);
+            for (Payment payment : payments) {
+                payment.completeExceptionally(new ServiceUnavailableException(SERVICE, Reason.QUEUE_FULL));
+            }
+        }
+    }
+
+    // All but the last charge run on batchExecutor, while this thread makes the last one.
+    private void charge(Payment[] payments) {
+        for (int i = 0; i < payments.length - 1; i++) {
+            Payment payment = payments[i];
+            try {
+                batchExecutor.execute(() -> charge(payment));
+            } catch (RuntimeException e) {
+                payment.completeExceptionally(new ServiceUnavailableException(SERVICE, Reason.QUEUE_FULL));
+            }
+        }
+        charge(payments[payments.length - 1]);
+    }
+
+    private void charge(Payment payment) {
+        try {
+            ticketPaymentService.makePayment(payment.accountId, payment.amount);
+            payment.complete(null);
+        } catch (RuntimeException e) {
+            payment.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package uk.gov.dwp.uc.pairtest.services;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+
+/**
+ * Immutable Object: ticket prices flattened into one array indexed by
+ * {@code tier * TYPE_COUNT + type.ordinal()}.
+ * Tier 0 is the standard price list; further tiers (peak times, premium screenings) are optional.
+ */
+public final class PriceTable {
+
+    public static final int STANDARD_TIER = 0;
+    static final int TYPE_COUNT = TicketTypeRequest.Type.values().length;
+
+    private final int[] prices;
+    private final int tierCount;
+
+    /**
+     * Each argument is one tier's prices, indexed by {@link TicketTypeRequest.Type#ordinal()}.
+     */
+    public PriceTable(int[]... pricesByTier) {
+        if (pricesByTier.length == 0) {
+            throw new IllegalArgumentException("At least the standard price tier is required.");
+        }
+        this.tierCount = pricesByTier.length;
+        this.prices = new int[tierCount * TYPE_COUNT];
+        for (int tier = 0; tier < tierCount; tier++) {
+            int[] tierPrices = pricesByTier[tier];
+            if (tierPrices.length != TYPE_COUNT) {
+                throw new IllegalArgumentException(
+                        "Price tier " + tier + " must have a price for each of the " + TYPE_COUNT + " ticket types.");
+            }
+            for (int ordinal = 0; ordinal < TYPE_COUNT; ordinal++) {
+                if (tierPrices[ordinal] < 0) {
+                    throw new IllegalArgumentException("Ticket prices cannot be negative.");
+                }
+                prices[tier * TYPE_COUNT + ordinal] = tierPrices[ordinal];
+            }
+        }
+    }
+
+    public static PriceTable standard(int adultTicketPrice, int childTicketPrice) {
+        int[] tier = new int[TYPE_COUNT];
+        tier[TicketTypeRequest.Type.ADULT.ordinal()] = adultTicketPrice;
+        tier[TicketTypeRequest.Type.CHILD.ordinal()] = childTicketPrice;
+        return new PriceTable(tier);
+    }
+
+    /**
+     * A copy of this table with its standard tier taken from {@code standard}.
+     */
+    public PriceTable withStandardTier(PriceTable standard) {
+        int[][] pricesByTier = new int[tierCount][TYPE_COUNT];
+        for (int tier = 0; tier < tierCount; tier++) {
+            PriceTable source = tier == STANDARD_TIER ? standard : this;
+            System.arraycopy(source.prices, source.offset(tier), pricesByTier[tier], 0, TYPE_COUNT);
+        }
+        return new PriceTable(pricesByTier);
+    }
+
+    public int getTierCount() {
+        return tierCount;
+    }
+
+    public int price(int tier, TicketTypeRequest.Type type) {
+        return prices[offset(tier) + type.ordinal()];
+    }
+
+    int offset(int tier) {
+        if (tier < 0 || tier >= tierCount) {
+            throw new IllegalArgumentException("Unknown price tier: " + tier);
+        }
+        return tier * TYPE_COUNT;
+    }
+
+    int priceAt(int index) {
+        return prices[index];
+    }
+}
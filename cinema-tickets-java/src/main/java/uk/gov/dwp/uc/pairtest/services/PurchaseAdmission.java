@@ -0,0 +1,97 @@
+package uk.gov.dwp.uc.pairtest.services;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.PurchaseOverloadedException;
+import uk.gov.dwp.uc.pairtest.exception.ServiceUnavailableException;
+import uk.gov.dwp.uc.pairtest.resilience.AdaptiveConcurrencyLimit;
+
+/**
+ * Admission control for purchases, in front of everything else they do. Purchases beyond the
+ * {@link AdaptiveConcurrencyLimit} are turned away straight away with {@link PurchaseOverloadedException}.
+ * Small orders, of at most {@code smallOrderTickets} tickets, and returning customers may use the part of
+ * the limit reserved for priority purchases.
+ *
+ * <p>Returning customers are the accounts with a recent successful purchase, remembered in a
+ * direct-mapped table of account IDs: an account that collides with a later one is simply forgotten,
+ * so the table never grows and a lookup is a single read.
+ */
+public class PurchaseAdmission {
+
+    private static final long EMPTY = 0L;
+    private static final PurchaseOverloadedException OVERLOADED =
+            new PurchaseOverloadedException("Too many purchases in progress, please try again shortly.");
+
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final int smallOrderTickets;
+    private final AtomicLongArray recentAccounts;
+    private final int recentAccountShift;
+
+    public PurchaseAdmission(AdaptiveConcurrencyLimit concurrencyLimit, int smallOrderTickets, int recentAccounts) {
+        if (Integer.bitCount(recentAccounts) != 1 || recentAccounts < 2) {
+            throw new IllegalArgumentException("The recent account table needs a power of two size of at least 2.");
+        }
+        this.concurrencyLimit = concurrencyLimit;
+        this.smallOrderTickets = smallOrderTickets;
+        this.recentAccounts = new AtomicLongArray(recentAccounts);
+        this.recentAccountShift = 64 - Integer.numberOfTrailingZeros(recentAccounts);
+    }
+
+    /**
+     * Admits the purchase, which must then end with {@link #onSuccess} or {@link #onFailure}.
+     *
+     * @throws PurchaseOverloadedException if there is no room for it
+     */
+    public void admit(Long accountId, TicketTypeRequest... ticketTypeRequests) {
+        if (!concurrencyLimit.tryAcquire(isPriority(accountId, ticketTypeRequests))) {
+            throw OVERLOADED;
+        }
+    }
+
+    public void onSuccess(Long accountId, long latencyNanos) {
+        concurrencyLimit.onSuccess(latencyNanos);
+        if (accountId != null && accountId > 0) {
+            recentAccounts.lazySet(slot(accountId), accountId);
+        }
+    }
+
+    /**
+     * Shed or timed out gateway calls mean downstream is overloaded and lower the limit; any other
+     * failure, such as a rejected order, leaves it as it is.
+     */
+    public void onFailure(Throwable failure) {
+        if (failure instanceof ServiceUnavailableException
+                || failure.getCause() instanceof ServiceUnavailableException) {
+            concurrencyLimit.onDropped();
+        } else {
+            concurrencyLimit.onIgnored();
+        }
+    }
+
+    boolean isPriority(Long accountId, TicketTypeRequest... ticketTypeRequests) {
+        if (accountId != null && accountId > 0 && recentAccounts.get(slot(accountId)) == accountId) {
+            return true;
+        }
+        // Validation has not run yet, so anything unexpected just makes the order non-priority.
+        if (ticketTypeRequests == null) {
+            return false;
+        }
+        long tickets = 0;
+        for (TicketTypeRequest request : ticketTypeRequests) {
+            if (request == null || request.getNoOfTickets() < 0) {
+                return false;
+            }
+            tickets += request.getNoOfTickets();
+        }
+        return tickets <= smallOrderTickets;
+    }
+
+    private int slot(long accountId) {
+        return (int) ((accountId * 0x9E3779B97F4A7C15L) >>> recentAccountShift);
+    }
+
+    public AdaptiveConcurrencyLimit getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+}
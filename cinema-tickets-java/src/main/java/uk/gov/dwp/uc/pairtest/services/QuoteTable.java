@@ -0,0 +1,107 @@
+package uk.gov.dwp.uc.pairtest.services;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketSummary;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.utils.TicketAndAccountsValidations;
+
+/**
+ * Immutable Object: the summary of every valid order under one price table and ticket limit,
+ * precomputed into a dense array indexed by the ticket count of each type as the digits of a number
+ * in base {@code side = MAX_TICKET + 1}. Orders with the same counts per type always price the same,
+ * however their requests are split, so a quote is one lookup. Combinations the purchase
+ * validation rejects have no entry.
+ */
+final class QuoteTable {
+
+    /** Above this many cells (a {@code MAX_TICKET} of about 100) quotes are priced on every call instead. */
+    static final int MAX_CELLS = 1 << 20;
+    private static final TicketTypeRequest.Type[] TYPES = TicketTypeRequest.Type.values();
+    private static final int TYPE_COUNT = TYPES.length;
+
+    private final PriceTable priceTable;
+    private final int minTicket;
+    private final int maxTicket;
+    private final int side;
+    private final TicketSummary[] summaries;
+
+    private QuoteTable(PriceTable priceTable, int minTicket, int maxTicket, TicketSummary[] summaries) {
+        this.priceTable = priceTable;
+        this.minTicket = minTicket;
+        this.maxTicket = maxTicket;
+        this.side = maxTicket + 1;
+        this.summaries = summaries;
+    }
+
+    /**
+     * Prices and validates each combination with the same processor and validations a purchase uses,
+     * so a quote can never disagree with the purchase of the same order. Returns a table with no
+     * entries when the limit is too large to tabulate.
+     */
+    static QuoteTable build(TicketProcessor ticketProcessor, TicketAndAccountsValidations validations) {
+        // Read first: a table installed while building is picked up by the next staleness check.
+        final PriceTable priceTable = ticketProcessor.getPriceTable();
+        final int minTicket = validations.getMinTicket();
+        final int maxTicket = validations.getMaxTicket();
+        final int side = Math.max(maxTicket, 0) + 1;
+        long cells = 1;
+        for (int type = 0; type < TYPE_COUNT && cells <= MAX_CELLS; type++) {
+            cells *= side;
+        }
+        if (cells > MAX_CELLS) {
+            return new QuoteTable(priceTable, minTicket, maxTicket, new TicketSummary[0]);
+        }
+
+        final TicketSummary[] summaries = new TicketSummary[(int) cells];
+        final long[] counts = new long[TYPE_COUNT];
+        final TicketTypeRequest[] requests = new TicketTypeRequest[TYPE_COUNT];
+        for (int index = 0; index < summaries.length; index++) {
+            long tickets = 0;
+            for (int type = TYPE_COUNT - 1, rest = index; type >= 0; type--, rest /= side) {
+                counts[type] = rest % side;
+                tickets += counts[type];
+            }
+            if (tickets > maxTicket) {
+                continue;
+            }
+            for (int type = 0; type < TYPE_COUNT; type++) {
+                requests[type] = new TicketTypeRequest(TYPES[type], (int) counts[type]);
+            }
+            try {
+                validations.validateTicketRequests(requests);
+            } catch (InvalidPurchaseException e) {
+                continue;
+            }
+            summaries[index] = ticketProcessor.processCounts(PriceTable.STANDARD_TIER, counts);
+        }
+        return new QuoteTable(priceTable, minTicket, maxTicket, summaries);
+    }
+
+    /**
+     * False once the prices or ticket limits it was built from have changed.
+     */
+    boolean isCurrent(TicketProcessor ticketProcessor, TicketAndAccountsValidations validations) {
+        return ticketProcessor.getPriceTable() == priceTable
+                && validations.getMinTicket() == minTicket
+                && validations.getMaxTicket() == maxTicket;
+    }
+
+    /**
+     * The precomputed summary, or null when the combination is invalid or was not tabulated.
+     */
+    TicketSummary lookup(long[] counts) {
+        if (summaries.length == 0) {
+            return null;
+        }
+        long tickets = 0;
+        int index = 0;
+        for (long count : counts) {
+            tickets += count;
+            if (count < 0 || tickets > maxTicket) {
+                return null;
+            }
+            index = index * side + (int) count;
+        }
+        return summaries[index];
+    }
+}
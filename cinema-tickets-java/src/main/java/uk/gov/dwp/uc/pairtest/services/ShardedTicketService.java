@@ -0,0 +1,271 @@
+package uk.gov.dwp.uc.pairtest.services;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import uk.gov.dwp.uc.pairtest.domain.TicketSummary;
+import uk.gov.dwp.uc.pairtest.exception.OutcomeUnknownException;
+import uk.gov.dwp.uc.pairtest.exception.ServiceUnavailableException;
+import uk.gov.dwp.uc.pairtest.exception.ServiceUnavailableException.Reason;
+import uk.gov.dwp.uc.pairtest.utils.MpscArrayQueue;
+
+/**
+ * Books validated and priced orders on per-screening shards, for {@link TicketServiceImpl} to route
+ * screening purchases through. Every screening maps to one of a fixed number of shards, and each shard
+ * is a single thread draining its own bounded {@link MpscArrayQueue}. The shard thread only does the
+ * in-memory part of a booking, claiming the seats and counting the tickets against the account's cap,
+ * so claims for one screening are made one at a time, in arrival order and without locks. Payment and
+ * the seat reservation then run on the booking executor, and complete the booking's future, so a slow
+ * gateway never holds up the shard.
+ *
+ * <p>Screening IDs are unique across venues, so the screening alone picks the shard. A full shard
+ * queue is rejected straight away with {@link ServiceUnavailableException}, and a caller of
+ * {@link #book} waits at most {@code bookingTimeout}. Each shard's queue depth is published as
+ * {@code ticket.shard.queue.size}, tagged with the shard number.
+ */
+public class ShardedTicketService implements AutoCloseable {
+    Logger logger = LoggerFactory.getLogger(ShardedTicketService.class);
+
+    static final String SERVICE = "Screening shard";
+
+    private final BookTicketAndReserveSeat bookTicketAndReserveSeat;
+    private final Executor bookingExecutor;
+    private final long bookingTimeoutNanos;
+    private final Shard[] shards;
+
+    private volatile boolean running;
+    private volatile boolean closed;
+
+    public ShardedTicketService(BookTicketAndReserveSeat bookTicketAndReserveSeat, Executor bookingExecutor,
+            int shardCount, int queueCapacity, Duration bookingTimeout, MeterRegistry meterRegistry) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("At least one shard is needed.");
+        }
+        this.bookTicketAndReserveSeat = bookTicketAndReserveSeat;
+        this.bookingExecutor = bookingExecutor;
+        this.bookingTimeoutNanos = bookingTimeout.toNanos();
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(queueCapacity);
+            Gauge.builder("ticket.shard.queue.size", shards[i].queue, MpscArrayQueue::size)
+                    .tag("shard", Integer.toString(i)).register(meterRegistry);
+        }
+    }
+
+    // The shard's single writer; seats are only ever claimed on this thread.
+    private static final class Shard {
+        final MpscArrayQueue<Booking> queue;
+        volatile Thread thread;
+        volatile boolean waiting;
+
+        Shard(int queueCapacity) {
+            this.queue = new MpscArrayQueue<>(queueCapacity);
+        }
+    }
+
+    // One queued booking, completed with its summary once paid for and reserved.
+    private static final class Booking extends CompletableFuture<TicketSummary> {
+        final long screeningId;
+        final Long accountId;
+        final TicketSummary summary;
+        // The purchase's, so the booking logs under it on the shard and booking threads too.
+        final String correlationId;
+
+        Booking(long screeningId, Long accountId, TicketSummary summary, String correlationId) {
+            this.screeningId = screeningId;
+            this.accountId = accountId;
+            this.summary = summary;
+            this.correlationId = correlationId;
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * The shard that books a screening. Takes the high bits of a Fibonacci hash of the ID, so
+     * screening IDs that share a stride, such as one block of IDs per venue, still spread over every
+     * shard.
+     */
+    public int shardOf(long screeningId) {
+        long hash = screeningId * 0x9E3779B97F4A7C15L;
+        return (int) (((hash >>> 32) * shards.length) >>> 32);
+    }
+
+    /**
+     * Starts the shard threads; the first purchase starts them otherwise.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        closed = false;
+        for (int i = 0; i < shards.length; i++) {
+            Shard shard = shards[i];
+            shard.thread = Thread.ofPlatform().name("screening-shard-" + i).daemon().start(() -> run(shard));
+        }
+        running = true;
+    }
+
+    /**
+     * Stops taking purchases; those already queued still have their seats claimed and are handed to the
+     * booking executor, unless a shard does not finish within ten seconds.
+     */
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        closed = true;
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.thread);
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join(Math.max(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()), 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (shard.thread.isAlive()) {
+                logger.warn("Shard {} did not drain its queue within ten seconds", shard.thread.getName());
+                continue;
+            }
+            // Purchases that raced with closing are failed rather than left waiting.
+            for (Booking booking = shard.queue.poll(); booking != null; booking = shard.queue.poll()) {
+                booking.completeExceptionally(new ServiceUnavailableException(SERVICE, Reason.QUEUE_FULL));
+            }
+        }
+        running = false;
+    }
+
+    /**
+     * Blocks until the order has been booked on its screening's shard, and rethrows its failure as is.
+     *
+     * @throws OutcomeUnknownException if the booking did not finish within {@code bookingTimeout}; it
+     *         carries on, and may yet be paid for
+     */
+    public void book(long screeningId, Long accountId, TicketSummary summary) {
+        CompletableFuture<TicketSummary> booking = bookAsync(screeningId, accountId, summary);
+        try {
+            booking.get(bookingTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new OutcomeUnknownException(SERVICE, booking.thenAccept(booked -> { }));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OutcomeUnknownException(SERVICE, booking.thenAccept(booked -> { }));
+        }
+    }
+
+    /**
+     * Queues the booking of a validated and priced order on the screening's shard. A full or closed
+     * shard completes the returned future exceptionally, as does any failure of the booking itself.
+     */
+    public CompletableFuture<TicketSummary> bookAsync(long screeningId, Long accountId, TicketSummary summary) {
+        if (!running && !closed) {
+            start();
+        }
+        Shard shard = shards[shardOf(screeningId)];
+        Booking booking = new Booking(screeningId, accountId, summary, MDC.get(TicketServiceImpl.CORRELATION_ID));
+        if (closed || !shard.queue.offer(booking)) {
+            booking.completeExceptionally(new ServiceUnavailableException(SERVICE, Reason.QUEUE_FULL));
+            return booking;
+        }
+        if (shard.waiting) {
+            LockSupport.unpark(shard.thread);
+        }
+        return booking;
+    }
+
+    private void run(Shard shard) {
+        while (true) {
+            Booking booking = shard.queue.poll();
+            if (booking == null) {
+                if (closed) {
+                    return;
+                }
+                await(shard);
+                continue;
+            }
+            correlate(booking);
+            try {
+                claim(booking);
+            } finally {
+                MDC.remove(TicketServiceImpl.CORRELATION_ID);
+            }
+        }
+    }
+
+    private void claim(Booking booking) {
+        final int[] seats;
+        try {
+            seats = bookTicketAndReserveSeat.claimSeats(booking.screeningId, booking.accountId, booking.summary);
+        } catch (RuntimeException e) {
+            fail(booking, e);
+            return;
+        }
+        try {
+            bookingExecutor.execute(() -> pay(booking, seats));
+        } catch (RejectedExecutionException e) {
+            bookTicketAndReserveSeat.releaseClaimedSeats(booking.screeningId, booking.accountId, booking.summary,
+                    seats);
+            fail(booking, new ServiceUnavailableException(SERVICE, Reason.QUEUE_FULL));
+        }
+    }
+
+    private void pay(Booking booking, int[] seats) {
+        correlate(booking);
+        try {
+            bookTicketAndReserveSeat.makePaymentAndReserveClaimedSeats(booking.screeningId, booking.accountId,
+                    booking.summary, seats);
+            booking.complete(booking.summary);
+        } catch (RuntimeException e) {
+            fail(booking, e);
+        } finally {
+            MDC.remove(TicketServiceImpl.CORRELATION_ID);
+        }
+    }
+
+    private static void correlate(Booking booking) {
+        if (booking.correlationId != null) {
+            MDC.put(TicketServiceImpl.CORRELATION_ID, booking.correlationId);
+        }
+    }
+
+    private void fail(Booking booking, RuntimeException e) {
+        logger.debug("Booking failed for account {} on screening {}: {}", booking.accountId,
+                booking.screeningId, e.getMessage());
+        booking.completeExceptionally(e);
+    }
+
+    private void await(Shard shard) {
+        shard.waiting = true;
+        // Checked again after publishing the flag, so a purchase queued in between is not missed.
+        if (shard.queue.isEmpty() && !closed) {
+            LockSupport.park(this);
+        } else {
+            // A producer has claimed a slot but not filled it yet; let it run.
+            Thread.yield();
+        }
+        shard.waiting = false;
+    }
+}
@@ -2,58 +2,122 @@ package uk.gov.dwp.uc.pairtest.services;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import uk.gov.dwp.uc.pairtest.config.TicketConfig;
+import uk.gov.dwp.uc.pairtest.config.TicketConfigSource;
 import uk.gov.dwp.uc.pairtest.domain.TicketSummary;
 import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
 
 @Component
 public class TicketProcessor {
     Logger logger= LoggerFactory.getLogger(TicketProcessor.class);
 
-    @Value("${CHILD_TICKET_PRICE}")
-    private int childTicketPrice;
-    @Value("${ADULT_TICKET_PRICE}")
-    private int adultTicketPrice;
+    private static final TicketTypeRequest.Type[] TYPES = TicketTypeRequest.Type.values();
 
-     
+    private final TicketConfigSource ticketConfigSource;
+    // Tiers above the standard one, such as peak times, when installed.
+    private volatile PriceTable priceTiers;
+    // The installed tiers under the standard prices of one configuration snapshot.
+    private volatile MergedPriceTable merged;
+
+    public TicketProcessor(TicketConfigSource ticketConfigSource) {
+        this.ticketConfigSource = ticketConfigSource;
+    }
+
+    /**
+     * The prices in force. The standard tier always comes from the current configuration, so a
+     * reload reprices it; installed tiers only add the ones above it. The same instance is returned
+     * until either changes.
+     */
+    public PriceTable getPriceTable() {
+        final TicketConfig config = ticketConfigSource.get();
+        final PriceTable tiers = priceTiers;
+        if (tiers == null) {
+            return config.getPriceTable();
+        }
+        MergedPriceTable table = merged;
+        if (table == null || table.config != config || table.tiers != tiers) {
+            table = new MergedPriceTable(config, tiers, tiers.withStandardTier(config.getPriceTable()));
+            merged = table;
+        }
+        return table.priceTable;
+    }
+
+    /**
+     * Installs price tiers above the standard one. The table's own standard tier is ignored in favour
+     * of the configured prices.
+     */
+    public void setPriceTable(PriceTable priceTiers) {
+        this.priceTiers = priceTiers;
+    }
+
+    private static final class MergedPriceTable {
+        final TicketConfig config;
+        final PriceTable tiers;
+        final PriceTable priceTable;
+
+        MergedPriceTable(TicketConfig config, PriceTable tiers, PriceTable priceTable) {
+            this.config = config;
+            this.tiers = tiers;
+            this.priceTable = priceTable;
+        }
+    }
 
- 
     public TicketSummary processTickets(TicketTypeRequest... ticketTypeRequests) {
+        return processTickets(PriceTable.STANDARD_TIER, ticketTypeRequests);
+    }
+
+    /**
+     * Prices an order against one tier of the price table. The loop only counts tickets per type;
+     * price and seats are then a single pass over the ticket types.
+     */
+    public TicketSummary processTickets(int priceTier, TicketTypeRequest... ticketTypeRequests) {
 
-        logger.info("Processing ticket requests...");
+        logger.debug("Processing ticket requests...");
 
-        logger.debug("Child Ticket Price: {}", childTicketPrice);
-        logger.debug("Adult Ticket Price: {}", adultTicketPrice);
-        var totalTickets = 0;
-        var totalSeats = 0;
-        var totalPrice = 0;
-        var infantTickets = 0;
-        var adultTickets = 0;
-        var childTickets = 0;
+        return processCounts(priceTier, countByType(ticketTypeRequests));
+    }
 
+    /**
+     * Tickets per type, indexed by {@link TicketTypeRequest.Type#ordinal()}.
+     */
+    static long[] countByType(TicketTypeRequest... ticketTypeRequests) {
+        final long[] counts = new long[TYPES.length];
         for (TicketTypeRequest request : ticketTypeRequests) {
-            int numberOfTickets = request.getNoOfTickets();
-            totalTickets += numberOfTickets;
-
-            switch (request.getTicketType()) {
-                case ADULT:
-                    totalPrice += numberOfTickets * adultTicketPrice;
-                    totalSeats += numberOfTickets;
-                    adultTickets += numberOfTickets;
-                    break;
-                case CHILD:
-                    totalPrice += numberOfTickets * childTicketPrice;
-                    totalSeats += numberOfTickets;
-                    childTickets += numberOfTickets;
-                    break;
-                case INFANT:
-                    // Infants do not pay and are not allocated a seat.
-                    infantTickets += numberOfTickets;
-                    break;
-            }
+            counts[request.getTicketType().ordinal()] += request.getNoOfTickets();
+        }
+        return counts;
+    }
+
+    /**
+     * Prices tickets already counted per type. Counts and totals are checked against the int range so
+     * an oversized order is rejected rather than silently wrapping.
+     */
+    TicketSummary processCounts(int priceTier, long[] counts) {
+        final PriceTable table = getPriceTable();
+        final int offset = table.offset(priceTier);
+        int totalTickets = 0;
+        int totalPrice = 0;
+        int totalSeats = 0;
+        for (TicketTypeRequest.Type type : TYPES) {
+            final int tickets = toInt(counts[type.ordinal()]);
+            totalTickets = toInt((long) totalTickets + tickets);
+            totalPrice = toInt(totalPrice + (long) tickets * table.priceAt(offset + type.ordinal()));
+            totalSeats = toInt(totalSeats + (long) tickets * type.getSeatsPerTicket());
+        }
+
+        return new TicketSummary(totalTickets, totalSeats, totalPrice,
+                (int) counts[TicketTypeRequest.Type.ADULT.ordinal()],
+                (int) counts[TicketTypeRequest.Type.CHILD.ordinal()],
+                (int) counts[TicketTypeRequest.Type.INFANT.ordinal()]);
+    }
+
+    private static int toInt(long total) {
+        if (total > Integer.MAX_VALUE || total < Integer.MIN_VALUE) {
+            throw new InvalidPurchaseException("Ticket order is too large.");
         }
-        return new TicketSummary(totalTickets, totalSeats, totalPrice, adultTickets, childTickets, infantTickets);
+        return (int) total;
     }
     
 }
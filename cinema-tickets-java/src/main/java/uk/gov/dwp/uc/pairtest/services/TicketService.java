@@ -1,5 +1,10 @@
 package uk.gov.dwp.uc.pairtest.services;
 
+import java.util.List;
+
+import uk.gov.dwp.uc.pairtest.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketSummary;
 import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
 import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
 
@@ -7,4 +12,37 @@ public interface TicketService {
 
     void purchaseTickets(Long accountId, TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException;
 
+    /**
+     * Purchases at most once per {@code idempotencyKey}: a retry with a key that already succeeded
+     * returns the earlier summary without calling the payment or seat reservation services again.
+     * A null key behaves like {@link #purchaseTickets(Long, TicketTypeRequest...)}.
+     */
+    TicketSummary purchaseTickets(String idempotencyKey, Long accountId, TicketTypeRequest... ticketTypeRequests)
+            throws InvalidPurchaseException;
+
+    /**
+     * Purchases tickets for one screening, at most once per {@code idempotencyKey} like
+     * {@link #purchaseTickets(String, Long, TicketTypeRequest...)}. The seats come from that screening
+     * and the tickets count towards the account's cap for it.
+     */
+    TicketSummary purchaseTickets(String idempotencyKey, long screeningId, Long accountId,
+            TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException;
+
+    /**
+     * Buys the seats of a hold placed earlier: the order is validated, priced and paid for like any other
+     * purchase, and only then are the held seats reserved. The order must be for as many seats as the
+     * hold. Once the order is accepted the hold is used up, and its seats go back to the pool if the
+     * payment or the reservation fails.
+     */
+    TicketSummary purchaseHeldTickets(String idempotencyKey, long holdId, Long accountId,
+            TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException;
+
+    List<PurchaseResult> purchaseTicketsBatch(List<PurchaseOrder> orders);
+
+    /**
+     * Prices an order exactly as a purchase would, rejecting it for the same reasons, but without
+     * an account: nothing is charged, reserved, recorded or counted against a rate limit.
+     */
+    TicketSummary quote(TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException;
+
 }
@@ -1,74 +1,342 @@
 package uk.gov.dwp.uc.pairtest.services;
 
-
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.slf4j.Logger;
 
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import uk.gov.dwp.uc.pairtest.config.TicketConfig;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
 import uk.gov.dwp.uc.pairtest.domain.ResponseFormat;
 import uk.gov.dwp.uc.pairtest.domain.TicketSummary;
 import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
 import uk.gov.dwp.uc.pairtest.exception.InvalidCustomerUserTypeException;
 import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.OutcomeUnknownException;
+import uk.gov.dwp.uc.pairtest.exception.SeatsPendingException;
 import uk.gov.dwp.uc.pairtest.exception.TicketCountException;
+import uk.gov.dwp.uc.pairtest.inventory.SeatHold;
+import uk.gov.dwp.uc.pairtest.inventory.SeatHolds;
+import uk.gov.dwp.uc.pairtest.utils.ExpiringLruCache;
+import uk.gov.dwp.uc.pairtest.utils.PurchaseMetrics;
+import uk.gov.dwp.uc.pairtest.utils.PurchaseMetrics.Stage;
+import uk.gov.dwp.uc.pairtest.utils.RateLimitedLogger;
 import uk.gov.dwp.uc.pairtest.utils.TicketAndAccountsValidations;
 
 @Service
 public class TicketServiceImpl implements TicketService {
 
-    Logger logger = LoggerFactory.getLogger(TicketServiceImpl.class);
+    public static final String CORRELATION_ID = "correlationId";
 
-    @Value("${MIN_TICKET}")
-    private int minTicket;
-    @Value("${MAX_TICKET}")
-    private int maxTicket;
+    Logger logger = LoggerFactory.getLogger(TicketServiceImpl.class);
+    private final RateLimitedLogger purchaseLog = new RateLimitedLogger(logger, 100);
 
     @Value("${EMPTY_STRING}")
     private String emptyString;
 
+    @Value("${PURCHASE_INFO_LOGS_PER_SECOND:100}")
+    void setPurchaseInfoLogsPerSecond(int purchaseInfoLogsPerSecond) {
+        purchaseLog.setMaxPerSecond(purchaseInfoLogsPerSecond);
+    }
+
     private  final TicketProcessor ticketProcessor;
     private final BookTicketAndReserveSeat bookTicketAndReserveSeat;
     private final TicketAndAccountsValidations ticketAndAccountsValidations;
-    private TicketSummary ticketSummary = null;
-  
+    private final ExpiringLruCache<String, PurchaseResult> purchaseOutcomeCache;
+    private final PurchaseMetrics purchaseMetrics;
+
+    // Built on first quote, and rebuilt when the prices or ticket limits change.
+    private volatile QuoteTable quoteTable;
+    private PurchaseAdmission purchaseAdmission;
+    private ShardedTicketService shardedTicketService;
+    private SeatHolds seatHolds;
+
+    // The last stage of a purchase, which pays for and reserves the validated and priced order.
+    @FunctionalInterface
+    private interface Booking {
+        void book(Long accountId, TicketSummary ticketSummary);
+    }
 
     public TicketServiceImpl(
             TicketProcessor ticketProcessor,
             BookTicketAndReserveSeat bookTicketAndReserveSeat,
             TicketAndAccountsValidations ticketAndAccountsValidations) {
 
+        this(ticketProcessor, bookTicketAndReserveSeat, ticketAndAccountsValidations,
+                new ExpiringLruCache<>(10_000, Duration.ofMinutes(10), 16, OutcomeUnknownException::isOutcomeUnknown),
+                PurchaseMetrics.disabled());
+    }
+
+    @Autowired
+    public TicketServiceImpl(
+            TicketProcessor ticketProcessor,
+            BookTicketAndReserveSeat bookTicketAndReserveSeat,
+            TicketAndAccountsValidations ticketAndAccountsValidations,
+            ExpiringLruCache<String, PurchaseResult> purchaseOutcomeCache,
+            PurchaseMetrics purchaseMetrics) {
+
         this.ticketProcessor = ticketProcessor;
         this.bookTicketAndReserveSeat = bookTicketAndReserveSeat;
         this.ticketAndAccountsValidations = ticketAndAccountsValidations;
+        this.purchaseOutcomeCache = purchaseOutcomeCache;
+        this.purchaseMetrics = purchaseMetrics;
+    }
+
+    @Autowired(required = false)
+    public void setPurchaseAdmission(PurchaseAdmission purchaseAdmission) {
+        this.purchaseAdmission = purchaseAdmission;
+    }
+
+    /**
+     * With sharded booking, purchases for a screening are booked on that screening's shard.
+     */
+    @Autowired(required = false)
+    public void setShardedTicketService(ShardedTicketService shardedTicketService) {
+        this.shardedTicketService = shardedTicketService;
+    }
+
+    @Autowired(required = false)
+    public void setSeatHolds(SeatHolds seatHolds) {
+        this.seatHolds = seatHolds;
     }
 
     public TicketTypeRequest createTicketRequest(TicketTypeRequest.Type type, int noOfTickets) {
         if (type == null) {
             throw new InvalidCustomerUserTypeException(emptyString);
         }
-        if (noOfTickets < minTicket || noOfTickets > maxTicket) {
+        // The limits the validations enforce, from one snapshot so a reload cannot mix old and new.
+        final TicketConfig config = ticketAndAccountsValidations.getTicketConfig();
+        final int min = config.getMinTicket();
+        final int max = config.getMaxTicket();
+        if (noOfTickets < min || noOfTickets > max) {
             throw new TicketCountException(
-                    ResponseFormat.INVALID_TICKET_COUNT.responseMessage(minTicket, maxTicket));
+                    ResponseFormat.INVALID_TICKET_COUNT.responseMessage(min, max));
         }
         
         return new TicketTypeRequest(type, noOfTickets);
     }
 
+    /**
+     * Stateless per call: the summary lives on the calling thread's stack only, so the
+     * singleton can serve any number of concurrent purchases without locking.
+     */
     @Override
     public void purchaseTickets(Long accountId, TicketTypeRequest... ticketTypeRequests)
             throws InvalidPurchaseException {
 
-       
-                ticketAndAccountsValidations.validateAccountId(accountId);
-                ticketSummary = ticketProcessor.processTickets(ticketTypeRequests);
-                ticketAndAccountsValidations.validateTicketPurchase(ticketSummary);
-                bookTicketAndReserveSeat.makePaymentAndReserveSeats(accountId, ticketSummary);
-           
-       
+        purchase(this::bookDefaultScreening, accountId, ticketTypeRequests);
+    }
+
+    @Override
+    public TicketSummary purchaseTickets(String idempotencyKey, Long accountId,
+            TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException {
+
+        return idempotentPurchase(idempotencyKey, this::bookDefaultScreening, accountId, ticketTypeRequests);
+    }
+
+    @Override
+    public TicketSummary purchaseTickets(String idempotencyKey, long screeningId, Long accountId,
+            TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException {
+
+        return idempotentPurchase(idempotencyKey,
+                (account, summary) -> bookScreening(screeningId, account, summary), accountId, ticketTypeRequests);
+    }
+
+    @Override
+    public TicketSummary purchaseHeldTickets(String idempotencyKey, long holdId, Long accountId,
+            TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException {
+
+        return idempotentPurchase(idempotencyKey,
+                (account, summary) -> bookHeldSeats(holdId, account, summary), accountId, ticketTypeRequests);
+    }
+
+    private TicketSummary idempotentPurchase(String idempotencyKey, Booking booking, Long accountId,
+            TicketTypeRequest... ticketTypeRequests) {
+
+        if (idempotencyKey == null) {
+            return purchase(booking, accountId, ticketTypeRequests);
+        }
+
+        // Concurrent duplicates wait for the first caller instead of charging again.
+        PurchaseResult result = purchaseOutcomeCache.getOrCompute(idempotencyKey,
+                () -> purchaseResult(booking, accountId, ticketTypeRequests));
+
+        if (!result.getOrder().getAccountId().equals(accountId)) {
+            throw new InvalidPurchaseException("Idempotency key was already used by another account.");
+        }
+        if (result.isPending()) {
+            throw new SeatsPendingException(result.getSummary());
+        }
+        return result.getSummary();
+    }
+
+    /**
+     * A purchase whose seats were deferred is remembered as pending, so a retry neither pays again
+     * nor is told it succeeded.
+     */
+    private PurchaseResult purchaseResult(Booking booking, Long accountId, TicketTypeRequest... ticketTypeRequests) {
+        PurchaseOrder order = new PurchaseOrder(accountId, ticketTypeRequests);
+        try {
+            return PurchaseResult.succeeded(order, purchase(booking, accountId, ticketTypeRequests));
+        } catch (SeatsPendingException e) {
+            return PurchaseResult.pending(order, e.getSummary(), e.getMessage());
+        }
+    }
+
+    /**
+     * Turns the purchase away straight away when admission control has no room for it, and otherwise
+     * reports how it went so the concurrency limit can follow the latency.
+     */
+    private TicketSummary purchase(Booking booking, Long accountId, TicketTypeRequest... ticketTypeRequests) {
+        final PurchaseAdmission admission = purchaseAdmission;
+        if (admission == null) {
+            return correlatedPurchase(booking, accountId, ticketTypeRequests);
+        }
+        admission.admit(accountId, ticketTypeRequests);
+        final long start = System.nanoTime();
+        final TicketSummary ticketSummary;
+        try {
+            ticketSummary = correlatedPurchase(booking, accountId, ticketTypeRequests);
+        } catch (RuntimeException | Error e) {
+            admission.onFailure(e);
+            throw e;
+        }
+        admission.onSuccess(accountId, System.nanoTime() - start);
+        return ticketSummary;
+    }
+
+    /**
+     * Tags every log line of the purchase with a correlation ID, reusing one set by the caller.
+     */
+    private TicketSummary correlatedPurchase(Booking booking, Long accountId,
+            TicketTypeRequest... ticketTypeRequests) {
+        if (MDC.get(CORRELATION_ID) != null) {
+            return purchaseWithinCorrelation(booking, accountId, ticketTypeRequests);
+        }
+        MDC.put(CORRELATION_ID, Long.toHexString(ThreadLocalRandom.current().nextLong()));
+        try {
+            return purchaseWithinCorrelation(booking, accountId, ticketTypeRequests);
+        } finally {
+            MDC.remove(CORRELATION_ID);
+        }
+    }
+
+    private TicketSummary purchaseWithinCorrelation(Booking booking, Long accountId,
+            TicketTypeRequest... ticketTypeRequests) {
+        final TicketSummary ticketSummary;
+        Stage stage = Stage.VALIDATE_ACCOUNT_ID;
+        long start = System.nanoTime();
+        try {
+            ticketAndAccountsValidations.validateAccountId(accountId);
+            start = purchaseMetrics.success(stage, start);
+
+            stage = Stage.VALIDATE_TICKET_REQUESTS;
+            ticketAndAccountsValidations.validateTicketRequests(ticketTypeRequests);
+            start = purchaseMetrics.success(stage, start);
+
+            stage = Stage.PROCESS_TICKETS;
+            ticketSummary = ticketProcessor.processTickets(ticketTypeRequests);
+            start = purchaseMetrics.success(stage, start);
+
+            stage = Stage.VALIDATE_TICKET_PURCHASE;
+            ticketAndAccountsValidations.validateTicketPurchase(ticketSummary);
+            purchaseMetrics.success(stage, start);
+        } catch (RuntimeException e) {
+            purchaseMetrics.failure(stage, start, e);
+            throw e;
+        }
+
+        booking.book(accountId, ticketSummary);
+        purchaseLog.atInfo()
+                .addKeyValue("accountId", accountId)
+                .addKeyValue("tickets", ticketSummary.getTotalTickets())
+                .addKeyValue("totalPrice", ticketSummary.getTotalPrice())
+                .log("Tickets purchased");
+        return ticketSummary;
+    }
+
+    private void bookDefaultScreening(Long accountId, TicketSummary ticketSummary) {
+        bookTicketAndReserveSeat.makePaymentAndReserveSeats(accountId, ticketSummary);
+    }
+
+    private void bookScreening(long screeningId, Long accountId, TicketSummary ticketSummary) {
+        final ShardedTicketService sharded = shardedTicketService;
+        if (sharded != null) {
+            sharded.book(screeningId, accountId, ticketSummary);
+        } else {
+            bookTicketAndReserveSeat.makePaymentAndReserveSeats(screeningId, accountId, ticketSummary);
+        }
+    }
+
+    // The hold is only taken once the order has been validated and priced, and is paid for before its
+    // seats are reserved.
+    private void bookHeldSeats(long holdId, Long accountId, TicketSummary ticketSummary) {
+        final SeatHolds holds = seatHolds;
+        if (holds == null) {
+            throw new IllegalStateException("Seat holds are not enabled.");
+        }
+        SeatHold hold = holds.take(holdId, accountId, ticketSummary.getTotalSeats());
+        bookTicketAndReserveSeat.makePaymentAndReserveHeldSeats(hold.getScreeningId(), accountId, ticketSummary,
+                hold.getSeats());
+    }
+
+    /**
+     * Validates and prices every order in one pass, then hands the accepted ones to the gateways in
+     * batches. One result is returned per order, in order; a rejected order never fails its neighbours.
+     */
+    @Override
+    public List<PurchaseResult> purchaseTicketsBatch(List<PurchaseOrder> orders) {
+        final PurchaseResult[] results = new PurchaseResult[orders.size()];
+        final TicketSummary[] summaries = new TicketSummary[orders.size()];
+
+        for (int i = 0; i < results.length; i++) {
+            PurchaseOrder order = orders.get(i);
+            try {
+                ticketAndAccountsValidations.validateAccountId(order.getAccountId());
+                ticketAndAccountsValidations.validateTicketRequests(order.getTicketTypeRequests());
+                summaries[i] = ticketProcessor.processTickets(order.getTicketTypeRequests());
+                ticketAndAccountsValidations.validateTicketPurchase(summaries[i]);
+            } catch (RuntimeException e) {
+                results[i] = PurchaseResult.failed(order, summaries[i], e.getMessage());
+            }
+        }
+
+        bookTicketAndReserveSeat.makePaymentsAndReserveSeats(orders, summaries, results);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Validates the requests, then looks the summary up by the ticket count of each type. Every
+     * combination that passes the validation is in the table, so the fallback only prices orders
+     * when the limits are too large to tabulate.
+     */
+    @Override
+    public TicketSummary quote(TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException {
+        ticketAndAccountsValidations.validateTicketRequests(ticketTypeRequests);
+
+        TicketSummary summary = quoteTable().lookup(TicketProcessor.countByType(ticketTypeRequests));
+        if (summary == null) {
+            summary = ticketProcessor.processTickets(ticketTypeRequests);
+            ticketAndAccountsValidations.validateTicketPurchase(summary);
+        }
+        return summary;
+    }
+
+    private QuoteTable quoteTable() {
+        QuoteTable table = quoteTable;
+        if (table == null || !table.isCurrent(ticketProcessor, ticketAndAccountsValidations)) {
+            table = QuoteTable.build(ticketProcessor, ticketAndAccountsValidations);
+            quoteTable = table;
+        }
+        return table;
     }
 }
@@ -0,0 +1,160 @@
+package uk.gov.dwp.uc.pairtest.utils;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-account token bucket: {@code permitsPerSecond} sustained with bursts of up to {@code burst}.
+ * Each bucket is kept as a single "theoretical arrival time" (the GCRA form of a token bucket), in
+ * primitive open-addressing tables spread over independently locked stripes, so a check allocates nothing.
+ *
+ * <p>A stripe holds at most {@code maxAccounts / stripes} accounts. When it is full, accounts whose
+ * bucket has refilled completely are idle and are dropped, which loses nothing. If every tracked
+ * account is still active, a new account is let through untracked rather than turned away.
+ */
+public class AccountRateLimiter {
+
+    private static final long EMPTY = 0L;
+
+    private final Stripe[] stripes;
+    private final int stripeShift;
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final LongSupplier nanoClock;
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public AccountRateLimiter(double permitsPerSecond, int burst, int maxAccounts, int stripeCount) {
+        this(permitsPerSecond, burst, maxAccounts, stripeCount, System::nanoTime);
+    }
+
+    public AccountRateLimiter(double permitsPerSecond, int burst, int maxAccounts, int stripeCount,
+            LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0 || burst < 1 || Integer.bitCount(stripeCount) != 1 || maxAccounts < stripeCount) {
+            throw new IllegalArgumentException("Rate limits need a positive rate and burst, a power of two "
+                    + "stripe count and at least one account per stripe.");
+        }
+        this.emissionIntervalNanos = Math.max(1L, (long) (1_000_000_000L / permitsPerSecond));
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+        this.nanoClock = nanoClock;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(maxAccounts / stripeCount);
+        }
+        this.stripeShift = 64 - Integer.numberOfTrailingZeros(stripeCount);
+    }
+
+    /**
+     * Takes a permit for {@code accountId}, which must be positive. Returns false when the account
+     * has none left.
+     */
+    public boolean tryAcquire(long accountId) {
+        long hash = accountId * 0x9E3779B97F4A7C15L;
+        Stripe stripe = stripes[stripeShift == 64 ? 0 : (int) (hash >>> stripeShift)];
+        long now = nanoClock.getAsLong();
+        boolean acquired;
+        synchronized (stripe) {
+            acquired = stripe.tryAcquire(accountId, (int) hash, now);
+        }
+        if (!acquired) {
+            rejections.increment();
+        }
+        return acquired;
+    }
+
+    public long getRejectedCount() {
+        return rejections.sum();
+    }
+
+    public long getEvictedCount() {
+        return evictions.sum();
+    }
+
+    public int getTrackedAccounts() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    private final class Stripe {
+        private final int maxSize;
+        private long[] keys;
+        private long[] arrivals;
+        private int size;
+        private long nextSweepAt;
+
+        Stripe(int maxSize) {
+            this.maxSize = maxSize;
+            // Kept at most half full so probe sequences stay short.
+            int capacity = Integer.highestOneBit(Math.max(2, maxSize * 2 - 1)) << 1;
+            this.keys = new long[capacity];
+            this.arrivals = new long[capacity];
+            this.nextSweepAt = nanoClock.getAsLong();
+        }
+
+        boolean tryAcquire(long accountId, int hash, long now) {
+            int slot = slot(accountId, hash);
+            long arrival;
+            if (keys[slot] == accountId) {
+                arrival = Math.max(arrivals[slot], now);
+                if (arrival - now > burstToleranceNanos) {
+                    return false;
+                }
+            } else {
+                if (size == maxSize) {
+                    if (now - nextSweepAt < 0) {
+                        return true;
+                    }
+                    sweep(now);
+                    if (size == maxSize) {
+                        return true;
+                    }
+                    slot = slot(accountId, hash);
+                }
+                keys[slot] = accountId;
+                size++;
+                arrival = now;
+            }
+            arrivals[slot] = arrival + emissionIntervalNanos;
+            return true;
+        }
+
+        private int slot(long accountId, int hash) {
+            int mask = keys.length - 1;
+            int slot = hash & mask;
+            while (keys[slot] != EMPTY && keys[slot] != accountId) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        // Drops every account whose bucket is full again and remembers when the next one will be.
+        private void sweep(long now) {
+            long[] oldKeys = keys;
+            long[] oldArrivals = arrivals;
+            keys = new long[oldKeys.length];
+            arrivals = new long[oldArrivals.length];
+            size = 0;
+            long earliest = Long.MAX_VALUE;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == EMPTY) {
+                    continue;
+                }
+                if (oldArrivals[i] - now <= 0) {
+                    evictions.increment();
+                    continue;
+                }
+                int slot = slot(oldKeys[i], (int) (oldKeys[i] * 0x9E3779B97F4A7C15L));
+                keys[slot] = oldKeys[i];
+                arrivals[slot] = oldArrivals[i];
+                size++;
+                earliest = Math.min(earliest, oldArrivals[i]);
+            }
+            nextSweepAt = size == 0 ? now : earliest;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package uk.gov.dwp.uc.pairtest.utils;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, expiring cache of recent results. Keys are spread over independently locked LRU segments,
+ * and concurrent callers with the same key share a single computation (single-flight). Values that
+ * were computed successfully are kept, and so are the failures matching {@code rememberedFailures},
+ * which are thrown again to every caller until they expire; any other failed computation is forgotten
+ * so it can be retried.
+ *
+ * <p>An entry still being computed is never evicted, as its callers wait on it: the least recently
+ * used finished entry goes instead, and a segment whose entries are all in flight may briefly hold
+ * more than its share of {@code maximumSize}.
+ */
+public class ExpiringLruCache<K, V> {
+
+    private final Segment<K, V>[] segments;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final Predicate<? super Throwable> rememberedFailures;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ExpiringLruCache(int maximumSize, Duration ttl, int segmentCount) {
+        this(maximumSize, ttl, segmentCount, failure -> false);
+    }
+
+    public ExpiringLruCache(int maximumSize, Duration ttl, int segmentCount,
+            Predicate<? super Throwable> rememberedFailures) {
+        this(maximumSize, ttl, segmentCount, rememberedFailures, System::nanoTime);
+    }
+
+    public ExpiringLruCache(int maximumSize, Duration ttl, int segmentCount, LongSupplier nanoClock) {
+        this(maximumSize, ttl, segmentCount, failure -> false, nanoClock);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ExpiringLruCache(int maximumSize, Duration ttl, int segmentCount,
+            Predicate<? super Throwable> rememberedFailures, LongSupplier nanoClock) {
+        if (maximumSize < segmentCount || segmentCount <= 0) {
+            throw new IllegalArgumentException("The cache needs at least one entry per segment.");
+        }
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(maximumSize / segmentCount, evictions);
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        this.rememberedFailures = rememberedFailures;
+    }
+
+    /**
+     * Returns the cached value for {@code key}, waiting for it if another caller is computing it, or
+     * computes it with {@code loader}. Whatever the loader throws, errors included, reaches every
+     * waiting caller.
+     */
+    public V getOrCompute(K key, Supplier<V> loader) {
+        Segment<K, V> segment = segments[(key.hashCode() & Integer.MAX_VALUE) % segments.length];
+        Entry<V> entry;
+        boolean owner = false;
+
+        synchronized (segment) {
+            entry = segment.get(key);
+            if (entry != null && entry.value.isDone() && entry.expiresAt - nanoClock.getAsLong() <= 0) {
+                segment.remove(key);
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new Entry<>();
+                segment.put(key, entry);
+                owner = true;
+            }
+        }
+
+        if (!owner) {
+            hits.increment();
+            return join(entry.value);
+        }
+
+        misses.increment();
+        V value = null;
+        Throwable failure = null;
+        try {
+            value = loader.get();
+            return value;
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            // Always complete the entry, or the callers waiting on it would wait forever.
+            complete(segment, key, entry, value, failure);
+        }
+    }
+
+    private void complete(Segment<K, V> segment, K key, Entry<V> entry, V value, Throwable failure) {
+        if (failure == null) {
+            entry.expiresAt = nanoClock.getAsLong() + ttlNanos;
+            entry.value.complete(value);
+            return;
+        }
+        if (rememberedFailures.test(failure)) {
+            entry.expiresAt = nanoClock.getAsLong() + ttlNanos;
+        } else {
+            synchronized (segment) {
+                segment.remove(key, entry);
+            }
+        }
+        entry.value.completeExceptionally(failure);
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private static <V> V join(CompletableFuture<V> value) {
+        try {
+            return value.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Entry<V> {
+        final CompletableFuture<V> value = new CompletableFuture<>();
+        // Only read once the value is done; in-flight entries never expire.
+        volatile long expiresAt;
+    }
+
+    private static final class Segment<K, V> extends LinkedHashMap<K, Entry<V>> {
+        private final int capacity;
+        private final LongAdder evictions;
+
+        Segment(int capacity, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        // Evicts the least recently used finished entry itself, so in-flight entries stay pinned.
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+            if (size() <= capacity) {
+                return false;
+            }
+            for (Iterator<Entry<V>> it = values().iterator(); it.hasNext(); ) {
+                if (it.next().value.isDone()) {
+                    it.remove();
+                    evictions.increment();
+                    return false;
+                }
+            }
+            return false;
+        }
+    }
+}
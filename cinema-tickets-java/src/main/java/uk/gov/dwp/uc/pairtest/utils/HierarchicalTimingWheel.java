@@ -0,0 +1,177 @@
+package uk.gov.dwp.uc.pairtest.utils;
+
+import java.util.function.Consumer;
+
+/**
+ * Hashed hierarchical timing wheel: {@code LEVELS} wheels of {@code SLOTS} buckets each, level
+ * {@code n} bucket covering {@code SLOTS^n} ticks. A timeout is linked into the bucket of the
+ * lowest level whose span reaches its deadline, and is moved one level down each time the level
+ * above wraps around onto its bucket, so scheduling, cancelling and expiring are all O(1) however
+ * many timeouts are outstanding. Deadlines beyond the top level are parked in its last bucket and
+ * placed again when they come round.
+ *
+ * <p>Not thread-safe; the owner serialises calls.
+ */
+public class HierarchicalTimingWheel<T> {
+
+    static final int SLOT_BITS = 6;
+    static final int SLOTS = 1 << SLOT_BITS;
+    static final int LEVELS = 4;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long MAX_SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    private final long tickNanos;
+    private final long originNanos;
+    private final Timeout<T>[][] buckets;
+    // The next tick to expire; every tick before it has been processed.
+    private long nextTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickNanos, long startNanos) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("The tick must be positive.");
+        }
+        this.tickNanos = tickNanos;
+        this.originNanos = startNanos;
+        this.buckets = new Timeout[LEVELS][SLOTS];
+        for (Timeout<T>[] level : buckets) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                level[slot] = Timeout.sentinel();
+            }
+        }
+    }
+
+    /**
+     * A scheduled value. It expires on the first tick at or after its deadline.
+     */
+    public static final class Timeout<T> {
+        private final T value;
+        private final long deadlineNanos;
+        private final long deadlineTick;
+        private Timeout<T> previous;
+        private Timeout<T> next;
+
+        private Timeout(T value, long deadlineNanos, long deadlineTick) {
+            this.value = value;
+            this.deadlineNanos = deadlineNanos;
+            this.deadlineTick = deadlineTick;
+        }
+
+        private static <T> Timeout<T> sentinel() {
+            Timeout<T> head = new Timeout<>(null, 0, 0);
+            head.previous = head;
+            head.next = head;
+            return head;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public long getDeadlineNanos() {
+            return deadlineNanos;
+        }
+
+        public boolean isScheduled() {
+            return next != null;
+        }
+
+        private void unlink() {
+            previous.next = next;
+            next.previous = previous;
+            previous = null;
+            next = null;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Timeout<T> schedule(T value, long deadlineNanos) {
+        // Rounded up, so a timeout never fires before its deadline.
+        long deadlineTick = Math.max(Math.ceilDiv(deadlineNanos - originNanos, tickNanos), 0);
+        Timeout<T> timeout = new Timeout<>(value, deadlineNanos, deadlineTick);
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Returns false when the timeout has already expired or been cancelled.
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        if (!timeout.isScheduled()) {
+            return false;
+        }
+        timeout.unlink();
+        size--;
+        return true;
+    }
+
+    /**
+     * Processes every tick up to {@code nowNanos}, handing each expired value to {@code expired}.
+     * Returns how many expired.
+     */
+    public int advanceTo(long nowNanos, Consumer<? super T> expired) {
+        long lastTick = Math.floorDiv(nowNanos - originNanos, tickNanos);
+        int count = 0;
+        while (nextTick <= lastTick) {
+            if (size == 0) {
+                // Nothing can be due, so skip the idle ticks in one step.
+                nextTick = lastTick + 1;
+                break;
+            }
+            int slot = (int) (nextTick & SLOT_MASK);
+            if (slot == 0) {
+                cascade();
+            }
+            Timeout<T> head = buckets[0][slot];
+            while (head.next != head) {
+                Timeout<T> timeout = head.next;
+                timeout.unlink();
+                if (timeout.deadlineTick > nextTick) {
+                    place(timeout);
+                    continue;
+                }
+                size--;
+                count++;
+                expired.accept(timeout.value);
+            }
+            nextTick++;
+        }
+        return count;
+    }
+
+    // Each time a lower level wraps around, the matching bucket of the level above is spread over it.
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            int slot = (int) ((nextTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+            Timeout<T> head = buckets[level][slot];
+            while (head.next != head) {
+                Timeout<T> timeout = head.next;
+                timeout.unlink();
+                place(timeout);
+            }
+            if (slot != 0) {
+                return;
+            }
+        }
+    }
+
+    private void place(Timeout<T> timeout) {
+        long delta = timeout.deadlineTick - nextTick;
+        long tick = delta < 0 ? nextTick : delta >= MAX_SPAN ? nextTick + MAX_SPAN - 1 : timeout.deadlineTick;
+        long span = Math.max(tick - nextTick, 0);
+        int level = 0;
+        while (level < LEVELS - 1 && span >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        Timeout<T> head = buckets[level][(int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK)];
+        timeout.previous = head.previous;
+        timeout.next = head;
+        head.previous.next = timeout;
+        head.previous = timeout;
+    }
+}
@@ -0,0 +1,81 @@
+package uk.gov.dwp.uc.pairtest.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer. Producers claim a slot with a
+ * CAS on the producer index and then publish into it; the consumer reads slots in order and frees
+ * each one before moving the consumer index on, so a producer never writes a slot that has not been
+ * consumed. {@link #offer} fails instead of waiting when the queue is full.
+ *
+ * <p>Only one thread may call {@link #poll}.
+ */
+public class MpscArrayQueue<E> {
+
+    private final AtomicReferenceArray<E> buffer;
+    private final int mask;
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final AtomicLong consumerIndex = new AtomicLong();
+
+    public MpscArrayQueue(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Queue capacity must be between 1 and 2^30.");
+        }
+        int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Capacity rounded up to a power of two.
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Returns false, without waiting, when the queue is full.
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException("The queue does not accept null elements.");
+        }
+        long index;
+        do {
+            index = producerIndex.get();
+            if (index - consumerIndex.get() > mask) {
+                return false;
+            }
+        } while (!producerIndex.compareAndSet(index, index + 1));
+        buffer.setRelease((int) index & mask, element);
+        return true;
+    }
+
+    /**
+     * The next element, or null when the queue is empty or the next producer has claimed its slot but
+     * not yet published into it.
+     */
+    public E poll() {
+        long index = consumerIndex.getPlain();
+        int slot = (int) index & mask;
+        E element = buffer.getAcquire(slot);
+        if (element == null) {
+            return null;
+        }
+        buffer.setPlain(slot, null);
+        consumerIndex.setRelease(index + 1);
+        return element;
+    }
+
+    public boolean isEmpty() {
+        return producerIndex.get() == consumerIndex.get();
+    }
+
+    /**
+     * Approximate while producers are active.
+     */
+    public int size() {
+        return (int) Math.max(producerIndex.get() - consumerIndex.get(), 0);
+    }
+}
@@ -0,0 +1,93 @@
+package uk.gov.dwp.uc.pairtest.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+/**
+ * Per-stage timers for the purchase pipeline, published as {@code ticket.purchase.stage} with
+ * {@code stage}, {@code outcome} and {@code exception} tags and a percentile histogram. Success timers
+ * are registered up front and failure timers once per exception type, so recording is a clock read
+ * and an array or map lookup.
+ */
+@Component
+public class PurchaseMetrics {
+
+    public static final String STAGE_TIMER = "ticket.purchase.stage";
+
+    public enum Stage {
+        VALIDATE_ACCOUNT_ID("validateAccountId"),
+        VALIDATE_TICKET_REQUESTS("validateTicketRequests"),
+        PROCESS_TICKETS("processTickets"),
+        VALIDATE_TICKET_PURCHASE("validateTicketPurchase"),
+        MAKE_PAYMENT("makePayment"),
+        RESERVE_SEAT("reserveSeat");
+
+        private final String tagValue;
+
+        Stage(String tagValue) {
+            this.tagValue = tagValue;
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Timer[] successTimers;
+    private final ConcurrentMap<Class<?>, Timer>[] failureTimers;
+
+    @Autowired
+    @SuppressWarnings("unchecked")
+    public PurchaseMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Stage[] stages = Stage.values();
+        this.successTimers = new Timer[stages.length];
+        this.failureTimers = new ConcurrentMap[stages.length];
+        for (Stage stage : stages) {
+            successTimers[stage.ordinal()] = timer(stage, "success", "none");
+            failureTimers[stage.ordinal()] = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * Metrics that are recorded nowhere, for callers constructed outside Spring.
+     */
+    public static PurchaseMetrics disabled() {
+        return new PurchaseMetrics(new CompositeMeterRegistry());
+    }
+
+    public MeterRegistry getMeterRegistry() {
+        return meterRegistry;
+    }
+
+    /**
+     * Records a successful stage that started at {@code startNanos} and returns the current time, so
+     * consecutive stages can be timed with a single clock read each.
+     */
+    public long success(Stage stage, long startNanos) {
+        long now = System.nanoTime();
+        successTimers[stage.ordinal()].record(now - startNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    public void failure(Stage stage, long startNanos, Throwable failure) {
+        long elapsed = System.nanoTime() - startNanos;
+        failureTimers[stage.ordinal()]
+                .computeIfAbsent(failure.getClass(), type -> timer(stage, "failure", type.getSimpleName()))
+                .record(elapsed, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(Stage stage, String outcome, String exception) {
+        return Timer.builder(STAGE_TIMER)
+                .tag("stage", stage.tagValue)
+                .tag("outcome", outcome)
+                .tag("exception", exception)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
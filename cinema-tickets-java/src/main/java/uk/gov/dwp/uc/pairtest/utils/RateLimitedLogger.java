@@ -0,0 +1,58 @@
+package uk.gov.dwp.uc.pairtest.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.slf4j.spi.NOPLoggingEventBuilder;
+
+/**
+ * Caps INFO output from a hot path at a number of events per second. Callers use the fluent
+ * {@code atInfo()} builder so key-value pairs are only attached when the event is actually logged.
+ */
+public class RateLimitedLogger {
+
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    private final Logger logger;
+    // Upper bits: the second the window started in; lower 32 bits: events logged in that window.
+    private final AtomicLong window = new AtomicLong();
+    private volatile int maxPerSecond;
+
+    public RateLimitedLogger(Logger logger, int maxPerSecond) {
+        this.logger = logger;
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    public void setMaxPerSecond(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    public LoggingEventBuilder atInfo() {
+        return logger.isInfoEnabled() && tryAcquire() ? logger.atInfo() : NOPLoggingEventBuilder.singleton();
+    }
+
+    private boolean tryAcquire() {
+        final int limit = maxPerSecond;
+        if (limit <= 0) {
+            return false;
+        }
+        final long second = (System.nanoTime() / WINDOW_NANOS) & 0xFFFFFFFFL;
+        while (true) {
+            long current = window.get();
+            long currentSecond = current >>> 32;
+            int count = (int) current;
+            long next;
+            if (currentSecond != second) {
+                next = (second << 32) | 1;
+            } else if (count < limit) {
+                next = current + 1;
+            } else {
+                return false;
+            }
+            if (window.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+}
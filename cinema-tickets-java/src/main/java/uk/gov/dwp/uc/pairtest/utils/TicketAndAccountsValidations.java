@@ -2,58 +2,178 @@ package uk.gov.dwp.uc.pairtest.utils;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.stereotype.Component;
 
+import uk.gov.dwp.uc.pairtest.config.TicketConfig;
+import uk.gov.dwp.uc.pairtest.config.TicketConfigSource;
 import uk.gov.dwp.uc.pairtest.domain.TicketSummary;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
 import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.PurchaseRateLimitedException;
 
 @Component
 @PropertySource("classpath:application.properties")
 public class TicketAndAccountsValidations {
 
+    // Rejections are preallocated and stackless so turning away bad traffic costs no allocation.
+    private static final InvalidPurchaseException INVALID_ACCOUNT_ID =
+            InvalidPurchaseException.stackless("Invalid account ID.");
+    private static final InvalidPurchaseException INVALID_TICKET_REQUEST =
+            InvalidPurchaseException.stackless("Each ticket request needs a ticket type and a non-negative number of tickets.");
+    private static final InvalidPurchaseException ADULT_REQUIRED = InvalidPurchaseException.stackless(
+            "Child and Infant tickets cannot be purchased without purchasing an Adult ticket.");
+    private static final InvalidPurchaseException TOO_MANY_INFANTS =
+            InvalidPurchaseException.stackless("Number of INFANT tickets cannot exceed number of ADULT tickets");
+    private static final PurchaseRateLimitedException RATE_LIMITED =
+            new PurchaseRateLimitedException("Too many purchases for this account, please try again later.");
+
     Logger logger = LoggerFactory.getLogger(TicketAndAccountsValidations.class);
 
-    @Value("${MIN_TICKET}")
-    private int minTicket;
-    @Value("${MAX_TICKET}")
-    private int maxTicket;
+    private final TicketConfigSource ticketConfigSource;
+    private AccountRateLimiter accountRateLimiter;
+
+    private volatile LimitRejection tooFewTickets;
+    private volatile LimitRejection tooManyTickets;
+
+    public TicketAndAccountsValidations(TicketConfigSource ticketConfigSource) {
+        this.ticketConfigSource = ticketConfigSource;
+    }
+
+    /**
+     * The configuration snapshot the ticket limits are read from.
+     */
+    public TicketConfig getTicketConfig() {
+        return ticketConfigSource.get();
+    }
 
     public int getMinTicket() {
-        return minTicket;
+        return ticketConfigSource.get().getMinTicket();
     }
 
     public int getMaxTicket() {
-        return maxTicket;
+        return ticketConfigSource.get().getMaxTicket();
+    }
+
+    @Autowired(required = false)
+    public void setAccountRateLimiter(AccountRateLimiter accountRateLimiter) {
+        this.accountRateLimiter = accountRateLimiter;
     }
 
+    /**
+     * Also takes a permit from the account's purchase quota, when a rate limiter is configured.
+     */
     public void validateAccountId(Long accountId) {
-        logger.info("Validating account ID: " + accountId);
+        logger.debug("Validating account ID: {}", accountId);
         if (accountId == null || accountId <= 0) {
-            throw new InvalidPurchaseException("Invalid account ID.");
+            throw INVALID_ACCOUNT_ID;
+        }
+        if (accountRateLimiter != null && !accountRateLimiter.tryAcquire(accountId)) {
+            throw RATE_LIMITED;
         }
     }
 
+    /**
+     * Single pass over the raw requests, run before any summary is built. Stops at the first bad
+     * entry or as soon as the running total passes {@code MAX_TICKET}, so a malformed or oversized
+     * order costs no more than the entries read up to that point.
+     */
+    public void validateTicketRequests(TicketTypeRequest... ticketTypeRequests) {
+        if (ticketTypeRequests == null) {
+            throw INVALID_TICKET_REQUEST;
+        }
+        // Both limits come from one snapshot, so a reload mid-call cannot mix old and new values.
+        final TicketConfig config = ticketConfigSource.get();
+        final int min = config.getMinTicket();
+        final int max = config.getMaxTicket();
+        int totalTickets = 0;
+        int adultTickets = 0;
+        int infantTickets = 0;
+        boolean childTickets = false;
+
+        for (TicketTypeRequest request : ticketTypeRequests) {
+            if (request == null || request.getTicketType() == null || request.getNoOfTickets() < 0) {
+                throw INVALID_TICKET_REQUEST;
+            }
+            final int numberOfTickets = request.getNoOfTickets();
+            // Compared before adding, so a huge count cannot overflow the running total.
+            if (numberOfTickets > max - totalTickets) {
+                throw tooManyTickets(max);
+            }
+            totalTickets += numberOfTickets;
+
+            switch (request.getTicketType()) {
+                case ADULT:
+                    adultTickets += numberOfTickets;
+                    break;
+                case CHILD:
+                    childTickets |= numberOfTickets > 0;
+                    break;
+                case INFANT:
+                    infantTickets += numberOfTickets;
+                    break;
+            }
+        }
+
+        checkOrder(min, totalTickets, adultTickets, childTickets, infantTickets);
+    }
+
+    /**
+     * Purchase-level check of a priced order, timed as its own stage. Applies the same rules as
+     * {@link #validateTicketRequests} to the summary's counts, so both stages share one copy of them.
+     */
     public void validateTicketPurchase(TicketSummary summary) {
+        logger.debug("Validating ticket purchase: {}", summary);
+        final TicketConfig config = ticketConfigSource.get();
+        final int max = config.getMaxTicket();
+        if (summary.getTotalTickets() > max) {
+            throw tooManyTickets(max);
+        }
+        checkOrder(config.getMinTicket(), summary.getTotalTickets(), summary.getAdultTickets(),
+                summary.getChildTickets() > 0, summary.getInfantTickets());
+    }
 
-        logger.info("Validating ticket purchase: " + summary);
-        if (summary.getTotalTickets() < minTicket) {
-            throw new InvalidPurchaseException(
-                    "At least " + minTicket + " ticket must be purchased.");
+    private void checkOrder(int min, int totalTickets, int adultTickets, boolean childTickets, int infantTickets) {
+        if (totalTickets < min) {
+            throw tooFewTickets(min);
         }
-        if (summary.getTotalTickets() > maxTicket) {
-            throw new InvalidPurchaseException(
-                    "Only a maximum of " + maxTicket + " tickets can be purchased at a time.");
+        if (adultTickets == 0 && (childTickets || infantTickets > 0)) {
+            throw ADULT_REQUIRED;
+        }
+        if (infantTickets > adultTickets) {
+            throw TOO_MANY_INFANTS;
         }
+    }
 
-        if (summary.getAdultTickets() == 0 && (summary.getChildTickets() > 0 || summary.getInfantTickets() > 0)) {
-            throw new InvalidPurchaseException(
-                    "Child and Infant tickets cannot be purchased without purchasing an Adult ticket.");
+    private InvalidPurchaseException tooFewTickets(int minTicket) {
+        LimitRejection rejection = tooFewTickets;
+        if (rejection == null || rejection.limit != minTicket) {
+            rejection = new LimitRejection(minTicket, "At least " + minTicket + " ticket must be purchased.");
+            tooFewTickets = rejection;
         }
+        return rejection.exception;
+    }
+
+    private InvalidPurchaseException tooManyTickets(int maxTicket) {
+        LimitRejection rejection = tooManyTickets;
+        if (rejection == null || rejection.limit != maxTicket) {
+            rejection = new LimitRejection(maxTicket,
+                    "Only a maximum of " + maxTicket + " tickets can be purchased at a time.");
+            tooManyTickets = rejection;
+        }
+        return rejection.exception;
+    }
+
+    // The limits may be reloaded, so their messages are built on first use and rebuilt whenever the
+    // limit changes.
+    private static final class LimitRejection {
+        final int limit;
+        final InvalidPurchaseException exception;
 
-        if (summary.getInfantTickets() > summary.getAdultTickets()) {
-            throw new InvalidPurchaseException("Number of INFANT tickets cannot exceed number of ADULT tickets");
+        LimitRejection(int limit, String message) {
+            this.limit = limit;
+            this.exception = InvalidPurchaseException.stackless(message);
         }
     }
 
@@ -0,0 +1,118 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.exception.PurchaseRateLimitedException;
+import uk.gov.dwp.uc.pairtest.services.BookTicketAndReserveSeat;
+import uk.gov.dwp.uc.pairtest.services.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.utils.AccountRateLimiter;
+import uk.gov.dwp.uc.pairtest.utils.TicketAndAccountsValidations;
+
+@DisplayName("Account rate limiter Tests")
+public class AccountRateLimiterTests {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final AtomicLong now = new AtomicLong(42 * SECOND);
+
+    @Test
+    void testBurstIsAllowedThenRefillsAtTheSustainedRate() {
+        AccountRateLimiter limiter = new AccountRateLimiter(2, 3, 64, 4, now::get);
+
+        assertTrue(limiter.tryAcquire(1L));
+        assertTrue(limiter.tryAcquire(1L));
+        assertTrue(limiter.tryAcquire(1L));
+        assertFalse(limiter.tryAcquire(1L));
+
+        now.addAndGet(SECOND / 2);
+        assertTrue(limiter.tryAcquire(1L));
+        assertFalse(limiter.tryAcquire(1L));
+        assertEquals(2, limiter.getRejectedCount());
+    }
+
+    @Test
+    void testAccountsHaveIndependentQuotas() {
+        AccountRateLimiter limiter = new AccountRateLimiter(1, 1, 64, 4, now::get);
+
+        assertTrue(limiter.tryAcquire(1L));
+        assertFalse(limiter.tryAcquire(1L));
+        assertTrue(limiter.tryAcquire(2L));
+    }
+
+    @Test
+    void testIdleAccountsAreEvictedWhenTheTableIsFull() {
+        AccountRateLimiter limiter = new AccountRateLimiter(1, 1, 4, 1, now::get);
+        for (long accountId = 1; accountId <= 4; accountId++) {
+            assertTrue(limiter.tryAcquire(accountId));
+        }
+        assertEquals(4, limiter.getTrackedAccounts());
+
+        // Every bucket is still refilling: the new account is let through but not tracked.
+        assertTrue(limiter.tryAcquire(5L));
+        assertEquals(4, limiter.getTrackedAccounts());
+
+        now.addAndGet(SECOND);
+        assertTrue(limiter.tryAcquire(6L));
+        assertEquals(1, limiter.getTrackedAccounts());
+        assertEquals(4, limiter.getEvictedCount());
+        assertFalse(limiter.tryAcquire(6L));
+    }
+
+    @Test
+    void testConcurrentCallersNeverExceedTheBurst() throws Exception {
+        AccountRateLimiter limiter = new AccountRateLimiter(1, 10, 1024, 16, now::get);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int acquired = 0;
+                    for (int i = 0; i < 100; i++) {
+                        acquired += limiter.tryAcquire(7L) ? 1 : 0;
+                    }
+                    return acquired;
+                }));
+            }
+            start.countDown();
+            int acquired = 0;
+            for (Future<Integer> future : futures) {
+                acquired += future.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(10, acquired);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testPurchasesOverTheQuotaAreRejected() {
+        TicketAndAccountsValidations validations = TestFixtures.validations();
+        validations.setAccountRateLimiter(new AccountRateLimiter(1, 2, 64, 4, now::get));
+        TicketServiceImpl ticketService = new TicketServiceImpl(TestFixtures.ticketProcessor(),
+                new BookTicketAndReserveSeat((accountId, amount) -> { }, (accountId, seats) -> { }), validations);
+
+        ticketService.purchaseTickets(1L, new TicketTypeRequest(Type.ADULT, 1));
+        ticketService.purchaseTickets(1L, new TicketTypeRequest(Type.ADULT, 1));
+        assertThrows(PurchaseRateLimitedException.class,
+                () -> ticketService.purchaseTickets(1L, new TicketTypeRequest(Type.ADULT, 1)));
+        ticketService.purchaseTickets(2L, new TicketTypeRequest(Type.ADULT, 1));
+    }
+}
@@ -0,0 +1,149 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.exception.PurchaseOverloadedException;
+import uk.gov.dwp.uc.pairtest.exception.ServiceUnavailableException;
+import uk.gov.dwp.uc.pairtest.exception.ServiceUnavailableException.Reason;
+import uk.gov.dwp.uc.pairtest.resilience.AdaptiveConcurrencyLimit;
+import uk.gov.dwp.uc.pairtest.services.PurchaseAdmission;
+import uk.gov.dwp.uc.pairtest.services.TicketServiceImpl;
+
+@DisplayName("Admission control Tests")
+public class AdmissionControlTests {
+
+    private static final long MILLISECOND = 1_000_000L;
+
+    @Test
+    void testCallsBeyondTheLimitAreRejectedWithTheTopReservedForPriority() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 10, 10, 0.2);
+
+        for (int i = 0; i < 8; i++) {
+            assertTrue(limit.tryAcquire(false));
+        }
+        assertFalse(limit.tryAcquire(false));
+        assertTrue(limit.tryAcquire(true));
+        assertTrue(limit.tryAcquire(true));
+        assertFalse(limit.tryAcquire(true));
+
+        assertEquals(10, limit.getInFlight());
+        assertEquals(1, limit.getRejectedCount());
+        assertEquals(1, limit.getPriorityRejectedCount());
+        limit.onIgnored();
+        assertTrue(limit.tryAcquire(true));
+    }
+
+    @Test
+    void testLimitGrowsWhileLatencyHoldsAndShrinksWhenItRises() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 200, 0);
+        // Keep enough calls in flight that every sample counts.
+        for (int i = 0; i < 15; i++) {
+            assertTrue(limit.tryAcquire(false));
+        }
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(limit.tryAcquire(false));
+            limit.onSuccess(MILLISECOND);
+        }
+        int grown = limit.getLimit();
+        assertTrue(grown > 20, "limit " + grown);
+
+        // The limit grew until fewer than half of it was in use, so add load before latency rises.
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limit.tryAcquire(false));
+        }
+        for (int i = 0; i < 50; i++) {
+            limit.onSuccess(20 * MILLISECOND);
+            limit.tryAcquire(false);
+        }
+        int shrunk = limit.getLimit();
+        assertTrue(shrunk < grown, "limit " + shrunk + " after " + grown);
+        assertTrue(shrunk >= 4);
+    }
+
+    @Test
+    void testSamplesWithLittleInFlightDoNotMoveTheLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 200, 0);
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(limit.tryAcquire(false));
+            limit.onSuccess(i % 2 == 0 ? MILLISECOND : 100 * MILLISECOND);
+        }
+        assertEquals(20, limit.getLimit());
+    }
+
+    @Test
+    void testOverloadFailuresBackOffAndOtherFailuresDoNot() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 8, 10, 0);
+        PurchaseAdmission admission = new PurchaseAdmission(limit, 2, 16);
+
+        admission.admit(1L, new TicketTypeRequest(Type.ADULT, 1));
+        admission.onFailure(new IllegalStateException(new ServiceUnavailableException("payment", Reason.TIMEOUT)));
+        assertEquals(9, limit.getLimit());
+
+        admission.admit(1L, new TicketTypeRequest(Type.ADULT, 1));
+        admission.onFailure(new IllegalArgumentException("Invalid account"));
+        assertEquals(9, limit.getLimit());
+
+        for (int i = 0; i < 5; i++) {
+            admission.admit(1L, new TicketTypeRequest(Type.ADULT, 1));
+            admission.onFailure(new ServiceUnavailableException("payment", Reason.CIRCUIT_OPEN));
+        }
+        assertEquals(8, limit.getLimit());
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    void testSmallOrdersAndReturningCustomersGetInWhenOthersAreTurnedAway() throws Exception {
+        // Room for one ordinary purchase and one priority purchase on top.
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 2, 2, 0.5);
+        CountDownLatch booking = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TicketServiceImpl ticketService = TestFixtures.ticketService((accountId, amount) -> {
+            if (accountId == 100L) {
+                booking.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        ticketService.setPurchaseAdmission(new PurchaseAdmission(limit, 2, 1024));
+        ticketService.purchaseTickets(7L, new TicketTypeRequest(Type.ADULT, 5));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> slow = executor.submit(
+                    () -> ticketService.purchaseTickets(100L, new TicketTypeRequest(Type.ADULT, 5)));
+            assertTrue(booking.await(10, TimeUnit.SECONDS));
+
+            assertThrows(PurchaseOverloadedException.class,
+                    () -> ticketService.purchaseTickets(8L, new TicketTypeRequest(Type.ADULT, 5)));
+            ticketService.purchaseTickets(8L, new TicketTypeRequest(Type.ADULT, 2));
+            ticketService.purchaseTickets(7L, new TicketTypeRequest(Type.ADULT, 5));
+            assertEquals(1, limit.getRejectedCount());
+            assertEquals(0, limit.getPriorityRejectedCount());
+
+            release.countDown();
+            slow.get(10, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+        assertEquals(0, limit.getInFlight());
+    }
+}
@@ -0,0 +1,42 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.support.GenericApplicationContext;
+
+import uk.gov.dwp.uc.pairtest.CinemaTicketsApplication;
+import uk.gov.dwp.uc.pairtest.config.ExecutorConfig;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.services.TicketProcessor;
+import uk.gov.dwp.uc.pairtest.services.TicketService;
+
+@DisplayName("Application Startup Tests")
+public class ApplicationStartupTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testApplicationStartsAndServesAPurchase() {
+        try (GenericApplicationContext context = CinemaTicketsApplication.run(Map.of(
+                "OUTBOX_FILE", directory.resolve("reservation-outbox.log").toString(),
+                "JOURNAL_DIR", directory.resolve("journal").toString()))) {
+
+            TicketSummary summary = context.getBean(TicketService.class).purchaseTickets(null, 1L,
+                    new TicketTypeRequest(Type.ADULT, 2), new TicketTypeRequest(Type.CHILD, 1));
+
+            assertEquals(65, summary.getTotalPrice());
+            // Used without a generated subclass, so nothing is proxied at startup.
+            assertSame(ExecutorConfig.class, context.getBean(ExecutorConfig.class).getClass());
+            assertFalse(context.getBean(TicketProcessor.class).getClass().getName().contains("$$"));
+        }
+    }
+}
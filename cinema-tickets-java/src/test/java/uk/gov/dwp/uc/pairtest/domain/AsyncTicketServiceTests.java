@@ -0,0 +1,201 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.SeatsPendingException;
+import uk.gov.dwp.uc.pairtest.services.AsyncTicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.services.BookTicketAndReserveSeat;
+import uk.gov.dwp.uc.pairtest.services.TicketService;
+
+@DisplayName("Async Ticket Service Tests")
+public class AsyncTicketServiceTests {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testPurchaseCompletesWithSummary() throws Exception {
+        AsyncTicketServiceImpl service = serviceWith((accountId, amount) -> { }, 4, 2000);
+
+        TicketSummary summary = service.purchaseTicketsAsync(1L, new TicketTypeRequest(Type.ADULT, 2))
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(50, summary.getTotalPrice());
+    }
+
+    @Test
+    void testInvalidPurchaseFailsTheFutureWithoutBooking() {
+        AtomicInteger payments = new AtomicInteger();
+        AsyncTicketServiceImpl service = serviceWith((accountId, amount) -> payments.incrementAndGet(), 4, 2000);
+
+        CompletableFuture<TicketSummary> future = service.purchaseTicketsAsync(-1L,
+                new TicketTypeRequest(Type.ADULT, 2));
+
+        ExecutionException exception = assertThrows(ExecutionException.class, future::get);
+        assertInstanceOf(InvalidPurchaseException.class, exception.getCause());
+        assertEquals(0, payments.get());
+    }
+
+    @Test
+    void testRetryWithTheSameKeyIsNotPaidForAgain() throws Exception {
+        AtomicInteger payments = new AtomicInteger();
+        AsyncTicketServiceImpl service = serviceWith((accountId, amount) -> payments.incrementAndGet(), 4, 2000);
+
+        TicketSummary first = service.purchaseTicketsAsync("key-1", 1L, new TicketTypeRequest(Type.ADULT, 2))
+                .get(5, TimeUnit.SECONDS);
+        TicketSummary retry = service.purchaseTicketsAsync("key-1", 1L, new TicketTypeRequest(Type.ADULT, 2))
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(first.getTotalPrice(), retry.getTotalPrice());
+        assertEquals(1, payments.get());
+    }
+
+    @Test
+    void testPaidPurchaseWithPendingSeatsIsReportedAsPending() {
+        TicketSummary summary = new TicketSummary(1, 1, 25, 1, 0, 0);
+        TicketService ticketService = mock(TicketService.class);
+        when(ticketService.purchaseTickets(eq("key-1"), eq(1L), any(TicketTypeRequest[].class)))
+                .thenThrow(new SeatsPendingException(summary));
+        AsyncTicketServiceImpl service = new AsyncTicketServiceImpl(ticketService, executor, 4, 2000);
+
+        CompletableFuture<TicketSummary> future = service.purchaseTicketsAsync("key-1", 1L,
+                new TicketTypeRequest(Type.ADULT, 1));
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> future.get(5, TimeUnit.SECONDS));
+        SeatsPendingException pending = assertInstanceOf(SeatsPendingException.class, exception.getCause());
+        assertEquals(summary, pending.getSummary());
+    }
+
+    @Test
+    void testSlowGatewayTimesOut() {
+        AsyncTicketServiceImpl service = serviceWith((accountId, amount) -> sleep(5000), 4, 100);
+
+        CompletableFuture<TicketSummary> future = service.purchaseTicketsAsync(1L,
+                new TicketTypeRequest(Type.ADULT, 1));
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> future.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, exception.getCause());
+    }
+
+    @Test
+    void testTimedOutBookingIsNotInterruptedOnceTheCardIsCharged() throws Exception {
+        CountDownLatch charged = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        AsyncTicketServiceImpl service = serviceWith((accountId, amount) -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            charged.countDown();
+        }, 4, 50);
+
+        CompletableFuture<TicketSummary> future = service.purchaseTicketsAsync(1L,
+                new TicketTypeRequest(Type.ADULT, 1));
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> future.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, exception.getCause());
+        future.cancel(true);
+
+        assertTrue(charged.await(2, TimeUnit.SECONDS));
+        assertFalse(interrupted.get());
+    }
+
+    @Test
+    void testBookingGivenUpOnBeforeItStartsIsNeverCharged() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger payments = new AtomicInteger();
+        AsyncTicketServiceImpl service = serviceWith((accountId, amount) -> {
+            if (payments.incrementAndGet() == 1) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, 1, 5000);
+
+        CompletableFuture<TicketSummary> first = service.purchaseTicketsAsync(1L,
+                new TicketTypeRequest(Type.ADULT, 1));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<TicketSummary> second = service.purchaseTicketsAsync(2L,
+                new TicketTypeRequest(Type.ADULT, 1));
+        second.cancel(true);
+        release.countDown();
+
+        assertEquals(25, first.get(5, TimeUnit.SECONDS).getTotalPrice());
+        // The cancelled purchase gets the permit after the first one and then gives up without paying.
+        sleep(100);
+        assertEquals(1, payments.get());
+    }
+
+    @Test
+    void testConcurrentBookingsNeverExceedTheLimit() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AsyncTicketServiceImpl service = serviceWith((accountId, amount) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            sleep(20);
+            inFlight.decrementAndGet();
+        }, 2, 5000);
+
+        List<CompletableFuture<TicketSummary>> futures = new ArrayList<>();
+        for (long accountId = 1; accountId <= 10; accountId++) {
+            futures.add(service.purchaseTicketsAsync(accountId, new TicketTypeRequest(Type.ADULT, 1)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        assertTrue(maxInFlight.get() <= 2, "Observed " + maxInFlight.get() + " concurrent bookings");
+    }
+
+    private AsyncTicketServiceImpl serviceWith(TicketPaymentService paymentService, int maxConcurrent,
+            long timeoutMillis) {
+        BookTicketAndReserveSeat booking = new BookTicketAndReserveSeat(paymentService, (accountId, seats) -> { });
+        return new AsyncTicketServiceImpl(TestFixtures.ticketService(booking), executor, maxConcurrent,
+                timeoutMillis);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted");
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static uk.gov.dwp.uc.pairtest.domain.TestFixtures.setField;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.inventory.InventorySeatReservationService;
+import uk.gov.dwp.uc.pairtest.inventory.SeatInventory;
+import uk.gov.dwp.uc.pairtest.services.BookTicketAndReserveSeat;
+import uk.gov.dwp.uc.pairtest.services.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.utils.PurchaseMetrics;
+
+@DisplayName("Batch purchase Tests")
+public class BatchPurchaseTests {
+
+    private static final long DECLINED_ACCOUNT = 99L;
+    private static final long NO_SEATS_ACCOUNT = 77L;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // Calls for different accounts arrive concurrently.
+    private final List<long[]> payments = Collections.synchronizedList(new ArrayList<>());
+    private final List<long[]> reservations = Collections.synchronizedList(new ArrayList<>());
+    private BookTicketAndReserveSeat bookTicketAndReserveSeat;
+    private TicketServiceImpl ticketService;
+
+    @BeforeEach
+    void setUp() {
+        TicketPaymentService paymentService = (accountId, amount) -> {
+            payments.add(new long[] { accountId, amount });
+            if (accountId == DECLINED_ACCOUNT) {
+                throw new IllegalStateException("card declined");
+            }
+        };
+        SeatReservationService seatService = (accountId, seats) -> {
+            reservations.add(new long[] { accountId, seats });
+            if (accountId == NO_SEATS_ACCOUNT) {
+                throw new IllegalStateException("sold out");
+            }
+        };
+
+        bookTicketAndReserveSeat = new BookTicketAndReserveSeat(paymentService, seatService,
+                PurchaseMetrics.disabled(), null, null, executor);
+        setField(BookTicketAndReserveSeat.class, bookTicketAndReserveSeat, "batchSize", 256);
+        ticketService = TestFixtures.ticketService(bookTicketAndReserveSeat);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testEachOrderGetsItsOwnOutcome() {
+        List<PurchaseOrder> orders = List.of(
+                new PurchaseOrder(1L, new TicketTypeRequest(Type.ADULT, 2)),
+                new PurchaseOrder(2L, new TicketTypeRequest(Type.CHILD, 1)),
+                new PurchaseOrder(DECLINED_ACCOUNT, new TicketTypeRequest(Type.ADULT, 1)),
+                new PurchaseOrder(NO_SEATS_ACCOUNT, new TicketTypeRequest(Type.ADULT, 1)),
+                new PurchaseOrder(-5L, new TicketTypeRequest(Type.ADULT, 1)));
+
+        List<PurchaseResult> results = ticketService.purchaseTicketsBatch(orders);
+
+        assertEquals(orders.size(), results.size());
+        assertTrue(results.get(0).isSuccessful());
+        assertEquals(50, results.get(0).getSummary().getTotalPrice());
+        assertEquals("Child and Infant tickets cannot be purchased without purchasing an Adult ticket.",
+                results.get(1).getFailureReason());
+        assertEquals("Payment failed: card declined", results.get(2).getFailureReason());
+        assertEquals("Seat reservation failed: sold out", results.get(3).getFailureReason());
+        assertEquals("Invalid account ID.", results.get(4).getFailureReason());
+        assertNull(results.get(4).getSummary());
+
+        // Rejected orders never reach the gateway and declined payments never reach reservation.
+        assertEquals(3, payments.size());
+        assertEquals(2, reservations.size());
+    }
+
+    @Test
+    void testOrdersForTheSameAccountShareOneRoundTrip() {
+        List<PurchaseOrder> orders = List.of(
+                new PurchaseOrder(1L, new TicketTypeRequest(Type.ADULT, 2)),
+                new PurchaseOrder(1L, new TicketTypeRequest(Type.ADULT, 1), new TicketTypeRequest(Type.CHILD, 1)),
+                new PurchaseOrder(2L, new TicketTypeRequest(Type.ADULT, 1)));
+
+        List<PurchaseResult> results = ticketService.purchaseTicketsBatch(orders);
+
+        assertTrue(results.stream().allMatch(PurchaseResult::isSuccessful));
+        assertEquals(2, payments.size());
+        assertEquals(90L, callFor(payments, 1L)[1]);
+        assertEquals(2, reservations.size());
+        assertEquals(4L, callFor(reservations, 1L)[1]);
+    }
+
+    @Test
+    void testOrdersThatNoLongerFitAreNotCharged() {
+        SeatInventory seatInventory = new SeatInventory();
+        seatInventory.addScreening(1L, 1, 3);
+        BookTicketAndReserveSeat booking = new BookTicketAndReserveSeat(
+                (accountId, amount) -> payments.add(new long[] { accountId, amount }),
+                new InventorySeatReservationService((accountId, seats) -> { }, seatInventory, 1L));
+        setField(BookTicketAndReserveSeat.class, booking, "screeningId", 1);
+        List<PurchaseOrder> orders = List.of(
+                new PurchaseOrder(1L, new TicketTypeRequest(Type.ADULT, 2)),
+                new PurchaseOrder(2L, new TicketTypeRequest(Type.ADULT, 2)),
+                new PurchaseOrder(3L, new TicketTypeRequest(Type.ADULT, 1)));
+
+        List<PurchaseResult> results = TestFixtures.ticketService(booking).purchaseTicketsBatch(orders);
+
+        assertTrue(results.get(0).isSuccessful());
+        assertEquals("Not enough seats left for this screening.", results.get(1).getFailureReason());
+        assertTrue(results.get(2).isSuccessful());
+        assertEquals(2, payments.size());
+        assertEquals(0, seatInventory.getAvailableSeats(1L));
+    }
+
+    @Test
+    void testDifferentAccountsAreChargedConcurrently() throws Exception {
+        CountDownLatch allCharging = new CountDownLatch(3);
+        BookTicketAndReserveSeat booking = new BookTicketAndReserveSeat((accountId, amount) -> {
+            allCharging.countDown();
+            try {
+                // Charged one after another, the first payment would wait here for the full timeout.
+                if (!allCharging.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("payments were made one at a time");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted");
+            }
+        }, (accountId, seats) -> { }, PurchaseMetrics.disabled(), null, null, executor);
+        List<PurchaseOrder> orders = List.of(
+                new PurchaseOrder(1L, new TicketTypeRequest(Type.ADULT, 1)),
+                new PurchaseOrder(2L, new TicketTypeRequest(Type.ADULT, 1)),
+                new PurchaseOrder(3L, new TicketTypeRequest(Type.ADULT, 1)));
+
+        List<PurchaseResult> results = TestFixtures.ticketService(booking).purchaseTicketsBatch(orders);
+
+        assertTrue(results.stream().allMatch(PurchaseResult::isSuccessful));
+    }
+
+    @Test
+    void testDeclinedPaymentFailsEveryOrderOfThatAccountOnly() {
+        setField(BookTicketAndReserveSeat.class, bookTicketAndReserveSeat, "batchSize", 2);
+        List<PurchaseOrder> orders = List.of(
+                new PurchaseOrder(DECLINED_ACCOUNT, new TicketTypeRequest(Type.ADULT, 1)),
+                new PurchaseOrder(DECLINED_ACCOUNT, new TicketTypeRequest(Type.ADULT, 2)),
+                new PurchaseOrder(3L, new TicketTypeRequest(Type.ADULT, 1)));
+
+        List<PurchaseResult> results = ticketService.purchaseTicketsBatch(orders);
+
+        assertFalse(results.get(0).isSuccessful());
+        assertFalse(results.get(1).isSuccessful());
+        assertTrue(results.get(2).isSuccessful());
+        assertEquals(2, payments.size());
+    }
+
+    private static long[] callFor(List<long[]> calls, long accountId) {
+        synchronized (calls) {
+            return calls.stream().filter(call -> call[0] == accountId).findFirst().orElseThrow();
+        }
+    }
+}
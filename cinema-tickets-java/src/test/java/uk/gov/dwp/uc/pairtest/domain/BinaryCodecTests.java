@@ -0,0 +1,179 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import uk.gov.dwp.uc.pairtest.codec.TicketBinaryCodec;
+import uk.gov.dwp.uc.pairtest.codec.TicketBinaryCodec.OrderView;
+import uk.gov.dwp.uc.pairtest.codec.TicketBinaryCodec.SummaryView;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+
+@DisplayName("Binary wire format Tests")
+public class BinaryCodecTests {
+
+    private static final Long[] ACCOUNT_IDS = { null, 0L, 1L, -1L, 63L, 64L, 12345L, Long.MAX_VALUE, Long.MIN_VALUE };
+    private static final int[] COUNTS = { 0, 1, -1, 127, 128, 16383, 16384, Integer.MAX_VALUE, Integer.MIN_VALUE };
+
+    @Test
+    void testRandomOrdersRoundTripThroughEveryKindOfBuffer() {
+        // Seeded so a failure can be reproduced; the edge values are mixed in with random ones.
+        Random random = new Random(24);
+        OrderView view = new OrderView();
+        for (int i = 0; i < 2_000; i++) {
+            Long accountId = random.nextInt(4) == 0 ? ACCOUNT_IDS[random.nextInt(ACCOUNT_IDS.length)]
+                    : Long.valueOf(random.nextLong());
+            TicketTypeRequest[] requests = randomRequests(random);
+            ByteBuffer buffer = buffer(i, TicketBinaryCodec.maxOrderLength(requests.length));
+
+            TicketBinaryCodec.encodeOrder(accountId, requests, buffer);
+            int length = buffer.position();
+            buffer.flip();
+            assertSame(view, view.wrap(buffer));
+
+            assertEquals(length, buffer.position());
+            assertEquals(length, view.encodedLength());
+            assertEquals(accountId, view.getAccountId());
+            assertEquals(requests.length, view.requestCount());
+            for (int r = 0; r < requests.length; r++) {
+                assertEquals(requests[r].getTicketType(), view.type(r));
+                assertEquals(requests[r].getNoOfTickets(), view.count(r));
+            }
+        }
+    }
+
+    @Test
+    void testOrdersAreReadBackToBackFromOneBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+        Random random = new Random(7);
+        TicketTypeRequest[][] orders = new TicketTypeRequest[20][];
+        for (int i = 0; i < orders.length; i++) {
+            orders[i] = randomRequests(random);
+            TicketBinaryCodec.encodeOrder((long) i, orders[i], buffer);
+        }
+        buffer.flip();
+
+        OrderView view = new OrderView();
+        for (int i = 0; i < orders.length; i++) {
+            view.wrap(buffer);
+            assertEquals(i, view.accountId());
+            TicketTypeRequest[] decoded = view.toTicketTypeRequests();
+            assertEquals(orders[i].length, decoded.length);
+            for (int r = 0; r < decoded.length; r++) {
+                assertEquals(orders[i][r].getTicketType(), decoded[r].getTicketType());
+                assertEquals(orders[i][r].getNoOfTickets(), decoded[r].getNoOfTickets());
+            }
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void testSmallOrdersTakeAFewBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        TicketBinaryCodec.encodeOrder(12345L, new TicketTypeRequest[] { new TicketTypeRequest(Type.ADULT, 2),
+                new TicketTypeRequest(Type.CHILD, 2), new TicketTypeRequest(Type.INFANT, 1) }, buffer);
+
+        // Version, flags, a 3 byte account ID, the request count and 2 bytes per request.
+        assertEquals(12, buffer.position());
+    }
+
+    @Test
+    void testSummariesRoundTripInEitherByteOrder() {
+        Random random = new Random(3);
+        SummaryView view = new SummaryView();
+        for (int i = 0; i < 500; i++) {
+            TicketSummary summary = new TicketSummary(random.nextInt(), random.nextInt(), random.nextInt(),
+                    random.nextInt(), random.nextInt(), random.nextInt());
+            ByteBuffer buffer = buffer(i, TicketBinaryCodec.SUMMARY_LENGTH + 3);
+            buffer.position(3);
+
+            TicketBinaryCodec.encodeSummary(summary, buffer);
+            assertEquals(3 + TicketBinaryCodec.SUMMARY_LENGTH, buffer.position());
+            buffer.flip().position(3);
+            TicketSummary decoded = view.wrap(buffer).toTicketSummary();
+
+            assertFalse(buffer.hasRemaining());
+            assertEquals(summary.getTotalTickets(), decoded.getTotalTickets());
+            assertEquals(summary.getTotalSeats(), decoded.getTotalSeats());
+            assertEquals(summary.getTotalPrice(), decoded.getTotalPrice());
+            assertEquals(summary.getAdultTickets(), decoded.getAdultTickets());
+            assertEquals(summary.getChildTickets(), decoded.getChildTickets());
+            assertEquals(summary.getInfantTickets(), decoded.getInfantTickets());
+        }
+    }
+
+    @Test
+    void testEveryTruncatedOrderIsRejectedWithoutMovingTheBuffer() {
+        ByteBuffer encoded = ByteBuffer.allocate(128);
+        TicketBinaryCodec.encodeOrder(Long.MIN_VALUE, new TicketTypeRequest[] {
+                new TicketTypeRequest(Type.ADULT, Integer.MAX_VALUE), new TicketTypeRequest(null, -1) }, encoded);
+        encoded.flip();
+
+        OrderView view = new OrderView();
+        for (int length = 0; length < encoded.limit(); length++) {
+            ByteBuffer prefix = encoded.duplicate().limit(length);
+            assertThrows(InvalidPurchaseException.class, () -> view.wrap(prefix));
+            assertEquals(0, prefix.position());
+            assertEquals(0, view.requestCount());
+            assertNull(view.getAccountId());
+        }
+        InvalidPurchaseException truncated = assertThrows(InvalidPurchaseException.class,
+                () -> new SummaryView().wrap(ByteBuffer.allocate(TicketBinaryCodec.SUMMARY_LENGTH - 1)));
+        assertEquals("Malformed summary: truncated message", truncated.getMessage());
+    }
+
+    @Test
+    void testMalformedOrdersAreRejected() {
+        OrderView view = new OrderView();
+        // Unknown version, unknown flags, an unknown type, too many requests, a sixth varint byte, and
+        // a last varint byte with bits beyond an int's or a long's width.
+        byte[][] malformed = {
+                { 2, 0, 0 },
+                { 1, 2, 0 },
+                { 1, 0, 1, 3, 1 },
+                { 1, 0, 65 },
+                { 1, 0, 1, 0, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0 },
+                { 1, 0, 1, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x1F },
+                { 1, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                        (byte) 0xFF, (byte) 0xFF, 0x02, 0 },
+        };
+        for (byte[] bytes : malformed) {
+            InvalidPurchaseException e = assertThrows(InvalidPurchaseException.class,
+                    () -> view.wrap(ByteBuffer.wrap(bytes)));
+            assertEquals(true, e.getMessage().startsWith("Malformed order"));
+        }
+
+        ByteBuffer summary = ByteBuffer.allocate(TicketBinaryCodec.SUMMARY_LENGTH);
+        TicketBinaryCodec.encodeSummary(new TicketSummary(1, 1, 25, 1, 0, 0), summary);
+        summary.put(0, (byte) 9).flip();
+        InvalidPurchaseException version = assertThrows(InvalidPurchaseException.class,
+                () -> new SummaryView().wrap(summary));
+        assertEquals("Malformed summary: unsupported format version", version.getMessage());
+    }
+
+    private static TicketTypeRequest[] randomRequests(Random random) {
+        TicketTypeRequest[] requests = new TicketTypeRequest[random.nextInt(65)];
+        for (int i = 0; i < requests.length; i++) {
+            Type type = random.nextInt(10) == 0 ? null : Type.values()[random.nextInt(Type.values().length)];
+            int count = random.nextBoolean() ? COUNTS[random.nextInt(COUNTS.length)] : random.nextInt();
+            requests[i] = new TicketTypeRequest(type, count);
+        }
+        return requests;
+    }
+
+    // Heap and direct, in both byte orders, so neither the encoding nor the views depend on the buffer.
+    private static ByteBuffer buffer(int i, int capacity) {
+        ByteBuffer buffer = (i & 1) == 0 ? ByteBuffer.allocate(capacity) : ByteBuffer.allocateDirect(capacity);
+        return buffer.order((i & 2) == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -41,7 +41,7 @@ public class CinemaTicketsApplicationTests {
 
     @BeforeEach
     void setUp() {
-        this.ticketProcessor = new TicketProcessor();
+        this.ticketProcessor = TestFixtures.ticketProcessor();
         this.ticketService = new TicketServiceImpl(ticketProcessor, bookTicketAndReserveSeat,
                 ticketAndAccountsValidations);
     }
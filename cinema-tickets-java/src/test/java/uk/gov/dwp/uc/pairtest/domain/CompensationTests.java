@@ -0,0 +1,196 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.exception.SeatsPendingException;
+import uk.gov.dwp.uc.pairtest.journal.JournalEntry;
+import uk.gov.dwp.uc.pairtest.journal.JournalEntry.Outcome;
+import uk.gov.dwp.uc.pairtest.journal.PurchaseJournal;
+import uk.gov.dwp.uc.pairtest.journal.PurchaseJournal.FsyncPolicy;
+import uk.gov.dwp.uc.pairtest.journal.PurchaseJournalReader;
+import uk.gov.dwp.uc.pairtest.ledger.PurchaseLedger;
+import uk.gov.dwp.uc.pairtest.saga.CompensationOutbox;
+import uk.gov.dwp.uc.pairtest.saga.CompensationWorker;
+import uk.gov.dwp.uc.pairtest.saga.PendingReservation;
+import uk.gov.dwp.uc.pairtest.services.BookTicketAndReserveSeat;
+import uk.gov.dwp.uc.pairtest.services.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.utils.PurchaseMetrics;
+
+@DisplayName("Compensation Tests")
+public class CompensationTests {
+
+    @TempDir
+    Path directory;
+
+    private final AtomicBoolean seatBookingDown = new AtomicBoolean(true);
+    private final AtomicInteger reservations = new AtomicInteger();
+    private final List<long[]> refunds = new ArrayList<>();
+    private final SeatReservationService seatService = (accountId, seats) -> {
+        if (seatBookingDown.get()) {
+            throw new IllegalStateException("seat booking down");
+        }
+        reservations.addAndGet(seats);
+    };
+    private CompensationOutbox outbox;
+
+    @BeforeEach
+    void setUp() {
+        outbox = new CompensationOutbox(directory.resolve("outbox.log"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        outbox.close();
+    }
+
+    @Test
+    void testFailedReservationAfterPaymentIsDeferredAndRetried() {
+        BookTicketAndReserveSeat booking = new BookTicketAndReserveSeat((accountId, amount) -> { }, seatService,
+                PurchaseMetrics.disabled(), outbox, null);
+
+        assertThrows(SeatsPendingException.class,
+                () -> booking.makePaymentAndReserveSeats(1L, new TicketSummary(3, 3, 65, 2, 1, 0)));
+        assertEquals(1, outbox.size());
+
+        seatBookingDown.set(false);
+        assertEquals(1, workerWith(5).drain());
+        assertEquals(0, outbox.size());
+        assertEquals(3, reservations.get());
+        assertTrue(refunds.isEmpty());
+    }
+
+    @Test
+    void testPaymentIsRefundedOnceRetriesRunOut() {
+        defer(1L, 2);
+        defer(2L, 1);
+        CompensationWorker worker = workerWith(2);
+
+        assertEquals(0, worker.drain());
+        assertEquals(2, worker.drain());
+
+        assertEquals(0, outbox.size());
+        assertEquals(2, refunds.size());
+        assertEquals(50L, refunds.get(0)[1]);
+        assertEquals(25L, refunds.get(1)[1]);
+    }
+
+    @Test
+    void testPendingReservationsSurviveARestart() throws Exception {
+        PendingReservation first = defer(1L, 2);
+        PendingReservation second = defer(2L, 1);
+        outbox.recordFailedAttempt(second);
+        outbox.complete(first, CompensationOutbox.Outcome.RESERVED);
+        outbox.close();
+        // A crash in the middle of an append leaves a torn last line.
+        Files.writeString(directory.resolve("outbox.log"), "P 3 9", StandardCharsets.US_ASCII,
+                StandardOpenOption.APPEND);
+
+        outbox = new CompensationOutbox(directory.resolve("outbox.log"));
+        PendingReservation next = defer(4L, 1);
+
+        List<PendingReservation> pending = outbox.pending(10);
+        assertEquals(2, pending.size());
+        assertEquals(2L, pending.get(0).getAccountId());
+        assertEquals(1, pending.get(0).getAttempts());
+        assertEquals(next.getId(), pending.get(1).getId());
+        assertTrue(next.getId() > second.getId());
+    }
+
+    @Test
+    void testBatchOrdersWithDeferredSeatsArePending() {
+        BookTicketAndReserveSeat booking = new BookTicketAndReserveSeat((accountId, amount) -> { }, seatService,
+                PurchaseMetrics.disabled(), outbox, null);
+        List<PurchaseOrder> orders = List.of(new PurchaseOrder(1L, new TicketTypeRequest(Type.ADULT, 1)));
+        PurchaseResult[] results = new PurchaseResult[1];
+
+        booking.makePaymentsAndReserveSeats(orders, new TicketSummary[] { new TicketSummary(1, 1, 25, 1, 0, 0) },
+                results);
+
+        assertEquals(PurchaseResult.Status.PENDING, results[0].getStatus());
+        assertFalse(results[0].isSuccessful());
+        assertEquals("Seat reservation failed: seat booking down", results[0].getFailureReason());
+        assertEquals(1, outbox.size());
+    }
+
+    @Test
+    void testRetryOfAPendingPurchaseIsStillPendingAndNotPaidAgain() {
+        AtomicInteger payments = new AtomicInteger();
+        TicketServiceImpl ticketService = TestFixtures.ticketService(new BookTicketAndReserveSeat(
+                (accountId, amount) -> payments.incrementAndGet(), seatService, PurchaseMetrics.disabled(),
+                outbox, null));
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            SeatsPendingException pending = assertThrows(SeatsPendingException.class,
+                    () -> ticketService.purchaseTickets("basket-1", 1L, new TicketTypeRequest(Type.ADULT, 2)));
+            assertEquals(50, pending.getSummary().getTotalPrice());
+        }
+        assertEquals(1, payments.get());
+        assertEquals(1, outbox.size());
+    }
+
+    @Test
+    void testRefundGivesTheTicketsBackAndJournalsTheOutcome() {
+        Path journalDirectory = directory.resolve("journal");
+        PurchaseLedger ledger = new PurchaseLedger(4, 1);
+        try (PurchaseJournal journal = new PurchaseJournal(journalDirectory, 1 << 16, FsyncPolicy.PERIODIC,
+                Duration.ofMillis(1))) {
+            BookTicketAndReserveSeat booking = new BookTicketAndReserveSeat((accountId, amount) -> { }, seatService,
+                    PurchaseMetrics.disabled(), outbox, journal);
+            booking.setPurchaseLedger(ledger);
+            assertThrows(SeatsPendingException.class,
+                    () -> booking.makePaymentAndReserveSeats(1L, new TicketSummary(3, 2, 50, 2, 0, 1)));
+            assertEquals(3, ledger.ticketsBought(1L, 0L));
+
+            CompensationWorker worker = new CompensationWorker(outbox, seatService,
+                    (accountId, amount) -> {
+                        // The purchase is still pending while its refund is made.
+                        assertEquals(1, outbox.size());
+                        refunds.add(new long[] { accountId, amount });
+                    }, ledger, journal, Runnable::run, 16, 1, Duration.ofSeconds(1));
+            assertEquals(1, worker.drain());
+
+            assertEquals(1, refunds.size());
+            assertEquals(0, ledger.ticketsBought(1L, 0L));
+            assertEquals(0, outbox.size());
+        }
+        try (PurchaseJournalReader reader = new PurchaseJournalReader(journalDirectory, 1 << 16)) {
+            List<JournalEntry> entries = new ArrayList<>();
+            reader.replay(entries::add);
+            assertEquals(Outcome.REFUNDED, entries.get(entries.size() - 1).getOutcome());
+            assertEquals(entries.get(0).getSequence(), entries.get(entries.size() - 1).getIntentSequence());
+            assertEquals(1, entries.get(entries.size() - 1).getInfantTickets());
+        }
+    }
+
+    private PendingReservation defer(long accountId, int adultTickets) {
+        return outbox.record(accountId, 1L, new TicketSummary(adultTickets, adultTickets, adultTickets * 25,
+                adultTickets, 0, 0), JournalEntry.NO_INTENT);
+    }
+
+    private CompensationWorker workerWith(int maxAttempts) {
+        return new CompensationWorker(outbox, seatService,
+                (accountId, amount) -> refunds.add(new long[] { accountId, amount }), 16, maxAttempts,
+                Duration.ofSeconds(1));
+    }
+}
@@ -0,0 +1,235 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.OutcomeUnknownException;
+import uk.gov.dwp.uc.pairtest.services.BookTicketAndReserveSeat;
+import uk.gov.dwp.uc.pairtest.services.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.utils.ExpiringLruCache;
+import uk.gov.dwp.uc.pairtest.utils.PurchaseMetrics;
+
+@DisplayName("Idempotent purchase Tests")
+public class IdempotentPurchaseTests {
+
+    private final AtomicInteger payments = new AtomicInteger();
+    private final AtomicBoolean declinePayments = new AtomicBoolean();
+    private ExpiringLruCache<String, PurchaseResult> cache;
+    private TicketServiceImpl ticketService;
+
+    @BeforeEach
+    void setUp() {
+        BookTicketAndReserveSeat booking = new BookTicketAndReserveSeat((accountId, amount) -> {
+            payments.incrementAndGet();
+            sleep(20);
+            if (declinePayments.get()) {
+                throw new IllegalStateException("card declined");
+            }
+        }, (accountId, seats) -> { });
+
+        cache = new ExpiringLruCache<>(100, Duration.ofMinutes(1), 4);
+        ticketService = new TicketServiceImpl(TestFixtures.ticketProcessor(), booking, TestFixtures.validations(), cache,
+                PurchaseMetrics.disabled());
+    }
+
+    @Test
+    void testRetryReturnsTheEarlierSummaryWithoutPayingAgain() {
+        TicketSummary first = ticketService.purchaseTickets("key-1", 1L, new TicketTypeRequest(Type.ADULT, 2));
+        TicketSummary retry = ticketService.purchaseTickets("key-1", 1L, new TicketTypeRequest(Type.ADULT, 2));
+
+        assertSame(first, retry);
+        assertEquals(1, payments.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void testConcurrentDuplicatesArePaidOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<TicketSummary>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return ticketService.purchaseTickets("storm", 7L, new TicketTypeRequest(Type.ADULT, 1));
+                }));
+            }
+            start.countDown();
+            for (Future<TicketSummary> future : futures) {
+                assertEquals(25, future.get(10, TimeUnit.SECONDS).getTotalPrice());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, payments.get());
+    }
+
+    @Test
+    void testFailedPurchaseIsNotCached() {
+        declinePayments.set(true);
+        assertThrows(RuntimeException.class,
+                () -> ticketService.purchaseTickets("key-2", 1L, new TicketTypeRequest(Type.ADULT, 1)));
+
+        declinePayments.set(false);
+        ticketService.purchaseTickets("key-2", 1L, new TicketTypeRequest(Type.ADULT, 1));
+
+        assertEquals(2, payments.get());
+    }
+
+    @Test
+    void testKeyCannotBeReusedByAnotherAccount() {
+        ticketService.purchaseTickets("key-3", 1L, new TicketTypeRequest(Type.ADULT, 1));
+
+        assertThrows(InvalidPurchaseException.class,
+                () -> ticketService.purchaseTickets("key-3", 2L, new TicketTypeRequest(Type.ADULT, 1)));
+    }
+
+    @Test
+    void testEntriesExpireAndLeastRecentlyUsedAreEvicted() {
+        AtomicLong now = new AtomicLong();
+        ExpiringLruCache<String, Integer> lru = new ExpiringLruCache<>(2, Duration.ofNanos(100), 1, now::get);
+        AtomicInteger loads = new AtomicInteger();
+
+        lru.getOrCompute("a", loads::incrementAndGet);
+        lru.getOrCompute("b", loads::incrementAndGet);
+        lru.getOrCompute("a", loads::incrementAndGet);
+        lru.getOrCompute("c", loads::incrementAndGet);
+        assertEquals(1, lru.getEvictionCount());
+        assertEquals(2, lru.size());
+
+        // "b" was the least recently used entry, "a" is still cached until it expires.
+        lru.getOrCompute("a", loads::incrementAndGet);
+        assertEquals(3, loads.get());
+        now.addAndGet(101);
+        lru.getOrCompute("a", loads::incrementAndGet);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void testEntriesStillBeingComputedAreNotEvicted() throws Exception {
+        ExpiringLruCache<String, Integer> lru = new ExpiringLruCache<>(1, Duration.ofMinutes(1), 1);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> first = executor.submit(() -> lru.getOrCompute("a", () -> {
+                loading.countDown();
+                await(release);
+                return loads.incrementAndGet();
+            }));
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+
+            lru.getOrCompute("b", loads::incrementAndGet);
+            lru.getOrCompute("c", loads::incrementAndGet);
+            // "b" went in place of the in-flight "a", so a duplicate still joins the first computation.
+            assertEquals(1, lru.getEvictionCount());
+            Future<Integer> duplicate = executor.submit(() -> lru.getOrCompute("a", loads::incrementAndGet));
+
+            release.countDown();
+            assertEquals(first.get(10, TimeUnit.SECONDS), duplicate.get(10, TimeUnit.SECONDS));
+            assertEquals(3, loads.get());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testErrorsReachEveryWaitingCallerAndAreNotCached() throws Exception {
+        ExpiringLruCache<String, Integer> lru = new ExpiringLruCache<>(16, Duration.ofMinutes(1), 1);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> first = executor.submit(() -> lru.getOrCompute("a", () -> {
+                loading.countDown();
+                await(release);
+                throw new AssertionError("loader broke");
+            }));
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            Future<Integer> duplicate = executor.submit(() -> lru.getOrCompute("a", () -> 1));
+            while (lru.getHitCount() == 0) {
+                Thread.onSpinWait();
+            }
+
+            release.countDown();
+            for (Future<Integer> future : List.of(first, duplicate)) {
+                ExecutionException failure = assertThrows(ExecutionException.class,
+                        () -> future.get(10, TimeUnit.SECONDS));
+                assertInstanceOf(AssertionError.class, failure.getCause());
+            }
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+        assertEquals(0, lru.size());
+        assertEquals(2, lru.getOrCompute("a", () -> 2));
+    }
+
+    @Test
+    void testOutcomeUnknownFailuresAreRememberedUntilTheyExpire() {
+        AtomicLong now = new AtomicLong();
+        ExpiringLruCache<String, Integer> lru = new ExpiringLruCache<>(16, Duration.ofNanos(100), 1,
+                OutcomeUnknownException::isOutcomeUnknown, now::get);
+        AtomicInteger loads = new AtomicInteger();
+        OutcomeUnknownException unknown = new OutcomeUnknownException("payment", new CompletableFuture<>());
+
+        assertSame(unknown, assertThrows(OutcomeUnknownException.class, () -> lru.getOrCompute("a", () -> {
+            loads.incrementAndGet();
+            throw unknown;
+        })));
+        assertSame(unknown, assertThrows(OutcomeUnknownException.class,
+                () -> lru.getOrCompute("a", loads::incrementAndGet)));
+        assertEquals(1, loads.get());
+
+        now.addAndGet(101);
+        assertEquals(2, lru.getOrCompute("a", loads::incrementAndGet));
+
+        assertThrows(IllegalStateException.class, () -> lru.getOrCompute("b", () -> {
+            throw new IllegalStateException("declined");
+        }));
+        assertEquals(3, lru.getOrCompute("b", loads::incrementAndGet));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
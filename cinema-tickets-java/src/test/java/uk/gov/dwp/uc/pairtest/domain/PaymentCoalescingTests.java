@@ -0,0 +1,294 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import thirdparty.paymentgateway.TicketPaymentService;
+import uk.gov.dwp.uc.pairtest.exception.OutcomeUnknownException;
+import uk.gov.dwp.uc.pairtest.exception.ServiceUnavailableException;
+import uk.gov.dwp.uc.pairtest.services.BookTicketAndReserveSeat;
+import uk.gov.dwp.uc.pairtest.services.CoalescingTicketPaymentService;
+import uk.gov.dwp.uc.pairtest.utils.MpscArrayQueue;
+
+@DisplayName("Payment coalescing Tests")
+public class PaymentCoalescingTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<long[]> calls = new ArrayList<>();
+    private CoalescingTicketPaymentService coalescer;
+
+    @AfterEach
+    void tearDown() {
+        if (coalescer != null) {
+            coalescer.close();
+        }
+    }
+
+    @Test
+    void testFullBatchIsFlushedWithoutWaitingForTheDeadline() throws Exception {
+        coalescer = coalescer(recordingGateway(), 64, Duration.ofSeconds(30), 1024);
+
+        List<CompletableFuture<Void>> payments = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            payments.add(coalescer.submitPayment(i + 1, 25));
+        }
+
+        CompletableFuture.allOf(payments.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        assertEquals(64, calls.size());
+        assertEquals(1, registry.get("ticket.payment.batch.size").summary().count());
+        assertEquals(64.0, registry.get("ticket.payment.batch.size").summary().totalAmount());
+    }
+
+    @Test
+    void testPartialBatchIsFlushedAtTheDeadline() throws Exception {
+        coalescer = coalescer(recordingGateway(), 64, Duration.ofMillis(20), 1024);
+
+        long start = System.nanoTime();
+        coalescer.makePayment(1L, 25);
+        long elapsed = System.nanoTime() - start;
+
+        assertTrue(elapsed >= Duration.ofMillis(20).toNanos(), "flushed before the deadline");
+        assertEquals(1, calls.size());
+        assertEquals(1, registry.get("ticket.payment.queue.delay").timer().count());
+    }
+
+    @Test
+    void testEachCallerGetsItsOwnAccountsOutcome() throws Exception {
+        RuntimeException declined = new RuntimeException("Card declined");
+        coalescer = coalescer((accountId, amount) -> {
+            synchronized (calls) {
+                calls.add(new long[] { accountId, amount });
+            }
+            if (accountId == 13L) {
+                throw declined;
+            }
+        }, 4, Duration.ofSeconds(30), 1024);
+
+        CompletableFuture<Void> first = coalescer.submitPayment(7L, 25);
+        CompletableFuture<Void> failed = coalescer.submitPayment(13L, 40);
+        CompletableFuture<Void> second = coalescer.submitPayment(7L, 15);
+        CompletableFuture<Void> other = coalescer.submitPayment(8L, 25);
+
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        other.get(5, TimeUnit.SECONDS);
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertSame(declined, failure.getCause());
+        // Orders from one account are charged separately, never summed.
+        assertEquals(4, calls.size());
+        assertTrue(calls.stream().noneMatch(call -> call[0] == 7L && call[1] == 40L));
+    }
+
+    @Test
+    void testFullQueueIsRejectedImmediately() throws Exception {
+        CountDownLatch gatewayBlocked = new CountDownLatch(1);
+        CountDownLatch releaseGateway = new CountDownLatch(1);
+        coalescer = coalescer((accountId, amount) -> {
+            gatewayBlocked.countDown();
+            try {
+                releaseGateway.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 1, Duration.ZERO, 2);
+
+        CompletableFuture<Void> inFlight = coalescer.submitPayment(1L, 25);
+        assertTrue(gatewayBlocked.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> queued1 = coalescer.submitPayment(2L, 25);
+        CompletableFuture<Void> queued2 = coalescer.submitPayment(3L, 25);
+
+        ServiceUnavailableException rejected = assertThrows(ServiceUnavailableException.class,
+                () -> coalescer.makePayment(4L, 25));
+        assertEquals(ServiceUnavailableException.Reason.QUEUE_FULL, rejected.getReason());
+        assertEquals(1.0, registry.get("ticket.payment.queue.rejected").counter().count());
+
+        releaseGateway.countDown();
+        CompletableFuture.allOf(inFlight, queued1, queued2).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testDifferentAccountsInABatchAreChargedConcurrently() throws Exception {
+        CountDownLatch bothCalling = new CountDownLatch(2);
+        AtomicBoolean overlapped = new AtomicBoolean(true);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            coalescer = new CoalescingTicketPaymentService((accountId, amount) -> {
+                bothCalling.countDown();
+                try {
+                    if (!bothCalling.await(5, TimeUnit.SECONDS)) {
+                        overlapped.set(false);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, 2, Duration.ofSeconds(30), Duration.ofSeconds(10), 16, executor, registry);
+
+            CompletableFuture.allOf(coalescer.submitPayment(1L, 25), coalescer.submitPayment(2L, 25))
+                    .get(10, TimeUnit.SECONDS);
+        }
+        assertTrue(overlapped.get());
+    }
+
+    @Test
+    void testPaymentSentButNotAnsweredInTimeHasAnUnknownOutcome() throws Exception {
+        CountDownLatch releaseGateway = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            coalescer = new CoalescingTicketPaymentService((accountId, amount) -> {
+                try {
+                    releaseGateway.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, 1, Duration.ZERO, Duration.ofMillis(50), 16, executor, registry);
+
+            OutcomeUnknownException unknown = assertThrows(OutcomeUnknownException.class,
+                    () -> coalescer.makePayment(1L, 25));
+            assertFalse(unknown.getOutcome().isDone());
+
+            releaseGateway.countDown();
+            unknown.getOutcome().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void testPaymentWhoseGatewayCallTimesOutAfterTheCallerGaveUpIsSettledWhenTheCallReturns() throws Exception {
+        CountDownLatch releaseGateway = new CountDownLatch(1);
+        CompletableFuture<Void> gatewayOutcome = new CompletableFuture<>();
+        CountDownLatch reserved = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            // The gateway's own timeout fires only after the coalescer's caller has given up.
+            coalescer = new CoalescingTicketPaymentService((accountId, amount) -> {
+                try {
+                    releaseGateway.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new OutcomeUnknownException("Payment service", gatewayOutcome);
+            }, 1, Duration.ZERO, Duration.ofMillis(50), 16, executor, registry);
+            BookTicketAndReserveSeat booking = new BookTicketAndReserveSeat(coalescer,
+                    (accountId, seats) -> reserved.countDown());
+
+            assertThrows(OutcomeUnknownException.class,
+                    () -> booking.makePaymentAndReserveSeats(1L, new TicketSummary(2, 2, 50, 2, 0, 0)));
+            releaseGateway.countDown();
+            assertFalse(reserved.await(100, TimeUnit.MILLISECONDS));
+
+            gatewayOutcome.complete(null);
+            assertTrue(reserved.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testPaymentStillQueuedWhenItsCallerGivesUpIsNeverCharged() throws Exception {
+        coalescer = new CoalescingTicketPaymentService(recordingGateway(), 2, Duration.ofSeconds(30),
+                Duration.ofMillis(20), 16, Runnable::run, registry);
+
+        ServiceUnavailableException withdrawn = assertThrows(ServiceUnavailableException.class,
+                () -> coalescer.makePayment(1L, 25));
+        assertFalse(withdrawn instanceof OutcomeUnknownException);
+
+        // Fills the batch, which is flushed without the withdrawn payment.
+        coalescer.submitPayment(2L, 40).get(5, TimeUnit.SECONDS);
+        assertEquals(1, calls.size());
+        assertEquals(2L, calls.get(0)[0]);
+    }
+
+    @Test
+    void testPaymentsRacingWithCloseAreAllCompleted() throws Exception {
+        coalescer = coalescer(recordingGateway(), 16, Duration.ofMillis(1), 1 << 16);
+        List<CompletableFuture<Void>> payments = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch submitting = new CountDownLatch(4);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            long accountId = p + 1;
+            producers.add(Thread.ofPlatform().start(() -> {
+                submitting.countDown();
+                for (int i = 0; i < 2_000; i++) {
+                    payments.add(coalescer.submitPayment(accountId, 25));
+                }
+            }));
+        }
+        assertTrue(submitting.await(5, TimeUnit.SECONDS));
+        coalescer.close();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        // Each payment was either charged or rejected; none is left waiting on a closed coalescer.
+        CompletableFuture.allOf(payments.toArray(CompletableFuture[]::new))
+                .handle((ignored, failure) -> null).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testQueueDeliversEveryElementOnceInProducerOrder() throws Exception {
+        MpscArrayQueue<long[]> queue = new MpscArrayQueue<>(1000);
+        assertEquals(1024, queue.capacity());
+        int producers = 4;
+        int perProducer = 50_000;
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    long[] element = { producer, i };
+                    while (!queue.offer(element)) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+
+        long[] next = new long[producers];
+        int received = 0;
+        while (received < producers * perProducer) {
+            long[] element = queue.poll();
+            if (element == null) {
+                Thread.yield();
+                continue;
+            }
+            if (element[1] != next[(int) element[0]]++) {
+                failed.set(true);
+            }
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(failed.get());
+        assertTrue(queue.isEmpty());
+    }
+
+    private TicketPaymentService recordingGateway() {
+        return (accountId, amount) -> {
+            synchronized (calls) {
+                calls.add(new long[] { accountId, amount });
+            }
+        };
+    }
+
+    private CoalescingTicketPaymentService coalescer(TicketPaymentService gateway, int batchSize,
+            Duration maxDelay, int capacity) {
+        return new CoalescingTicketPaymentService(gateway, batchSize, maxDelay, Duration.ofSeconds(10), capacity,
+                Runnable::run, registry);
+    }
+}
@@ -0,0 +1,236 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uk.gov.dwp.uc.pairtest.journal.JournalEntry;
+import uk.gov.dwp.uc.pairtest.journal.JournalEntry.Outcome;
+import uk.gov.dwp.uc.pairtest.journal.PurchaseJournal;
+import uk.gov.dwp.uc.pairtest.journal.PurchaseJournal.FsyncPolicy;
+import uk.gov.dwp.uc.pairtest.journal.PurchaseJournalReader;
+import uk.gov.dwp.uc.pairtest.services.BookTicketAndReserveSeat;
+import uk.gov.dwp.uc.pairtest.utils.PurchaseMetrics;
+
+@DisplayName("Purchase journal Tests")
+public class PurchaseJournalTests {
+
+    // Room for four records per segment, so the tests cross segment boundaries.
+    private static final int RECORD_BYTES = 56;
+    private static final int SEGMENT_BYTES = 4 * RECORD_BYTES;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testEntriesAreReplayedInOrderAcrossSegments() {
+        try (PurchaseJournal journal = journal(FsyncPolicy.PERIODIC)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(100L + i, 2, 1, 0, 65, Outcome.SUCCEEDED);
+            }
+        }
+
+        List<JournalEntry> entries = replay();
+        assertEquals(10, entries.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, entries.get(i).getSequence());
+            assertEquals(100L + i, entries.get(i).getAccountId());
+            assertEquals(65, entries.get(i).getTotalPrice());
+        }
+    }
+
+    @Test
+    void testJournalResumesAfterTheLastCompleteEntry() throws Exception {
+        try (PurchaseJournal journal = journal(FsyncPolicy.PERIODIC)) {
+            for (int i = 0; i < 6; i++) {
+                journal.append(1L, 1, 0, 0, 25, Outcome.SUCCEEDED);
+            }
+        }
+        // Tear the last entry as a crash in the middle of a write would.
+        tear(1, 1);
+
+        try (PurchaseJournal journal = journal(FsyncPolicy.PERIODIC)) {
+            assertEquals(5, journal.getNextSequence());
+            journal.append(2L, 1, 0, 0, 25, Outcome.PAYMENT_FAILED);
+        }
+
+        List<JournalEntry> entries = replay();
+        assertEquals(6, entries.size());
+        assertEquals(2L, entries.get(5).getAccountId());
+        assertEquals(Outcome.PAYMENT_FAILED, entries.get(5).getOutcome());
+    }
+
+    @Test
+    void testRecoverySkipsHolesLeftBelowLaterEntries() throws Exception {
+        try (PurchaseJournal journal = journal(FsyncPolicy.PERIODIC)) {
+            for (int i = 0; i < 6; i++) {
+                journal.append(100L + i, 1, 0, 0, 25, Outcome.SUCCEEDED);
+            }
+        }
+        // Entries 2 and 4 were still being written when later ones completed and the process died.
+        tear(0, 2);
+        tear(1, 0);
+
+        try (PurchaseJournal journal = journal(FsyncPolicy.PERIODIC)) {
+            assertEquals(6, journal.getNextSequence());
+            journal.append(200L, 1, 0, 0, 25, Outcome.SUCCEEDED);
+        }
+
+        List<Long> accounts = new ArrayList<>();
+        replay().forEach(entry -> accounts.add(entry.getAccountId()));
+        assertEquals(List.of(100L, 101L, 103L, 105L, 200L), accounts);
+    }
+
+    @Test
+    void testIntentsWithoutAnOutcomeAreUnresolved() {
+        try (PurchaseJournal journal = journal(FsyncPolicy.PERIODIC)) {
+            long paid = journal.append(1L, 1, 0, 0, 25, Outcome.PAYMENT_STARTED);
+            long interrupted = journal.append(2L, 2, 0, 0, 50, Outcome.PAYMENT_STARTED);
+            long declined = journal.append(3L, 1, 0, 0, 25, Outcome.PAYMENT_STARTED);
+            journal.append(1L, 1, 0, 0, 25, Outcome.SUCCEEDED, paid);
+            journal.append(3L, 1, 0, 0, 25, Outcome.PAYMENT_FAILED, declined);
+            assertEquals(1, interrupted);
+        }
+
+        try (PurchaseJournalReader reader = new PurchaseJournalReader(directory, SEGMENT_BYTES)) {
+            List<JournalEntry> unresolved = reader.unresolvedIntents();
+            assertEquals(1, unresolved.size());
+            assertEquals(2L, unresolved.get(0).getAccountId());
+            assertEquals(50, unresolved.get(0).getTotalPrice());
+        }
+    }
+
+    @Test
+    void testReaderTailsAJournalWhileItIsWritten() {
+        try (PurchaseJournal journal = journal(FsyncPolicy.PERIODIC);
+                PurchaseJournalReader reader = new PurchaseJournalReader(directory, SEGMENT_BYTES)) {
+            List<JournalEntry> seen = new ArrayList<>();
+            assertEquals(0, reader.poll(seen::add, 100));
+
+            journal.append(1L, 1, 0, 0, 25, Outcome.SUCCEEDED);
+            journal.append(2L, 1, 0, 0, 25, Outcome.SUCCEEDED);
+            assertEquals(2, reader.poll(seen::add, 100));
+
+            for (int i = 0; i < 5; i++) {
+                journal.append(3L, 1, 0, 0, 25, Outcome.SUCCEEDED);
+            }
+            assertEquals(3, reader.poll(seen::add, 3));
+            assertEquals(2, reader.poll(seen::add, 100));
+            assertEquals(7, seen.size());
+        }
+    }
+
+    @Test
+    void testTailingReaderSkipsASlotAbandonedBelowLaterEntries() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        try (PurchaseJournal journal = journal(FsyncPolicy.PERIODIC);
+                PurchaseJournalReader reader = new PurchaseJournalReader(directory, SEGMENT_BYTES,
+                        Duration.ofSeconds(1), clock::get)) {
+            for (int i = 0; i < 7; i++) {
+                journal.append(100L + i, 1, 0, 0, 25, Outcome.SUCCEEDED);
+            }
+            // The appenders of entries 1 and 3 died after claiming their slots; entry 6 is still being written.
+            tear(0, 1);
+            tear(0, 3);
+            tear(1, 2);
+            List<Long> accounts = new ArrayList<>();
+
+            assertEquals(1, reader.poll(entry -> accounts.add(entry.getAccountId()), 100));
+            assertEquals(0, reader.poll(entry -> accounts.add(entry.getAccountId()), 100));
+            clock.addAndGet(Duration.ofSeconds(1).toNanos());
+            assertEquals(1, reader.poll(entry -> accounts.add(entry.getAccountId()), 100));
+            clock.addAndGet(Duration.ofSeconds(1).toNanos());
+            assertEquals(2, reader.poll(entry -> accounts.add(entry.getAccountId()), 100));
+            clock.addAndGet(Duration.ofSeconds(10).toNanos());
+            assertEquals(0, reader.poll(entry -> accounts.add(entry.getAccountId()), 100));
+
+            assertEquals(List.of(100L, 102L, 104L, 105L), accounts);
+        }
+    }
+
+    @Test
+    void testConcurrentGroupCommitAppendsAreAllJournaled() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Long>> futures = new ArrayList<>();
+        try (PurchaseJournal journal = journal(FsyncPolicy.GROUP_COMMIT)) {
+            for (int i = 0; i < 200; i++) {
+                final long accountId = i;
+                futures.add(executor.submit(() -> journal.append(accountId, 1, 0, 0, 25, Outcome.SUCCEEDED)));
+            }
+            for (Future<Long> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Set<Long> accounts = new HashSet<>();
+        replay().forEach(entry -> accounts.add(entry.getAccountId()));
+        assertEquals(200, accounts.size());
+    }
+
+    @Test
+    void testBookingJournalsEachOutcome() {
+        try (PurchaseJournal journal = journal(FsyncPolicy.PERIODIC)) {
+            BookTicketAndReserveSeat booking = new BookTicketAndReserveSeat((accountId, amount) -> {
+                if (accountId == 2L) {
+                    throw new IllegalStateException("card declined");
+                }
+            }, (accountId, seats) -> { }, PurchaseMetrics.disabled(), null, journal);
+
+            booking.makePaymentAndReserveSeats(1L, new TicketSummary(3, 2, 65, 2, 0, 1));
+            assertThrows(RuntimeException.class,
+                    () -> booking.makePaymentAndReserveSeats(2L, new TicketSummary(1, 1, 25, 1, 0, 0)));
+        }
+
+        List<JournalEntry> entries = replay();
+        assertEquals(4, entries.size());
+        assertEquals(Outcome.PAYMENT_STARTED, entries.get(0).getOutcome());
+        assertEquals(Outcome.SUCCEEDED, entries.get(1).getOutcome());
+        assertEquals(0, entries.get(1).getIntentSequence());
+        assertEquals(1, entries.get(1).getInfantTickets());
+        assertEquals(Outcome.PAYMENT_STARTED, entries.get(2).getOutcome());
+        assertEquals(Outcome.PAYMENT_FAILED, entries.get(3).getOutcome());
+        assertEquals(2, entries.get(3).getIntentSequence());
+    }
+
+    private PurchaseJournal journal(FsyncPolicy fsyncPolicy) {
+        return new PurchaseJournal(directory, SEGMENT_BYTES, fsyncPolicy, Duration.ofMillis(1));
+    }
+
+    private List<JournalEntry> replay() {
+        List<JournalEntry> entries = new ArrayList<>();
+        try (PurchaseJournalReader reader = new PurchaseJournalReader(directory, SEGMENT_BYTES)) {
+            reader.replay(entries::add);
+        }
+        return entries;
+    }
+
+    private void tear(long segmentIndex, int slot) throws Exception {
+        try (RandomAccessFile segment = new RandomAccessFile(
+                directory.resolve(segmentName(segmentIndex)).toFile(), "rw")) {
+            segment.seek((long) slot * RECORD_BYTES + 20);
+            segment.writeLong(999L);
+        }
+    }
+
+    private static String segmentName(long index) {
+        return String.format("%020d.journal", index);
+    }
+}
@@ -0,0 +1,138 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.ledger.LedgerSnapshotter;
+import uk.gov.dwp.uc.pairtest.ledger.PurchaseLedger;
+import uk.gov.dwp.uc.pairtest.services.BookTicketAndReserveSeat;
+
+@DisplayName("Purchase ledger Tests")
+public class PurchaseLedgerTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testCapHoldsAcrossOrdersPerScreening() {
+        PurchaseLedger ledger = new PurchaseLedger(10, 4);
+
+        assertTrue(ledger.tryRecord(1L, 100L, 6));
+        assertFalse(ledger.tryRecord(1L, 100L, 5));
+        assertTrue(ledger.tryRecord(1L, 100L, 4));
+        assertTrue(ledger.tryRecord(1L, 200L, 10));
+        assertTrue(ledger.tryRecord(2L, 100L, 10));
+
+        assertEquals(10, ledger.ticketsBought(1L, 100L));
+        ledger.release(1L, 100L, 3);
+        assertEquals(7, ledger.ticketsBought(1L, 100L));
+    }
+
+    @Test
+    void testConcurrentSmallOrdersCannotExceedTheCap() throws Exception {
+        PurchaseLedger ledger = new PurchaseLedger(25, 16);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int recorded = 0;
+                    for (int i = 0; i < 100; i++) {
+                        // Many accounts at once so the shards grow while they are being written.
+                        recorded += ledger.tryRecord(7L, 1L, 1) ? 1 : 0;
+                        ledger.tryRecord(1000L + i, 1L, 1);
+                    }
+                    return recorded;
+                }));
+            }
+            start.countDown();
+            int recorded = 0;
+            for (Future<Integer> future : futures) {
+                recorded += future.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(25, recorded);
+            assertEquals(25, ledger.ticketsBought(7L, 1L));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testCountsSurviveARestartThroughTheSnapshot() throws Exception {
+        Path snapshot = directory.resolve("ledger.snapshot");
+        PurchaseLedger ledger = new PurchaseLedger(10, 4);
+        LedgerSnapshotter snapshotter = new LedgerSnapshotter(ledger, snapshot, Duration.ofHours(1));
+        snapshotter.start();
+        for (long accountId = 1; accountId <= 100; accountId++) {
+            ledger.tryRecord(accountId, 5L, (int) (accountId % 10) + 1);
+        }
+        snapshotter.close();
+
+        PurchaseLedger restored = new PurchaseLedger(10, 8);
+        new LedgerSnapshotter(restored, snapshot, Duration.ofHours(1)).start();
+
+        assertEquals(100, restored.size());
+        assertEquals(4, restored.ticketsBought(13L, 5L));
+        assertFalse(restored.tryRecord(19L, 5L, 1));
+    }
+
+    @Test
+    void testReleaseRemovesEmptiedEntriesAndIgnoresUnknownOnes() {
+        PurchaseLedger ledger = new PurchaseLedger(10, 1);
+        ledger.release(99L, 1L, 2);
+        assertFalse(ledger.tryRecord(98L, 1L, 11));
+        assertEquals(0, ledger.size());
+
+        for (long accountId = 1; accountId <= 200; accountId++) {
+            assertTrue(ledger.tryRecord(accountId, 1L, 3));
+        }
+        for (long accountId = 1; accountId <= 200; accountId += 2) {
+            ledger.release(accountId, 1L, 3);
+        }
+
+        assertEquals(100, ledger.size());
+        for (long accountId = 1; accountId <= 200; accountId++) {
+            assertEquals(accountId % 2 == 0 ? 3 : 0, ledger.ticketsBought(accountId, 1L));
+        }
+    }
+
+    @Test
+    void testBookingEnforcesTheCapAndReleasesFailedPurchases() {
+        PurchaseLedger ledger = new PurchaseLedger(4, 4);
+        BookTicketAndReserveSeat booking = new BookTicketAndReserveSeat((accountId, amount) -> {
+            if (amount == 1) {
+                throw new IllegalStateException("card declined");
+            }
+        }, (accountId, seats) -> { });
+        booking.setPurchaseLedger(ledger);
+
+        booking.makePaymentAndReserveSeats(1L, new TicketSummary(3, 3, 75, 3, 0, 0));
+        assertThrows(RuntimeException.class,
+                () -> booking.makePaymentAndReserveSeats(1L, new TicketSummary(1, 1, 1, 1, 0, 0)));
+        assertEquals(3, ledger.ticketsBought(1L, 0L));
+
+        InvalidPurchaseException exception = assertThrows(InvalidPurchaseException.class,
+                () -> booking.makePaymentAndReserveSeats(1L, new TicketSummary(2, 2, 50, 2, 0, 0)));
+        assertEquals("Only a maximum of 4 tickets can be purchased per account for a screening.",
+                exception.getMessage());
+    }
+}
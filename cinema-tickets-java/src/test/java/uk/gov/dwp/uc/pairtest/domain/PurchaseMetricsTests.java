@@ -0,0 +1,71 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.services.BookTicketAndReserveSeat;
+import uk.gov.dwp.uc.pairtest.services.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.utils.ExpiringLruCache;
+import uk.gov.dwp.uc.pairtest.utils.PurchaseMetrics;
+
+@DisplayName("Purchase metrics Tests")
+public class PurchaseMetricsTests {
+
+    private SimpleMeterRegistry registry;
+    private TicketServiceImpl ticketService;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        PurchaseMetrics metrics = new PurchaseMetrics(registry);
+        BookTicketAndReserveSeat booking = new BookTicketAndReserveSeat((accountId, amount) -> { },
+                (accountId, seats) -> {
+                    throw new IllegalStateException("sold out");
+                }, metrics);
+        ticketService = new TicketServiceImpl(TestFixtures.ticketProcessor(), booking, TestFixtures.validations(),
+                new ExpiringLruCache<>(16, Duration.ofMinutes(1), 1), metrics);
+    }
+
+    @Test
+    void testEachStageIsTimedWithItsOutcome() {
+        assertThrows(RuntimeException.class,
+                () -> ticketService.purchaseTickets(1L, new TicketTypeRequest(Type.ADULT, 2)));
+
+        assertEquals(1, count("validateAccountId", "success", "none"));
+        assertEquals(1, count("validateTicketRequests", "success", "none"));
+        assertEquals(1, count("processTickets", "success", "none"));
+        assertEquals(1, count("validateTicketPurchase", "success", "none"));
+        assertEquals(1, count("makePayment", "success", "none"));
+        assertEquals(1, count("reserveSeat", "failure", "IllegalStateException"));
+    }
+
+    @Test
+    void testRejectionsAreTaggedWithTheExceptionType() {
+        assertThrows(InvalidPurchaseException.class,
+                () -> ticketService.purchaseTickets(-1L, new TicketTypeRequest(Type.ADULT, 2)));
+        assertThrows(InvalidPurchaseException.class,
+                () -> ticketService.purchaseTickets(1L, new TicketTypeRequest(Type.CHILD, 2)));
+
+        assertEquals(1, count("validateAccountId", "failure", "InvalidPurchaseException"));
+        assertEquals(1, count("validateTicketRequests", "failure", "InvalidPurchaseException"));
+        assertEquals(0, count("makePayment", "success", "none"));
+    }
+
+    private long count(String stage, String outcome, String exception) {
+        return registry.get(PurchaseMetrics.STAGE_TIMER)
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .tag("exception", exception)
+                .timer()
+                .count();
+    }
+}
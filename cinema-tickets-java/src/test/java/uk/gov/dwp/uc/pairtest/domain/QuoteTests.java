@@ -0,0 +1,101 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.services.BookTicketAndReserveSeat;
+import uk.gov.dwp.uc.pairtest.services.PriceTable;
+import uk.gov.dwp.uc.pairtest.services.TicketProcessor;
+import uk.gov.dwp.uc.pairtest.services.TicketServiceImpl;
+
+@DisplayName("Quote Tests")
+public class QuoteTests {
+
+    private final AtomicInteger gatewayCalls = new AtomicInteger();
+    private TicketProcessor ticketProcessor;
+    private TicketServiceImpl ticketService;
+
+    @BeforeEach
+    void setUp() {
+        ticketProcessor = TestFixtures.ticketProcessor();
+        ticketService = new TicketServiceImpl(ticketProcessor,
+                new BookTicketAndReserveSeat((accountId, amount) -> gatewayCalls.incrementAndGet(),
+                        (accountId, seats) -> gatewayCalls.incrementAndGet()),
+                TestFixtures.validations());
+    }
+
+    @Test
+    void testQuoteMatchesThePurchaseSummaryForEveryValidMix() {
+        for (int adults = 1; adults <= 25; adults++) {
+            for (int children = 0; adults + children <= 25; children++) {
+                for (int infants = 0; infants <= adults && adults + children + infants <= 25; infants++) {
+                    TicketTypeRequest[] requests = {
+                            new TicketTypeRequest(Type.ADULT, adults),
+                            new TicketTypeRequest(Type.CHILD, children),
+                            new TicketTypeRequest(Type.INFANT, infants) };
+                    assertSummaryEquals(ticketProcessor.processTickets(requests), ticketService.quote(requests));
+                }
+            }
+        }
+        assertEquals(0, gatewayCalls.get());
+    }
+
+    @Test
+    void testQuotesAreKeyedByTheCountOfEachType() {
+        TicketSummary split = ticketService.quote(new TicketTypeRequest(Type.CHILD, 1),
+                new TicketTypeRequest(Type.ADULT, 1), new TicketTypeRequest(Type.ADULT, 1));
+        TicketSummary merged = ticketService.quote(new TicketTypeRequest(Type.ADULT, 2),
+                new TicketTypeRequest(Type.CHILD, 1));
+
+        assertSame(split, merged);
+        assertEquals(65, merged.getTotalPrice());
+    }
+
+    @Test
+    void testQuoteRejectsWhatAPurchaseRejects() {
+        TicketTypeRequest[][] rejected = {
+                { new TicketTypeRequest(Type.CHILD, 2) },
+                { new TicketTypeRequest(Type.ADULT, 1), new TicketTypeRequest(Type.INFANT, 2) },
+                { new TicketTypeRequest(Type.ADULT, 20), new TicketTypeRequest(Type.CHILD, 6) },
+                { new TicketTypeRequest(Type.ADULT, 0) },
+                { new TicketTypeRequest(Type.ADULT, -1) },
+                { new TicketTypeRequest(null, 1) } };
+
+        for (TicketTypeRequest[] requests : rejected) {
+            InvalidPurchaseException purchase = assertThrows(InvalidPurchaseException.class,
+                    () -> ticketService.purchaseTickets(7L, requests));
+            InvalidPurchaseException quote = assertThrows(InvalidPurchaseException.class,
+                    () -> ticketService.quote(requests));
+            assertEquals(purchase.getMessage(), quote.getMessage());
+        }
+        assertEquals(0, gatewayCalls.get());
+    }
+
+    @Test
+    void testQuotesKeepTheConfiguredStandardPricesWhenTiersAreInstalled() {
+        assertEquals(75, ticketService.quote(new TicketTypeRequest(Type.ADULT, 3)).getTotalPrice());
+
+        ticketProcessor.setPriceTable(new PriceTable(new int[] { 30, 10, 0 }, new int[] { 40, 20, 0 }));
+
+        assertEquals(75, ticketService.quote(new TicketTypeRequest(Type.ADULT, 3)).getTotalPrice());
+        assertEquals(120, ticketProcessor.processTickets(1, new TicketTypeRequest(Type.ADULT, 3)).getTotalPrice());
+    }
+
+    private static void assertSummaryEquals(TicketSummary expected, TicketSummary actual) {
+        assertEquals(expected.getTotalTickets(), actual.getTotalTickets());
+        assertEquals(expected.getTotalSeats(), actual.getTotalSeats());
+        assertEquals(expected.getTotalPrice(), actual.getTotalPrice());
+        assertEquals(expected.getAdultTickets(), actual.getAdultTickets());
+        assertEquals(expected.getChildTickets(), actual.getChildTickets());
+        assertEquals(expected.getInfantTickets(), actual.getInfantTickets());
+    }
+}
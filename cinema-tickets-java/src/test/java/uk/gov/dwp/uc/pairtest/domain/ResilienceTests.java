@@ -0,0 +1,186 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import uk.gov.dwp.uc.pairtest.exception.OutcomeUnknownException;
+import uk.gov.dwp.uc.pairtest.exception.ServiceUnavailableException;
+import uk.gov.dwp.uc.pairtest.exception.ServiceUnavailableException.Reason;
+import uk.gov.dwp.uc.pairtest.resilience.AdaptiveTimeout;
+import uk.gov.dwp.uc.pairtest.resilience.CircuitBreaker;
+import uk.gov.dwp.uc.pairtest.resilience.CircuitBreaker.State;
+import uk.gov.dwp.uc.pairtest.resilience.ResilientCaller;
+import uk.gov.dwp.uc.pairtest.resilience.ResilientTicketPaymentService;
+import uk.gov.dwp.uc.pairtest.services.BookTicketAndReserveSeat;
+
+@DisplayName("Resilience Tests")
+public class ResilienceTests {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testCircuitOpensAfterConsecutiveFailuresAndFailsFast() {
+        AtomicInteger calls = new AtomicInteger();
+        ResilientCaller caller = callerWith(2, 3, Duration.ofSeconds(30), Duration.ofSeconds(1));
+        Runnable failing = () -> {
+            calls.incrementAndGet();
+            throw new UncheckedIOException(new IOException("gateway down"));
+        };
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(UncheckedIOException.class, () -> caller.call(failing));
+        }
+        ServiceUnavailableException exception = assertThrows(ServiceUnavailableException.class,
+                () -> caller.call(failing));
+
+        assertEquals(Reason.CIRCUIT_OPEN, exception.getReason());
+        assertEquals(State.OPEN, caller.getCircuitBreaker().getState());
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void testDeclinesAreRethrownWithoutCountingAgainstTheCircuit() {
+        ResilientCaller caller = callerWith(2, 2, Duration.ofSeconds(30), Duration.ofSeconds(1));
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(IllegalStateException.class, () -> caller.call(() -> {
+                throw new IllegalStateException("insufficient funds");
+            }));
+        }
+
+        assertEquals(State.CLOSED, caller.getCircuitBreaker().getState());
+    }
+
+    @Test
+    void testSuccessOnlyClosesTheCircuitFromHalfOpen() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(1, Duration.ofNanos(100), now::get);
+
+        breaker.onFailure();
+        // A slow call that started before the circuit opened.
+        breaker.onSuccess();
+
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void testHalfOpenTrialClosesOrReopensTheCircuit() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(1, Duration.ofNanos(100), now::get);
+
+        breaker.onFailure();
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+
+        now.addAndGet(100);
+        assertTrue(breaker.tryAcquirePermission());
+        // Only one trial call is let through while half open.
+        assertFalse(breaker.tryAcquirePermission());
+        breaker.onFailure();
+        assertEquals(State.OPEN, breaker.getState());
+
+        now.addAndGet(100);
+        assertTrue(breaker.tryAcquirePermission());
+        breaker.onSuccess();
+        assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testFullBulkheadRejectsWithoutCallingTheService() throws Exception {
+        ResilientCaller caller = callerWith(1, 5, Duration.ofSeconds(30), Duration.ofSeconds(5));
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> caller.call(() -> {
+            entered.countDown();
+            await(release);
+        }));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        ServiceUnavailableException exception = assertThrows(ServiceUnavailableException.class,
+                () -> caller.call(() -> { }));
+        release.countDown();
+
+        assertEquals(Reason.BULKHEAD_FULL, exception.getReason());
+    }
+
+    @Test
+    void testSlowPaymentIsLeftRunningAndSettledWhenItAnswers() throws Exception {
+        ResilientCaller caller = callerWith(2, 5, Duration.ofSeconds(30), Duration.ofMillis(50));
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CountDownLatch reserved = new CountDownLatch(1);
+        BookTicketAndReserveSeat booking = new BookTicketAndReserveSeat(
+                new ResilientTicketPaymentService((accountId, amount) -> {
+                    try {
+                        Thread.sleep(300);
+                    } catch (InterruptedException e) {
+                        interrupted.set(true);
+                    }
+                }, caller),
+                (accountId, seats) -> reserved.countDown());
+        TicketSummary summary = new TicketSummary(1, 1, 25, 1, 0, 0);
+
+        long start = System.nanoTime();
+        OutcomeUnknownException exception = assertThrows(OutcomeUnknownException.class,
+                () -> booking.makePaymentAndReserveSeats(1L, summary));
+
+        assertEquals(Reason.TIMEOUT, exception.getReason());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        exception.getOutcome().get(2, TimeUnit.SECONDS);
+        assertTrue(reserved.await(2, TimeUnit.SECONDS));
+        assertFalse(interrupted.get());
+    }
+
+    @Test
+    void testAdaptiveTimeoutFollowsObservedLatency() {
+        AdaptiveTimeout timeout = new AdaptiveTimeout(Duration.ofMillis(10), Duration.ofSeconds(2));
+        assertEquals(Duration.ofSeconds(2).toNanos(), timeout.getTimeoutNanos());
+
+        for (int i = 0; i < 50; i++) {
+            timeout.record(Duration.ofMillis(20).toNanos());
+        }
+        long steady = timeout.getTimeoutNanos();
+        assertTrue(steady >= Duration.ofMillis(20).toNanos() && steady < Duration.ofMillis(40).toNanos(),
+                "Timeout was " + steady + "ns");
+
+        timeout.record(Duration.ofSeconds(10).toNanos());
+        assertEquals(Duration.ofSeconds(2).toNanos(), timeout.getTimeoutNanos());
+    }
+
+    private ResilientCaller callerWith(int maxConcurrentCalls, int failureThreshold, Duration openDuration,
+            Duration maxTimeout) {
+        return new ResilientCaller("Test service", maxConcurrentCalls,
+                new CircuitBreaker(failureThreshold, openDuration),
+                new AdaptiveTimeout(Duration.ofMillis(1), maxTimeout), executor);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
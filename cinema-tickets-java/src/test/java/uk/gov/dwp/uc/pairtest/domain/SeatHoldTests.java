@@ -0,0 +1,189 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.PaymentFailedException;
+import uk.gov.dwp.uc.pairtest.exception.SeatReservationFailedException;
+import uk.gov.dwp.uc.pairtest.exception.SeatsUnavailableException;
+import uk.gov.dwp.uc.pairtest.inventory.InventorySeatReservationService;
+import uk.gov.dwp.uc.pairtest.inventory.SeatHold;
+import uk.gov.dwp.uc.pairtest.inventory.SeatHolds;
+import uk.gov.dwp.uc.pairtest.inventory.SeatInventory;
+import uk.gov.dwp.uc.pairtest.services.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.utils.HierarchicalTimingWheel;
+
+@DisplayName("Seat hold Tests")
+public class SeatHoldTests {
+
+    private static final long TICK = Duration.ofMillis(100).toNanos();
+
+    private final AtomicLong clock = new AtomicLong();
+    private final List<long[]> reservations = new ArrayList<>();
+    private final AtomicBoolean failReservations = new AtomicBoolean();
+    private final List<long[]> payments = new ArrayList<>();
+    private final AtomicBoolean failPayments = new AtomicBoolean();
+    private SeatInventory seatInventory;
+    private SeatHolds seatHolds;
+    private TicketServiceImpl ticketService;
+
+    @BeforeEach
+    void setUp() {
+        seatInventory = new SeatInventory();
+        seatInventory.addScreening(1L, 2, 10);
+        seatInventory.addScreening(2L, 2, 10);
+        InventorySeatReservationService seatReservationService = new InventorySeatReservationService(
+                (accountId, seats) -> {
+                    if (failReservations.get()) {
+                        throw new SeatReservationFailedException("Seat booking unavailable", null);
+                    }
+                    reservations.add(new long[] { accountId, seats });
+                }, seatInventory, 1L);
+        seatHolds = new SeatHolds(seatInventory, Duration.ofMinutes(10), Duration.ofNanos(TICK), clock::get);
+        ticketService = TestFixtures.ticketService((accountId, amount) -> {
+            if (failPayments.get()) {
+                throw new IllegalStateException("Card declined");
+            }
+            // Every payment is made before any reservation.
+            assertEquals(0, reservations.size());
+            payments.add(new long[] { accountId, amount });
+        }, seatReservationService);
+        ticketService.setSeatHolds(seatHolds);
+    }
+
+    @Test
+    void testHeldSeatsAreTakenAndListedPerScreening() {
+        SeatHold first = seatHolds.hold(1L, 7L, 3);
+        SeatHold second = seatHolds.hold(1L, 8L, 2);
+        seatHolds.hold(2L, 7L, 4);
+
+        assertEquals(15, seatInventory.getAvailableSeats(1L));
+        assertEquals(List.of(first, second), seatHolds.getHolds(1L));
+        assertEquals(5, seatHolds.getHeldSeats(1L));
+        assertEquals(4, seatHolds.getHeldSeats(2L));
+        assertThrows(SeatsUnavailableException.class, () -> seatHolds.hold(1L, 9L, 16));
+
+        assertTrue(seatHolds.release(first.getId()));
+        assertFalse(seatHolds.release(first.getId()));
+        assertEquals(18, seatInventory.getAvailableSeats(1L));
+        assertEquals(List.of(second), seatHolds.getHolds(1L));
+        assertEquals(0, reservations.size());
+    }
+
+    @Test
+    void testHoldsExpireAfterTheirTtl() {
+        SeatHold shortHold = seatHolds.hold(1L, 7L, 2, Duration.ofSeconds(1));
+        seatHolds.hold(1L, 8L, 3, Duration.ofSeconds(30));
+
+        clock.set(Duration.ofMillis(900).toNanos());
+        assertEquals(0, seatHolds.expireHolds());
+
+        clock.set(Duration.ofSeconds(1).toNanos());
+        assertEquals(1, seatHolds.expireHolds());
+        assertEquals(17, seatInventory.getAvailableSeats(1L));
+        assertThrows(SeatsUnavailableException.class, () -> seatHolds.take(shortHold.getId(), 7L, 2));
+
+        clock.set(Duration.ofSeconds(31).toNanos());
+        assertEquals(1, seatHolds.expireHolds());
+        assertEquals(20, seatInventory.getAvailableSeats(1L));
+        assertEquals(0, seatHolds.size());
+        assertEquals(2, seatHolds.getExpiredCount());
+    }
+
+    @Test
+    void testBuyingAHoldPaysBeforeReservingItsSeatsOnce() {
+        SeatHold hold = seatHolds.hold(1L, 7L, 3);
+
+        assertThrows(SeatsUnavailableException.class,
+                () -> ticketService.purchaseHeldTickets(null, hold.getId(), 8L, new TicketTypeRequest(Type.ADULT, 3)));
+        assertThrows(InvalidPurchaseException.class,
+                () -> ticketService.purchaseHeldTickets(null, hold.getId(), 7L, new TicketTypeRequest(Type.ADULT, 2)));
+        assertEquals(1, seatHolds.size());
+
+        TicketSummary summary = ticketService.purchaseHeldTickets(null, hold.getId(), 7L,
+                new TicketTypeRequest(Type.ADULT, 2), new TicketTypeRequest(Type.CHILD, 1));
+        assertEquals(3, summary.getTotalSeats());
+        assertThrows(SeatsUnavailableException.class,
+                () -> ticketService.purchaseHeldTickets(null, hold.getId(), 7L, new TicketTypeRequest(Type.ADULT, 3)));
+
+        assertEquals(1, payments.size());
+        assertEquals(summary.getTotalPrice(), payments.get(0)[1]);
+        assertEquals(1, reservations.size());
+        assertEquals(3L, reservations.get(0)[1]);
+        assertEquals(17, seatInventory.getAvailableSeats(1L));
+
+        clock.set(Duration.ofHours(1).toNanos());
+        assertEquals(0, seatHolds.expireHolds());
+        assertEquals(17, seatInventory.getAvailableSeats(1L));
+    }
+
+    @Test
+    void testFailedPurchaseOfAHoldReleasesTheSeats() {
+        SeatHold unpaid = seatHolds.hold(1L, 7L, 3);
+        failPayments.set(true);
+
+        assertThrows(PaymentFailedException.class, () -> ticketService.purchaseHeldTickets(null,
+                unpaid.getId(), 7L, new TicketTypeRequest(Type.ADULT, 3)));
+        assertEquals(0, reservations.size());
+        assertEquals(20, seatInventory.getAvailableSeats(1L));
+
+        SeatHold unreserved = seatHolds.hold(1L, 7L, 3);
+        failPayments.set(false);
+        failReservations.set(true);
+
+        assertThrows(SeatReservationFailedException.class, () -> ticketService.purchaseHeldTickets(null,
+                unreserved.getId(), 7L, new TicketTypeRequest(Type.ADULT, 3)));
+        assertEquals(20, seatInventory.getAvailableSeats(1L));
+        assertEquals(0, seatHolds.size());
+    }
+
+    @Test
+    void testTimingWheelFiresEachTimeoutOnTheFirstAdvancePastItsDeadline() {
+        HierarchicalTimingWheel<long[]> wheel = new HierarchicalTimingWheel<>(TICK, 0);
+        Random random = new Random(42);
+        List<HierarchicalTimingWheel.Timeout<long[]>> cancelled = new ArrayList<>();
+        int scheduled = 0;
+        // Deadlines from one tick to past the top level, so every level and the overflow are exercised.
+        for (int i = 0; i < 20_000; i++) {
+            long deadline = 1 + (long) (Math.pow(random.nextDouble(), 4) * TICK * (1L << 25));
+            HierarchicalTimingWheel.Timeout<long[]> timeout = wheel.schedule(new long[] { deadline }, deadline);
+            if (i % 10 == 0) {
+                cancelled.add(timeout);
+            } else {
+                scheduled++;
+            }
+        }
+        for (HierarchicalTimingWheel.Timeout<long[]> timeout : cancelled) {
+            assertTrue(wheel.cancel(timeout));
+        }
+
+        long[] expired = new long[1];
+        long now = 0;
+        while (wheel.size() > 0) {
+            long previous = now;
+            now += TICK * (1 + random.nextInt(5000));
+            long at = now;
+            expired[0] += wheel.advanceTo(now, value -> {
+                assertTrue(value[0] <= at, "expired early");
+                assertTrue(value[0] > previous, "missed an earlier advance");
+            });
+        }
+        assertEquals(scheduled, expired[0]);
+        assertFalse(wheel.cancel(cancelled.get(0)));
+    }
+}
@@ -0,0 +1,129 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import uk.gov.dwp.uc.pairtest.exception.SeatsUnavailableException;
+import uk.gov.dwp.uc.pairtest.inventory.InventorySeatReservationService;
+import uk.gov.dwp.uc.pairtest.inventory.ScreeningSeatMap;
+import uk.gov.dwp.uc.pairtest.inventory.SeatInventory;
+
+@DisplayName("Seat inventory Tests")
+public class SeatInventoryTests {
+
+    @Test
+    void testClaimsAdjacentSeatsInTheCentreRowFirst() {
+        ScreeningSeatMap screening = new ScreeningSeatMap(5, 10);
+
+        int[] seats = screening.claim(4);
+
+        assertArrayEquals(new int[] { 20, 21, 22, 23 }, seats);
+        assertEquals(46, screening.getAvailableSeats());
+    }
+
+    @Test
+    void testFallsBackToBestAvailableWhenNoRowHasRoom() {
+        ScreeningSeatMap screening = new ScreeningSeatMap(2, 3);
+        assertNotNull(screening.claim(2));
+        assertNotNull(screening.claim(2));
+
+        int[] seats = screening.claim(2);
+
+        assertNotNull(seats);
+        assertEquals(0, screening.getAvailableSeats());
+        assertNull(screening.claim(1));
+    }
+
+    @Test
+    void testReleasedSeatsCanBeClaimedAgain() {
+        ScreeningSeatMap screening = new ScreeningSeatMap(1, 4);
+        int[] seats = screening.claim(4);
+
+        screening.release(seats);
+
+        assertEquals(4, screening.getAvailableSeats());
+        assertFalse(screening.isTaken(seats[0]));
+        assertThrows(IllegalStateException.class, () -> screening.release(seats));
+    }
+
+    @Test
+    void testFailedThirdPartyReservationRollsBackTheClaim() {
+        SeatInventory inventory = new SeatInventory();
+        inventory.addScreening(1L, 2, 2);
+        InventorySeatReservationService service = new InventorySeatReservationService(
+                (accountId, seats) -> {
+                    throw new IllegalStateException("seat booking down");
+                }, inventory, 1L);
+
+        assertThrows(IllegalStateException.class, () -> service.reserveSeat(5L, 2));
+        assertEquals(4, inventory.getAvailableSeats(1L));
+        assertFalse(service.canAllocate(5));
+    }
+
+    @Test
+    void testSoldOutScreeningIsRejected() {
+        SeatInventory inventory = new SeatInventory();
+        inventory.addScreening(1L, 1, 3);
+        InventorySeatReservationService service = new InventorySeatReservationService(
+                (accountId, seats) -> { }, inventory, 1L);
+        service.reserveSeat(5L, 3);
+
+        assertThrows(SeatsUnavailableException.class, () -> service.reserveSeat(6L, 1));
+    }
+
+    @Test
+    void testConcurrentBuyersNeverShareASeat() throws Exception {
+        ScreeningSeatMap screening = new ScreeningSeatMap(10, 20);
+        AtomicIntegerArray owners = new AtomicIntegerArray(screening.getCapacity());
+        int buyers = 300;
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+
+        try {
+            for (int b = 0; b < buyers; b++) {
+                final int count = b % 4 + 1;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int[] seats = screening.claim(count);
+                    if (seats == null) {
+                        return 0;
+                    }
+                    for (int seat : seats) {
+                        assertTrue(owners.compareAndSet(seat, 0, 1), "Seat " + seat + " sold twice");
+                    }
+                    return seats.length;
+                }));
+            }
+            start.countDown();
+
+            int sold = 0;
+            for (Future<Integer> future : futures) {
+                sold += future.get(10, TimeUnit.SECONDS);
+            }
+
+            // 300 buyers ask for 750 seats, so the 200 seat screening must sell out exactly.
+            assertEquals(screening.getCapacity(), sold);
+            assertEquals(0, screening.getAvailableSeats());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import thirdparty.paymentgateway.TicketPaymentService;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.OutcomeUnknownException;
+import uk.gov.dwp.uc.pairtest.exception.PaymentFailedException;
+import uk.gov.dwp.uc.pairtest.exception.SeatsUnavailableException;
+import uk.gov.dwp.uc.pairtest.exception.ServiceUnavailableException;
+import uk.gov.dwp.uc.pairtest.inventory.InventorySeatReservationService;
+import uk.gov.dwp.uc.pairtest.inventory.SeatInventory;
+import uk.gov.dwp.uc.pairtest.ledger.PurchaseLedger;
+import uk.gov.dwp.uc.pairtest.services.BookTicketAndReserveSeat;
+import uk.gov.dwp.uc.pairtest.services.ShardedTicketService;
+import uk.gov.dwp.uc.pairtest.services.TicketServiceImpl;
+
+@DisplayName("Sharded Purchase Tests")
+public class ShardedPurchaseTests {
+
+    private final SeatInventory seatInventory = new SeatInventory();
+    private final ExecutorService bookingExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ShardedTicketService shardedService;
+
+    @BeforeEach
+    void setUp() {
+        seatInventory.addScreening(1L, 2, 10);
+        seatInventory.addScreening(2L, 2, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        if (shardedService != null) {
+            shardedService.close();
+        }
+        bookingExecutor.close();
+    }
+
+    @Test
+    void testScreeningsSpreadOverEveryShard() throws Exception {
+        ticketService((accountId, amount) -> { }, null, 4, 16);
+
+        int[] perShard = new int[4];
+        // One block of IDs per venue, as a stride would give.
+        for (long venue = 1; venue <= 100; venue++) {
+            for (long screening = 0; screening < 10; screening++) {
+                long screeningId = venue * 1000 + screening;
+                int shard = shardedService.shardOf(screeningId);
+                assertEquals(shard, shardedService.shardOf(screeningId));
+                perShard[shard]++;
+            }
+        }
+        for (int count : perShard) {
+            assertTrue(count > 150, "uneven spread over shards: " + count);
+        }
+    }
+
+    @Test
+    void testPaymentsForOneScreeningOverlapWithoutOverselling() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        CountDownLatch overlapping = new CountDownLatch(2);
+        TicketServiceImpl ticketService = ticketService((accountId, amount) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            overlapping.countDown();
+            try {
+                // Only returns early if a second payment starts while this one is in progress.
+                overlapping.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+        }, null, 4, 256);
+
+        List<Future<TicketSummary>> purchases = new ArrayList<>();
+        for (long accountId = 1; accountId <= 25; accountId++) {
+            long buyer = accountId;
+            purchases.add(callers.submit(() -> ticketService.purchaseTickets(null, 1L, buyer,
+                    new TicketTypeRequest(Type.ADULT, 1))));
+        }
+
+        int sold = 0;
+        int turnedAway = 0;
+        for (Future<TicketSummary> purchase : purchases) {
+            try {
+                sold += purchase.get(10, TimeUnit.SECONDS).getTotalSeats();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof SeatsUnavailableException, e.getCause().toString());
+                turnedAway++;
+            }
+        }
+        assertEquals(20, sold);
+        assertEquals(5, turnedAway);
+        assertTrue(maxInFlight.get() > 1, "payments ran one at a time");
+        assertEquals(0, seatInventory.getAvailableSeats(1L));
+        assertEquals(20, seatInventory.getAvailableSeats(2L));
+    }
+
+    @Test
+    void testScreeningsOnDifferentShardsAreBookedInParallel() throws Exception {
+        CountDownLatch otherScreeningPaid = new CountDownLatch(1);
+        TicketServiceImpl ticketService = ticketService((accountId, amount) -> {
+            if (accountId == 1L) {
+                // Only returns if the other screening's booking runs while this one is in progress.
+                try {
+                    assertTrue(otherScreeningPaid.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            } else {
+                otherScreeningPaid.countDown();
+            }
+        }, null, 2, 16);
+        assertTrue(shardedService.shardOf(1L) != shardedService.shardOf(2L));
+
+        Future<TicketSummary> blocked = callers.submit(
+                () -> ticketService.purchaseTickets(null, 1L, 1L, new TicketTypeRequest(Type.ADULT, 2)));
+        TicketSummary other = ticketService.purchaseTickets(null, 2L, 2L, new TicketTypeRequest(Type.ADULT, 3));
+
+        assertEquals(3, other.getTotalSeats());
+        assertEquals(2, blocked.get(5, TimeUnit.SECONDS).getTotalSeats());
+        assertEquals(18, seatInventory.getAvailableSeats(1L));
+        assertEquals(17, seatInventory.getAvailableSeats(2L));
+    }
+
+    @Test
+    void testEachScreeningSellsFromItsOwnSeats() throws Exception {
+        TicketServiceImpl ticketService = ticketService((accountId, amount) -> { }, null, 2, 16);
+
+        ticketService.purchaseTickets(null, 1L, 1L, new TicketTypeRequest(Type.ADULT, 20));
+
+        assertThrows(SeatsUnavailableException.class,
+                () -> ticketService.purchaseTickets(null, 1L, 2L, new TicketTypeRequest(Type.ADULT, 1)));
+        ticketService.purchaseTickets(null, 2L, 2L, new TicketTypeRequest(Type.ADULT, 1));
+        InvalidPurchaseException unknown = assertThrows(InvalidPurchaseException.class,
+                () -> ticketService.purchaseTickets(null, 3L, 2L, new TicketTypeRequest(Type.ADULT, 1)));
+        assertEquals("Unknown screening: 3", unknown.getMessage());
+        assertThrows(InvalidPurchaseException.class,
+                () -> ticketService.purchaseTickets(null, 2L, 2L, new TicketTypeRequest(Type.CHILD, 1)));
+    }
+
+    @Test
+    void testFailedPaymentGivesBackItsSeatsAndTickets() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        TicketServiceImpl ticketService = ticketService((accountId, amount) -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("card declined");
+            }
+        }, new PurchaseLedger(5, 1), 2, 16);
+
+        assertThrows(PaymentFailedException.class,
+                () -> ticketService.purchaseTickets(null, 1L, 9L, new TicketTypeRequest(Type.ADULT, 5)));
+        assertEquals(20, seatInventory.getAvailableSeats(1L));
+
+        ticketService.purchaseTickets(null, 1L, 9L, new TicketTypeRequest(Type.ADULT, 5));
+        assertEquals(15, seatInventory.getAvailableSeats(1L));
+    }
+
+    @Test
+    void testScreeningPurchasesGoThroughIdempotencyAndKeepTheirCorrelationId() throws Exception {
+        AtomicInteger payments = new AtomicInteger();
+        Set<String> correlationIds = ConcurrentHashMap.newKeySet();
+        TicketServiceImpl ticketService = ticketService((accountId, amount) -> {
+            payments.incrementAndGet();
+            correlationIds.add(String.valueOf(MDC.get(TicketServiceImpl.CORRELATION_ID)));
+        }, null, 2, 16);
+
+        MDC.put(TicketServiceImpl.CORRELATION_ID, "request-1");
+        try {
+            ticketService.purchaseTickets("key-1", 1L, 1L, new TicketTypeRequest(Type.ADULT, 2));
+            ticketService.purchaseTickets("key-1", 1L, 1L, new TicketTypeRequest(Type.ADULT, 2));
+        } finally {
+            MDC.remove(TicketServiceImpl.CORRELATION_ID);
+        }
+
+        assertEquals(1, payments.get());
+        assertEquals(Set.of("request-1"), correlationIds);
+        assertEquals(18, seatInventory.getAvailableSeats(1L));
+    }
+
+    @Test
+    void testFullShardIsRejectedImmediately() throws Exception {
+        CountDownLatch shardBlocked = new CountDownLatch(1);
+        CountDownLatch releaseShard = new CountDownLatch(1);
+        // Holds the shard thread inside its seat claim.
+        PurchaseLedger blockingLedger = new PurchaseLedger(25, 1) {
+            @Override
+            public boolean tryRecord(long accountId, long screeningId, int tickets) {
+                if (accountId == 1L) {
+                    shardBlocked.countDown();
+                    try {
+                        releaseShard.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.tryRecord(accountId, screeningId, tickets);
+            }
+        };
+        TicketServiceImpl ticketService = ticketService((accountId, amount) -> { }, blockingLedger, 1, 2);
+
+        Future<TicketSummary> inFlight = callers.submit(
+                () -> ticketService.purchaseTickets(null, 1L, 1L, new TicketTypeRequest(Type.ADULT, 1)));
+        assertTrue(shardBlocked.await(5, TimeUnit.SECONDS));
+        Future<TicketSummary> queued1 = callers.submit(
+                () -> ticketService.purchaseTickets(null, 1L, 2L, new TicketTypeRequest(Type.ADULT, 1)));
+        Future<TicketSummary> queued2 = callers.submit(
+                () -> ticketService.purchaseTickets(null, 2L, 3L, new TicketTypeRequest(Type.ADULT, 1)));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("ticket.shard.queue.size").gauge().value() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        ServiceUnavailableException rejected = assertThrows(ServiceUnavailableException.class,
+                () -> ticketService.purchaseTickets(null, 1L, 4L, new TicketTypeRequest(Type.ADULT, 1)));
+        assertEquals(ServiceUnavailableException.Reason.QUEUE_FULL, rejected.getReason());
+
+        releaseShard.countDown();
+        inFlight.get(5, TimeUnit.SECONDS);
+        queued1.get(5, TimeUnit.SECONDS);
+        queued2.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testBookingThatOutlivesTheTimeoutIsReportedAsUnknownAndStillCompletes() throws Exception {
+        CountDownLatch releasePayment = new CountDownLatch(1);
+        TicketServiceImpl ticketService = ticketService((accountId, amount) -> {
+            try {
+                releasePayment.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, null, 1, 16, Duration.ofMillis(50));
+
+        OutcomeUnknownException unknown = assertThrows(OutcomeUnknownException.class,
+                () -> ticketService.purchaseTickets(null, 1L, 1L, new TicketTypeRequest(Type.ADULT, 2)));
+        assertEquals(ServiceUnavailableException.Reason.TIMEOUT, unknown.getReason());
+        assertFalse(unknown.getOutcome().isDone());
+
+        releasePayment.countDown();
+        unknown.getOutcome().get(5, TimeUnit.SECONDS);
+        assertEquals(18, seatInventory.getAvailableSeats(1L));
+    }
+
+    private TicketServiceImpl ticketService(TicketPaymentService gateway, PurchaseLedger ledger, int shards,
+            int capacity) {
+        return ticketService(gateway, ledger, shards, capacity, Duration.ofSeconds(5));
+    }
+
+    private TicketServiceImpl ticketService(TicketPaymentService gateway, PurchaseLedger ledger, int shards,
+            int capacity, Duration timeout) {
+        BookTicketAndReserveSeat bookTicketAndReserveSeat = new BookTicketAndReserveSeat(gateway,
+                new InventorySeatReservationService((accountId, seats) -> { }, seatInventory, 1L));
+        bookTicketAndReserveSeat.setPurchaseLedger(ledger);
+        shardedService = new ShardedTicketService(bookTicketAndReserveSeat, bookingExecutor, shards, capacity,
+                timeout, meterRegistry);
+        TicketServiceImpl ticketService = TestFixtures.ticketService(bookTicketAndReserveSeat);
+        ticketService.setShardedTicketService(shardedService);
+        return ticketService;
+    }
+}
@@ -0,0 +1,67 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import java.lang.reflect.Field;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.config.TicketConfig;
+import uk.gov.dwp.uc.pairtest.config.TicketConfigSource;
+import uk.gov.dwp.uc.pairtest.services.BookTicketAndReserveSeat;
+import uk.gov.dwp.uc.pairtest.services.TicketProcessor;
+import uk.gov.dwp.uc.pairtest.services.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.utils.TicketAndAccountsValidations;
+
+/**
+ * Builds the purchase beans the way Spring would, with the values from application.properties, for
+ * tests that do not start an application context.
+ */
+final class TestFixtures {
+
+    static final int MIN_TICKET = 1;
+    static final int MAX_TICKET = 25;
+    static final int CHILD_TICKET_PRICE = 15;
+    static final int ADULT_TICKET_PRICE = 25;
+
+    private TestFixtures() {
+    }
+
+    /**
+     * A configuration that is never reloaded.
+     */
+    static TicketConfigSource ticketConfigSource() {
+        return new TicketConfigSource(
+                new TicketConfig(1, ADULT_TICKET_PRICE, CHILD_TICKET_PRICE, MIN_TICKET, MAX_TICKET), null);
+    }
+
+    static TicketProcessor ticketProcessor() {
+        return new TicketProcessor(ticketConfigSource());
+    }
+
+    static TicketAndAccountsValidations validations() {
+        return new TicketAndAccountsValidations(ticketConfigSource());
+    }
+
+    static TicketServiceImpl ticketService(BookTicketAndReserveSeat booking) {
+        TicketConfigSource source = ticketConfigSource();
+        return new TicketServiceImpl(new TicketProcessor(source), booking, new TicketAndAccountsValidations(source));
+    }
+
+    static TicketServiceImpl ticketService(TicketPaymentService payments, SeatReservationService seats) {
+        return ticketService(new BookTicketAndReserveSeat(payments, seats));
+    }
+
+    static TicketServiceImpl ticketService(TicketPaymentService payments) {
+        return ticketService(payments, (accountId, count) -> { });
+    }
+
+    // @Value fields are not injected outside Spring.
+    static void setField(Class<?> type, Object target, String name, int value) {
+        try {
+            Field field = type.getDeclaredField(name);
+            field.setAccessible(true);
+            field.setInt(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot set " + name, e);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uk.gov.dwp.uc.pairtest.config.TicketConfig;
+import uk.gov.dwp.uc.pairtest.config.TicketConfigSource;
+import uk.gov.dwp.uc.pairtest.config.TicketConfigSource.ReloadResult.Status;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.TicketCountException;
+import uk.gov.dwp.uc.pairtest.services.BookTicketAndReserveSeat;
+import uk.gov.dwp.uc.pairtest.services.PriceTable;
+import uk.gov.dwp.uc.pairtest.services.TicketProcessor;
+import uk.gov.dwp.uc.pairtest.services.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.utils.TicketAndAccountsValidations;
+
+@DisplayName("Ticket Config Tests")
+public class TicketConfigTests {
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private TicketConfigSource source;
+    private TicketProcessor ticketProcessor;
+    private TicketAndAccountsValidations validations;
+    private TicketServiceImpl ticketService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        file = directory.resolve("tickets.properties");
+        source = new TicketConfigSource(new TicketConfig(1, 25, 15, 1, 25), file);
+
+        ticketProcessor = new TicketProcessor(source);
+        validations = new TicketAndAccountsValidations(source);
+        ticketService = new TicketServiceImpl(ticketProcessor,
+                new BookTicketAndReserveSeat((accountId, amount) -> { }, (accountId, seats) -> { }), validations);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        source.close();
+    }
+
+    @Test
+    void testInvalidConfigurationIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new TicketConfig(1, -1, 15, 1, 25));
+        assertThrows(IllegalArgumentException.class, () -> new TicketConfig(1, 25, 15, 10, 5));
+        assertThrows(IllegalArgumentException.class, () -> new TicketConfig(1, 25, 15, -1, 25));
+    }
+
+    @Test
+    void testReloadIsVersionedOnlyWhenValuesChange() throws IOException {
+        Files.writeString(file, "ADULT_TICKET_PRICE=30\n");
+        TicketConfigSource.ReloadResult applied = source.reload();
+        assertEquals(Status.APPLIED, applied.getStatus());
+        assertEquals(2, applied.getVersion());
+        assertEquals(30, source.get().getAdultTicketPrice());
+        // Keys left out of the file keep their current values.
+        assertEquals(15, source.get().getChildTicketPrice());
+
+        TicketConfigSource.ReloadResult unchanged = source.reload();
+        assertEquals(Status.UNCHANGED, unchanged.getStatus());
+        assertEquals(2, unchanged.getVersion());
+    }
+
+    @Test
+    void testRejectedReloadKeepsTheCurrentSnapshot() throws IOException {
+        TicketConfig before = source.get();
+
+        Files.writeString(file, "ADULT_TICKET_PRICE=40\nMAX_TICKET=lots\n");
+        assertEquals(Status.REJECTED, source.reload().getStatus());
+        Files.writeString(file, "MIN_TICKET=30\n");
+        assertEquals(Status.REJECTED, source.reload().getStatus());
+        Files.delete(file);
+        assertEquals(Status.REJECTED, source.reload().getStatus());
+
+        assertSame(before, source.get());
+    }
+
+    @Test
+    void testPricesAndLimitsFollowTheSnapshot() throws IOException {
+        assertEquals(75, ticketService.quote(new TicketTypeRequest(Type.ADULT, 3)).getTotalPrice());
+        assertThrows(InvalidPurchaseException.class, () -> ticketService.quote(new TicketTypeRequest(Type.ADULT, 26)));
+
+        Files.writeString(file, "ADULT_TICKET_PRICE=30\nMAX_TICKET=40\n");
+        source.reload();
+
+        assertEquals(90, ticketService.quote(new TicketTypeRequest(Type.ADULT, 3)).getTotalPrice());
+        assertEquals(1200, ticketService.quote(new TicketTypeRequest(Type.ADULT, 40)).getTotalPrice());
+        InvalidPurchaseException tooMany = assertThrows(InvalidPurchaseException.class,
+                () -> ticketService.quote(new TicketTypeRequest(Type.ADULT, 41)));
+        assertEquals("Only a maximum of 40 tickets can be purchased at a time.", tooMany.getMessage());
+        assertEquals(40, validations.getMaxTicket());
+        ticketService.createTicketRequest(Type.ADULT, 40);
+        assertThrows(TicketCountException.class, () -> ticketService.createTicketRequest(Type.ADULT, 41));
+    }
+
+    @Test
+    void testReloadedPricesWinOverAnInstalledStandardTier() throws IOException {
+        ticketProcessor.setPriceTable(new PriceTable(new int[] { 99, 99, 0 }, new int[] { 40, 20, 0 }));
+        PriceTable before = ticketProcessor.getPriceTable();
+        assertSame(before, ticketProcessor.getPriceTable());
+        assertEquals(75, ticketService.quote(new TicketTypeRequest(Type.ADULT, 3)).getTotalPrice());
+
+        Files.writeString(file, "ADULT_TICKET_PRICE=30\n");
+        source.reload();
+
+        assertEquals(90, ticketService.quote(new TicketTypeRequest(Type.ADULT, 3)).getTotalPrice());
+        assertEquals(120, ticketProcessor.processTickets(1, new TicketTypeRequest(Type.ADULT, 3)).getTotalPrice());
+    }
+
+    @Test
+    void testWatcherReloadsWhenTheFileChanges() throws Exception {
+        source.start();
+
+        Files.writeString(file, "CHILD_TICKET_PRICE=5\n");
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (source.get().getChildTicketPrice() != 5 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(5, source.get().getChildTicketPrice());
+        assertEquals(2, source.get().getVersion());
+        assertEquals(55, ticketService.quote(new TicketTypeRequest(Type.ADULT, 2),
+                new TicketTypeRequest(Type.CHILD, 1)).getTotalPrice());
+    }
+}
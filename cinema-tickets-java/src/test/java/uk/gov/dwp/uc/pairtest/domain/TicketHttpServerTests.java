@@ -0,0 +1,165 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.OutcomeUnknownException;
+import uk.gov.dwp.uc.pairtest.exception.ServiceUnavailableException;
+import uk.gov.dwp.uc.pairtest.exception.ServiceUnavailableException.Reason;
+import uk.gov.dwp.uc.pairtest.http.TicketHttpServer;
+import uk.gov.dwp.uc.pairtest.http.TicketJsonCodec;
+import uk.gov.dwp.uc.pairtest.services.TicketServiceImpl;
+
+@DisplayName("Ticket HTTP API Tests")
+public class TicketHttpServerTests {
+
+    private static final long SHED_ACCOUNT = 503L;
+    private static final long TIMED_OUT_ACCOUNT = 504L;
+
+    private final List<long[]> payments = new ArrayList<>();
+    private final ExecutorService purchaseExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private TicketHttpServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TicketServiceImpl ticketService = TestFixtures.ticketService((accountId, amount) -> {
+            if (accountId == SHED_ACCOUNT) {
+                throw new ServiceUnavailableException("payment", Reason.CIRCUIT_OPEN);
+            }
+            if (accountId == TIMED_OUT_ACCOUNT) {
+                throw new OutcomeUnknownException("payment", new CompletableFuture<>());
+            }
+            synchronized (payments) {
+                payments.add(new long[] { accountId, amount });
+            }
+        });
+
+        server = new TicketHttpServer(ticketService, purchaseExecutor, 0);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        purchaseExecutor.close();
+    }
+
+    @Test
+    void testPurchaseReturnsTheSummary() throws Exception {
+        HttpResponse<String> response = post("/purchases", "{\"accountId\": 7, \"tickets\": ["
+                + "{\"type\": \"ADULT\", \"count\": 2}, {\"type\": \"CHILD\", \"count\": 1},"
+                + " {\"type\": \"INFANT\", \"count\": 1}]}");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("{\"totalTickets\":4,\"totalSeats\":3,\"totalPrice\":65,\"adultTickets\":2,"
+                + "\"childTickets\":1,\"infantTickets\":1}", response.body());
+        assertEquals(1, payments.size());
+        assertArrayEquals(new long[] { 7L, 65L }, payments.get(0));
+    }
+
+    @Test
+    void testQuoteDoesNotCharge() throws Exception {
+        HttpResponse<String> response = post("/quotes", "{\"tickets\":[{\"type\":\"ADULT\",\"count\":3}]}");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("{\"totalTickets\":3,\"totalSeats\":3,\"totalPrice\":75,\"adultTickets\":3,"
+                + "\"childTickets\":0,\"infantTickets\":0}", response.body());
+        assertEquals(0, payments.size());
+    }
+
+    @Test
+    void testRejectedOrdersGetAClientError() throws Exception {
+        HttpResponse<String> noAdult = post("/purchases",
+                "{\"accountId\": 7, \"tickets\": [{\"type\": \"CHILD\", \"count\": 1}]}");
+        assertEquals(400, noAdult.statusCode());
+        assertEquals("{\"error\":\"Child and Infant tickets cannot be purchased without purchasing an Adult "
+                + "ticket.\"}", noAdult.body());
+
+        assertEquals(400, post("/purchases", "{\"accountId\": 7, \"tickets\": [").statusCode());
+        assertEquals(400, post("/quotes", "").statusCode());
+        assertEquals(413, post("/quotes", " ".repeat(20_000)).statusCode());
+        assertEquals(0, payments.size());
+    }
+
+    @Test
+    void testOnlyPurchasesThatNeverReachedTheGatewayAreRetryable() throws Exception {
+        HttpResponse<String> shed = post("/purchases",
+                "{\"accountId\": 503, \"tickets\": [{\"type\": \"ADULT\", \"count\": 1}]}");
+        assertEquals(503, shed.statusCode());
+
+        HttpResponse<String> timedOut = post("/purchases",
+                "{\"accountId\": 504, \"tickets\": [{\"type\": \"ADULT\", \"count\": 1}]}");
+        assertEquals(504, timedOut.statusCode());
+        assertEquals("{\"error\":\"The purchase did not complete in time and its outcome is unknown. Do not "
+                + "retry it; check whether the account was charged first.\"}", timedOut.body());
+    }
+
+    @Test
+    void testRetriedPurchaseWithTheSameKeyIsChargedOnce() throws Exception {
+        String body = "{\"accountId\": 7, \"tickets\": [{\"type\": \"ADULT\", \"count\": 1}]}";
+        HttpRequest request = HttpRequest.newBuilder(uri("/purchases"))
+                .header("Idempotency-Key", "basket-42")
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+
+        assertEquals(200, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+        assertEquals(200, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+        assertEquals(1, payments.size());
+    }
+
+    @Test
+    void testCodecSkipsUnknownFieldsAndRejectsBadValues() {
+        TicketJsonCodec.Order order = TicketJsonCodec.decodeOrder(buffer(
+                " {\"basket\": {\"items\": [1, \"}\"], \"note\": null}, \"tickets\": [{\"count\": 2,"
+                        + " \"type\": \"INFANT\", \"extra\": true}], \"accountId\": 12} "));
+        assertEquals(12L, order.getAccountId());
+        assertEquals(Type.INFANT, order.getTicketTypeRequests()[0].getTicketType());
+        assertEquals(2, order.getTicketTypeRequests()[0].getNoOfTickets());
+
+        assertNull(TicketJsonCodec.decodeOrder(buffer("{\"tickets\": [{\"type\": null}]}"))
+                .getTicketTypeRequests()[0].getTicketType());
+        assertThrows(InvalidPurchaseException.class,
+                () -> TicketJsonCodec.decodeOrder(buffer("{\"tickets\": [{\"type\": \"SENIOR\"}]}")));
+        assertThrows(InvalidPurchaseException.class,
+                () -> TicketJsonCodec.decodeOrder(buffer("{\"accountId\": 1.5}")));
+        assertThrows(InvalidPurchaseException.class,
+                () -> TicketJsonCodec.decodeOrder(buffer("{\"accountId\": 99999999999999999999}")));
+        assertThrows(InvalidPurchaseException.class,
+                () -> TicketJsonCodec.decodeOrder(buffer("{\"accountId\": 1} {}")));
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path)).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+
+    private static ByteBuf buffer(String json) {
+        return Unpooled.copiedBuffer(json, StandardCharsets.UTF_8);
+    }
+}
@@ -1,12 +1,15 @@
 package uk.gov.dwp.uc.pairtest.domain;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 
 import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.services.PriceTable;
 import uk.gov.dwp.uc.pairtest.services.TicketProcessor;
 
 
@@ -17,15 +20,8 @@ public class TicketProcessorTests {
     private TicketProcessor ticketProcessor;
      @BeforeEach
      void setup() throws Exception {
-        ticketProcessor = new TicketProcessor();
-        // Set ticket prices using reflection since @Value doesn't work in tests
-        java.lang.reflect.Field childPriceField = TicketProcessor.class.getDeclaredField("childTicketPrice");
-        childPriceField.setAccessible(true);
-        childPriceField.setInt(ticketProcessor, 15);
-        
-        java.lang.reflect.Field adultPriceField = TicketProcessor.class.getDeclaredField("adultTicketPrice");
-        adultPriceField.setAccessible(true);
-        adultPriceField.setInt(ticketProcessor, 25);
+        // Adult tickets at 25 and child tickets at 15, as in application.properties.
+        ticketProcessor = TestFixtures.ticketProcessor();
     }  
     
 
@@ -83,4 +79,45 @@ public class TicketProcessorTests {
         assertEquals(0, summary.getChildTickets());
         assertEquals(2, summary.getInfantTickets());
     }
+
+    @Test
+     void testProcessTickets_MatchesPerTypePricingForEveryMix() {
+        // The price table must give the same totals as pricing each type by hand.
+        for (int adults = 0; adults <= 25; adults++) {
+            for (int children = 0; children <= 25 - adults; children++) {
+                for (int infants = 0; infants <= 25 - adults - children; infants++) {
+                    TicketSummary summary = ticketProcessor.processTickets(
+                            new TicketTypeRequest(Type.ADULT, adults),
+                            new TicketTypeRequest(Type.CHILD, children),
+                            new TicketTypeRequest(Type.INFANT, infants));
+
+                    assertEquals(adults + children + infants, summary.getTotalTickets());
+                    assertEquals(adults + children, summary.getTotalSeats());
+                    assertEquals(adults * 25 + children * 15, summary.getTotalPrice());
+                }
+            }
+        }
+    }
+
+    @Test
+     void testProcessTickets_UsesTheRequestedPriceTier() {
+        // GIVEN: A standard tier and a peak tier, indexed ADULT, CHILD, INFANT.
+        ticketProcessor.setPriceTable(new PriceTable(new int[] { 99, 99, 0 }, new int[] { 30, 18, 0 }));
+        TicketTypeRequest adult = new TicketTypeRequest(Type.ADULT, 2);
+        TicketTypeRequest child = new TicketTypeRequest(Type.CHILD, 1);
+
+        // THEN: Each tier prices the same order with its own prices, the standard one from the configuration.
+        assertEquals(65, ticketProcessor.processTickets(adult, child).getTotalPrice());
+        assertEquals(78, ticketProcessor.processTickets(1, adult, child).getTotalPrice());
+        assertThrows(IllegalArgumentException.class, () -> ticketProcessor.processTickets(2, adult));
+    }
+
+    @Test
+     void testProcessTickets_RejectsTotalsThatOverflow() {
+        // GIVEN: Ticket counts whose total would wrap around an int.
+        TicketTypeRequest adult = new TicketTypeRequest(Type.ADULT, Integer.MAX_VALUE);
+        TicketTypeRequest moreAdults = new TicketTypeRequest(Type.ADULT, 3);
+
+        assertThrows(InvalidPurchaseException.class, () -> ticketProcessor.processTickets(adult, moreAdults));
+    }
 }
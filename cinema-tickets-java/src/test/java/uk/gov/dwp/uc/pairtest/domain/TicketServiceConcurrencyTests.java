@@ -0,0 +1,97 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.services.TicketServiceImpl;
+
+@DisplayName("Ticket Service concurrency Tests")
+public class TicketServiceConcurrencyTests {
+
+    private static final int THREADS = 8;
+    private static final int PURCHASES_PER_THREAD = 500;
+
+    private final Map<Long, Integer> paidByAccount = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> seatsByAccount = new ConcurrentHashMap<>();
+    private TicketServiceImpl ticketService;
+
+    @BeforeEach
+    void setUp() {
+        TicketPaymentService payments = (accountId, amount) -> paidByAccount.merge(accountId, amount, Integer::sum);
+        SeatReservationService seats = (accountId, count) -> seatsByAccount.merge(accountId, count, Integer::sum);
+
+        ticketService = TestFixtures.ticketService(payments, seats);
+    }
+
+    @Test
+    void testConcurrentPurchasesNeverLeakSummariesAcrossAccounts() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < PURCHASES_PER_THREAD; i++) {
+                        long accountId = thread * PURCHASES_PER_THREAD + i + 1L;
+                        ticketService.purchaseTickets(accountId, ordersFor(accountId));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(THREADS * PURCHASES_PER_THREAD, paidByAccount.size());
+        for (Map.Entry<Long, Integer> paid : paidByAccount.entrySet()) {
+            long accountId = paid.getKey();
+            int adults = adultsFor(accountId);
+            int children = childrenFor(accountId);
+            assertEquals(adults * 25 + children * 15, paid.getValue(),
+                    "Account " + accountId + " was charged for another account's order");
+            assertEquals(adults + children, seatsByAccount.get(accountId));
+        }
+        assertTrue(seatsByAccount.keySet().containsAll(paidByAccount.keySet()));
+    }
+
+    // Each account gets a distinct mix so a leaked summary shows up as a wrong amount.
+    private static TicketTypeRequest[] ordersFor(long accountId) {
+        return new TicketTypeRequest[] {
+                new TicketTypeRequest(Type.ADULT, adultsFor(accountId)),
+                new TicketTypeRequest(Type.CHILD, childrenFor(accountId)),
+                new TicketTypeRequest(Type.INFANT, 1)
+        };
+    }
+
+    private static int adultsFor(long accountId) {
+        return (int) (accountId % 10) + 1;
+    }
+
+    private static int childrenFor(long accountId) {
+        return (int) (accountId / 10 % 10);
+    }
+}
@@ -34,19 +34,11 @@ public class TicketServiceImplTests {
     void setUp() throws Exception {
         ticketProcessor = mock(TicketProcessor.class, RETURNS_MOCKS);
         BookTicketAndReserveSeat bookTicketAndReserveSeat = mock(BookTicketAndReserveSeat.class, RETURNS_MOCKS);
-        TicketAndAccountsValidations ticketAndAccountsValidations = new TicketAndAccountsValidations();
+        TicketAndAccountsValidations ticketAndAccountsValidations = TestFixtures.validations();
 
         ticketService = new TicketServiceImpl(ticketProcessor, bookTicketAndReserveSeat, ticketAndAccountsValidations);
 
-        // Set minTicket and maxTicket using reflection since @Value doesn't work in unit tests
-        Field minTicketField = TicketServiceImpl.class.getDeclaredField("minTicket");
-        minTicketField.setAccessible(true);
-        minTicketField.set(ticketService, 1);
-
-        Field maxTicketField = TicketServiceImpl.class.getDeclaredField("maxTicket");
-        maxTicketField.setAccessible(true);
-        maxTicketField.set(ticketService, 25);
-
+        // Set emptyString using reflection since @Value doesn't work in unit tests
         Field emptyStringField = TicketServiceImpl.class.getDeclaredField("emptyString");
         emptyStringField.setAccessible(true);
         emptyStringField.set(ticketService, "Ticket Type cannot be null");
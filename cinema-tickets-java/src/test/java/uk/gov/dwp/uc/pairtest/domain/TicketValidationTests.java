@@ -0,0 +1,93 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.utils.TicketAndAccountsValidations;
+
+@DisplayName("Ticket request validation Tests")
+public class TicketValidationTests {
+
+    private TicketAndAccountsValidations validations;
+
+    @BeforeEach
+    void setUp() {
+        validations = TestFixtures.validations();
+    }
+
+    @Test
+    void testValidMixPasses() {
+        assertDoesNotThrow(() -> validations.validateTicketRequests(
+                new TicketTypeRequest(Type.ADULT, 2),
+                new TicketTypeRequest(Type.CHILD, 3),
+                new TicketTypeRequest(Type.INFANT, 2)));
+    }
+
+    @Test
+    void testMalformedEntriesAreRejected() {
+        assertThrows(InvalidPurchaseException.class, () -> validations.validateTicketRequests(
+                new TicketTypeRequest(Type.ADULT, 1), null));
+        assertThrows(InvalidPurchaseException.class, () -> validations.validateTicketRequests(
+                new TicketTypeRequest(null, 1)));
+        assertThrows(InvalidPurchaseException.class, () -> validations.validateTicketRequests(
+                new TicketTypeRequest(Type.ADULT, 3), new TicketTypeRequest(Type.ADULT, -2)));
+        assertThrows(InvalidPurchaseException.class,
+                () -> validations.validateTicketRequests((TicketTypeRequest[]) null));
+    }
+
+    @Test
+    void testRulesMatchTheSummaryValidation() {
+        assertEquals("At least 1 ticket must be purchased.", assertThrows(InvalidPurchaseException.class,
+                () -> validations.validateTicketRequests()).getMessage());
+        assertEquals("Only a maximum of 25 tickets can be purchased at a time.",
+                assertThrows(InvalidPurchaseException.class, () -> validations.validateTicketRequests(
+                        new TicketTypeRequest(Type.ADULT, 20), new TicketTypeRequest(Type.CHILD, 6))).getMessage());
+        assertEquals("Child and Infant tickets cannot be purchased without purchasing an Adult ticket.",
+                assertThrows(InvalidPurchaseException.class, () -> validations.validateTicketRequests(
+                        new TicketTypeRequest(Type.INFANT, 1))).getMessage());
+        assertEquals("Number of INFANT tickets cannot exceed number of ADULT tickets",
+                assertThrows(InvalidPurchaseException.class, () -> validations.validateTicketRequests(
+                        new TicketTypeRequest(Type.ADULT, 1), new TicketTypeRequest(Type.INFANT, 2))).getMessage());
+    }
+
+    @Test
+    void testSummaryValidationAppliesTheSameRules() {
+        assertDoesNotThrow(() -> validations.validateTicketPurchase(new TicketSummary(3, 2, 40, 1, 1, 1)));
+        assertEquals("At least 1 ticket must be purchased.", assertThrows(InvalidPurchaseException.class,
+                () -> validations.validateTicketPurchase(new TicketSummary(0, 0, 0, 0, 0, 0))).getMessage());
+        assertEquals("Only a maximum of 25 tickets can be purchased at a time.",
+                assertThrows(InvalidPurchaseException.class, () -> validations.validateTicketPurchase(
+                        new TicketSummary(26, 26, 650, 26, 0, 0))).getMessage());
+        assertEquals("Child and Infant tickets cannot be purchased without purchasing an Adult ticket.",
+                assertThrows(InvalidPurchaseException.class, () -> validations.validateTicketPurchase(
+                        new TicketSummary(1, 1, 15, 0, 1, 0))).getMessage());
+        assertEquals("Number of INFANT tickets cannot exceed number of ADULT tickets",
+                assertThrows(InvalidPurchaseException.class, () -> validations.validateTicketPurchase(
+                        new TicketSummary(3, 1, 25, 1, 0, 2))).getMessage());
+    }
+
+    @Test
+    void testOversizedOrderStopsWithoutOverflowing() {
+        assertThrows(InvalidPurchaseException.class, () -> validations.validateTicketRequests(
+                new TicketTypeRequest(Type.ADULT, Integer.MAX_VALUE), new TicketTypeRequest(Type.ADULT, 3)));
+    }
+
+    @Test
+    void testRejectionsArePreallocatedAndStackless() {
+        InvalidPurchaseException first = assertThrows(InvalidPurchaseException.class,
+                () -> validations.validateAccountId(-1L));
+        InvalidPurchaseException second = assertThrows(InvalidPurchaseException.class,
+                () -> validations.validateAccountId(null));
+
+        assertSame(first, second);
+        assertEquals(0, first.getStackTrace().length);
+    }
+}